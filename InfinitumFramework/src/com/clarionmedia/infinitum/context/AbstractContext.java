@@ -54,6 +54,9 @@ import com.clarionmedia.infinitum.http.rest.impl.RestfulNameValueMapper;
 import com.clarionmedia.infinitum.http.rest.impl.RestfulSession;
 import com.clarionmedia.infinitum.http.rest.impl.RestfulXmlMapper;
 import com.clarionmedia.infinitum.internal.StringUtil;
+import com.clarionmedia.infinitum.internal.caching.CacheStats;
+import com.clarionmedia.infinitum.internal.caching.CacheStatsRegistry;
+import com.clarionmedia.infinitum.internal.caching.CacheStatsReporter;
 import com.clarionmedia.infinitum.orm.Session;
 import com.clarionmedia.infinitum.orm.persistence.PersistencePolicy;
 import com.clarionmedia.infinitum.orm.persistence.impl.AnnotationsPersistencePolicy;
@@ -208,6 +211,18 @@ public abstract class AbstractContext implements InfinitumContext {
 		// Execute post processors
 		executeBeanPostProcessors(beanPostProcessors);
 		executeBeanFactoryPostProcessors(beanFactoryPostProcessors);
+
+		// Start periodic cache statistics reporting if configured
+		long statsInterval = getCacheStatsReportInterval();
+		if (statsInterval > 0 && isDebug())
+			CacheStatsReporter.start(this, statsInterval);
+		else
+			CacheStatsReporter.stop();
+	}
+
+	@Override
+	public List<CacheStats> getCacheStats() {
+		return CacheStatsRegistry.getStats();
 	}
 
 	@Override
@@ -26,6 +26,7 @@ import android.content.Context;
 import com.clarionmedia.infinitum.context.exception.InfinitumConfigurationException;
 import com.clarionmedia.infinitum.context.impl.XmlContextFactory;
 import com.clarionmedia.infinitum.di.BeanFactory;
+import com.clarionmedia.infinitum.internal.caching.CacheStats;
 import com.clarionmedia.infinitum.orm.Session;
 import com.clarionmedia.infinitum.orm.persistence.PersistencePolicy;
 
@@ -77,6 +78,22 @@ public interface InfinitumContext {
 		SQLITE, REST
 	}
 
+	/**
+	 * Represents the cache implementation backing a {@link Session}.
+	 */
+	public static enum SessionCacheType {
+		LRU {
+			public String toString() {
+				return "lru";
+			}
+		},
+		CONCURRENT {
+			public String toString() {
+				return "concurrent";
+			}
+		}
+	}
+
 	/**
 	 * Must be executed after the {@code InfinitumContext} has been initialized.
 	 * 
@@ -169,6 +186,33 @@ public interface InfinitumContext {
 	 */
 	boolean isAutocommit();
 
+	/**
+	 * Returns the {@link SessionCacheType} used for {@link Session} caches.
+	 * {@code LRU} caches serialize all access behind a single lock, while
+	 * {@code CONCURRENT} caches allow lock-free lookups and approximate
+	 * least-recently-used eviction, which scales better when a
+	 * {@code Session} is shared between threads.
+	 * 
+	 * @return {@code SessionCacheType} for this application
+	 */
+	SessionCacheType getSessionCacheType();
+
+	/**
+	 * Returns the interval, in seconds, at which the statistics of the
+	 * framework's caches are logged. Reporting is disabled if this is 0.
+	 * 
+	 * @return cache statistics reporting interval in seconds
+	 */
+	long getCacheStatsReportInterval();
+
+	/**
+	 * Returns a {@link CacheStats} snapshot for every live cache created by the
+	 * framework, including {@link Session} caches and REST response caches.
+	 * 
+	 * @return {@link List} of {@code CacheStats}
+	 */
+	List<CacheStats> getCacheStats();
+
 	/**
 	 * Retrieves the {@link RestfulContext} for this {@code InfinitumContext}.
 	 * The {@code RestfulConfiguration} contains configuration settings for the
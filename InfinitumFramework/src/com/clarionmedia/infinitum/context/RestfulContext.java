@@ -20,6 +20,7 @@
 package com.clarionmedia.infinitum.context;
 
 import com.clarionmedia.infinitum.context.exception.InfinitumConfigurationException;
+import com.clarionmedia.infinitum.http.impl.HttpConnectionPool;
 import com.clarionmedia.infinitum.http.rest.AuthenticationStrategy;
 
 /**
@@ -153,6 +154,120 @@ public interface RestfulContext {
 	 */
 	void setResponseTimeout(int responseTimeout);
 
+	/**
+	 * Retrieves the maximum number of pooled connections to the web service.
+	 * 
+	 * @return maximum number of connections
+	 */
+	int getMaxConnections();
+
+	/**
+	 * Sets the maximum number of pooled connections to the web service. This
+	 * must be set before the {@link HttpConnectionPool} is first retrieved.
+	 * 
+	 * @param maxConnections
+	 *            the maximum number of connections
+	 */
+	void setMaxConnections(int maxConnections);
+
+	/**
+	 * Retrieves the maximum number of pooled connections to a single route.
+	 * 
+	 * @return maximum number of connections per route
+	 */
+	int getMaxConnectionsPerRoute();
+
+	/**
+	 * Sets the maximum number of pooled connections to a single route. This
+	 * must be set before the {@link HttpConnectionPool} is first retrieved.
+	 * 
+	 * @param maxConnectionsPerRoute
+	 *            the maximum number of connections per route
+	 */
+	void setMaxConnectionsPerRoute(int maxConnectionsPerRoute);
+
+	/**
+	 * Retrieves the number of seconds a pooled connection may be idle before
+	 * it is closed. A value of zero disables idle eviction.
+	 * 
+	 * @return idle connection timeout in seconds
+	 */
+	int getIdleConnectionTimeout();
+
+	/**
+	 * Sets the number of seconds a pooled connection may be idle before it is
+	 * closed. This must be set before the {@link HttpConnectionPool} is first
+	 * retrieved.
+	 * 
+	 * @param idleConnectionTimeout
+	 *            the idle connection timeout in seconds
+	 */
+	void setIdleConnectionTimeout(int idleConnectionTimeout);
+
+	/**
+	 * Retrieves the number of seconds a connection is kept alive if the web
+	 * service does not specify a duration.
+	 * 
+	 * @return keep-alive duration in seconds
+	 */
+	int getKeepAliveDuration();
+
+	/**
+	 * Sets the number of seconds a connection is kept alive if the web service
+	 * does not specify a duration. This must be set before the
+	 * {@link HttpConnectionPool} is first retrieved.
+	 * 
+	 * @param keepAliveDuration
+	 *            the keep-alive duration in seconds
+	 */
+	void setKeepAliveDuration(int keepAliveDuration);
+
+	/**
+	 * Indicates if pooled connections are checked for staleness before they
+	 * are reused.
+	 * 
+	 * @return {@code true} if stale checking is enabled, {@code false} if not
+	 */
+	boolean isStaleCheckingEnabled();
+
+	/**
+	 * Sets the value indicating if pooled connections are checked for
+	 * staleness before they are reused. This must be set before the
+	 * {@link HttpConnectionPool} is first retrieved.
+	 * 
+	 * @param staleCheckingEnabled
+	 *            {@code true} if stale checking should be enabled,
+	 *            {@code false} if not
+	 */
+	void setStaleCheckingEnabled(boolean staleCheckingEnabled);
+
+	/**
+	 * Retrieves the number of seconds a request waits for a pooled connection
+	 * before failing. A value of zero waits indefinitely.
+	 * 
+	 * @return connection request timeout in seconds
+	 */
+	int getConnectionRequestTimeout();
+
+	/**
+	 * Sets the number of seconds a request waits for a pooled connection
+	 * before failing. This must be set before the {@link HttpConnectionPool}
+	 * is first retrieved.
+	 * 
+	 * @param connectionRequestTimeout
+	 *            the connection request timeout in seconds
+	 */
+	void setConnectionRequestTimeout(int connectionRequestTimeout);
+
+	/**
+	 * Retrieves the {@link HttpConnectionPool} shared by the web service
+	 * clients of this {@code RestfulContext}. The pool is created using the
+	 * configured connection settings the first time it is retrieved.
+	 * 
+	 * @return {@code HttpConnectionPool}
+	 */
+	HttpConnectionPool getConnectionPool();
+
 	/**
 	 * Retrieves the name of the bean for the configured {@link RestfulSession}.
 	 * 
@@ -89,6 +89,30 @@ public class XmlApplicationContext extends AbstractContext {
 		throw new InfinitumConfigurationException("Unknown configuration mode '" + mode + "'.");
 	}
 	
+	@Override
+	public SessionCacheType getSessionCacheType() {
+		String type = mAppConfig.get("sessionCache");
+		if (type == null)
+			return SessionCacheType.LRU;
+		if (type.equalsIgnoreCase(SessionCacheType.LRU.toString()))
+			return SessionCacheType.LRU;
+		else if (type.equalsIgnoreCase(SessionCacheType.CONCURRENT.toString()))
+			return SessionCacheType.CONCURRENT;
+		throw new InfinitumConfigurationException("Unknown session cache type '" + type + "'.");
+	}
+
+	@Override
+	public long getCacheStatsReportInterval() {
+		String interval = mAppConfig.get("cacheStatsInterval");
+		if (interval == null)
+			return 0;
+		try {
+			return Math.max(Long.parseLong(interval), 0);
+		} catch (NumberFormatException e) {
+			throw new InfinitumConfigurationException("Invalid cache statistics interval '" + interval + "'.");
+		}
+	}
+
 	@Override
 	public boolean hasSqliteDb() {
 		return mSqliteConfig != null;
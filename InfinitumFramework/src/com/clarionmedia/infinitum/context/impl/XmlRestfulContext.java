@@ -29,6 +29,7 @@ import org.simpleframework.xml.Root;
 import com.clarionmedia.infinitum.context.InfinitumContext;
 import com.clarionmedia.infinitum.context.RestfulContext;
 import com.clarionmedia.infinitum.context.exception.InfinitumConfigurationException;
+import com.clarionmedia.infinitum.http.impl.HttpConnectionPool;
 import com.clarionmedia.infinitum.http.rest.AuthenticationStrategy;
 import com.clarionmedia.infinitum.http.rest.TokenGenerator;
 import com.clarionmedia.infinitum.http.rest.impl.SharedSecretAuthentication;
@@ -56,6 +57,8 @@ public class XmlRestfulContext implements RestfulContext {
 	
 	private InfinitumContext mParentContext;
 
+	private HttpConnectionPool mConnectionPool;
+
 	@Override
 	public InfinitumContext getParentContext() {
 		return mParentContext;
@@ -158,6 +161,79 @@ public class XmlRestfulContext implements RestfulContext {
 		mProperties.put("responseTimeout", Integer.toString(responseTimeout));
 	}
 
+	@Override
+	public int getMaxConnections() {
+		return getIntProperty("maxConnections", HttpConnectionPool.DEFAULT_MAX_CONNECTIONS);
+	}
+
+	@Override
+	public void setMaxConnections(int maxConnections) {
+		mProperties.put("maxConnections", Integer.toString(maxConnections));
+	}
+
+	@Override
+	public int getMaxConnectionsPerRoute() {
+		return getIntProperty("maxConnectionsPerRoute", HttpConnectionPool.DEFAULT_MAX_CONNECTIONS_PER_ROUTE);
+	}
+
+	@Override
+	public void setMaxConnectionsPerRoute(int maxConnectionsPerRoute) {
+		mProperties.put("maxConnectionsPerRoute", Integer.toString(maxConnectionsPerRoute));
+	}
+
+	@Override
+	public int getIdleConnectionTimeout() {
+		return getIntProperty("idleConnectionTimeout", HttpConnectionPool.DEFAULT_IDLE_TIMEOUT);
+	}
+
+	@Override
+	public void setIdleConnectionTimeout(int idleConnectionTimeout) {
+		mProperties.put("idleConnectionTimeout", Integer.toString(idleConnectionTimeout));
+	}
+
+	@Override
+	public int getKeepAliveDuration() {
+		return getIntProperty("keepAlive", HttpConnectionPool.DEFAULT_KEEP_ALIVE);
+	}
+
+	@Override
+	public void setKeepAliveDuration(int keepAliveDuration) {
+		mProperties.put("keepAlive", Integer.toString(keepAliveDuration));
+	}
+
+	@Override
+	public boolean isStaleCheckingEnabled() {
+		String staleCheck = mProperties.get("staleCheck");
+		if (staleCheck == null)
+			return true;
+		return Boolean.parseBoolean(staleCheck);
+	}
+
+	@Override
+	public void setStaleCheckingEnabled(boolean staleCheckingEnabled) {
+		mProperties.put("staleCheck", Boolean.toString(staleCheckingEnabled));
+	}
+
+	@Override
+	public int getConnectionRequestTimeout() {
+		return getIntProperty("connectionRequestTimeout", HttpConnectionPool.DEFAULT_CONNECTION_REQUEST_TIMEOUT);
+	}
+
+	@Override
+	public void setConnectionRequestTimeout(int connectionRequestTimeout) {
+		mProperties.put("connectionRequestTimeout", Integer.toString(connectionRequestTimeout));
+	}
+
+	@Override
+	public synchronized HttpConnectionPool getConnectionPool() {
+		if (mConnectionPool == null) {
+			mConnectionPool = new HttpConnectionPool(getMaxConnections(), getMaxConnectionsPerRoute(),
+					getIdleConnectionTimeout(), getKeepAliveDuration(), isStaleCheckingEnabled(),
+					getConnectionRequestTimeout());
+		}
+		return mConnectionPool;
+	}
+
 	@Override
 	public String getClientBean() {
 		return mClientBean;
@@ -197,6 +273,17 @@ public class XmlRestfulContext implements RestfulContext {
 		}
 	}
 
+	private int getIntProperty(String name, int defaultValue) {
+		String value = mProperties.get(name);
+		if (value == null)
+			return defaultValue;
+		try {
+			return Integer.parseInt(value.trim());
+		} catch (NumberFormatException e) {
+			throw new InfinitumConfigurationException("Invalid value '" + value + "' for property '" + name + "'.");
+		}
+	}
+
 	@Root
 	private static class Authentication {
 
@@ -19,6 +19,8 @@
 
 package com.clarionmedia.infinitum.http;
 
+import java.io.InputStream;
+import java.nio.ByteBuffer;
 import java.util.Map;
 
 /**
@@ -46,6 +48,24 @@ public interface HttpClientResponse extends HttpClientMessage {
 	 */
 	byte[] getResponseData();
 
+	/**
+	 * Returns the response message data as a read-only {@link ByteBuffer}.
+	 * Unlike {@link #getResponseData()}, this does not require the message
+	 * data to be copied onto the heap if it is backed by a file.
+	 * 
+	 * @return message data as a {@code ByteBuffer}
+	 */
+	ByteBuffer getResponseDataAsBuffer();
+
+	/**
+	 * Returns an {@link InputStream} for reading the response message data.
+	 * Unlike {@link #getResponseData()}, this does not require the message
+	 * data to be copied onto the heap if it is backed by a file.
+	 * 
+	 * @return {@code InputStream} for the message data
+	 */
+	InputStream getResponseDataAsStream();
+
 	/**
 	 * Returns the response message data as a {@link String}.
 	 * 
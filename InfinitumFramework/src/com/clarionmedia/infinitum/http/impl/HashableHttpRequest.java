@@ -21,6 +21,7 @@ package com.clarionmedia.infinitum.http.impl;
 
 import java.net.URI;
 import java.util.HashMap;
+import java.util.Locale;
 import java.util.Map;
 
 import org.apache.http.Header;
@@ -28,12 +29,19 @@ import org.apache.http.client.methods.HttpUriRequest;
 import org.apache.http.impl.client.RequestWrapper;
 
 import com.clarionmedia.infinitum.http.HttpClientRequest;
+import com.clarionmedia.infinitum.internal.caching.CacheKey;
 
 /**
  * <p>
  * Wrapper for {@link HttpUriRequest} to support hashing and equality for
  * the purpose of HTTP caching.
  * </p>
+ * <p>
+ * Requests are identified by a {@link CacheKey} computed from the request
+ * method, the canonical form of the request URI and the values of the headers
+ * responses commonly vary on. The key is computed once and reused until the
+ * request is modified through this wrapper.
+ * </p>
  * 
  * @author Tyler Treat
  * @version 1.0 08/14/12
@@ -41,7 +49,14 @@ import com.clarionmedia.infinitum.http.HttpClientRequest;
  */
 public class HashableHttpRequest implements HttpClientRequest {
 
+	/**
+	 * Names of the request headers which are included in the cache key,
+	 * in lower case and sorted.
+	 */
+	public static final String[] VARY_HEADERS = { "accept", "accept-encoding", "accept-language", "authorization" };
+
 	private RequestWrapper mHttpRequest;
+	private CacheKey mCacheKey;
 
 	/**
 	 * Creates a new {@code HashableHttpRequest} for the given
@@ -83,6 +98,7 @@ public class HashableHttpRequest implements HttpClientRequest {
 	@Override
 	public void addHeader(String header, String value) {
 		mHttpRequest.addHeader(header, value);
+		mCacheKey = null;
 	}
 
 	@Override
@@ -93,6 +109,7 @@ public class HashableHttpRequest implements HttpClientRequest {
 	@Override
 	public void setRequestUri(String uri) {
 		mHttpRequest.setURI(URI.create(uri));
+		mCacheKey = null;
 	}
 	
 	@Override
@@ -100,62 +117,71 @@ public class HashableHttpRequest implements HttpClientRequest {
 		return mHttpRequest.getMethod();
 	}
 
+	/**
+	 * Returns the {@link CacheKey} identifying this request.
+	 * 
+	 * @return {@code CacheKey}
+	 */
+	public CacheKey getCacheKey() {
+		CacheKey key = mCacheKey;
+		if (key == null) {
+			StringBuilder content = new StringBuilder(128);
+			content.append(mHttpRequest.getMethod()).append('\n');
+			appendCanonicalUri(content, mHttpRequest.getURI());
+			for (String name : VARY_HEADERS) {
+				Header[] headers = mHttpRequest.getHeaders(name);
+				if (headers.length == 0)
+					continue;
+				content.append('\n').append(name).append(':');
+				for (int i = 0; i < headers.length; i++) {
+					if (i > 0)
+						content.append(',');
+					content.append(headers[i].getValue().trim());
+				}
+			}
+			key = CacheKey.forContent(content.toString());
+			mCacheKey = key;
+		}
+		return key;
+	}
+
 	@Override
 	public int hashCode() {
-		final int PRIME = 31;
-		int hash = 7;
-		hash *= PRIME + mHttpRequest.getMethod().hashCode();
-		for (Header header : mHttpRequest.getAllHeaders()) {
-			hash *= PRIME + header.getName().hashCode();
-			hash *= PRIME + header.getValue().hashCode();
-		}
-		hash *= PRIME
-				+ mHttpRequest.getProtocolVersion().getProtocol()
-						.hashCode();
-		hash *= PRIME + mHttpRequest.getProtocolVersion().getMajor();
-		hash *= PRIME + mHttpRequest.getProtocolVersion().getMinor();
-		hash *= PRIME + mHttpRequest.getURI().toString().hashCode();
-		return hash;
+		return getCacheKey().hashCode();
 	}
 
 	@Override
 	public boolean equals(Object other) {
 		if (this == other)
 			return true;
-		if (getClass() != other.getClass())
-			return false;
-		HashableHttpRequest otherRequest = (HashableHttpRequest) other;
-		Header[] headers = mHttpRequest.getAllHeaders();
-		Header[] otherHeaders = otherRequest.mHttpRequest.getAllHeaders();
-		if (headers.length != otherHeaders.length)
+		if (other == null || getClass() != other.getClass())
 			return false;
-		boolean match = false;
-		for (Header header : headers) {
-			for (Header otherHeader : otherHeaders) {
-				if (header.getName().equals(otherHeader.getName())
-						&& header.getValue().equals(otherHeader.getValue())) {
-					match = true;
-					break;
-				}
-			}
-			if (!match)
-				return false;
-		}
-		return mHttpRequest.getMethod().equals(
-				otherRequest.mHttpRequest.getMethod())
-				&& mHttpRequest
-						.getProtocolVersion()
-						.getProtocol()
-						.equals(otherRequest.mHttpRequest
-								.getProtocolVersion().getProtocol())
-				&& mHttpRequest.getProtocolVersion().getMajor() == otherRequest.mHttpRequest
-						.getProtocolVersion().getMajor()
-				&& mHttpRequest.getProtocolVersion().getMinor() == otherRequest.mHttpRequest
-						.getProtocolVersion().getMinor()
-				&& mHttpRequest.getURI().equals(
-						otherRequest.mHttpRequest.getURI());
+		return getCacheKey().equals(((HashableHttpRequest) other).getCacheKey());
 	}
 	
+	/**
+	 * Appends the canonical form of the given {@link URI}, which has a lower
+	 * case scheme and host, no default port, a non-empty path and no fragment.
+	 */
+	private static void appendCanonicalUri(StringBuilder sb, URI uri) {
+		String scheme = uri.getScheme();
+		if (scheme != null) {
+			scheme = scheme.toLowerCase(Locale.US);
+			sb.append(scheme).append("://");
+		}
+		String host = uri.getHost();
+		if (host != null)
+			sb.append(host.toLowerCase(Locale.US));
+		int port = uri.getPort();
+		if (port != -1 && !(port == 80 && "http".equals(scheme)) && !(port == 443 && "https".equals(scheme)))
+			sb.append(':').append(port);
+		String path = uri.getRawPath();
+		sb.append(path == null || path.length() == 0 ? "/" : path);
+		String query = uri.getRawQuery();
+		if (query != null)
+			sb.append('?').append(query);
+	}
+
 	@Override
 	public String toString() {
 		return "[" + mHttpRequest.getMethod() + " " + mHttpRequest.getURI().toString() + "]";
@@ -0,0 +1,327 @@
+/*
+ * Copyright (c) 2012 Tyler Treat
+ *
+ * This file is part of Infinitum Framework.
+ *
+ * Infinitum Framework is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Infinitum Framework is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Infinitum Framework.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.clarionmedia.infinitum.http.impl;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.http.HeaderElement;
+import org.apache.http.HeaderElementIterator;
+import org.apache.http.HttpResponse;
+import org.apache.http.conn.ConnectionKeepAliveStrategy;
+import org.apache.http.conn.params.ConnManagerParams;
+import org.apache.http.conn.params.ConnPerRouteBean;
+import org.apache.http.conn.routing.HttpRoute;
+import org.apache.http.conn.scheme.PlainSocketFactory;
+import org.apache.http.conn.scheme.Scheme;
+import org.apache.http.conn.scheme.SchemeRegistry;
+import org.apache.http.conn.ssl.SSLSocketFactory;
+import org.apache.http.impl.client.DefaultHttpClient;
+import org.apache.http.impl.conn.tsccm.ThreadSafeClientConnManager;
+import org.apache.http.message.BasicHeaderElementIterator;
+import org.apache.http.params.BasicHttpParams;
+import org.apache.http.params.DefaultedHttpParams;
+import org.apache.http.params.HttpConnectionParams;
+import org.apache.http.params.HttpParams;
+import org.apache.http.protocol.HTTP;
+import org.apache.http.protocol.HttpContext;
+
+/**
+ * <p>
+ * A pool of persistent HTTP connections shared by every client created from
+ * it. Connections are kept alive for the duration advertised by the server's
+ * {@code Keep-Alive} header, or the configured keep-alive duration if none is
+ * given, and are checked for staleness before reuse. A daemon thread closes
+ * expired connections and connections which have been idle longer than the
+ * configured idle timeout.
+ * </p>
+ *
+ * @author Tyler Treat
+ * @version 1.0 10/17/26
+ * @since 1.0
+ */
+public class HttpConnectionPool {
+
+	/**
+	 * The default maximum number of connections in the pool.
+	 */
+	public static final int DEFAULT_MAX_CONNECTIONS = 20;
+
+	/**
+	 * The default maximum number of connections to a single route.
+	 */
+	public static final int DEFAULT_MAX_CONNECTIONS_PER_ROUTE = 4;
+
+	/**
+	 * The default number of seconds a connection may be idle before it is
+	 * closed.
+	 */
+	public static final int DEFAULT_IDLE_TIMEOUT = 30;
+
+	/**
+	 * The default number of seconds a connection is kept alive if the server
+	 * does not specify a duration.
+	 */
+	public static final int DEFAULT_KEEP_ALIVE = 30;
+
+	/**
+	 * The default number of seconds a request waits for a pooled connection
+	 * before failing.
+	 */
+	public static final int DEFAULT_CONNECTION_REQUEST_TIMEOUT = 30;
+
+	private static HttpConnectionPool sDefaultPool;
+
+	private final ThreadSafeClientConnManager mConnectionManager;
+	private final HttpParams mDefaultParams;
+	private final ConnectionKeepAliveStrategy mKeepAliveStrategy;
+	private final int mMaxConnections;
+	private final int mMaxConnectionsPerRoute;
+	private final long mIdleTimeout;
+	private final AtomicLong mEvictionCount;
+	private Thread mEvictor;
+
+	/**
+	 * Returns the {@code HttpConnectionPool} with the default settings which
+	 * is shared by clients that are not configured with a pool of their own.
+	 * It is created the first time it is retrieved.
+	 *
+	 * @return default {@code HttpConnectionPool}
+	 */
+	public static synchronized HttpConnectionPool getDefault() {
+		if (sDefaultPool == null)
+			sDefaultPool = new HttpConnectionPool();
+		return sDefaultPool;
+	}
+
+	/**
+	 * Constructs a new {@code HttpConnectionPool} with the default settings.
+	 */
+	public HttpConnectionPool() {
+		this(DEFAULT_MAX_CONNECTIONS, DEFAULT_MAX_CONNECTIONS_PER_ROUTE, DEFAULT_IDLE_TIMEOUT, DEFAULT_KEEP_ALIVE, true);
+	}
+
+	/**
+	 * Constructs a new {@code HttpConnectionPool} which waits at most
+	 * {@link #DEFAULT_CONNECTION_REQUEST_TIMEOUT} seconds for a connection.
+	 *
+	 * @param maxConnections
+	 *            the maximum number of connections in the pool
+	 * @param maxConnectionsPerRoute
+	 *            the maximum number of connections to a single route
+	 * @param idleTimeout
+	 *            the number of seconds a connection may be idle before it is
+	 *            closed, or zero to keep idle connections open
+	 * @param keepAlive
+	 *            the number of seconds a connection is kept alive if the
+	 *            server does not specify a duration
+	 * @param staleChecking
+	 *            {@code true} if connections should be checked for staleness
+	 *            before they are reused, {@code false} if not
+	 */
+	public HttpConnectionPool(int maxConnections, int maxConnectionsPerRoute, int idleTimeout, int keepAlive,
+			boolean staleChecking) {
+		this(maxConnections, maxConnectionsPerRoute, idleTimeout, keepAlive, staleChecking,
+				DEFAULT_CONNECTION_REQUEST_TIMEOUT);
+	}
+
+	/**
+	 * Constructs a new {@code HttpConnectionPool}.
+	 *
+	 * @param maxConnections
+	 *            the maximum number of connections in the pool
+	 * @param maxConnectionsPerRoute
+	 *            the maximum number of connections to a single route
+	 * @param idleTimeout
+	 *            the number of seconds a connection may be idle before it is
+	 *            closed, or zero to keep idle connections open
+	 * @param keepAlive
+	 *            the number of seconds a connection is kept alive if the
+	 *            server does not specify a duration
+	 * @param staleChecking
+	 *            {@code true} if connections should be checked for staleness
+	 *            before they are reused, {@code false} if not
+	 * @param connectionRequestTimeout
+	 *            the number of seconds a request waits for a connection before
+	 *            failing, or zero to wait indefinitely
+	 */
+	public HttpConnectionPool(int maxConnections, int maxConnectionsPerRoute, int idleTimeout, int keepAlive,
+			boolean staleChecking, int connectionRequestTimeout) {
+		mMaxConnections = maxConnections;
+		mMaxConnectionsPerRoute = maxConnectionsPerRoute;
+		mIdleTimeout = idleTimeout;
+		mEvictionCount = new AtomicLong();
+		HttpParams managerParams = new BasicHttpParams();
+		ConnManagerParams.setMaxTotalConnections(managerParams, maxConnections);
+		ConnManagerParams.setMaxConnectionsPerRoute(managerParams, new ConnPerRouteBean(maxConnectionsPerRoute));
+		SchemeRegistry schemeRegistry = new SchemeRegistry();
+		schemeRegistry.register(new Scheme("http", PlainSocketFactory.getSocketFactory(), 80));
+		schemeRegistry.register(new Scheme("https", SSLSocketFactory.getSocketFactory(), 443));
+		mConnectionManager = new ThreadSafeClientConnManager(managerParams, schemeRegistry);
+		mDefaultParams = new BasicHttpParams();
+		HttpConnectionParams.setStaleCheckingEnabled(mDefaultParams, staleChecking);
+		// Small requests on a reused connection would otherwise wait on delayed ACKs
+		HttpConnectionParams.setTcpNoDelay(mDefaultParams, true);
+		// Requests read this from the client, so fail rather than block forever once every connection is leased
+		ConnManagerParams.setTimeout(mDefaultParams, connectionRequestTimeout * 1000L);
+		mKeepAliveStrategy = new HeaderKeepAliveStrategy(keepAlive * 1000L);
+		if (idleTimeout > 0)
+			startEvictor();
+	}
+
+	/**
+	 * Creates a new {@link DefaultHttpClient} which executes its requests
+	 * using connections from this pool. Parameters not set in the given
+	 * {@link HttpParams} fall back to the defaults of this pool.
+	 *
+	 * @param params
+	 *            the {@code HttpParams} to use for the client
+	 * @return {@code DefaultHttpClient} backed by this pool
+	 */
+	public DefaultHttpClient createHttpClient(HttpParams params) {
+		DefaultHttpClient httpClient = new DefaultHttpClient(mConnectionManager, new DefaultedHttpParams(params,
+				mDefaultParams));
+		httpClient.setKeepAliveStrategy(mKeepAliveStrategy);
+		return httpClient;
+	}
+
+	/**
+	 * Returns the total number of open connections in this pool, both leased
+	 * and idle.
+	 *
+	 * @return number of open connections
+	 */
+	public int getConnectionsInPool() {
+		return mConnectionManager.getConnectionsInPool();
+	}
+
+	/**
+	 * Returns the number of open connections in this pool for the given
+	 * {@link HttpRoute}, both leased and idle.
+	 *
+	 * @param route
+	 *            the {@code HttpRoute} to retrieve the number of connections
+	 *            for
+	 * @return number of open connections for {@code route}
+	 */
+	public int getConnectionsInPool(HttpRoute route) {
+		return mConnectionManager.getConnectionsInPool(route);
+	}
+
+	/**
+	 * Returns the maximum number of connections in this pool.
+	 *
+	 * @return maximum number of connections
+	 */
+	public int getMaxConnections() {
+		return mMaxConnections;
+	}
+
+	/**
+	 * Returns the maximum number of connections to a single route.
+	 *
+	 * @return maximum number of connections per route
+	 */
+	public int getMaxConnectionsPerRoute() {
+		return mMaxConnectionsPerRoute;
+	}
+
+	/**
+	 * Returns the number of times the idle-eviction thread has closed idle or
+	 * expired connections.
+	 *
+	 * @return number of eviction runs
+	 */
+	public long getEvictionCount() {
+		return mEvictionCount.get();
+	}
+
+	/**
+	 * Closes all connections in this pool and stops its idle-eviction
+	 * thread. The pool cannot be used after it has been shut down.
+	 */
+	public synchronized void shutdown() {
+		if (mEvictor != null) {
+			mEvictor.interrupt();
+			mEvictor = null;
+		}
+		mConnectionManager.shutdown();
+	}
+
+	@Override
+	public String toString() {
+		return "HttpConnectionPool[connections=" + getConnectionsInPool() + ", maxConnections=" + mMaxConnections
+				+ ", maxConnectionsPerRoute=" + mMaxConnectionsPerRoute + ", evictions=" + getEvictionCount() + "]";
+	}
+
+	private synchronized void startEvictor() {
+		// Check twice per idle period so connections never outlive it by much
+		final long interval = Math.max(1000, mIdleTimeout * 500);
+		mEvictor = new Thread("InfinitumConnectionEvictor") {
+			@Override
+			public void run() {
+				while (!isInterrupted()) {
+					try {
+						sleep(interval);
+					} catch (InterruptedException e) {
+						return;
+					}
+					mConnectionManager.closeExpiredConnections();
+					mConnectionManager.closeIdleConnections(mIdleTimeout, TimeUnit.SECONDS);
+					mEvictionCount.incrementAndGet();
+				}
+			}
+		};
+		mEvictor.setDaemon(true);
+		mEvictor.start();
+	}
+
+	/**
+	 * Keeps connections alive for the duration given by the {@code timeout}
+	 * parameter of the response's {@code Keep-Alive} header, falling back to
+	 * a fixed duration.
+	 */
+	private static class HeaderKeepAliveStrategy implements ConnectionKeepAliveStrategy {
+
+		private final long mDefaultDuration;
+
+		public HeaderKeepAliveStrategy(long defaultDuration) {
+			mDefaultDuration = defaultDuration;
+		}
+
+		@Override
+		public long getKeepAliveDuration(HttpResponse response, HttpContext context) {
+			HeaderElementIterator it = new BasicHeaderElementIterator(response.headerIterator(HTTP.CONN_KEEP_ALIVE));
+			while (it.hasNext()) {
+				HeaderElement element = it.nextElement();
+				if ("timeout".equalsIgnoreCase(element.getName()) && element.getValue() != null) {
+					try {
+						return Long.parseLong(element.getValue().trim()) * 1000;
+					} catch (NumberFormatException e) {
+						break;
+					}
+				}
+			}
+			return mDefaultDuration;
+		}
+
+	}
+
+}
@@ -0,0 +1,263 @@
+/*
+ * Copyright (c) 2012 Tyler Treat
+ *
+ * This file is part of Infinitum Framework.
+ *
+ * Infinitum Framework is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Infinitum Framework is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Infinitum Framework.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.clarionmedia.infinitum.http.rest.impl;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map.Entry;
+
+import com.clarionmedia.infinitum.http.impl.HashableHttpRequest;
+import com.clarionmedia.infinitum.internal.DateFormatter;
+
+/**
+ * <p>
+ * The caching directives of a {@link RestResponse}, parsed from its
+ * {@code Cache-Control}, {@code Pragma}, {@code Expires} and {@code Vary}
+ * headers. Since responses are cached privately on the device,
+ * {@code s-maxage} and other shared cache directives are ignored.
+ * </p>
+ *
+ * @author Tyler Treat
+ * @version 1.0 10/17/26
+ * @since 1.0
+ */
+final class CacheControl {
+
+	private boolean mNoStore;
+	private boolean mNoCache;
+	private boolean mMustRevalidate;
+	private long mMaxAge = -1;
+	private long mStaleWhileRevalidate = -1;
+	private long mExpires = -1;
+	private String mETag;
+	private String mLastModified;
+	private String mVary;
+
+	private CacheControl() {
+	}
+
+	/**
+	 * Parses the caching directives of the given {@link RestResponse}.
+	 *
+	 * @param response
+	 *            the {@code RestResponse} to parse
+	 * @return {@code CacheControl}
+	 */
+	public static CacheControl parse(RestResponse response) {
+		CacheControl cacheControl = new CacheControl();
+		String directives = getHeader(response, "cache-control");
+		if (directives != null) {
+			for (String directive : splitDirectives(directives)) {
+				directive = directive.trim().toLowerCase(Locale.US);
+				if (directive.equals("no-store"))
+					cacheControl.mNoStore = true;
+				else if (directive.equals("no-cache") || directive.startsWith("no-cache="))
+					cacheControl.mNoCache = true;
+				else if (directive.equals("must-revalidate") || directive.equals("proxy-revalidate"))
+					cacheControl.mMustRevalidate = true;
+				else if (directive.startsWith("max-age"))
+					cacheControl.mMaxAge = parseSeconds(directive);
+				else if (directive.startsWith("stale-while-revalidate"))
+					cacheControl.mStaleWhileRevalidate = parseSeconds(directive);
+			}
+		}
+		String pragma = getHeader(response, "pragma");
+		if (pragma != null && pragma.toLowerCase(Locale.US).contains("no-cache"))
+			cacheControl.mNoCache = true;
+		String expires = getHeader(response, "expires");
+		if (expires != null) {
+			Date expirationDate = DateFormatter.parseHttpExpiresStringAsDate(expires.trim());
+			// Invalid dates, such as "0", mean the response is already expired
+			cacheControl.mExpires = expirationDate == null ? 0 : expirationDate.getTime();
+		}
+		cacheControl.mETag = getHeader(response, "etag");
+		cacheControl.mLastModified = getHeader(response, "last-modified");
+		cacheControl.mVary = getHeader(response, "vary");
+		return cacheControl;
+	}
+
+	/**
+	 * Returns the value of the given header of a {@link RestResponse},
+	 * ignoring case, or {@code null} if it is not present.
+	 *
+	 * @param response
+	 *            the {@code RestResponse} to retrieve the header from
+	 * @param name
+	 *            the header name
+	 * @return header value or {@code null}
+	 */
+	public static String getHeader(RestResponse response, String name) {
+		if (response.unwrap() != null) {
+			String value = response.getHeader(name);
+			return value == null || value.length() == 0 ? null : value;
+		}
+		for (Entry<String, String> header : response.getHeaders().entrySet()) {
+			if (header.getKey().equalsIgnoreCase(name))
+				return header.getValue();
+		}
+		return null;
+	}
+
+	/**
+	 * Indicates if the response may be stored at all. Responses marked
+	 * {@code no-store} or varying on {@code *} are never stored.
+	 *
+	 * @return {@code true} if the response may be cached
+	 */
+	public boolean isStorable() {
+		return !mNoStore && (mVary == null || !mVary.contains("*"));
+	}
+
+	/**
+	 * Returns the number of seconds the response may be served without being
+	 * revalidated. {@code max-age} takes precedence over {@code Expires}, and
+	 * {@code no-cache} responses are never fresh.
+	 *
+	 * @return freshness lifetime in seconds
+	 */
+	public long getFreshnessLifetime() {
+		if (mNoCache)
+			return 0;
+		if (mMaxAge >= 0)
+			return mMaxAge;
+		if (mExpires >= 0)
+			return Math.max((mExpires - System.currentTimeMillis()) / 1000, 0);
+		return 0;
+	}
+
+	/**
+	 * Returns the number of seconds a stale response may be served while it
+	 * is revalidated in the background. {@code must-revalidate} and
+	 * {@code no-cache} responses may never be served stale.
+	 *
+	 * @param defaultWindow
+	 *            the window to use if the response does not specify one
+	 * @return stale window in seconds
+	 */
+	public long getStaleWindow(long defaultWindow) {
+		if (mMustRevalidate || mNoCache)
+			return 0;
+		return mStaleWhileRevalidate >= 0 ? mStaleWhileRevalidate : defaultWindow;
+	}
+
+	/**
+	 * Indicates if the response carries an {@code ETag} or
+	 * {@code Last-Modified} validator which allows it to be revalidated with a
+	 * conditional request.
+	 *
+	 * @return {@code true} if the response has a validator
+	 */
+	public boolean hasValidators() {
+		return mETag != null || mLastModified != null;
+	}
+
+	public String getETag() {
+		return mETag;
+	}
+
+	public String getLastModified() {
+		return mLastModified;
+	}
+
+	/**
+	 * Returns the names of the request headers the response varies on, in
+	 * lower case.
+	 *
+	 * @return request header names, which may be empty
+	 */
+	public String[] getVaryHeaders() {
+		if (mVary == null)
+			return new String[0];
+		String[] names = mVary.split("[,;]");
+		int count = 0;
+		for (String name : names) {
+			name = name.trim();
+			if (name.length() > 0)
+				names[count++] = name.toLowerCase(Locale.US);
+		}
+		String[] result = new String[count];
+		System.arraycopy(names, 0, result, 0, count);
+		return result;
+	}
+
+	/**
+	 * Indicates if a cached response was selected with the same values of its
+	 * varying request headers as the given request headers.
+	 *
+	 * @param cached
+	 *            the cached {@link RestResponse}
+	 * @param request
+	 *            the current request
+	 * @return {@code true} if the cached response may satisfy the request
+	 */
+	public static boolean matchesVary(RestResponse cached, HashableHttpRequest request) {
+		for (Entry<String, String> varying : cached.getVaryHeaders().entrySet()) {
+			if (!varying.getValue().equals(request.getHeader(varying.getKey())))
+				return false;
+		}
+		return true;
+	}
+
+	/**
+	 * Splits a {@code Cache-Control} value into its directives. Repeated
+	 * headers are joined with ';' by {@link RestResponse}, so both ',' and
+	 * ';' separate directives, except inside quoted strings such as
+	 * {@code no-cache="Set-Cookie, X-Foo"}.
+	 *
+	 * @param directives
+	 *            the header value to split
+	 * @return directives
+	 */
+	private static List<String> splitDirectives(String directives) {
+		List<String> result = new ArrayList<String>();
+		boolean quoted = false;
+		int start = 0;
+		for (int i = 0; i < directives.length(); i++) {
+			char c = directives.charAt(i);
+			if (quoted && c == '\\')
+				i++;
+			else if (c == '"')
+				quoted = !quoted;
+			else if (!quoted && (c == ',' || c == ';')) {
+				result.add(directives.substring(start, i));
+				start = i + 1;
+			}
+		}
+		result.add(directives.substring(start));
+		return result;
+	}
+
+	private static long parseSeconds(String directive) {
+		int separator = directive.indexOf('=');
+		if (separator == -1)
+			return -1;
+		try {
+			String value = directive.substring(separator + 1).trim();
+			if (value.startsWith("\"") && value.endsWith("\"") && value.length() > 1)
+				value = value.substring(1, value.length() - 1);
+			return Math.max(Long.parseLong(value), 0);
+		} catch (NumberFormatException e) {
+			return -1;
+		}
+	}
+
+}
@@ -23,13 +23,25 @@ import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.UnsupportedEncodingException;
-import java.util.Date;
-import java.util.Locale;
+import java.util.HashMap;
+import java.util.Iterator;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
+import org.apache.http.Header;
 import org.apache.http.HttpEntity;
 import org.apache.http.HttpResponse;
+import org.apache.http.HttpStatus;
 import org.apache.http.ProtocolException;
 import org.apache.http.StatusLine;
 import org.apache.http.client.ClientProtocolException;
@@ -41,7 +53,6 @@ import org.apache.http.client.methods.HttpPut;
 import org.apache.http.client.methods.HttpUriRequest;
 import org.apache.http.entity.InputStreamEntity;
 import org.apache.http.entity.StringEntity;
-import org.apache.http.impl.client.DefaultHttpClient;
 import org.apache.http.impl.client.RequestWrapper;
 import org.apache.http.params.BasicHttpParams;
 import org.apache.http.params.HttpConnectionParams;
@@ -51,9 +62,9 @@ import com.clarionmedia.infinitum.context.InfinitumContext;
 import com.clarionmedia.infinitum.context.RestfulContext;
 import com.clarionmedia.infinitum.exception.InfinitumRuntimeException;
 import com.clarionmedia.infinitum.http.impl.HashableHttpRequest;
+import com.clarionmedia.infinitum.http.impl.HttpConnectionPool;
 import com.clarionmedia.infinitum.http.rest.AuthenticationStrategy;
 import com.clarionmedia.infinitum.http.rest.RestfulClient;
-import com.clarionmedia.infinitum.internal.DateFormatter;
 import com.clarionmedia.infinitum.internal.caching.AbstractCache;
 import com.clarionmedia.infinitum.internal.caching.RestResponseCache;
 import com.clarionmedia.infinitum.logging.Logger;
@@ -62,6 +73,32 @@ import com.clarionmedia.infinitum.logging.Logger;
  * <p>
  * Implementation of {@link RestfulClient} with caching support.
  * </p>
+ * <p>
+ * Concurrent identical GET requests which miss the cache are coalesced into a
+ * single HTTP request whose response is shared by every caller. Responses
+ * carrying a {@code stale-while-revalidate} directive, or any response if
+ * {@link #setStaleWhileRevalidate(long)} is set, remain cached past their
+ * freshness lifetime. A stale response is served while a single background
+ * request refreshes it. Refreshes run on a small bounded pool shared by every
+ * client in the process; a refresh which does not fit in its queue is skipped
+ * and the stale response is refreshed by a later request.
+ * </p>
+ * <p>
+ * Responses carrying an {@code ETag} or {@code Last-Modified} validator are
+ * kept after they become stale and are revalidated with
+ * {@code If-None-Match} and {@code If-Modified-Since}. A {@code 304} response
+ * refreshes the cached response without a body transfer. {@code no-store}
+ * responses are never cached, {@code no-cache} responses are revalidated on
+ * every request and {@code must-revalidate} responses are never served
+ * stale. Cached responses are only served for requests with the same values
+ * of the headers named by their {@code Vary} header.
+ * </p>
+ * <p>
+ * Requests are executed over persistent connections taken from the
+ * {@link HttpConnectionPool} of the configured {@link RestfulContext}, which
+ * is shared by every client of that context, or otherwise from the default
+ * pool shared by every unconfigured client.
+ * </p>
  * 
  * @author Tyler Treat
  * @version 1.0 07/04/12
@@ -69,11 +106,30 @@ import com.clarionmedia.infinitum.logging.Logger;
  */
 public class CachingEnabledRestfulClient implements RestfulClient {
 
+	/**
+	 * The number of seconds responses with a validator are kept for
+	 * revalidation if none is specified.
+	 */
+	public static final long DEFAULT_VALIDATOR_RETENTION = 24 * 60 * 60;
+
+	private static final String IF_NONE_MATCH = "If-None-Match";
+	private static final String IF_MODIFIED_SINCE = "If-Modified-Since";
+	private static final String REFRESH_THREAD_NAME = "InfinitumCacheRefresh";
+	private static final int REFRESH_THREADS = 2;
+	private static final int REFRESH_QUEUE_SIZE = 64;
+
+	private static ThreadPoolExecutor sRefreshExecutor;
+
 	protected Logger mLogger;
 	protected HttpParams mHttpParams;
+	protected HttpConnectionPool mConnectionPool;
 	protected RestResponseCache mResponseCache;
 	protected boolean mIsAuthenticated;
 	protected AuthenticationStrategy mAuthStrategy;
+	protected long mStaleWhileRevalidate;
+	protected long mValidatorRetention;
+	private final ConcurrentMap<HashableHttpRequest, InFlightRequest> mInFlightRequests;
+	private volatile HttpClient mHttpClient;
 
 	/**
 	 * Creates a new {@code CachingEnabledRestfulClient}.
@@ -81,15 +137,51 @@ public class CachingEnabledRestfulClient implements RestfulClient {
 	public CachingEnabledRestfulClient(InfinitumContext context) {
 		mLogger = Logger.getInstance(context, getClass().getSimpleName());
 		mHttpParams = new BasicHttpParams();
+		mValidatorRetention = DEFAULT_VALIDATOR_RETENTION;
+		mInFlightRequests = new ConcurrentHashMap<HashableHttpRequest, InFlightRequest>();
 		mResponseCache = new RestResponseCache();
 		mResponseCache.enableDiskCache(context.getAndroidContext(), AbstractCache.DISK_CACHE_INTERNAL);
+		// Keep disk latency off the request path
+		mResponseCache.setWriteBehindEnabled(true);
 		RestfulContext restContext = context.getRestfulConfiguration();
 		if (restContext != null) {
 			mIsAuthenticated = restContext.isRestAuthenticated();
 			mAuthStrategy = restContext.getAuthStrategy();
+			mConnectionPool = restContext.getConnectionPool();
+		} else {
+			mConnectionPool = HttpConnectionPool.getDefault();
 		}
 	}
 
+	/**
+	 * Sets the number of seconds a response may be served from the cache
+	 * after its freshness lifetime has ended while it is refreshed in the
+	 * background. This applies to responses which do not specify a
+	 * {@code stale-while-revalidate} directive themselves.
+	 * 
+	 * @param seconds
+	 *            the stale window in seconds, or 0 to disable serving stale
+	 *            responses
+	 */
+	public void setStaleWhileRevalidate(long seconds) {
+		mStaleWhileRevalidate = Math.max(seconds, 0);
+	}
+
+	/**
+	 * Sets the minimum number of seconds responses carrying an {@code ETag} or
+	 * {@code Last-Modified} validator are kept in the cache. Once such a
+	 * response is stale, it is revalidated with a conditional request and, if
+	 * the server answers {@code 304 Not Modified}, served again without
+	 * transferring the body.
+	 * 
+	 * @param seconds
+	 *            the retention in seconds, or 0 to discard responses once they
+	 *            are stale
+	 */
+	public void setValidatorRetention(long seconds) {
+		mValidatorRetention = Math.max(seconds, 0);
+	}
+
 	/**
 	 * Clears the response cache.
 	 */
@@ -360,8 +452,19 @@ public class CachingEnabledRestfulClient implements RestfulClient {
 	}
 
 	@Override
-	public void setHttpParams(HttpParams httpParams) {
+	public synchronized void setHttpParams(HttpParams httpParams) {
 		mHttpParams = httpParams;
+		mHttpClient = null;
+	}
+
+	/**
+	 * Returns the {@link HttpConnectionPool} this
+	 * {@code CachingEnabledRestfulClient} executes requests with.
+	 * 
+	 * @return {@code HttpConnectionPool}
+	 */
+	public HttpConnectionPool getConnectionPool() {
+		return mConnectionPool;
 	}
 	
 	@Override
@@ -373,19 +476,99 @@ public class CachingEnabledRestfulClient implements RestfulClient {
 	private RestResponse executeRequest(HashableHttpRequest hashableHttpRequest) {
 		if (mIsAuthenticated)
 			mAuthStrategy.authenticate(hashableHttpRequest);
-		if (mResponseCache.containsKey(hashableHttpRequest)) {
-			RestResponse cachedResponse = mResponseCache.get(hashableHttpRequest);
-			if (cachedResponse != null)
+		RestResponse cachedResponse = mResponseCache.get(hashableHttpRequest);
+		if (cachedResponse != null && CacheControl.matchesVary(cachedResponse, hashableHttpRequest)) {
+			if (!cachedResponse.isStale())
+				return cachedResponse;
+			if (System.currentTimeMillis() < cachedResponse.getStaleUntil()) {
+				refreshInBackground(hashableHttpRequest);
 				return cachedResponse;
+			}
+			// Stale responses past their stale window must be revalidated
+		}
+		if (!"GET".equalsIgnoreCase(hashableHttpRequest.getHttpMethod()))
+			return sendRequest(hashableHttpRequest);
+
+		// Share a single in-flight request between concurrent callers
+		InFlightRequest request = new InFlightRequest(hashableHttpRequest);
+		InFlightRequest inFlight = mInFlightRequests.putIfAbsent(hashableHttpRequest, request);
+		if (inFlight == null) {
+			request.run();
+			inFlight = request;
+		}
+		try {
+			return inFlight.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return null;
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof RuntimeException)
+				throw (RuntimeException) e.getCause();
+			throw new InfinitumRuntimeException("Unable to execute request", e.getCause());
+		}
+	}
+
+	private void refreshInBackground(HashableHttpRequest hashableHttpRequest) {
+		InFlightRequest request = new InFlightRequest(hashableHttpRequest);
+		if (mInFlightRequests.putIfAbsent(hashableHttpRequest, request) != null)
+			return; // already being refreshed
+		mLogger.debug("Refreshing stale response for " + hashableHttpRequest.getRequestUri());
+		try {
+			getRefreshExecutor().execute(request);
+		} catch (RejectedExecutionException e) {
+			// Keep serving the stale response until a later request refreshes it
+			mInFlightRequests.remove(hashableHttpRequest, request);
+			mLogger.debug("Refresh queue full, skipping refresh of " + hashableHttpRequest.getRequestUri());
+		}
+	}
+
+	private static synchronized ThreadPoolExecutor getRefreshExecutor() {
+		if (sRefreshExecutor == null) {
+			sRefreshExecutor = new ThreadPoolExecutor(REFRESH_THREADS, REFRESH_THREADS, 0, TimeUnit.MILLISECONDS,
+					new ArrayBlockingQueue<Runnable>(REFRESH_QUEUE_SIZE), new ThreadFactory() {
+						@Override
+						public Thread newThread(Runnable runnable) {
+							Thread thread = new Thread(runnable, REFRESH_THREAD_NAME);
+							thread.setDaemon(true);
+							return thread;
+						}
+					});
 		}
+		return sRefreshExecutor;
+	}
+
+	private RestResponse sendRequest(HashableHttpRequest hashableHttpRequest) {
 		HttpUriRequest httpRequest = hashableHttpRequest.unwrap();
-		mLogger.debug("Sending " + httpRequest.getMethod() + " request to " + httpRequest.getURI() + " with "
-				+ httpRequest.getAllHeaders().length + " headers");
-		HttpClient httpClient = new DefaultHttpClient(mHttpParams);
+		RestResponse cachedResponse = getRevalidationCandidate(hashableHttpRequest);
+		boolean conditional = false;
+		if (cachedResponse != null) {
+			CacheControl cacheControl = CacheControl.parse(cachedResponse);
+			if (cacheControl.getETag() != null && !httpRequest.containsHeader(IF_NONE_MATCH)) {
+				httpRequest.setHeader(IF_NONE_MATCH, cacheControl.getETag());
+				conditional = true;
+			}
+			if (cacheControl.getLastModified() != null && !httpRequest.containsHeader(IF_MODIFIED_SINCE)) {
+				httpRequest.setHeader(IF_MODIFIED_SINCE, cacheControl.getLastModified());
+				conditional = true;
+			}
+		}
+		if (mLogger.isDebugEnabled()) {
+			mLogger.debug("Sending " + (conditional ? "conditional " : "") + httpRequest.getMethod() + " request to "
+					+ httpRequest.getURI() + " with " + httpRequest.getAllHeaders().length + " headers");
+		}
+		HttpClient httpClient = getHttpClient();
 		try {
 			HttpResponse response = httpClient.execute(httpRequest);
-			RestResponse restResponse = new RestResponse(response);
 			StatusLine statusLine = response.getStatusLine();
+			if (conditional && statusLine.getStatusCode() == HttpStatus.SC_NOT_MODIFIED) {
+				HttpEntity entity = response.getEntity();
+				if (entity != null)
+					entity.consumeContent();
+				RestResponse revalidated = mergeNotModified(cachedResponse, response);
+				cacheResponse(hashableHttpRequest, revalidated);
+				return revalidated;
+			}
+			RestResponse restResponse = new RestResponse(response);
 			restResponse.setStatusCode(statusLine.getStatusCode());
 			HttpEntity entity = response.getEntity();
 			if (entity == null) {
@@ -396,49 +579,146 @@ public class CachingEnabledRestfulClient implements RestfulClient {
 				out.close();
 				restResponse.setResponseData(out.toByteArray());
 			}
-			long expiration = getResponseExpiration(restResponse);
-			if (expiration > 0)
-				mResponseCache.put(hashableHttpRequest, restResponse, expiration);
+			cacheResponse(hashableHttpRequest, restResponse);
 			return restResponse;
 		} catch (ClientProtocolException e) {
+			// Aborting releases the connection back to the pool
+			httpRequest.abort();
 			mLogger.error("Unable to send " + httpRequest.getMethod() + " request", e);
 			return null;
 		} catch (IOException e) {
+			httpRequest.abort();
 			mLogger.error("Unable to read web service response", e);
 			return null;
+		} finally {
+			if (conditional) {
+				httpRequest.removeHeaders(IF_NONE_MATCH);
+				httpRequest.removeHeaders(IF_MODIFIED_SINCE);
+			}
 		}
 	}
 
-	private long getResponseExpiration(RestResponse response) {
-		long seconds = 0;
-		try {
-			for (Entry<String, String> header : response.getHeaders().entrySet()) {
-				String name = header.getKey().trim();
-				if (name.equalsIgnoreCase("cache-control")) {
-					String[] values = header.getValue().split(",");
-					for (String cacheControl : values) {
-						cacheControl = cacheControl.trim();
-						if (cacheControl.equalsIgnoreCase("no-cache") || cacheControl.equalsIgnoreCase("no-store")
-								|| cacheControl.equalsIgnoreCase("must-revalidate"))
-							return 0;
-						if (cacheControl.toLowerCase(Locale.getDefault()).startsWith("max-age")) {
-							seconds = Long.parseLong(cacheControl.split("=")[1].trim());
-						}
-					}
-				} else if (name.equalsIgnoreCase("expires")) {
-					Date expirationDate = DateFormatter.parseHttpExpiresStringAsDate(header.getValue().trim());
-					long difference = expirationDate.getTime() - System.currentTimeMillis();
-					if (difference > 0)
-						seconds = difference;
-				} else if (name.equalsIgnoreCase("pragma")) {
-					if (header.getValue().trim().equalsIgnoreCase("no-cache"))
-						return 0;
-				}
+	/**
+	 * Returns the {@link HttpClient} used to send requests, creating it from
+	 * the {@link HttpConnectionPool} and the current {@link HttpParams} if
+	 * necessary.
+	 */
+	private HttpClient getHttpClient() {
+		HttpClient httpClient = mHttpClient;
+		if (httpClient == null) {
+			synchronized (this) {
+				if (mHttpClient == null)
+					mHttpClient = mConnectionPool.createHttpClient(mHttpParams);
+				httpClient = mHttpClient;
+			}
+		}
+		return httpClient;
+	}
+
+	/**
+	 * Returns the cached response for the given request if it can be
+	 * revalidated with a conditional request, or {@code null} if the request
+	 * has to be sent unconditionally.
+	 */
+	private RestResponse getRevalidationCandidate(HashableHttpRequest hashableHttpRequest) {
+		if (!"GET".equalsIgnoreCase(hashableHttpRequest.getHttpMethod()))
+			return null;
+		RestResponse cachedResponse = mResponseCache.get(hashableHttpRequest);
+		if (cachedResponse == null || !CacheControl.matchesVary(cachedResponse, hashableHttpRequest))
+			return null;
+		return CacheControl.parse(cachedResponse).hasValidators() ? cachedResponse : null;
+	}
+
+	/**
+	 * Builds the response to a request which was answered with
+	 * {@code 304 Not Modified}. The cached status and body are kept, and the
+	 * cached headers are updated with those of the {@code 304} response.
+	 */
+	private RestResponse mergeNotModified(RestResponse cachedResponse, HttpResponse notModified) {
+		Map<String, String> headers = new HashMap<String, String>(cachedResponse.getHeaders());
+		for (Header header : notModified.getAllHeaders()) {
+			String name = header.getName();
+			// The 304 describes an empty message, not the cached body
+			if (name.equalsIgnoreCase("content-length") || name.equalsIgnoreCase("content-encoding")
+					|| name.equalsIgnoreCase("transfer-encoding"))
+				continue;
+			Iterator<String> names = headers.keySet().iterator();
+			while (names.hasNext()) {
+				if (names.next().equalsIgnoreCase(name))
+					names.remove();
 			}
-		} catch (Exception e) {
+			headers.put(name, header.getValue());
+		}
+		RestResponse revalidated = new RestResponse();
+		revalidated.setStatusCode(cachedResponse.getStatusCode());
+		revalidated.setHeaders(headers);
+		revalidated.setResponseData(cachedResponse.getResponseDataAsBuffer());
+		return revalidated;
+	}
+
+	/**
+	 * Caches the given response according to its caching directives. Fresh
+	 * responses are cached for their freshness lifetime plus their stale
+	 * window. Responses with a validator are retained for at least
+	 * {@link #setValidatorRetention(long)} seconds, so that they can be
+	 * revalidated once they are stale.
+	 */
+	private void cacheResponse(HashableHttpRequest hashableHttpRequest, RestResponse restResponse) {
+		// A 304 to the caller's own conditional request has no body to cache
+		if (restResponse.getStatusCode() == HttpStatus.SC_NOT_MODIFIED)
+			return;
+		CacheControl cacheControl;
+		try {
+			cacheControl = CacheControl.parse(restResponse);
+		} catch (RuntimeException e) {
 			mLogger.error("Unable to retrieve HTTP response expiration.");
+			return;
+		}
+		if (!cacheControl.isStorable())
+			return;
+		long freshness = cacheControl.getFreshnessLifetime();
+		boolean revalidatable = cacheControl.hasValidators() && mValidatorRetention > 0
+				&& "GET".equalsIgnoreCase(hashableHttpRequest.getHttpMethod());
+		if (freshness <= 0 && !revalidatable)
+			return;
+		long now = System.currentTimeMillis();
+		long staleWindow = freshness > 0 ? cacheControl.getStaleWindow(mStaleWhileRevalidate) : 0;
+		long timeout = freshness + staleWindow;
+		if (revalidatable)
+			timeout = Math.max(timeout, freshness + mValidatorRetention);
+		restResponse.setFreshUntil(now + freshness * 1000);
+		restResponse.setStaleUntil(now + (freshness + staleWindow) * 1000);
+		Map<String, String> varyHeaders = new HashMap<String, String>();
+		for (String name : cacheControl.getVaryHeaders())
+			varyHeaders.put(name, hashableHttpRequest.getHeader(name));
+		restResponse.setVaryHeaders(varyHeaders);
+		mResponseCache.put(hashableHttpRequest, restResponse, timeout);
+	}
+
+	/**
+	 * A request which may be shared by several callers. It unregisters itself
+	 * from the in-flight requests once it completes, by which time its
+	 * response has been cached.
+	 */
+	private class InFlightRequest extends FutureTask<RestResponse> {
+
+		private final HashableHttpRequest mRequest;
+
+		public InFlightRequest(final HashableHttpRequest request) {
+			super(new Callable<RestResponse>() {
+				@Override
+				public RestResponse call() {
+					return sendRequest(request);
+				}
+			});
+			mRequest = request;
 		}
-		return seconds;
+
+		@Override
+		protected void done() {
+			mInFlightRequests.remove(mRequest, this);
+		}
+
 	}
 
 }
@@ -19,6 +19,9 @@
 
 package com.clarionmedia.infinitum.http.rest.impl;
 
+import java.io.InputStreamReader;
+import java.io.UnsupportedEncodingException;
+
 import com.clarionmedia.infinitum.http.rest.MessageConverter;
 import com.google.gson.Gson;
 
@@ -46,7 +49,12 @@ public class GsonMessageConverter implements MessageConverter {
 
 	@Override
 	public <T> T convert(Class<T> clazz, RestResponse response) {
-		return mGson.fromJson(response.getResponseDataAsString(), clazz);
+		try {
+			// Stream the message so large cached responses are not copied
+			return mGson.fromJson(new InputStreamReader(response.getResponseDataAsStream(), "UTF-8"), clazz);
+		} catch (UnsupportedEncodingException e) {
+			throw new RuntimeException(e);
+		}
 	}
 
 }
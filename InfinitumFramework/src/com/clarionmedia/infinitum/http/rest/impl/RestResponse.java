@@ -19,7 +19,10 @@
 
 package com.clarionmedia.infinitum.http.rest.impl;
 
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
 import java.io.UnsupportedEncodingException;
+import java.nio.ByteBuffer;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -27,6 +30,7 @@ import org.apache.http.Header;
 import org.apache.http.HttpResponse;
 
 import com.clarionmedia.infinitum.http.HttpClientResponse;
+import com.clarionmedia.infinitum.internal.ByteBufferInputStream;
 
 /**
  * <p>
@@ -42,8 +46,12 @@ public class RestResponse implements HttpClientResponse {
 	private HttpResponse mHttpResponse;
 	private int mStatusCode;
 	private byte[] mResponseData;
+	private ByteBuffer mResponseBuffer;
 	private Map<String, String> mCookies;
 	private Map<String, String> mHeaders;
+	private long mFreshUntil;
+	private long mStaleUntil;
+	private Map<String, String> mVaryHeaders;
 
 	/**
 	 * Constructs a new {@code RestResponse}.
@@ -51,6 +59,7 @@ public class RestResponse implements HttpClientResponse {
 	public RestResponse() {
 		mCookies = new HashMap<String, String>();
 		mHeaders = new HashMap<String, String>();
+		mVaryHeaders = new HashMap<String, String>();
 	}
 
 	/**
@@ -82,6 +91,20 @@ public class RestResponse implements HttpClientResponse {
 	 */
 	public void setResponseData(byte[] responseData) {
 		mResponseData = responseData;
+		mResponseBuffer = null;
+	}
+
+	/**
+	 * Sets the response message data as a {@link ByteBuffer}. The buffer's
+	 * remaining bytes are used as the message data, which is only copied onto
+	 * the heap if {@link #getResponseData()} is called.
+	 * 
+	 * @param responseData
+	 *            the message data {@code ByteBuffer} to set
+	 */
+	public void setResponseData(ByteBuffer responseData) {
+		mResponseBuffer = responseData == null ? null : responseData.asReadOnlyBuffer();
+		mResponseData = null;
 	}
 
 	/**
@@ -100,6 +123,7 @@ public class RestResponse implements HttpClientResponse {
 				throw new RuntimeException(e);
 			}
 		}
+		mResponseBuffer = null;
 	}
 
 	@Override
@@ -109,15 +133,39 @@ public class RestResponse implements HttpClientResponse {
 
 	@Override
 	public byte[] getResponseData() {
+		if (mResponseData == null && mResponseBuffer != null) {
+			ByteBuffer buffer = mResponseBuffer.duplicate();
+			mResponseData = new byte[buffer.remaining()];
+			buffer.get(mResponseData);
+		}
 		return mResponseData;
 	}
 
+	@Override
+	public ByteBuffer getResponseDataAsBuffer() {
+		if (mResponseBuffer != null)
+			return mResponseBuffer.duplicate();
+		if (mResponseData == null)
+			return ByteBuffer.allocate(0).asReadOnlyBuffer();
+		return ByteBuffer.wrap(mResponseData).asReadOnlyBuffer();
+	}
+
+	@Override
+	public InputStream getResponseDataAsStream() {
+		if (mResponseBuffer != null)
+			return new ByteBufferInputStream(mResponseBuffer);
+		if (mResponseData == null)
+			return new ByteArrayInputStream(new byte[0]);
+		return new ByteArrayInputStream(mResponseData);
+	}
+
 	@Override
 	public String getResponseDataAsString() {
 		String response = "";
-		if (mResponseData != null) {
+		byte[] responseData = getResponseData();
+		if (responseData != null) {
 			try {
-				response = new String(mResponseData, "UTF-8");
+				response = new String(responseData, "UTF-8");
 			} catch (UnsupportedEncodingException e) {
 				throw new RuntimeException(e);
 			}
@@ -164,4 +212,81 @@ public class RestResponse implements HttpClientResponse {
 		mHeaders = headers;
 	}
 
+	/**
+	 * Returns the time until which this response may be served from a cache
+	 * without being refreshed.
+	 * 
+	 * @return freshness lifetime end in milliseconds since the epoch, or 0 if
+	 *         the response has no freshness information
+	 */
+	public long getFreshUntil() {
+		return mFreshUntil;
+	}
+
+	/**
+	 * Sets the time until which this response may be served from a cache
+	 * without being refreshed.
+	 * 
+	 * @param freshUntil
+	 *            freshness lifetime end in milliseconds since the epoch
+	 */
+	public void setFreshUntil(long freshUntil) {
+		mFreshUntil = freshUntil;
+	}
+
+	/**
+	 * Indicates if this response has outlived its freshness lifetime. Stale
+	 * responses may still be served from a cache while they are refreshed.
+	 * 
+	 * @return {@code true} if the response is stale, {@code false} if it is
+	 *         fresh or has no freshness information
+	 */
+	public boolean isStale() {
+		return mFreshUntil > 0 && System.currentTimeMillis() >= mFreshUntil;
+	}
+
+	/**
+	 * Returns the time until which this response may be served from a cache
+	 * after it has become stale, while it is revalidated in the background.
+	 * 
+	 * @return stale window end in milliseconds since the epoch, or 0 if the
+	 *         response may not be served stale
+	 */
+	public long getStaleUntil() {
+		return mStaleUntil;
+	}
+
+	/**
+	 * Sets the time until which this response may be served from a cache
+	 * after it has become stale.
+	 * 
+	 * @param staleUntil
+	 *            stale window end in milliseconds since the epoch
+	 */
+	public void setStaleUntil(long staleUntil) {
+		mStaleUntil = staleUntil;
+	}
+
+	/**
+	 * Returns the values of the request headers named by this response's
+	 * {@code Vary} header, as sent with the request which produced it. A
+	 * cached response only satisfies requests with the same values.
+	 * 
+	 * @return {@link Map} of lower-cased header names to values
+	 */
+	public Map<String, String> getVaryHeaders() {
+		return mVaryHeaders;
+	}
+
+	/**
+	 * Sets the values of the request headers named by this response's
+	 * {@code Vary} header.
+	 * 
+	 * @param varyHeaders
+	 *            {@link Map} of lower-cased header names to values
+	 */
+	public void setVaryHeaders(Map<String, String> varyHeaders) {
+		mVaryHeaders = varyHeaders;
+	}
+
 }
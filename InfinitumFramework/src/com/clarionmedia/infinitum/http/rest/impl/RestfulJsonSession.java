@@ -29,6 +29,7 @@ import com.clarionmedia.infinitum.exception.InfinitumRuntimeException;
 import com.clarionmedia.infinitum.http.rest.Deserializer;
 import com.clarionmedia.infinitum.http.rest.JsonDeserializer;
 import com.clarionmedia.infinitum.orm.Session;
+import com.clarionmedia.infinitum.orm.persistence.EntityKey;
 import com.google.gson.Gson;
 import com.google.gson.JsonSyntaxException;
 
@@ -71,8 +72,8 @@ public class RestfulJsonSession extends RestfulSession {
 				// Otherwise fallback to Gson
 				else
 					ret = new Gson().fromJson(jsonResponse, type);
-				int objHash = mPersistencePolicy.computeModelHash(ret);
-				cache(objHash, ret);
+				EntityKey key = mPersistencePolicy.getEntityKey(ret);
+				cache(key, ret);
 				return ret;
 			}
 		} catch (JsonSyntaxException e) {
@@ -41,11 +41,12 @@ import com.clarionmedia.infinitum.http.rest.RestfulClient;
 import com.clarionmedia.infinitum.http.rest.RestfulMapper;
 import com.clarionmedia.infinitum.http.rest.RestfulModelMap;
 import com.clarionmedia.infinitum.internal.Preconditions;
-import com.clarionmedia.infinitum.internal.caching.LruCache;
+import com.clarionmedia.infinitum.internal.caching.SessionCacheFactory;
 import com.clarionmedia.infinitum.logging.Logger;
 import com.clarionmedia.infinitum.orm.Session;
 import com.clarionmedia.infinitum.orm.criteria.Criteria;
 import com.clarionmedia.infinitum.orm.exception.SQLGrammarException;
+import com.clarionmedia.infinitum.orm.persistence.EntityKey;
 import com.clarionmedia.infinitum.orm.persistence.PersistencePolicy;
 import com.clarionmedia.infinitum.orm.persistence.TypeAdapter;
 
@@ -81,7 +82,7 @@ public abstract class RestfulSession implements Session {
 	protected Logger mLogger;
 	protected RestfulMapper mMapper;
 	protected RestfulClient mRestClient;
-	protected LruCache<Integer, Object> mSessionCache;
+	protected Map<EntityKey, Object> mSessionCache;
 	protected int mCacheSize;
 
 	/**
@@ -96,12 +97,12 @@ public abstract class RestfulSession implements Session {
 	 */
 	public RestfulSession() {
 		mCacheSize = DEFAULT_CACHE_SIZE;
-		mSessionCache = new LruCache<Integer, Object>(mCacheSize);
 	}
 
 	@PostConstruct
 	private void init() {
 		mLogger = Logger.getInstance(mInfinitumContext, getClass().getSimpleName());
+		mSessionCache = SessionCacheFactory.createSessionCache(mInfinitumContext, mCacheSize);
 		switch (mRestContext.getMessageType()) {
 		case XML:
 			mMapper = mInfinitumContext.getBean("$RestfulXmlMapper", RestfulXmlMapper.class);
@@ -200,21 +201,21 @@ public abstract class RestfulSession implements Session {
 	}
 
 	@Override
-	public boolean cache(int hash, Object model) {
+	public boolean cache(EntityKey key, Object model) {
 		if (mSessionCache.size() >= mCacheSize)
 			return false;
-		mSessionCache.put(hash, model);
+		mSessionCache.put(key, model);
 		return true;
 	}
 
 	@Override
-	public boolean checkCache(int hash) {
-		return mSessionCache.containsKey(hash);
+	public boolean checkCache(EntityKey key) {
+		return mSessionCache.containsKey(key);
 	}
 
 	@Override
-	public Object searchCache(int hash) {
-		return mSessionCache.get(hash);
+	public Object searchCache(EntityKey key) {
+		return mSessionCache.get(key);
 	}
 
 	@SuppressWarnings("unchecked")
@@ -222,9 +223,9 @@ public abstract class RestfulSession implements Session {
 	public <T> T load(Class<T> type, Serializable id) throws InfinitumRuntimeException, IllegalArgumentException {
 		Preconditions.checkPersistenceForLoading(type, mPersistencePolicy);
 		// TODO Validate primary key
-		int objHash = mPersistencePolicy.computeModelHash(type, id);
-		if (checkCache(objHash))
-			return (T) searchCache(objHash);
+		EntityKey key = mPersistencePolicy.getEntityKey(type, id);
+		if (checkCache(key))
+			return (T) searchCache(key);
 		return loadEntity(type, id);
 	}
 
@@ -31,6 +31,7 @@ import com.clarionmedia.infinitum.http.rest.Deserializer;
 import com.clarionmedia.infinitum.http.rest.XmlDeserializer;
 import com.clarionmedia.infinitum.internal.Preconditions;
 import com.clarionmedia.infinitum.orm.Session;
+import com.clarionmedia.infinitum.orm.persistence.EntityKey;
 
 /**
  * <p>
@@ -73,8 +74,8 @@ public class RestfulXmlSession extends RestfulSession {
 				else
 					ret = new Persister().read(type, xmlResponse);
 				if (ret != null) {
-				    int objHash = mPersistencePolicy.computeModelHash(ret);
-				    cache(objHash, ret);
+				    EntityKey key = mPersistencePolicy.getEntityKey(ret);
+				    cache(key, ret);
 				}
 				return ret;
 			}
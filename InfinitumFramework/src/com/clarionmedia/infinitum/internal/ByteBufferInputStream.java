@@ -0,0 +1,100 @@
+/*
+ * Copyright (c) 2012 Tyler Treat
+ *
+ * This file is part of Infinitum Framework.
+ *
+ * Infinitum Framework is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Infinitum Framework is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Infinitum Framework.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.clarionmedia.infinitum.internal;
+
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * <p>
+ * An {@link InputStream} which reads from a {@link ByteBuffer}. This allows
+ * direct and memory-mapped buffers to be consumed as a stream without first
+ * copying their contents onto the heap.
+ * </p>
+ *
+ * @author Tyler Treat
+ * @version 1.0 10/17/26
+ * @since 1.0
+ */
+public class ByteBufferInputStream extends InputStream {
+
+	private final ByteBuffer mBuffer;
+
+	/**
+	 * Constructs a new {@code ByteBufferInputStream}. The stream reads the
+	 * remaining bytes of the given {@link ByteBuffer} without modifying its
+	 * position.
+	 *
+	 * @param buffer
+	 *            the {@code ByteBuffer} to read from
+	 */
+	public ByteBufferInputStream(ByteBuffer buffer) {
+		mBuffer = buffer.duplicate();
+	}
+
+	@Override
+	public int read() {
+		if (!mBuffer.hasRemaining())
+			return -1;
+		return mBuffer.get() & 0xff;
+	}
+
+	@Override
+	public int read(byte[] bytes, int offset, int length) {
+		if (length == 0)
+			return 0;
+		int remaining = mBuffer.remaining();
+		if (remaining == 0)
+			return -1;
+		length = Math.min(length, remaining);
+		mBuffer.get(bytes, offset, length);
+		return length;
+	}
+
+	@Override
+	public long skip(long n) {
+		if (n <= 0)
+			return 0;
+		int skipped = (int) Math.min(n, mBuffer.remaining());
+		mBuffer.position(mBuffer.position() + skipped);
+		return skipped;
+	}
+
+	@Override
+	public int available() {
+		return mBuffer.remaining();
+	}
+
+	@Override
+	public boolean markSupported() {
+		return true;
+	}
+
+	@Override
+	public synchronized void mark(int readLimit) {
+		mBuffer.mark();
+	}
+
+	@Override
+	public synchronized void reset() {
+		mBuffer.reset();
+	}
+
+}
@@ -22,6 +22,7 @@ package com.clarionmedia.infinitum.internal;
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
 import java.util.Date;
+import java.util.Locale;
 
 /**
  * <p>
@@ -47,7 +48,7 @@ public class DateFormatter {
 	 * Expires header.
 	 */
 	public static final SimpleDateFormat HTTP_EXPIRES_FORMAT = new SimpleDateFormat(
-			"EEE, dd MMM yyyy HH:mm:ss z");
+			"EEE, dd MMM yyyy HH:mm:ss z", Locale.US);
 
 	/**
 	 * Returns the {@link String} representation of the given {@link Date}.
@@ -88,10 +89,13 @@ public class DateFormatter {
 	 * @return
 	 */
 	public static Date parseHttpExpiresStringAsDate(String input) {
-		try {
-			return HTTP_EXPIRES_FORMAT.parse(input);
-		} catch (ParseException e) {
-			return null;
+		// SimpleDateFormat is not thread-safe
+		synchronized (HTTP_EXPIRES_FORMAT) {
+			try {
+				return HTTP_EXPIRES_FORMAT.parse(input);
+			} catch (ParseException e) {
+				return null;
+			}
 		}
 	}
 
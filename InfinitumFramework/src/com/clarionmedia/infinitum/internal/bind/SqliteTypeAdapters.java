@@ -26,6 +26,7 @@ import com.clarionmedia.infinitum.internal.DateFormatter;
 import com.clarionmedia.infinitum.orm.ResultSet;
 import com.clarionmedia.infinitum.orm.persistence.TypeResolutionPolicy.SqliteDataType;
 import com.clarionmedia.infinitum.orm.sqlite.SqliteTypeAdapter;
+import com.clarionmedia.infinitum.reflection.FieldAccessor;
 
 /**
  * <p>
@@ -37,11 +38,10 @@ import com.clarionmedia.infinitum.orm.sqlite.SqliteTypeAdapter;
  */
 public final class SqliteTypeAdapters {
 	
-	public static final SqliteTypeAdapter<String> STRING = new SqliteTypeAdapter<String>(SqliteDataType.TEXT) {
+	public static final SqliteTypeAdapter<String> STRING = new AccessorTypeAdapter<String>(SqliteDataType.TEXT) {
 		@Override
-		public void mapToObject(ResultSet result, int index, Field field, Object model) throws IllegalArgumentException, IllegalAccessException {
-			field.setAccessible(true);
-			field.set(model, result.getString(index));
+		public void mapToObject(ResultSet result, int index, FieldAccessor accessor, Object model) throws IllegalArgumentException, IllegalAccessException {
+			accessor.set(model, result.getString(index));
 		}
 		@Override
 		public void mapToColumn(String value, String column, ContentValues values) {
@@ -53,11 +53,10 @@ public final class SqliteTypeAdapters {
 		}
 	};
 	
-	public static final SqliteTypeAdapter<Integer> INTEGER = new SqliteTypeAdapter<Integer>(SqliteDataType.INTEGER) {
+	public static final SqliteTypeAdapter<Integer> INTEGER = new AccessorTypeAdapter<Integer>(SqliteDataType.INTEGER) {
 		@Override
-		public void mapToObject(ResultSet result, int index, Field field, Object model) throws IllegalArgumentException, IllegalAccessException {
-			field.setAccessible(true);
-			field.set(model, result.getInt(index));
+		public void mapToObject(ResultSet result, int index, FieldAccessor accessor, Object model) throws IllegalArgumentException, IllegalAccessException {
+			accessor.setInt(model, result.getInt(index));
 		}
 		@Override
 		public void mapToColumn(Integer value, String column, ContentValues values) {
@@ -69,11 +68,10 @@ public final class SqliteTypeAdapters {
 		}
 	};
 	
-	public static final SqliteTypeAdapter<Long> LONG = new SqliteTypeAdapter<Long>(SqliteDataType.INTEGER) {
+	public static final SqliteTypeAdapter<Long> LONG = new AccessorTypeAdapter<Long>(SqliteDataType.INTEGER) {
 		@Override
-		public void mapToObject(ResultSet result, int index, Field field, Object model) throws IllegalArgumentException, IllegalAccessException {
-			field.setAccessible(true);
-			field.set(model, result.getLong(index));
+		public void mapToObject(ResultSet result, int index, FieldAccessor accessor, Object model) throws IllegalArgumentException, IllegalAccessException {
+			accessor.setLong(model, result.getLong(index));
 		}
 		@Override
 		public void mapToColumn(Long value, String column, ContentValues values) {
@@ -85,11 +83,10 @@ public final class SqliteTypeAdapters {
 		}
 	};
 	
-	public static final SqliteTypeAdapter<Float> FLOAT = new SqliteTypeAdapter<Float>(SqliteDataType.REAL) {
+	public static final SqliteTypeAdapter<Float> FLOAT = new AccessorTypeAdapter<Float>(SqliteDataType.REAL) {
 		@Override
-		public void mapToObject(ResultSet result, int index, Field field, Object model) throws IllegalArgumentException, IllegalAccessException {
-			field.setAccessible(true);
-			field.set(model, result.getFloat(index));
+		public void mapToObject(ResultSet result, int index, FieldAccessor accessor, Object model) throws IllegalArgumentException, IllegalAccessException {
+			accessor.setFloat(model, result.getFloat(index));
 		}
 		@Override
 		public void mapToColumn(Float value, String column, ContentValues values) {
@@ -101,11 +98,10 @@ public final class SqliteTypeAdapters {
 		}
 	};
 	
-	public static final SqliteTypeAdapter<Double> DOUBLE = new SqliteTypeAdapter<Double>(SqliteDataType.REAL) {
+	public static final SqliteTypeAdapter<Double> DOUBLE = new AccessorTypeAdapter<Double>(SqliteDataType.REAL) {
 		@Override
-		public void mapToObject(ResultSet result, int index, Field field, Object model) throws IllegalArgumentException, IllegalAccessException {
-			field.setAccessible(true);
-			field.set(model, result.getDouble(index));
+		public void mapToObject(ResultSet result, int index, FieldAccessor accessor, Object model) throws IllegalArgumentException, IllegalAccessException {
+			accessor.setDouble(model, result.getDouble(index));
 		}
 		@Override
 		public void mapToColumn(Double value, String column, ContentValues values) {
@@ -117,11 +113,10 @@ public final class SqliteTypeAdapters {
 		}
 	};
 	
-	public static final SqliteTypeAdapter<Short> SHORT = new SqliteTypeAdapter<Short>(SqliteDataType.INTEGER) {
+	public static final SqliteTypeAdapter<Short> SHORT = new AccessorTypeAdapter<Short>(SqliteDataType.INTEGER) {
 		@Override
-		public void mapToObject(ResultSet result, int index, Field field, Object model) throws IllegalArgumentException, IllegalAccessException {
-			field.setAccessible(true);
-			field.set(model, result.getShort(index));
+		public void mapToObject(ResultSet result, int index, FieldAccessor accessor, Object model) throws IllegalArgumentException, IllegalAccessException {
+			accessor.setShort(model, result.getShort(index));
 		}
 		@Override
 		public void mapToColumn(Short value, String column, ContentValues values) {
@@ -133,12 +128,11 @@ public final class SqliteTypeAdapters {
 		}
 	};
 	
-	public static final SqliteTypeAdapter<Boolean> BOOLEAN = new SqliteTypeAdapter<Boolean>(SqliteDataType.INTEGER) {
+	public static final SqliteTypeAdapter<Boolean> BOOLEAN = new AccessorTypeAdapter<Boolean>(SqliteDataType.INTEGER) {
 		@Override
-		public void mapToObject(ResultSet result, int index, Field field, Object model) throws IllegalArgumentException, IllegalAccessException {
-			field.setAccessible(true);
+		public void mapToObject(ResultSet result, int index, FieldAccessor accessor, Object model) throws IllegalArgumentException, IllegalAccessException {
 			int b = result.getInt(index);
-			field.set(model, b == 1);
+			accessor.setBoolean(model, b == 1);
 		}
 		@Override
 		public void mapToColumn(Boolean value, String column, ContentValues values) {
@@ -150,11 +144,10 @@ public final class SqliteTypeAdapters {
 		}
 	};
 
-	public static final SqliteTypeAdapter<Byte> BYTE = new SqliteTypeAdapter<Byte>(SqliteDataType.BLOB) {
+	public static final SqliteTypeAdapter<Byte> BYTE = new AccessorTypeAdapter<Byte>(SqliteDataType.BLOB) {
 		@Override
-		public void mapToObject(ResultSet result, int index, Field field, Object model) throws IllegalArgumentException, IllegalAccessException {
-			field.setAccessible(true);
-			field.set(model, result.getBlob(index)[0]);
+		public void mapToObject(ResultSet result, int index, FieldAccessor accessor, Object model) throws IllegalArgumentException, IllegalAccessException {
+			accessor.setByte(model, result.getBlob(index)[0]);
 		}
 		@Override
 		public void mapToColumn(Byte value, String column, ContentValues values) {
@@ -166,11 +159,10 @@ public final class SqliteTypeAdapters {
 		}
 	};
 	
-	public static final SqliteTypeAdapter<byte[]> BYTE_ARRAY = new SqliteTypeAdapter<byte[]>(SqliteDataType.BLOB) {
+	public static final SqliteTypeAdapter<byte[]> BYTE_ARRAY = new AccessorTypeAdapter<byte[]>(SqliteDataType.BLOB) {
 		@Override
-		public void mapToObject(ResultSet result, int index, Field field, Object model) throws IllegalArgumentException, IllegalAccessException {
-			field.setAccessible(true);
-			field.set(model, result.getBlob(index));
+		public void mapToObject(ResultSet result, int index, FieldAccessor accessor, Object model) throws IllegalArgumentException, IllegalAccessException {
+			accessor.set(model, result.getBlob(index));
 		}
 		@Override
 		public void mapToColumn(byte[] value, String column, ContentValues values) {
@@ -182,11 +174,10 @@ public final class SqliteTypeAdapters {
 		}
 	};
 	
-	public static final SqliteTypeAdapter<Character> CHARACTER = new SqliteTypeAdapter<Character>(SqliteDataType.TEXT) {
+	public static final SqliteTypeAdapter<Character> CHARACTER = new AccessorTypeAdapter<Character>(SqliteDataType.TEXT) {
 		@Override
-		public void mapToObject(ResultSet result, int index, Field field, Object model) throws IllegalArgumentException, IllegalAccessException {
-			field.setAccessible(true);
-			field.set(model, result.getString(index).charAt(0));
+		public void mapToObject(ResultSet result, int index, FieldAccessor accessor, Object model) throws IllegalArgumentException, IllegalAccessException {
+			accessor.setChar(model, result.getString(index).charAt(0));
 		}
 		@Override
 		public void mapToColumn(Character value, String column, ContentValues values) {
@@ -198,12 +189,11 @@ public final class SqliteTypeAdapters {
 		}
 	};
 	
-	public static final SqliteTypeAdapter<Date> DATE = new SqliteTypeAdapter<Date>(SqliteDataType.INTEGER) {
+	public static final SqliteTypeAdapter<Date> DATE = new AccessorTypeAdapter<Date>(SqliteDataType.INTEGER) {
 		@Override
-		public void mapToObject(ResultSet result, int index, Field field, Object model) throws IllegalArgumentException, IllegalAccessException {
-			field.setAccessible(true);
+		public void mapToObject(ResultSet result, int index, FieldAccessor accessor, Object model) throws IllegalArgumentException, IllegalAccessException {
 			String dateStr = result.getString(index);
-			field.set(model, DateFormatter.parseStringAsDate(dateStr));
+			accessor.set(model, DateFormatter.parseStringAsDate(dateStr));
 		}
 		@Override
 		public void mapToColumn(Date value, String column, ContentValues values) {
@@ -214,4 +204,25 @@ public final class SqliteTypeAdapters {
 			values.put(column, DateFormatter.getDateAsISO8601String((Date) value));
 		}
 	};
+
+	/**
+	 * Base class for the built-in adapters, which write to the model through a
+	 * cached {@link FieldAccessor} rather than the {@link Field} itself.
+	 */
+	private static abstract class AccessorTypeAdapter<T> extends SqliteTypeAdapter<T> {
+
+		public AccessorTypeAdapter(SqliteDataType dataType) {
+			super(dataType);
+		}
+
+		@Override
+		public void mapToObject(ResultSet result, int index, Field field, Object model) throws IllegalArgumentException, IllegalAccessException {
+			mapToObject(result, index, FieldAccessor.forField(field), model);
+		}
+
+		@Override
+		public abstract void mapToObject(ResultSet result, int index, FieldAccessor accessor, Object model) throws IllegalArgumentException, IllegalAccessException;
+
+	}
+
 }
@@ -1,13 +1,16 @@
 package com.clarionmedia.infinitum.internal.caching;
 
 import java.io.File;
-import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.util.Collection;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 import android.content.Context;
 import android.os.Environment;
@@ -36,17 +39,35 @@ import com.clarionmedia.infinitum.logging.Logger;
  * memory and on disk (if disk caching is enabled).
  * </p>
  * <p>
+ * If write-behind is enabled with {@link #setWriteBehindEnabled(boolean)},
+ * puts only update the in-memory cache and the disk write is queued to a
+ * single background writer shared by every cache in the process. Repeated
+ * puts of a key which has not been written
+ * yet replace the queued value, so each value is written at most once. If the
+ * writer falls too far behind, the calling thread performs the write itself.
+ * </p>
+ * <p>
  * The default expiration timeout provided to the constructor is the maximum
  * time an {@link Object} will be stored in the cache, both L1 and L2, in
  * seconds. Cache entries can be given their own expiration timeouts using
  * {@link #put(Object, Object, long)}.
  * </p>
+ * <p>
+ * The L2 cache is bounded by {@link #setMaxDiskCacheSize(long)} and evicts the
+ * least recently used files once the budget is exceeded. Entry sizes,
+ * expiration times and accesses are recorded in a journal inside the cache
+ * directory, so the L2 cache remains valid across process restarts.
+ * </p>
+ * <p>
+ * Hits, misses, load times and evictions of both levels are reported as a
+ * single {@link CacheStats} through {@link #getStats()}.
+ * </p>
  * 
  * @author Tyler Treat
  * @version 1.0 08/15/12
  * @since 1.0
  */
-public abstract class AbstractCache<K, V> implements Map<K, V> {
+public abstract class AbstractCache<K, V> implements Map<K, V>, InstrumentedCache {
 
 	/**
 	 * Used to cache data in the application's dedicated cache directory.
@@ -58,12 +79,31 @@ public abstract class AbstractCache<K, V> implements Map<K, V> {
 	 */
 	public static final int DISK_CACHE_SDCARD = 1;
 
+	/**
+	 * The maximum number of bytes the disk cache may use if none is specified.
+	 */
+	public static final long DEFAULT_MAX_DISK_CACHE_SIZE = 10 * 1024 * 1024;
+
+	/**
+	 * The number of disk writes which may be queued in write-behind mode,
+	 * across every cache, before callers write to disk themselves.
+	 */
+	public static final int WRITE_BEHIND_QUEUE_SIZE = 64;
+
+	private static final String WRITER_THREAD_NAME = "InfinitumCacheWriter";
+
+	private static ThreadPoolExecutor sDiskWriter;
+
 	protected String mDiskCacheDirectory;
 	private boolean mIsDiskCacheEnabled;
 	private ExpirableCache<K, V> mCache;
 	private String mName;
 	private long mDefaultExpirationTimeout;
-	private ConcurrentMap<String, Long> mDiskTimeoutCache;
+	private long mMaxDiskCacheSize;
+	private JournaledDiskCache mDiskCache;
+	private final StatsCounter mStats;
+	private final ConcurrentMap<K, PendingWrite<V>> mPendingWrites;
+	private boolean mIsWriteBehindEnabled;
 	private Logger mLogger;
 	
 	/**
@@ -89,9 +129,12 @@ public abstract class AbstractCache<K, V> implements Map<K, V> {
 	public AbstractCache(String name, long defaultExpiration) {
 		mName = name;
 		mDefaultExpirationTimeout = defaultExpiration;
-		mCache = new ExpirableCache<K, V>(mDefaultExpirationTimeout);
-		mDiskTimeoutCache = new ConcurrentHashMap<String, Long>();
+		mStats = new StatsCounter();
+		mPendingWrites = new ConcurrentHashMap<K, PendingWrite<V>>();
+		mCache = new ExpirableCache<K, V>(mDefaultExpirationTimeout, 16, mStats);
+		mMaxDiskCacheSize = DEFAULT_MAX_DISK_CACHE_SIZE;
 		mLogger = Logger.getInstance(ContextFactory.newInstance().getContext(), getClass().getSimpleName());
+		CacheStatsRegistry.register(this);
 	}
 
 	/**
@@ -108,8 +151,12 @@ public abstract class AbstractCache<K, V> implements Map<K, V> {
 	public AbstractCache(String name, int initialCapacity, long defaultExpiration) {
 		mName = name;
 		mDefaultExpirationTimeout = defaultExpiration;
-		mCache = new ExpirableCache<K, V>(mDefaultExpirationTimeout, initialCapacity);
-		mDiskTimeoutCache = new ConcurrentHashMap<String, Long>(initialCapacity);
+		mStats = new StatsCounter();
+		mPendingWrites = new ConcurrentHashMap<K, PendingWrite<V>>();
+		mCache = new ExpirableCache<K, V>(mDefaultExpirationTimeout, initialCapacity, mStats);
+		mMaxDiskCacheSize = DEFAULT_MAX_DISK_CACHE_SIZE;
+		mLogger = Logger.getInstance(ContextFactory.newInstance().getContext(), getClass().getSimpleName());
+		CacheStatsRegistry.register(this);
 	}
 
 	/**
@@ -155,18 +202,132 @@ public abstract class AbstractCache<K, V> implements Map<K, V> {
 			}
 		}
 
-		mIsDiskCacheEnabled = outFile.exists();
+		mIsDiskCacheEnabled = outFile.exists() && openDiskCache();
 
 		if (!mIsDiskCacheEnabled) {
 			mLogger.warn("Failed creating disk cache directory " + mDiskCacheDirectory);
-		} else {
+		} else if (mLogger.isDebugEnabled()) {
 			mLogger.debug("Enabled write-through to " + mDiskCacheDirectory);
-			sanitizeDiskCache();
 		}
 
 		return mIsDiskCacheEnabled;
 	}
 
+	/**
+	 * Sets the maximum number of bytes the disk cache may use. If the disk
+	 * cache currently exceeds the given size, the least recently used entries
+	 * are evicted.
+	 * 
+	 * @param maxSize
+	 *            the maximum disk cache size in bytes
+	 */
+	public synchronized void setMaxDiskCacheSize(long maxSize) {
+		if (maxSize <= 0)
+			throw new IllegalArgumentException("Disk cache size must be greater than 0.");
+		mMaxDiskCacheSize = maxSize;
+		if (mDiskCache != null)
+			mDiskCache.setMaxSize(maxSize);
+	}
+
+	/**
+	 * Returns the maximum number of bytes the disk cache may use.
+	 * 
+	 * @return the maximum disk cache size in bytes
+	 */
+	public long getMaxDiskCacheSize() {
+		return mMaxDiskCacheSize;
+	}
+
+	/**
+	 * Returns the number of bytes currently used by the disk cache.
+	 * 
+	 * @return the disk cache size in bytes, or 0 if disk caching is disabled
+	 */
+	public synchronized long getDiskCacheSize() {
+		return mDiskCache == null ? 0 : mDiskCache.size();
+	}
+
+	/**
+	 * Enables or disables write-behind. When enabled, puts return once the
+	 * in-memory cache has been updated and disk writes are performed by a
+	 * background writer. Disabling write-behind flushes any queued writes.
+	 * 
+	 * @param enabled
+	 *            {@code true} to enable write-behind, {@code false} to write
+	 *            through to disk on the calling thread
+	 */
+	public void setWriteBehindEnabled(boolean enabled) {
+		if (enabled) {
+			synchronized (this) {
+				mIsWriteBehindEnabled = true;
+			}
+		} else {
+			shutdown();
+		}
+	}
+
+	/**
+	 * Indicates if write-behind is enabled.
+	 * 
+	 * @return {@code true} if disk writes are performed in the background,
+	 *         {@code false} if not
+	 */
+	public synchronized boolean isWriteBehindEnabled() {
+		return mIsWriteBehindEnabled;
+	}
+
+	/**
+	 * Writes every value queued in write-behind mode to disk on the calling
+	 * thread. Values the background writer is already writing are committed
+	 * only once, by whichever thread finishes first.
+	 */
+	public void flush() {
+		for (K key : mPendingWrites.keySet())
+			writePending(key);
+	}
+
+	/**
+	 * Disables write-behind and flushes any queued disk writes on the calling
+	 * thread. The shared background writer keeps serving other caches, and a
+	 * write of this cache it has already started is committed at most once.
+	 * The cache falls back to writing through to disk on the calling thread.
+	 */
+	public void shutdown() {
+		synchronized (this) {
+			mIsWriteBehindEnabled = false;
+		}
+		flush();
+	}
+
+	private static synchronized ThreadPoolExecutor getDiskWriter() {
+		if (sDiskWriter == null) {
+			sDiskWriter = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS,
+					new ArrayBlockingQueue<Runnable>(WRITE_BEHIND_QUEUE_SIZE), new ThreadFactory() {
+						@Override
+						public Thread newThread(Runnable runnable) {
+							Thread thread = new Thread(runnable, WRITER_THREAD_NAME);
+							thread.setDaemon(true);
+							return thread;
+						}
+					}, new ThreadPoolExecutor.CallerRunsPolicy());
+		}
+		return sDiskWriter;
+	}
+
+	private synchronized boolean openDiskCache() {
+		if (mDiskCache != null)
+			mDiskCache.close();
+		mDiskCache = new JournaledDiskCache(new File(mDiskCacheDirectory), mMaxDiskCacheSize, mStats);
+		try {
+			mDiskCache.open();
+			return true;
+		} catch (IOException e) {
+			mLogger.error("Failed opening disk cache journal", e);
+			mDiskCache = null;
+			return false;
+		}
+	}
+
 	private void setRootDir(String rootDir) {
 		this.mDiskCacheDirectory = rootDir + "/infinitum/"
 				+ mName.replaceAll("\\s", "");
@@ -218,27 +379,93 @@ public abstract class AbstractCache<K, V> implements Map<K, V> {
 			throws IOException;
 
 	/**
-	 * Caches the given value to disk and returns the absolute path to the cache
-	 * file.
+	 * Queues the given value to be written to disk by the background writer.
+	 * If a write of the key is already queued, its value is replaced.
 	 */
-	private String cacheToDisk(K key, V value) {
-		File file = new File(mDiskCacheDirectory + "/" + getFileNameForKey(key));
-		try {
-			file.createNewFile();
-			file.deleteOnExit();
-			writeValueToDisk(file, value);
-			return file.getAbsolutePath();
-		} catch (FileNotFoundException e) {
-			e.printStackTrace();
-			return null;
-		} catch (IOException e) {
-			e.printStackTrace();
-			return null;
+	private void queueDiskWrite(final K key, V value, long expirationTimeout) {
+		PendingWrite<V> write = new PendingWrite<V>(value, System.currentTimeMillis() + expirationTimeout * 1000);
+		if (mPendingWrites.put(key, write) != null)
+			return; // coalesced with the queued write
+		getDiskWriter().execute(new Runnable() {
+			@Override
+			public void run() {
+				writePending(key);
+			}
+		});
+	}
+
+	/**
+	 * Writes the queued value for the given key to disk. The write is only
+	 * committed if the value is still the one queued for the key once it has
+	 * been written, otherwise the newer value is written instead. Values
+	 * discarded by {@link #remove(Object)} or {@link #clear()} are never
+	 * committed.
+	 */
+	private void writePending(K key) {
+		while (true) {
+			PendingWrite<V> write = mPendingWrites.get(key);
+			if (write == null)
+				return;
+			JournaledDiskCache diskCache;
+			String name;
+			File temp;
+			synchronized (this) {
+				diskCache = mDiskCache;
+				if (!mIsDiskCacheEnabled || diskCache == null) {
+					mPendingWrites.remove(key, write);
+					return;
+				}
+				name = getFileNameForKey(key);
+				temp = diskCache.beginWrite(name);
+			}
+			try {
+				writeValueToDisk(temp, write.mValue);
+			} catch (IOException e) {
+				synchronized (this) {
+					diskCache.abort(temp);
+				}
+				mPendingWrites.remove(key, write);
+				mLogger.error("Failed writing " + name + " to disk cache", e);
+				return;
+			}
+			synchronized (this) {
+				if (diskCache != mDiskCache) {
+					diskCache.abort(temp);
+					mPendingWrites.remove(key, write);
+					return;
+				}
+				if (mPendingWrites.remove(key, write)) {
+					try {
+						diskCache.commit(name, temp, write.mExpiresAt);
+					} catch (IOException e) {
+						diskCache.abort(temp);
+						mLogger.error("Failed writing " + name + " to disk cache", e);
+					}
+					return;
+				}
+				// Superseded or discarded while writing
+				diskCache.abort(temp);
+			}
 		}
 	}
 
-	private File getFileForKey(K key) {
-		return new File(mDiskCacheDirectory + "/" + getFileNameForKey(key));
+	/**
+	 * Caches the given value to disk. The value is written to a temporary file
+	 * which replaces the cache file once it is complete. Any write of the key
+	 * still queued from write-behind mode is superseded.
+	 */
+	private void cacheToDisk(K key, V value, long expirationTimeout) {
+		// A queued write committing after this one would restore an older value
+		mPendingWrites.remove(key);
+		String name = getFileNameForKey(key);
+		File temp = mDiskCache.beginWrite(name);
+		try {
+			writeValueToDisk(temp, value);
+			mDiskCache.commit(name, temp, System.currentTimeMillis() + expirationTimeout * 1000);
+		} catch (IOException e) {
+			mDiskCache.abort(temp);
+			mLogger.error("Failed writing " + name + " to disk cache", e);
+		}
 	}
 
 	/**
@@ -256,34 +483,52 @@ public abstract class AbstractCache<K, V> implements Map<K, V> {
 		V value = mCache.get(key);
 		if (value != null) {
 			// memory hit
-			mLogger.debug("MEM cache hit for " + key.toString());
+			if (mLogger.isDebugEnabled())
+				mLogger.debug("MEM cache hit for " + key.toString());
 			return value;
 		}
 
-		// memory miss, try reading from disk
-		File file = getFileForKey(key);
-		if (file.exists()) {
-			if (checkAndRemoveFile(file))
-				return null;
-
-			// disk hit
-			mLogger.debug("DISK cache hit for " + key.toString());
-			try {
-				value = readValueFromDisk(file);
-			} catch (IOException e) {
-				// treat decoding errors as a cache miss
-				e.printStackTrace();
-				return null;
+		// memory miss, check queued writes before reading from disk
+		PendingWrite<V> pending = mPendingWrites.get(key);
+		if (pending != null) {
+			long remaining = (pending.mExpiresAt - System.currentTimeMillis() + 999) / 1000;
+			if (remaining > 0) {
+				mCache.put(key, pending.mValue, remaining);
+				return pending.mValue;
 			}
-			if (value == null) {
-				return null;
-			}
-			mCache.put(key, value, mDiskTimeoutCache.get(file.getAbsolutePath()));
-			return value;
+		}
+		if (!mIsDiskCacheEnabled)
+			return null;
+		String name = getFileNameForKey(key);
+		long expiresAt = mDiskCache.getExpiration(name);
+		if (expiresAt == -1) {
+			// cache miss
+			mStats.recordDiskMiss();
+			return null;
 		}
 
-		// cache miss
-		return null;
+		// disk hit
+		if (mLogger.isDebugEnabled())
+			mLogger.debug("DISK cache hit for " + key.toString());
+		long start = System.nanoTime();
+		try {
+			value = readValueFromDisk(mDiskCache.getFile(name));
+		} catch (IOException e) {
+			// treat decoding errors as a cache miss
+			mDiskCache.remove(name);
+			mStats.recordDiskMiss();
+			return null;
+		}
+		if (value == null) {
+			mStats.recordDiskMiss();
+			return null;
+		}
+		mStats.recordDiskHit();
+		mStats.recordLoad(System.nanoTime() - start);
+		mDiskCache.recordAccess(name);
+		long remaining = (expiresAt - System.currentTimeMillis() + 999) / 1000;
+		mCache.put(key, value, Math.max(remaining, 1));
+		return value;
 	}
 
 	/**
@@ -299,12 +544,7 @@ public abstract class AbstractCache<K, V> implements Map<K, V> {
 	 */
 	@Override
 	public synchronized V put(K key, V value) {
-		if (mIsDiskCacheEnabled) {
-			String path = cacheToDisk(key, value);
-			if (path != null)
-				mDiskTimeoutCache.put(path, mDefaultExpirationTimeout);
-		}
-		return mCache.put(key, value);
+		return put(key, value, mDefaultExpirationTimeout);
 	}
 
 	/**
@@ -321,12 +561,14 @@ public abstract class AbstractCache<K, V> implements Map<K, V> {
 	 *         there is none
 	 */
 	public synchronized V put(K key, V value, long expirationTimeout) {
+		V previous = mCache.put(key, value, expirationTimeout);
 		if (mIsDiskCacheEnabled) {
-			String path = cacheToDisk(key, value);
-			if (path != null)
-				mDiskTimeoutCache.put(path, expirationTimeout);
+			if (mIsWriteBehindEnabled)
+				queueDiskWrite(key, value, expirationTimeout);
+			else
+				cacheToDisk(key, value, expirationTimeout);
 		}
-		return mCache.put(key, value, expirationTimeout);
+		return previous;
 	}
 
 	@Override
@@ -345,8 +587,8 @@ public abstract class AbstractCache<K, V> implements Map<K, V> {
 	@SuppressWarnings("unchecked")
 	@Override
 	public synchronized boolean containsKey(Object key) {
-		return mCache.containsKey(key)
-				|| (mIsDiskCacheEnabled && getFileForKey((K) key).exists());
+		return mCache.containsKey(key) || mPendingWrites.containsKey(key)
+				|| (mIsDiskCacheEnabled && mDiskCache.contains(getFileNameForKey((K) key)));
 	}
 
 	/**
@@ -373,13 +615,10 @@ public abstract class AbstractCache<K, V> implements Map<K, V> {
 	@Override
 	public synchronized V remove(Object key) {
 		V value = removeKey(key);
+		mPendingWrites.remove(key);
 
-		if (mIsDiskCacheEnabled) {
-			File cachedValue = getFileForKey((K) key);
-			if (cachedValue.exists()) {
-				cachedValue.delete();
-			}
-		}
+		if (mIsDiskCacheEnabled)
+			mDiskCache.remove(getFileNameForKey((K) key));
 
 		return value;
 	}
@@ -421,7 +660,8 @@ public abstract class AbstractCache<K, V> implements Map<K, V> {
 	public void setDiskCacheEnabled(String rootDir) {
 		if (rootDir != null && rootDir.length() > 0) {
 			setRootDir(rootDir);
-			this.mIsDiskCacheEnabled = true;
+			new File(mDiskCacheDirectory).mkdirs();
+			this.mIsDiskCacheEnabled = openDiskCache();
 		} else {
 			this.mIsDiskCacheEnabled = false;
 		}
@@ -430,56 +670,47 @@ public abstract class AbstractCache<K, V> implements Map<K, V> {
 	@Override
 	public synchronized void clear() {
 		mCache.clear();
-		if (mIsDiskCacheEnabled) {
-			File[] cachedFiles = new File(mDiskCacheDirectory).listFiles();
-			if (cachedFiles == null)
-				return;
-			for (File file : cachedFiles) {
-				if (!file.getName().endsWith(".nomedia"))
-				    file.delete();
-			}
-		}
+		// Queued writes are discarded rather than written and then deleted
+		mPendingWrites.clear();
+		if (mIsDiskCacheEnabled)
+			mDiskCache.clear();
 		mLogger.debug("Cache cleared");
 	}
 
+	/**
+	 * Returns the statistics of both cache levels. The memory counts reflect
+	 * every lookup, while the disk counts only reflect lookups which missed
+	 * the in-memory cache.
+	 * 
+	 * @return {@link CacheStats}
+	 */
+	@Override
+	public CacheStats getStats() {
+		long diskBytes;
+		synchronized (this) {
+			diskBytes = mDiskCache == null ? 0 : mDiskCache.size();
+		}
+		return mStats.snapshot(mName, diskBytes);
+	}
+
 	@Override
 	public Collection<V> values() {
 		return mCache.values();
 	}
 
 	/**
-	 * Sanitizes the disk cache by removing files which are older than their
-	 * expiration timeouts.
+	 * A value waiting to be written to disk in write-behind mode.
 	 */
-	private void sanitizeDiskCache() {
-		mLogger.debug("Sanitizing disk cache");
-		File[] cachedFiles = new File(mDiskCacheDirectory).listFiles();
-		if (cachedFiles == null)
-			return;
-		for (File file : cachedFiles) {
-			if (!file.getName().endsWith(".nomedia"))
-			    checkAndRemoveFile(file);
-		}
-	}
+	private static final class PendingWrite<V> {
 
-	/**
-	 * Checks if the given {@link File} is expired and deletes it if it is. The
-	 * return value indicates if the file was removed.
-	 */
-	private boolean checkAndRemoveFile(File file) {
-		Long maxAgeInSeconds = mDiskTimeoutCache.get(file.getAbsolutePath());
-		if (maxAgeInSeconds == null) {
-			mLogger.debug("Disk cache file " + file.toString() + " expired");
-			file.delete();
-			return true;
-		}
-		long lastModified = file.lastModified();
-		long ageInSeconds = (System.currentTimeMillis() - lastModified) / 1000;
-		if (ageInSeconds >= maxAgeInSeconds) {
-			mLogger.debug("Disk cache file " + file.toString() + " expired");
-			file.delete();
-			return true;
+		private final V mValue;
+		private final long mExpiresAt;
+
+		public PendingWrite(V value, long expiresAt) {
+			mValue = value;
+			mExpiresAt = expiresAt;
 		}
-		return false;
+
 	}
+
 }
\ No newline at end of file
@@ -0,0 +1,203 @@
+/*
+ * Copyright (c) 2012 Tyler Treat
+ *
+ * This file is part of Infinitum Framework.
+ *
+ * Infinitum Framework is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Infinitum Framework is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Infinitum Framework.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.clarionmedia.infinitum.internal.caching;
+
+import java.io.UnsupportedEncodingException;
+
+/**
+ * <p>
+ * An immutable 128-bit cache key derived from arbitrary content using
+ * MurmurHash3. Keys compare by their hash bits alone, so in-memory lookups
+ * never need to rebuild or compare the content they were derived from.
+ * </p>
+ * <p>
+ * The key also provides a file name for disk caches, sharded into two levels
+ * of hex directories to keep any single directory small.
+ * </p>
+ *
+ * @author Tyler Treat
+ * @version 1.0 10/17/26
+ * @since 1.0
+ */
+public final class CacheKey {
+
+	private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+	private static final long C1 = 0x87c37b91114253d5L;
+	private static final long C2 = 0x4cf5ad432745937fL;
+
+	private final long mHigh;
+	private final long mLow;
+	private String mFileName;
+
+	/**
+	 * Creates a new {@code CacheKey} by hashing the UTF-8 encoding of the given
+	 * content.
+	 *
+	 * @param content
+	 *            the content to derive the key from
+	 * @return {@code CacheKey}
+	 */
+	public static CacheKey forContent(String content) {
+		try {
+			return forBytes(content.getBytes("UTF-8"));
+		} catch (UnsupportedEncodingException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	/**
+	 * Creates a new {@code CacheKey} by hashing the given bytes.
+	 *
+	 * @param bytes
+	 *            the bytes to derive the key from
+	 * @return {@code CacheKey}
+	 */
+	public static CacheKey forBytes(byte[] bytes) {
+		long h1 = 0;
+		long h2 = 0;
+		int length = bytes.length;
+		int blocks = length >>> 4;
+		for (int i = 0; i < blocks; i++) {
+			long k1 = getLong(bytes, i << 4);
+			long k2 = getLong(bytes, (i << 4) + 8);
+			h1 ^= mixK1(k1);
+			h1 = Long.rotateLeft(h1, 27);
+			h1 += h2;
+			h1 = h1 * 5 + 0x52dce729;
+			h2 ^= mixK2(k2);
+			h2 = Long.rotateLeft(h2, 31);
+			h2 += h1;
+			h2 = h2 * 5 + 0x38495ab5;
+		}
+
+		int tail = blocks << 4;
+		long k1 = 0;
+		long k2 = 0;
+		switch (length & 15) {
+		case 15: k2 ^= (long) (bytes[tail + 14] & 0xff) << 48;
+		case 14: k2 ^= (long) (bytes[tail + 13] & 0xff) << 40;
+		case 13: k2 ^= (long) (bytes[tail + 12] & 0xff) << 32;
+		case 12: k2 ^= (long) (bytes[tail + 11] & 0xff) << 24;
+		case 11: k2 ^= (long) (bytes[tail + 10] & 0xff) << 16;
+		case 10: k2 ^= (long) (bytes[tail + 9] & 0xff) << 8;
+		case 9:  k2 ^= (long) (bytes[tail + 8] & 0xff);
+			h2 ^= mixK2(k2);
+		case 8:  k1 ^= (long) (bytes[tail + 7] & 0xff) << 56;
+		case 7:  k1 ^= (long) (bytes[tail + 6] & 0xff) << 48;
+		case 6:  k1 ^= (long) (bytes[tail + 5] & 0xff) << 40;
+		case 5:  k1 ^= (long) (bytes[tail + 4] & 0xff) << 32;
+		case 4:  k1 ^= (long) (bytes[tail + 3] & 0xff) << 24;
+		case 3:  k1 ^= (long) (bytes[tail + 2] & 0xff) << 16;
+		case 2:  k1 ^= (long) (bytes[tail + 1] & 0xff) << 8;
+		case 1:  k1 ^= (long) (bytes[tail] & 0xff);
+			h1 ^= mixK1(k1);
+		}
+
+		h1 ^= length;
+		h2 ^= length;
+		h1 += h2;
+		h2 += h1;
+		h1 = fmix(h1);
+		h2 = fmix(h2);
+		h1 += h2;
+		h2 += h1;
+		return new CacheKey(h1, h2);
+	}
+
+	private CacheKey(long high, long low) {
+		mHigh = high;
+		mLow = low;
+	}
+
+	/**
+	 * Returns the file name used to store the entry with this key in a disk
+	 * cache. The name has the form {@code ab/cd/abcd...}, where the two
+	 * directory levels are taken from the leading hex digits of the key.
+	 *
+	 * @return sharded file name
+	 */
+	public String getFileName() {
+		if (mFileName == null) {
+			String hex = toString();
+			mFileName = new StringBuilder(38).append(hex, 0, 2).append('/').append(hex, 2, 4)
+					.append('/').append(hex).toString();
+		}
+		return mFileName;
+	}
+
+	@Override
+	public int hashCode() {
+		return (int) (mLow ^ (mLow >>> 32));
+	}
+
+	@Override
+	public boolean equals(Object other) {
+		if (this == other)
+			return true;
+		if (!(other instanceof CacheKey))
+			return false;
+		CacheKey otherKey = (CacheKey) other;
+		return mHigh == otherKey.mHigh && mLow == otherKey.mLow;
+	}
+
+	@Override
+	public String toString() {
+		char[] chars = new char[32];
+		appendHex(chars, 0, mHigh);
+		appendHex(chars, 16, mLow);
+		return new String(chars);
+	}
+
+	private static void appendHex(char[] chars, int offset, long value) {
+		for (int i = 15; i >= 0; i--) {
+			chars[offset + i] = HEX_DIGITS[(int) (value & 0xf)];
+			value >>>= 4;
+		}
+	}
+
+	private static long getLong(byte[] bytes, int offset) {
+		return (bytes[offset] & 0xffL) | (bytes[offset + 1] & 0xffL) << 8
+				| (bytes[offset + 2] & 0xffL) << 16 | (bytes[offset + 3] & 0xffL) << 24
+				| (bytes[offset + 4] & 0xffL) << 32 | (bytes[offset + 5] & 0xffL) << 40
+				| (bytes[offset + 6] & 0xffL) << 48 | (bytes[offset + 7] & 0xffL) << 56;
+	}
+
+	private static long mixK1(long k1) {
+		k1 *= C1;
+		k1 = Long.rotateLeft(k1, 31);
+		return k1 * C2;
+	}
+
+	private static long mixK2(long k2) {
+		k2 *= C2;
+		k2 = Long.rotateLeft(k2, 33);
+		return k2 * C1;
+	}
+
+	private static long fmix(long k) {
+		k ^= k >>> 33;
+		k *= 0xff51afd7ed558ccdL;
+		k ^= k >>> 33;
+		k *= 0xc4ceb9fe1a85ec53L;
+		k ^= k >>> 33;
+		return k;
+	}
+
+}
@@ -0,0 +1,198 @@
+/*
+ * Copyright (c) 2012 Tyler Treat
+ *
+ * This file is part of Infinitum Framework.
+ *
+ * Infinitum Framework is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Infinitum Framework is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Infinitum Framework.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.clarionmedia.infinitum.internal.caching;
+
+/**
+ * <p>
+ * An immutable snapshot of the statistics of an {@link InstrumentedCache}.
+ * Caches which do not have a disk tier report all of their lookups as memory
+ * hits and misses, and no disk usage.
+ * </p>
+ *
+ * @author Tyler Treat
+ * @version 1.0 10/17/26
+ * @since 1.0
+ */
+public final class CacheStats {
+
+	/**
+	 * Represents the reason an entry left a cache.
+	 */
+	public static enum EvictionCause {
+
+		/**
+		 * The entry was evicted to keep the cache within its size bounds.
+		 */
+		SIZE,
+
+		/**
+		 * The entry's expiration timeout elapsed.
+		 */
+		EXPIRED,
+
+		/**
+		 * The entry was removed or the cache was cleared.
+		 */
+		EXPLICIT
+
+	}
+
+	private final String mName;
+	private final long mMemoryHitCount;
+	private final long mMemoryMissCount;
+	private final long mDiskHitCount;
+	private final long mDiskMissCount;
+	private final long mLoadCount;
+	private final long mTotalLoadTime;
+	private final long[] mEvictionCounts;
+	private final long mDiskBytes;
+
+	CacheStats(String name, long memoryHitCount, long memoryMissCount, long diskHitCount, long diskMissCount,
+			long loadCount, long totalLoadTime, long[] evictionCounts, long diskBytes) {
+		mName = name;
+		mMemoryHitCount = memoryHitCount;
+		mMemoryMissCount = memoryMissCount;
+		mDiskHitCount = diskHitCount;
+		mDiskMissCount = diskMissCount;
+		mLoadCount = loadCount;
+		mTotalLoadTime = totalLoadTime;
+		mEvictionCounts = evictionCounts;
+		mDiskBytes = diskBytes;
+	}
+
+	/**
+	 * Returns the name of the cache these statistics were collected from.
+	 *
+	 * @return cache name
+	 */
+	public String getName() {
+		return mName;
+	}
+
+	/**
+	 * Returns the number of lookups served from memory.
+	 *
+	 * @return memory hit count
+	 */
+	public long getMemoryHitCount() {
+		return mMemoryHitCount;
+	}
+
+	/**
+	 * Returns the number of lookups which were not found in memory.
+	 *
+	 * @return memory miss count
+	 */
+	public long getMemoryMissCount() {
+		return mMemoryMissCount;
+	}
+
+	/**
+	 * Returns the number of memory misses which were served from disk.
+	 *
+	 * @return disk hit count
+	 */
+	public long getDiskHitCount() {
+		return mDiskHitCount;
+	}
+
+	/**
+	 * Returns the number of memory misses which were not found on disk
+	 * either.
+	 *
+	 * @return disk miss count
+	 */
+	public long getDiskMissCount() {
+		return mDiskMissCount;
+	}
+
+	/**
+	 * Returns the fraction of lookups served from either tier, or 1.0 if
+	 * there were no lookups.
+	 *
+	 * @return hit rate between 0.0 and 1.0
+	 */
+	public double getHitRate() {
+		long lookups = mMemoryHitCount + mMemoryMissCount;
+		if (lookups == 0)
+			return 1.0;
+		return (double) (mMemoryHitCount + mDiskHitCount) / lookups;
+	}
+
+	/**
+	 * Returns the number of values loaded into memory, either by reading
+	 * them from disk or by creating them.
+	 *
+	 * @return load count
+	 */
+	public long getLoadCount() {
+		return mLoadCount;
+	}
+
+	/**
+	 * Returns the total time spent loading values in nanoseconds.
+	 *
+	 * @return total load time in nanoseconds
+	 */
+	public long getTotalLoadTime() {
+		return mTotalLoadTime;
+	}
+
+	/**
+	 * Returns the average time spent loading a value in nanoseconds.
+	 *
+	 * @return average load time in nanoseconds
+	 */
+	public double getAverageLoadPenalty() {
+		return mLoadCount == 0 ? 0.0 : (double) mTotalLoadTime / mLoadCount;
+	}
+
+	/**
+	 * Returns the number of entries which left the cache for the given
+	 * reason.
+	 *
+	 * @param cause
+	 *            the {@link EvictionCause} to retrieve the count for
+	 * @return eviction count
+	 */
+	public long getEvictionCount(EvictionCause cause) {
+		return mEvictionCounts[cause.ordinal()];
+	}
+
+	/**
+	 * Returns the number of bytes the cache currently occupies on disk.
+	 *
+	 * @return disk usage in bytes
+	 */
+	public long getDiskBytes() {
+		return mDiskBytes;
+	}
+
+	@Override
+	public String toString() {
+		return String.format(
+				"CacheStats[%s: memHits=%d,memMisses=%d,diskHits=%d,diskMisses=%d,hitRate=%.2f,"
+						+ "loads=%d,avgLoadNanos=%.0f,sizeEvictions=%d,expirations=%d,removals=%d,diskBytes=%d]",
+				mName, mMemoryHitCount, mMemoryMissCount, mDiskHitCount, mDiskMissCount, getHitRate(), mLoadCount,
+				getAverageLoadPenalty(), getEvictionCount(EvictionCause.SIZE),
+				getEvictionCount(EvictionCause.EXPIRED), getEvictionCount(EvictionCause.EXPLICIT), mDiskBytes);
+	}
+
+}
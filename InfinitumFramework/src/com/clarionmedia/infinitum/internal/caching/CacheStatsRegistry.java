@@ -0,0 +1,91 @@
+/*
+ * Copyright (c) 2012 Tyler Treat
+ *
+ * This file is part of Infinitum Framework.
+ *
+ * Infinitum Framework is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Infinitum Framework is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Infinitum Framework.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.clarionmedia.infinitum.internal.caching;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * <p>
+ * Process-wide registry of {@link InstrumentedCache} instances. Caches are
+ * referenced weakly, so registration does not prevent them from being
+ * garbage collected.
+ * </p>
+ *
+ * @author Tyler Treat
+ * @version 1.0 10/17/26
+ * @since 1.0
+ */
+public final class CacheStatsRegistry {
+
+	private static final List<WeakReference<InstrumentedCache>> sCaches = new ArrayList<WeakReference<InstrumentedCache>>();
+
+	private CacheStatsRegistry() {
+	}
+
+	/**
+	 * Registers the given {@link InstrumentedCache}.
+	 *
+	 * @param cache
+	 *            the {@code InstrumentedCache} to register
+	 */
+	public static void register(InstrumentedCache cache) {
+		synchronized (sCaches) {
+			// Drop collected caches so the registry does not grow unbounded
+			if (sCaches.size() >= 32 && Integer.bitCount(sCaches.size()) == 1)
+				prune();
+			sCaches.add(new WeakReference<InstrumentedCache>(cache));
+		}
+	}
+
+	/**
+	 * Returns a {@link CacheStats} snapshot for every live registered cache.
+	 *
+	 * @return {@link List} of {@code CacheStats}
+	 */
+	public static List<CacheStats> getStats() {
+		List<InstrumentedCache> caches = new ArrayList<InstrumentedCache>();
+		synchronized (sCaches) {
+			Iterator<WeakReference<InstrumentedCache>> iter = sCaches.iterator();
+			while (iter.hasNext()) {
+				InstrumentedCache cache = iter.next().get();
+				if (cache == null)
+					iter.remove();
+				else
+					caches.add(cache);
+			}
+		}
+		List<CacheStats> stats = new ArrayList<CacheStats>(caches.size());
+		for (InstrumentedCache cache : caches)
+			stats.add(cache.getStats());
+		return stats;
+	}
+
+	private static void prune() {
+		Iterator<WeakReference<InstrumentedCache>> iter = sCaches.iterator();
+		while (iter.hasNext()) {
+			if (iter.next().get() == null)
+				iter.remove();
+		}
+	}
+
+}
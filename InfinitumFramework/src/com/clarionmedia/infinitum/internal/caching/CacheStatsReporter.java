@@ -0,0 +1,90 @@
+/*
+ * Copyright (c) 2012 Tyler Treat
+ *
+ * This file is part of Infinitum Framework.
+ *
+ * Infinitum Framework is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Infinitum Framework is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Infinitum Framework.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.clarionmedia.infinitum.internal.caching;
+
+import com.clarionmedia.infinitum.context.InfinitumContext;
+import com.clarionmedia.infinitum.logging.Logger;
+
+/**
+ * <p>
+ * Periodically logs the {@link CacheStats} of every registered cache. The
+ * reporter runs on a single daemon thread and is enabled by setting the
+ * {@code cacheStatsInterval} application property in
+ * {@code infinitum.cfg.xml} to the reporting interval in seconds. Reports are
+ * only produced when debug is enabled.
+ * </p>
+ *
+ * @author Tyler Treat
+ * @version 1.0 10/17/26
+ * @since 1.0
+ */
+public final class CacheStatsReporter {
+
+	private static final String THREAD_NAME = "InfinitumCacheStatsReporter";
+
+	private static Thread sReporter;
+
+	private CacheStatsReporter() {
+	}
+
+	/**
+	 * Starts reporting cache statistics at the given interval, replacing any
+	 * reporter which is already running.
+	 *
+	 * @param context
+	 *            the {@link InfinitumContext} to log with
+	 * @param interval
+	 *            the reporting interval in seconds
+	 */
+	public static synchronized void start(InfinitumContext context, final long interval) {
+		stop();
+		final Logger logger = Logger.getInstance(context, CacheStatsReporter.class.getSimpleName());
+		sReporter = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				try {
+					while (!Thread.currentThread().isInterrupted()) {
+						Thread.sleep(interval * 1000);
+						if (!logger.isDebugEnabled())
+							continue;
+						for (CacheStats stats : CacheStatsRegistry.getStats())
+							logger.debug(stats.toString());
+					}
+				} catch (InterruptedException e) {
+					// Reporter stopped
+				}
+			}
+		}, THREAD_NAME);
+		sReporter.setDaemon(true);
+		sReporter.setPriority(Thread.MIN_PRIORITY);
+		sReporter.start();
+	}
+
+	/**
+	 * Stops reporting cache statistics.
+	 */
+	public static synchronized void stop() {
+		if (sReporter != null) {
+			sReporter.interrupt();
+			sReporter = null;
+		}
+	}
+
+}
@@ -0,0 +1,718 @@
+/*
+ * Copyright (c) 2012 Tyler Treat
+ *
+ * This file is part of Infinitum Framework.
+ *
+ * Infinitum Framework is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Infinitum Framework is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Infinitum Framework.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.clarionmedia.infinitum.internal.caching;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+import com.clarionmedia.infinitum.internal.caching.CacheStats.EvictionCause;
+
+/**
+ * <p>
+ * A concurrent, bounded {@link Map} implementation which approximates a
+ * least-recently-used cache. It honors the same {@link #sizeOf(Object, Object)},
+ * {@link #create(Object)} and
+ * {@link #entryRemoved(boolean, Object, Object, Object)} contract as
+ * {@link LruCache}, but lookups do not acquire a lock and do not reorder any
+ * shared structure.
+ * </p>
+ * <p>
+ * Entries are striped across segments by key hash, each owning a share of the
+ * maximum size. Within a segment, new entries are placed in a small admission
+ * window. Entries leaving the window compete with the victim chosen by a CLOCK
+ * sweep of the main region, and are only admitted if a count-min sketch of
+ * recent access frequencies (W-TinyLFU) rates them as more popular. Reads mark
+ * an entry as referenced for the CLOCK sweep and record its frequency only if
+ * the segment lock is uncontended, so a hot key never serializes readers.
+ * </p>
+ *
+ * @author Tyler Treat
+ * @version 1.0 10/17/26
+ * @since 1.0
+ */
+public class ConcurrentLruCache<K, V> implements Map<K, V>, InstrumentedCache {
+
+	private static final int MAX_SEGMENTS = 16;
+	private static final int MIN_SEGMENT_SIZE = 16;
+
+	private final ConcurrentHashMap<K, Node<K, V>> mData;
+	private final Segment<K, V>[] mSegments;
+	private final int mSegmentMask;
+	private final int mMaxSize;
+	private final AtomicLong mPutCount;
+	private final AtomicLong mCreateCount;
+	private final AtomicLong mEvictionCount;
+	private final AtomicLong mHitCount;
+	private final AtomicLong mMissCount;
+	private final AtomicLong mRemovalCount;
+	private final AtomicLong mLoadTime;
+
+	/**
+	 * @param maxSize
+	 *            for caches that do not override {@link #sizeOf}, this is the
+	 *            maximum number of entries in the cache. For all other caches,
+	 *            this is the maximum sum of the sizes of the entries in this
+	 *            cache.
+	 */
+	@SuppressWarnings("unchecked")
+	public ConcurrentLruCache(int maxSize) {
+		if (maxSize <= 0) {
+			throw new IllegalArgumentException("maxSize <= 0");
+		}
+		mMaxSize = maxSize;
+		int segments = 1;
+		while (segments < MAX_SEGMENTS && segments * 2 * MIN_SEGMENT_SIZE <= maxSize)
+			segments *= 2;
+		mSegmentMask = segments - 1;
+		mSegments = new Segment[segments];
+		for (int i = 0; i < segments; i++) {
+			// Spread any remainder over the first segments
+			int segmentSize = maxSize / segments + (i < maxSize % segments ? 1 : 0);
+			mSegments[i] = new Segment<K, V>(segmentSize);
+		}
+		mData = new ConcurrentHashMap<K, Node<K, V>>(Math.min(maxSize, 1024), 0.75f, segments);
+		mPutCount = new AtomicLong();
+		mCreateCount = new AtomicLong();
+		mEvictionCount = new AtomicLong();
+		mHitCount = new AtomicLong();
+		mMissCount = new AtomicLong();
+		mRemovalCount = new AtomicLong();
+		mLoadTime = new AtomicLong();
+		CacheStatsRegistry.register(this);
+	}
+
+	/**
+	 * Returns the value for {@code key} if it exists in the cache or can be
+	 * created by {@code #create}. This returns null if a value is not cached
+	 * and cannot be created.
+	 */
+	@SuppressWarnings("unchecked")
+	@Override
+	public final V get(Object key) {
+		if (key == null) {
+			throw new NullPointerException("key == null");
+		}
+
+		int hash = spread(key.hashCode());
+		Segment<K, V> segment = segmentFor(hash);
+		Node<K, V> node = mData.get(key);
+		if (node != null) {
+			V value = node.mValue;
+			if (value != null) {
+				node.mReferenced = true;
+				segment.recordAccess(hash);
+				mHitCount.incrementAndGet();
+				return value;
+			}
+		}
+		mMissCount.incrementAndGet();
+		segment.recordAccess(hash);
+
+		/*
+		 * Attempt to create a value. This may take a long time, and the map may
+		 * be different when create() returns. If a conflicting value was added
+		 * to the map while create() was working, we leave that value in the map
+		 * and release the created value.
+		 */
+
+		long start = System.nanoTime();
+		V createdValue = create(key);
+		long loadTime = System.nanoTime() - start;
+		if (createdValue == null) {
+			return null;
+		}
+
+		mCreateCount.incrementAndGet();
+		mLoadTime.addAndGet(loadTime);
+		V mapValue = putInternal((K) key, createdValue, hash, true);
+		if (mapValue != null) {
+			entryRemoved(false, key, createdValue, mapValue);
+			return mapValue;
+		}
+		return createdValue;
+	}
+
+	/**
+	 * Caches {@code value} for {@code key}.
+	 *
+	 * @return the previous value mapped by {@code key}.
+	 */
+	@Override
+	public final V put(K key, V value) {
+		if (key == null || value == null) {
+			throw new NullPointerException("key == null || value == null");
+		}
+
+		mPutCount.incrementAndGet();
+		V previous = putInternal(key, value, spread(key.hashCode()), false);
+		if (previous != null) {
+			entryRemoved(false, key, previous, value);
+		}
+		return previous;
+	}
+
+	/**
+	 * Checks if the given key is contained in the cache.
+	 *
+	 * @return boolean indicating if the key exists
+	 */
+	@Override
+	public final boolean containsKey(Object key) {
+		return mData.containsKey(key);
+	}
+
+	/**
+	 * Removes the entry for {@code key} if it exists.
+	 *
+	 * @return the previous value mapped by {@code key}.
+	 */
+	@Override
+	public final V remove(Object key) {
+		if (key == null) {
+			throw new NullPointerException("key == null");
+		}
+
+		Segment<K, V> segment = segmentFor(spread(key.hashCode()));
+		V previous = null;
+		segment.lock();
+		try {
+			Node<K, V> node = mData.remove(key);
+			if (node != null) {
+				segment.unlink(node);
+				previous = node.mValue;
+			}
+		} finally {
+			segment.unlock();
+		}
+
+		if (previous != null) {
+			mRemovalCount.incrementAndGet();
+			entryRemoved(false, key, previous, null);
+		}
+
+		return previous;
+	}
+
+	/**
+	 * Called for entries that have been evicted or removed. This method is
+	 * invoked when a value is evicted to make space, removed by a call to
+	 * {@link #remove}, or replaced by a call to {@link #put}. The default
+	 * implementation does nothing.
+	 *
+	 * <p>
+	 * The method is called without synchronization: other threads may access
+	 * the cache while this method is executing.
+	 *
+	 * @param evicted
+	 *            true if the entry is being removed to make space, false if the
+	 *            removal was caused by a {@link #put} or {@link #remove}.
+	 * @param newValue
+	 *            the new value for {@code key}, if it exists. If non-null, this
+	 *            removal was caused by a {@link #put}. Otherwise it was caused
+	 *            by an eviction or a {@link #remove}.
+	 */
+	protected void entryRemoved(boolean evicted, Object key, V oldValue, V newValue) {
+	}
+
+	/**
+	 * Called after a cache miss to compute a value for the corresponding key.
+	 * Returns the computed value or null if no value can be computed. The
+	 * default implementation returns null.
+	 *
+	 * <p>
+	 * The method is called without synchronization: other threads may access
+	 * the cache while this method is executing.
+	 *
+	 * <p>
+	 * If a value for {@code key} exists in the cache when this method returns,
+	 * the created value will be released with {@link #entryRemoved} and
+	 * discarded.
+	 */
+	protected V create(Object key) {
+		return null;
+	}
+
+	/**
+	 * Returns the size of the entry for {@code key} and {@code value} in
+	 * user-defined units. The default implementation returns 1 so that size is
+	 * the number of entries and max size is the maximum number of entries.
+	 *
+	 * <p>
+	 * An entry's size must not change while it is in the cache.
+	 */
+	protected int sizeOf(Object key, V value) {
+		return 1;
+	}
+
+	/**
+	 * Clear the cache, calling {@link #entryRemoved} on each removed entry.
+	 */
+	@Override
+	public final void clear() {
+		for (Segment<K, V> segment : mSegments) {
+			List<Node<K, V>> removed;
+			segment.lock();
+			try {
+				removed = segment.drain();
+				for (Node<K, V> node : removed)
+					mData.remove(node.mKey, node);
+			} finally {
+				segment.unlock();
+			}
+			mEvictionCount.addAndGet(removed.size());
+			for (Node<K, V> node : removed)
+				entryRemoved(true, node.mKey, node.mValue, null);
+		}
+	}
+
+	/**
+	 * For caches that do not override {@link #sizeOf}, this returns the number
+	 * of entries in the cache. For all other caches, this returns the sum of
+	 * the sizes of the entries in this cache.
+	 */
+	@Override
+	public final int size() {
+		int size = 0;
+		for (Segment<K, V> segment : mSegments) {
+			segment.lock();
+			try {
+				size += segment.mWindowSize + segment.mMainSize;
+			} finally {
+				segment.unlock();
+			}
+		}
+		return size;
+	}
+
+	/**
+	 * For caches that do not override {@link #sizeOf}, this returns the maximum
+	 * number of entries in the cache. For all other caches, this returns the
+	 * maximum sum of the sizes of the entries in this cache.
+	 */
+	public final int maxSize() {
+		return mMaxSize;
+	}
+
+	/**
+	 * Returns the number of times {@link #get} returned a value.
+	 */
+	public final long hitCount() {
+		return mHitCount.get();
+	}
+
+	/**
+	 * Returns the number of times {@link #get} returned null or required a new
+	 * value to be created.
+	 */
+	public final long missCount() {
+		return mMissCount.get();
+	}
+
+	/**
+	 * Returns the number of times {@link #create(Object)} returned a value.
+	 */
+	public final long createCount() {
+		return mCreateCount.get();
+	}
+
+	/**
+	 * Returns the number of times {@link #put} was called.
+	 */
+	public final long putCount() {
+		return mPutCount.get();
+	}
+
+	/**
+	 * Returns the number of values that have been evicted.
+	 */
+	public final long evictionCount() {
+		return mEvictionCount.get();
+	}
+
+	/**
+	 * Returns a copy of the current contents of the cache. Unlike
+	 * {@link LruCache#snapshot()}, the copy is not ordered by access.
+	 */
+	public final Map<K, V> snapshot() {
+		Map<K, V> snapshot = new HashMap<K, V>(mData.size());
+		for (Node<K, V> node : mData.values()) {
+			V value = node.mValue;
+			if (value != null)
+				snapshot.put(node.mKey, value);
+		}
+		return snapshot;
+	}
+
+	@Override
+	public final boolean containsValue(Object value) {
+		for (Node<K, V> node : mData.values()) {
+			if (node.mValue.equals(value))
+				return true;
+		}
+		return false;
+	}
+
+	@Override
+	public final Set<Entry<K, V>> entrySet() {
+		return Collections.unmodifiableMap(snapshot()).entrySet();
+	}
+
+	@Override
+	public final boolean isEmpty() {
+		return mData.isEmpty();
+	}
+
+	@Override
+	public final Set<K> keySet() {
+		return Collections.unmodifiableSet(mData.keySet());
+	}
+
+	@Override
+	public final void putAll(Map<? extends K, ? extends V> other) {
+		for (Entry<? extends K, ? extends V> entry : other.entrySet())
+			put(entry.getKey(), entry.getValue());
+	}
+
+	@Override
+	public final Collection<V> values() {
+		return Collections.unmodifiableCollection(snapshot().values());
+	}
+
+	@Override
+	public CacheStats getStats() {
+		long[] evictionCounts = new long[EvictionCause.values().length];
+		evictionCounts[EvictionCause.SIZE.ordinal()] = mEvictionCount.get();
+		evictionCounts[EvictionCause.EXPLICIT.ordinal()] = mRemovalCount.get();
+		return new CacheStats(StatsCounter.nameOf(this), mHitCount.get(), mMissCount.get(), 0, 0,
+				mCreateCount.get(), mLoadTime.get(), evictionCounts, 0);
+	}
+
+	@Override
+	public final String toString() {
+		long hits = mHitCount.get();
+		long accesses = hits + mMissCount.get();
+		long hitPercent = accesses != 0 ? (100 * hits / accesses) : 0;
+		return String.format(
+				"ConcurrentLruCache[maxSize=%d,hits=%d,misses=%d,hitRate=%d%%]",
+				mMaxSize, hits, accesses - hits, hitPercent);
+	}
+
+	private V putInternal(K key, V value, int hash, boolean onlyIfAbsent) {
+		Segment<K, V> segment = segmentFor(hash);
+		List<Node<K, V>> evicted;
+		V previous = null;
+		segment.lock();
+		try {
+			segment.recordAccess(hash);
+			int size = safeSizeOf(key, value);
+			Node<K, V> node = mData.get(key);
+			if (node != null) {
+				if (onlyIfAbsent)
+					return node.mValue;
+				previous = node.mValue;
+				segment.resize(node, size);
+				node.mValue = value;
+				node.mReferenced = true;
+			} else {
+				node = new Node<K, V>(key, value, hash, size);
+				mData.put(key, node);
+				segment.linkWindow(node);
+			}
+			evicted = segment.evict();
+			for (Node<K, V> victim : evicted)
+				mData.remove(victim.mKey, victim);
+		} finally {
+			segment.unlock();
+		}
+
+		mEvictionCount.addAndGet(evicted.size());
+		for (Node<K, V> victim : evicted)
+			entryRemoved(true, victim.mKey, victim.mValue, null);
+		return previous;
+	}
+
+	private int safeSizeOf(Object key, V value) {
+		int result = sizeOf(key, value);
+		if (result < 0) {
+			throw new IllegalStateException("Negative size: " + key + "="
+					+ value);
+		}
+		return result;
+	}
+
+	private Segment<K, V> segmentFor(int hash) {
+		return mSegments[hash & mSegmentMask];
+	}
+
+	private static int spread(int hash) {
+		hash ^= (hash >>> 20) ^ (hash >>> 12);
+		return hash ^ (hash >>> 7) ^ (hash >>> 4);
+	}
+
+	/**
+	 * A cache entry. Links and sizes are guarded by the owning segment's lock,
+	 * while the value and reference bit may be read without it.
+	 */
+	private static final class Node<K, V> {
+
+		private final K mKey;
+		private final int mHash;
+		private volatile V mValue;
+		private volatile boolean mReferenced;
+		private int mSize;
+		private boolean mInWindow;
+		private Node<K, V> mPrev;
+		private Node<K, V> mNext;
+
+		public Node(K key, V value, int hash, int size) {
+			mKey = key;
+			mValue = value;
+			mHash = hash;
+			mSize = size;
+		}
+
+		public Node() {
+			this(null, null, 0, 0);
+			mPrev = this;
+			mNext = this;
+		}
+
+	}
+
+	/**
+	 * A stripe of the cache owning a share of its maximum size. Holds the
+	 * admission window, the CLOCK-ordered main region and a frequency sketch.
+	 */
+	@SuppressWarnings("serial")
+	private static final class Segment<K, V> extends ReentrantLock {
+
+		private final Node<K, V> mWindow;
+		private final Node<K, V> mMain;
+		private final FrequencySketch mSketch;
+		private final int mMaxSize;
+		private final int mWindowMaxSize;
+		private int mWindowSize;
+		private int mMainSize;
+
+		public Segment(int maxSize) {
+			mWindow = new Node<K, V>();
+			mMain = new Node<K, V>();
+			mSketch = new FrequencySketch(maxSize);
+			mMaxSize = maxSize;
+			mWindowMaxSize = Math.max(1, maxSize / 100);
+		}
+
+		/**
+		 * Records an access in the frequency sketch, unless another thread
+		 * holds the segment, in which case the sample is dropped.
+		 */
+		public void recordAccess(int hash) {
+			if (!tryLock())
+				return;
+			try {
+				mSketch.increment(hash);
+			} finally {
+				unlock();
+			}
+		}
+
+		public void linkWindow(Node<K, V> node) {
+			node.mInWindow = true;
+			linkLast(mWindow, node);
+			mWindowSize += node.mSize;
+		}
+
+		public void unlink(Node<K, V> node) {
+			node.mPrev.mNext = node.mNext;
+			node.mNext.mPrev = node.mPrev;
+			node.mPrev = null;
+			node.mNext = null;
+			if (node.mInWindow)
+				mWindowSize -= node.mSize;
+			else
+				mMainSize -= node.mSize;
+		}
+
+		public void resize(Node<K, V> node, int size) {
+			if (node.mInWindow)
+				mWindowSize += size - node.mSize;
+			else
+				mMainSize += size - node.mSize;
+			node.mSize = size;
+		}
+
+		/**
+		 * Moves entries out of the admission window, admitting them to the
+		 * main region if they are used more frequently than its victims, then
+		 * trims the segment to its maximum size.
+		 *
+		 * @return the entries evicted from the segment
+		 */
+		public List<Node<K, V>> evict() {
+			List<Node<K, V>> evicted = Collections.emptyList();
+			int mainMaxSize = mMaxSize - mWindowMaxSize;
+			while (mWindowSize > mWindowMaxSize) {
+				Node<K, V> candidate = mWindow.mNext;
+				unlink(candidate);
+				candidate.mInWindow = false;
+				while (mMainSize + candidate.mSize > mainMaxSize && mMain.mNext != mMain) {
+					Node<K, V> victim = sweep();
+					if (mSketch.frequency(candidate.mHash) <= mSketch.frequency(victim.mHash)) {
+						evicted = add(evicted, candidate);
+						candidate = null;
+						break;
+					}
+					unlink(victim);
+					evicted = add(evicted, victim);
+				}
+				if (candidate != null) {
+					linkLast(mMain, candidate);
+					mMainSize += candidate.mSize;
+				}
+			}
+			while (mWindowSize + mMainSize > mMaxSize) {
+				Node<K, V> victim = mMain.mNext != mMain ? sweep() : mWindow.mNext;
+				if (victim == mWindow)
+					break;
+				unlink(victim);
+				evicted = add(evicted, victim);
+			}
+			return evicted;
+		}
+
+		/**
+		 * Removes every entry from the segment.
+		 *
+		 * @return the removed entries
+		 */
+		public List<Node<K, V>> drain() {
+			List<Node<K, V>> drained = new ArrayList<Node<K, V>>();
+			while (mWindow.mNext != mWindow) {
+				Node<K, V> node = mWindow.mNext;
+				unlink(node);
+				drained.add(node);
+			}
+			while (mMain.mNext != mMain) {
+				Node<K, V> node = mMain.mNext;
+				unlink(node);
+				drained.add(node);
+			}
+			return drained;
+		}
+
+		/**
+		 * Advances the CLOCK hand over the main region, giving referenced
+		 * entries a second chance, and returns the first unreferenced entry.
+		 */
+		private Node<K, V> sweep() {
+			while (true) {
+				Node<K, V> node = mMain.mNext;
+				if (!node.mReferenced)
+					return node;
+				node.mReferenced = false;
+				node.mPrev.mNext = node.mNext;
+				node.mNext.mPrev = node.mPrev;
+				linkLast(mMain, node);
+			}
+		}
+
+		private static <K, V> void linkLast(Node<K, V> head, Node<K, V> node) {
+			node.mPrev = head.mPrev;
+			node.mNext = head;
+			head.mPrev.mNext = node;
+			head.mPrev = node;
+		}
+
+		private static <K, V> List<Node<K, V>> add(List<Node<K, V>> list, Node<K, V> node) {
+			if (list.isEmpty())
+				list = new ArrayList<Node<K, V>>(2);
+			list.add(node);
+			return list;
+		}
+
+	}
+
+	/**
+	 * A count-min sketch of 4-bit counters used to estimate how often a key
+	 * has been accessed. Counters are halved periodically so that the
+	 * estimates favor recent history.
+	 */
+	private static final class FrequencySketch {
+
+		private static final int[] SEEDS = { 0x97cb3127, 0xb8a6e2f1, 0x6d2b79f5, 0xc13fa9a9 };
+		private static final int MAX_COUNT = 15;
+
+		private final byte[][] mTable;
+		private final int mShift;
+		private final int mSampleSize;
+		private int mAdditions;
+
+		public FrequencySketch(int maxSize) {
+			int width = 16;
+			while (width < maxSize * 2)
+				width *= 2;
+			mTable = new byte[SEEDS.length][width];
+			mShift = 32 - Integer.numberOfTrailingZeros(width);
+			mSampleSize = 10 * width;
+		}
+
+		public void increment(int hash) {
+			boolean added = false;
+			for (int i = 0; i < SEEDS.length; i++) {
+				int index = indexOf(hash, i);
+				if (mTable[i][index] < MAX_COUNT) {
+					mTable[i][index]++;
+					added = true;
+				}
+			}
+			if (added && ++mAdditions >= mSampleSize)
+				reset();
+		}
+
+		public int frequency(int hash) {
+			int frequency = MAX_COUNT;
+			for (int i = 0; i < SEEDS.length; i++)
+				frequency = Math.min(frequency, mTable[i][indexOf(hash, i)]);
+			return frequency;
+		}
+
+		private int indexOf(int hash, int row) {
+			return (hash * SEEDS[row]) >>> mShift;
+		}
+
+		private void reset() {
+			for (byte[] row : mTable) {
+				for (int i = 0; i < row.length; i++)
+					row[i] >>>= 1;
+			}
+			mAdditions /= 2;
+		}
+
+	}
+
+}
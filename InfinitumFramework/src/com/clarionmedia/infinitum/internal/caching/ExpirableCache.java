@@ -24,9 +24,9 @@ import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.TimeUnit;
+
+import com.clarionmedia.infinitum.internal.caching.CacheStats.EvictionCause;
+import com.clarionmedia.infinitum.internal.caching.ExpirationService.Expirable;
 
 /**
  * <p>
@@ -34,12 +34,17 @@ import java.util.concurrent.TimeUnit;
  * evicted after a given timeout. Entries can be cached with their own
  * expiration time or rely on a default cache timeout.
  * </p>
+ * <p>
+ * Eviction is driven by the shared {@link ExpirationService}, so caches do
+ * not own any threads. Expired entries which have not yet been evicted are
+ * never returned and are removed as soon as they are looked up.
+ * </p>
  * 
  * @author Tyler Treat
  * @version 1.0 08/14/12
  * @since 1.0
  */
-public class ExpirableCache<K, V> implements Map<K, V> {
+public class ExpirableCache<K, V> implements Map<K, V>, Expirable, InstrumentedCache {
 
 	/**
 	 * The expiration timeout used if none is specified.
@@ -49,7 +54,8 @@ public class ExpirableCache<K, V> implements Map<K, V> {
 	private final ConcurrentMap<K, V> mCache;
 	private final ConcurrentMap<K, Long> mTimeoutCache;
 	private final long mDefaultExpirationTimeout;
-	private final ExecutorService mThreadPool;
+	private final ExpirationService mExpirationService;
+	private final StatsCounter mStats;
 
 	/**
 	 * Creates a new {@code ExpirableCache} using the default expiration timeout
@@ -73,8 +79,9 @@ public class ExpirableCache<K, V> implements Map<K, V> {
 		mCache = new ConcurrentHashMap<K, V>();
 		mTimeoutCache = new ConcurrentHashMap<K, Long>();
 		mDefaultExpirationTimeout = defaultExpiration;
-		mThreadPool = Executors.newFixedThreadPool(256);
-		scheduleCacheEviction();
+		mExpirationService = ExpirationService.getInstance();
+		mStats = new StatsCounter();
+		CacheStatsRegistry.register(this);
 	}
 
 	/**
@@ -87,14 +94,32 @@ public class ExpirableCache<K, V> implements Map<K, V> {
 	 *            the initial capacity of the cache
 	 */
 	public ExpirableCache(final long defaultExpiration, int initialCapacity) {
+		this(defaultExpiration, initialCapacity, new StatsCounter());
+		CacheStatsRegistry.register(this);
+	}
+
+	/**
+	 * Creates a new {@code ExpirableCache} which records its statistics in
+	 * the given {@link StatsCounter}. Caches created this way are not
+	 * registered with the {@link CacheStatsRegistry}, as their statistics are
+	 * reported by the owner of the counter.
+	 * 
+	 * @param defaultExpiration
+	 *            the default expiration time in seconds
+	 * @param initialCapacity
+	 *            the initial capacity of the cache
+	 * @param stats
+	 *            the {@code StatsCounter} to record statistics in
+	 */
+	ExpirableCache(final long defaultExpiration, int initialCapacity, StatsCounter stats) {
 		if (defaultExpiration <= 0)
 			throw new IllegalArgumentException(
 					"Cache expiration timeout must be greater than 0.");
 		mCache = new ConcurrentHashMap<K, V>(initialCapacity);
 		mTimeoutCache = new ConcurrentHashMap<K, Long>(initialCapacity);
 		mDefaultExpirationTimeout = defaultExpiration;
-		mThreadPool = Executors.newFixedThreadPool(256);
-		scheduleCacheEviction();
+		mExpirationService = ExpirationService.getInstance();
+		mStats = stats;
 	}
 
 	/**
@@ -118,7 +143,6 @@ public class ExpirableCache<K, V> implements Map<K, V> {
 	 */
 	@Override
 	public V put(final K key, final V object) {
-		mTimeoutCache.put(key, System.currentTimeMillis() + mDefaultExpirationTimeout * 1000);
 		return put(key, object, mDefaultExpirationTimeout);
 	}
 
@@ -134,9 +158,12 @@ public class ExpirableCache<K, V> implements Map<K, V> {
 	 * @return the previous cache entry with the associated key or {@code null}
 	 *         if there was none
 	 */
-	public V put(final K key, final V object, final long expirationTimeout) {
-		mTimeoutCache.put(key, System.currentTimeMillis() + expirationTimeout * 1000);
-		return mCache.put(key, object);
+	public synchronized V put(final K key, final V object, final long expirationTimeout) {
+		final long deadline = System.currentTimeMillis() + expirationTimeout * 1000;
+		mTimeoutCache.put(key, deadline);
+		V previous = mCache.put(key, object);
+		mExpirationService.schedule(this, key, deadline);
+		return previous;
 	}
 
 	/**
@@ -150,13 +177,21 @@ public class ExpirableCache<K, V> implements Map<K, V> {
 	@Override
 	public V get(final Object key) {
 		final Long maxAge = mTimeoutCache.get(key);
-		if (maxAge == null)
+		if (maxAge == null) {
+			mStats.recordMemoryMiss();
 			return null;
+		}
 		if (System.currentTimeMillis() > maxAge) {
-			mThreadPool.execute(evictFromCache(key));
+			expire(key, maxAge);
+			mStats.recordMemoryMiss();
 			return null;
 		}
-		return mCache.get(key);
+		V value = mCache.get(key);
+		if (value == null)
+			mStats.recordMemoryMiss();
+		else
+			mStats.recordMemoryHit();
+		return value;
 	}
 
 	/**
@@ -186,11 +221,17 @@ public class ExpirableCache<K, V> implements Map<K, V> {
 
 	@Override
 	public synchronized V remove(Object key) {
-		return mCache.remove(key);
+		mTimeoutCache.remove(key);
+		V previous = mCache.remove(key);
+		if (previous != null)
+			mStats.recordEviction(EvictionCause.EXPLICIT);
+		return previous;
 	}
 
 	@Override
 	public synchronized void clear() {
+		mStats.recordEvictions(EvictionCause.EXPLICIT, mCache.size());
+		mTimeoutCache.clear();
 		mCache.clear();
 	}
 
@@ -225,36 +266,24 @@ public class ExpirableCache<K, V> implements Map<K, V> {
 	}
 
 	/**
-	 * Schedules a thread pool to periodically sanitize the cache.
-	 */
-	private void scheduleCacheEviction() {
-		Executors.newScheduledThreadPool(2).scheduleWithFixedDelay(
-				new Runnable() {
-					@Override
-					public void run() {
-						for (final K key : mTimeoutCache.keySet()) {
-							if (System.currentTimeMillis() > mTimeoutCache.get(key))
-								mThreadPool.execute(evictFromCache(key));
-						}
-					}
-				}, mDefaultExpirationTimeout / 2, mDefaultExpirationTimeout,
-				TimeUnit.SECONDS);
-	}
-
-	/**
-	 * Returns a {@link Runnable} that evicts the {@link Object} with the given
-	 * key from the cache.
+	 * Evicts the entry with the given key if it is still set to expire at the
+	 * given deadline. Entries which have since been removed or re-cached with a
+	 * different timeout are left untouched.
 	 * 
 	 * @param key
-	 *            the key of the {@code Object} to evict
+	 *            the key of the entry to evict
+	 * @param deadline
+	 *            the expiration deadline in milliseconds
 	 */
-	private final Runnable evictFromCache(final Object key) {
-		return new Runnable() {
-			public void run() {
-				mCache.remove(key);
-				mTimeoutCache.remove(key);
-			}
-		};
+	@Override
+	public synchronized void expire(final Object key, final long deadline) {
+		if (mTimeoutCache.remove(key, deadline) && mCache.remove(key) != null)
+			mStats.recordEviction(EvictionCause.EXPIRED);
+	}
+
+	@Override
+	public CacheStats getStats() {
+		return mStats.snapshot(StatsCounter.nameOf(this), 0);
 	}
 
-}
\ No newline at end of file
+}
@@ -0,0 +1,262 @@
+/*
+ * Copyright (c) 2012 Tyler Treat
+ *
+ * This file is part of Infinitum Framework.
+ *
+ * Infinitum Framework is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Infinitum Framework is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Infinitum Framework.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.clarionmedia.infinitum.internal.caching;
+
+import java.lang.ref.WeakReference;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+/**
+ * <p>
+ * Process-wide expiration engine shared by all time-expiring caches. Pending
+ * expirations are held in a single queue ordered by deadline and serviced by
+ * one daemon thread, which sleeps until the earliest deadline rather than
+ * periodically scanning every cache. The cost of expiring entries is therefore
+ * proportional to the number of entries that actually expire.
+ * </p>
+ * <p>
+ * Caches are referenced weakly, so registering with the service does not keep
+ * an otherwise unreachable cache alive. At most one expiration is pending for
+ * each entry: re-scheduling an entry with a later deadline postpones its
+ * pending expiration rather than queueing another, so frequently re-cached
+ * entries do not grow the queue. The owning {@link Expirable} is still
+ * expected to ignore a deadline that no longer matches the entry, e.g.
+ * because it was removed.
+ * </p>
+ *
+ * @author Tyler Treat
+ * @version 1.0 10/17/26
+ * @since 1.0
+ */
+public final class ExpirationService {
+
+	private static final String THREAD_NAME = "InfinitumExpirationService";
+
+	private static ExpirationService sInstance;
+
+	private final PriorityQueue<Expiration> mQueue;
+	private final Map<EntryKey, Expiration> mPending;
+	private long mSequence;
+	private Thread mWorker;
+
+	/**
+	 * Returns the shared {@code ExpirationService} instance.
+	 *
+	 * @return {@code ExpirationService}
+	 */
+	public static synchronized ExpirationService getInstance() {
+		if (sInstance == null)
+			sInstance = new ExpirationService();
+		return sInstance;
+	}
+
+	private ExpirationService() {
+		mQueue = new PriorityQueue<Expiration>();
+		mPending = new HashMap<EntryKey, Expiration>();
+	}
+
+	/**
+	 * Schedules the entry with the given key to be expired from the given
+	 * {@link Expirable} once the deadline has passed. This supersedes any
+	 * deadline previously scheduled for the entry.
+	 *
+	 * @param owner
+	 *            the {@code Expirable} containing the entry
+	 * @param key
+	 *            the key of the entry to expire
+	 * @param deadline
+	 *            the time, in milliseconds since the epoch, at which the entry
+	 *            expires
+	 */
+	public void schedule(Expirable owner, Object key, long deadline) {
+		synchronized (mQueue) {
+			EntryKey entryKey = new EntryKey(owner, key);
+			Expiration pending = mPending.get(entryKey);
+			if (pending != null) {
+				if (deadline >= pending.mDeadline) {
+					// Postponed when the pending expiration comes due
+					pending.mLatestDeadline = deadline;
+					return;
+				}
+				// Removal is linear, but only needed when a deadline moves earlier
+				mQueue.remove(pending);
+			}
+			Expiration expiration = new Expiration(entryKey, deadline, mSequence++);
+			mQueue.add(expiration);
+			mPending.put(entryKey, expiration);
+			ensureWorker();
+			// Only wake the worker if it now has an earlier deadline to honor
+			if (mQueue.peek() == expiration)
+				mQueue.notify();
+		}
+	}
+
+	/**
+	 * Returns the number of expirations currently pending.
+	 *
+	 * @return number of pending expirations
+	 */
+	public int getPendingCount() {
+		synchronized (mQueue) {
+			return mQueue.size();
+		}
+	}
+
+	private void ensureWorker() {
+		if (mWorker != null && mWorker.isAlive())
+			return;
+		mWorker = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				processExpirations();
+			}
+		}, THREAD_NAME);
+		mWorker.setDaemon(true);
+		mWorker.setPriority(Thread.MIN_PRIORITY);
+		mWorker.start();
+	}
+
+	private void processExpirations() {
+		while (true) {
+			Expiration expiration;
+			synchronized (mQueue) {
+				try {
+					while (true) {
+						expiration = mQueue.peek();
+						if (expiration == null) {
+							mQueue.wait();
+							continue;
+						}
+						long delay = expiration.mDeadline - System.currentTimeMillis();
+						if (delay <= 0)
+							break;
+						mQueue.wait(delay);
+					}
+				} catch (InterruptedException e) {
+					mWorker = null;
+					return;
+				}
+				mQueue.poll();
+				if (expiration.mLatestDeadline > expiration.mDeadline) {
+					// The entry was re-scheduled since, so wait for its latest deadline
+					Expiration postponed = new Expiration(expiration.mEntryKey, expiration.mLatestDeadline, mSequence++);
+					mQueue.add(postponed);
+					mPending.put(expiration.mEntryKey, postponed);
+					continue;
+				}
+				mPending.remove(expiration.mEntryKey);
+			}
+			Expirable owner = expiration.mEntryKey.mOwner.get();
+			if (owner == null)
+				continue;
+			try {
+				owner.expire(expiration.mEntryKey.mKey, expiration.mDeadline);
+			} catch (RuntimeException e) {
+				// An ill-behaved cache should not take down expiration for others
+			}
+		}
+	}
+
+	/**
+	 * <p>
+	 * Implemented by containers whose entries can be expired by the
+	 * {@link ExpirationService}.
+	 * </p>
+	 *
+	 * @author Tyler Treat
+	 * @version 1.0 10/17/26
+	 * @since 1.0
+	 */
+	public static interface Expirable {
+
+		/**
+		 * Expires the entry with the given key if it is still scheduled to
+		 * expire at the given deadline.
+		 *
+		 * @param key
+		 *            the key of the entry to expire
+		 * @param deadline
+		 *            the deadline the expiration was scheduled for
+		 */
+		void expire(Object key, long deadline);
+
+	}
+
+	/**
+	 * Identifies an entry by its key and owning {@link Expirable}, which is
+	 * compared by identity and referenced weakly.
+	 */
+	private static final class EntryKey {
+
+		private final WeakReference<Expirable> mOwner;
+		private final Object mKey;
+		private final int mHash;
+
+		public EntryKey(Expirable owner, Object key) {
+			mOwner = new WeakReference<Expirable>(owner);
+			mKey = key;
+			mHash = 31 * System.identityHashCode(owner) + key.hashCode();
+		}
+
+		@Override
+		public int hashCode() {
+			return mHash;
+		}
+
+		@Override
+		public boolean equals(Object other) {
+			if (this == other)
+				return true;
+			if (!(other instanceof EntryKey))
+				return false;
+			EntryKey entryKey = (EntryKey) other;
+			Expirable owner = mOwner.get();
+			return owner != null && owner == entryKey.mOwner.get() && mKey.equals(entryKey.mKey);
+		}
+
+	}
+
+	private static final class Expiration implements Comparable<Expiration> {
+
+		private final EntryKey mEntryKey;
+		private final long mDeadline;
+		private final long mSequence;
+		private long mLatestDeadline;
+
+		public Expiration(EntryKey entryKey, long deadline, long sequence) {
+			mEntryKey = entryKey;
+			mDeadline = deadline;
+			mSequence = sequence;
+			mLatestDeadline = deadline;
+		}
+
+		@Override
+		public int compareTo(Expiration another) {
+			if (mDeadline != another.mDeadline)
+				return mDeadline < another.mDeadline ? -1 : 1;
+			if (mSequence != another.mSequence)
+				return mSequence < another.mSequence ? -1 : 1;
+			return 0;
+		}
+
+	}
+
+}
@@ -0,0 +1,611 @@
+/*
+ * Copyright (c) 2012 Tyler Treat
+ *
+ * This file is part of Infinitum Framework.
+ *
+ * Infinitum Framework is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Infinitum Framework is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Infinitum Framework.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.clarionmedia.infinitum.internal.caching;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.RandomAccessFile;
+import java.io.Writer;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import com.clarionmedia.infinitum.internal.caching.CacheStats.EvictionCause;
+
+/**
+ * <p>
+ * Size-bounded store of cache files backed by an append-only journal. Each
+ * write, read and removal of an entry is appended to the journal, recording
+ * the entry's size in bytes and its absolute expiration time. On startup, the
+ * index is rebuilt by replaying the journal rather than scanning the cache
+ * directory, and the order of the records reproduces the entries'
+ * least-recently-used order.
+ * </p>
+ * <p>
+ * When the total size of the entries exceeds the configured budget, the least
+ * recently used entries are deleted. Entries are written to a temporary file
+ * which is renamed into place once complete, so a crash never leaves a
+ * partially written entry behind. Each write is recorded in the journal when
+ * it begins and resolved by the entry's record or an abort record, so on
+ * startup the temporary files of interrupted writes, and entry files renamed
+ * into place before their record was appended, are deleted without scanning
+ * the cache directory. A record cut short by a crash is ignored when the
+ * journal is replayed. The journal is compacted once it holds mostly
+ * redundant records.
+ * </p>
+ * <p>
+ * This class is not thread-safe; callers must synchronize access to it.
+ * </p>
+ *
+ * @author Tyler Treat
+ * @version 1.0 10/17/26
+ * @since 1.0
+ */
+class JournaledDiskCache {
+
+	static final String JOURNAL_FILE = "journal";
+	static final String JOURNAL_FILE_TEMP = "journal.tmp";
+	static final String MAGIC = "infinitum.diskcache";
+	static final String VERSION = "2";
+
+	private static final String DIRTY = "DIRTY";
+	private static final String PUT = "PUT";
+	private static final String ABORT = "ABORT";
+	private static final String READ = "READ";
+	private static final String REMOVE = "REMOVE";
+	private static final String TEMP_SUFFIX = ".tmp";
+	private static final String NOMEDIA = ".nomedia";
+	private static final int REDUNDANT_OP_COMPACT_THRESHOLD = 2000;
+
+	private final File mDirectory;
+	private final File mJournalFile;
+	private final LinkedHashMap<String, Entry> mIndex;
+	private final Map<File, String> mOpenWrites;
+	private final StatsCounter mStats;
+	private long mMaxSize;
+	private long mSize;
+	private int mRedundantOpCount;
+	private long mNextWriteId = 1;
+	private Writer mJournalWriter;
+
+	/**
+	 * Creates a new {@code JournaledDiskCache}. {@link #open()} must be called
+	 * before it is used.
+	 *
+	 * @param directory
+	 *            the directory to store cache files and the journal in
+	 * @param maxSize
+	 *            the maximum number of bytes the cache may use
+	 */
+	public JournaledDiskCache(File directory, long maxSize) {
+		this(directory, maxSize, new StatsCounter());
+	}
+
+	/**
+	 * Creates a new {@code JournaledDiskCache} which records its evictions in
+	 * the given {@link StatsCounter}. {@link #open()} must be called before it
+	 * is used.
+	 *
+	 * @param directory
+	 *            the directory to store cache files and the journal in
+	 * @param maxSize
+	 *            the maximum number of bytes the cache may use
+	 * @param stats
+	 *            the {@code StatsCounter} to record evictions in
+	 */
+	public JournaledDiskCache(File directory, long maxSize, StatsCounter stats) {
+		mDirectory = directory;
+		mJournalFile = new File(directory, JOURNAL_FILE);
+		mIndex = new LinkedHashMap<String, Entry>(0, 0.75f, true);
+		mOpenWrites = new HashMap<File, String>();
+		mMaxSize = maxSize;
+		mStats = stats;
+	}
+
+	/**
+	 * Rebuilds the index from the journal and deletes the files of writes the
+	 * journal records as begun but never committed or aborted. An incomplete
+	 * last record is ignored. If the journal is missing or otherwise corrupt,
+	 * the cache directory is emptied and a new journal is started.
+	 *
+	 * @throws IOException
+	 *             if the journal could not be written
+	 */
+	public void open() throws IOException {
+		if (mJournalFile.exists()) {
+			try {
+				if (readJournal()) {
+					mJournalWriter = new BufferedWriter(new OutputStreamWriter(
+							new FileOutputStream(mJournalFile, true), "UTF-8"));
+				} else {
+					// Appending after a partial record would corrupt the next
+					// one, and reconciled writes must not be replayed again
+					rebuildJournal();
+				}
+				trimToSize();
+				return;
+			} catch (IOException e) {
+				// Corrupt journal, start over
+				mIndex.clear();
+			}
+		}
+		deleteContents(mDirectory);
+		mIndex.clear();
+		mSize = 0;
+		rebuildJournal();
+	}
+
+	/**
+	 * Returns the {@link File} storing the entry with the given name. The file
+	 * is only meaningful if {@link #getExpiration(String)} indicates that the
+	 * entry exists.
+	 *
+	 * @param name
+	 *            the entry name, relative to the cache directory
+	 * @return {@code File} for the entry
+	 */
+	public File getFile(String name) {
+		return new File(mDirectory, name);
+	}
+
+	/**
+	 * Returns the expiration time of the entry with the given name, or -1 if
+	 * there is no such entry. An expired entry is removed and reported as
+	 * missing.
+	 *
+	 * @param name
+	 *            the entry name
+	 * @return expiration time in milliseconds since the epoch or -1
+	 */
+	public long getExpiration(String name) {
+		Entry entry = mIndex.get(name);
+		if (entry == null)
+			return -1;
+		if (entry.mExpiresAt <= System.currentTimeMillis()) {
+			remove(name);
+			mStats.recordEviction(EvictionCause.EXPIRED);
+			return -1;
+		}
+		return entry.mExpiresAt;
+	}
+
+	/**
+	 * Indicates if an unexpired entry with the given name exists.
+	 *
+	 * @param name
+	 *            the entry name
+	 * @return {@code true} if the entry exists, {@code false} if not
+	 */
+	public boolean contains(String name) {
+		return getExpiration(name) != -1;
+	}
+
+	/**
+	 * Records a read of the entry with the given name, making it the most
+	 * recently used.
+	 *
+	 * @param name
+	 *            the entry name
+	 */
+	public void recordAccess(String name) {
+		// Getting the entry moves it to the tail of the LRU order
+		if (mIndex.get(name) == null)
+			return;
+		appendRecord(READ + ' ' + name);
+	}
+
+	/**
+	 * Returns the temporary {@link File} an entry with the given name should
+	 * be written to before it is committed with
+	 * {@link #commit(String, File, long)} or discarded with
+	 * {@link #abort(File)}. The write is recorded in the journal so the file
+	 * can be deleted on startup if neither happens. Every call returns a
+	 * distinct file, so concurrent writes of the same entry do not interfere
+	 * with each other.
+	 *
+	 * @param name
+	 *            the entry name
+	 * @return temporary {@code File} to write to
+	 */
+	public File beginWrite(String name) {
+		String write = String.valueOf(mNextWriteId++) + ' ' + name;
+		File file = getTempFile(write);
+		File parent = file.getParentFile();
+		if (!parent.exists())
+			parent.mkdirs();
+		mOpenWrites.put(file, write);
+		appendRecord(DIRTY + ' ' + write);
+		return file;
+	}
+
+	/**
+	 * Atomically replaces the entry with the given name by the contents of the
+	 * given temporary file, evicting least recently used entries if the cache
+	 * has exceeded its size budget.
+	 *
+	 * @param name
+	 *            the entry name
+	 * @param temp
+	 *            the temporary {@link File} returned by
+	 *            {@link #beginWrite(String)}
+	 * @param expiresAt
+	 *            expiration time in milliseconds since the epoch
+	 * @throws IOException
+	 *             if the entry could not be committed
+	 */
+	public void commit(String name, File temp, long expiresAt) throws IOException {
+		File file = getFile(name);
+		if (!temp.renameTo(file)) {
+			// Some file systems refuse to rename over an existing file
+			file.delete();
+			if (!temp.renameTo(file)) {
+				abort(temp);
+				throw new IOException("Unable to commit disk cache entry " + name);
+			}
+		}
+		// Until the record is appended, the journal still treats the renamed
+		// file as an interrupted write
+		String write = mOpenWrites.remove(temp);
+		long length = file.length();
+		Entry previous = mIndex.put(name, new Entry(length, expiresAt));
+		if (previous != null)
+			mSize -= previous.mSize;
+		mSize += length;
+		appendRecord(PUT + ' ' + length + ' ' + expiresAt + ' ' + (write == null ? "0 " + name : write));
+		trimToSize();
+	}
+
+	/**
+	 * Discards a write started with {@link #beginWrite(String)}. Discarding a
+	 * write which was already committed or discarded has no effect.
+	 *
+	 * @param temp
+	 *            the temporary {@link File} to discard
+	 */
+	public void abort(File temp) {
+		temp.delete();
+		String write = mOpenWrites.remove(temp);
+		if (write != null)
+			appendRecord(ABORT + ' ' + write);
+	}
+
+	/**
+	 * Removes the entry with the given name.
+	 *
+	 * @param name
+	 *            the entry name
+	 * @return {@code true} if an entry was removed, {@code false} if not
+	 */
+	public boolean remove(String name) {
+		Entry entry = mIndex.remove(name);
+		if (entry == null)
+			return false;
+		getFile(name).delete();
+		mSize -= entry.mSize;
+		appendRecord(REMOVE + ' ' + name);
+		return true;
+	}
+
+	/**
+	 * Removes every entry and starts a new journal.
+	 */
+	public void clear() {
+		for (String name : mIndex.keySet())
+			getFile(name).delete();
+		mIndex.clear();
+		mSize = 0;
+		try {
+			rebuildJournal();
+		} catch (IOException e) {
+			mJournalWriter = null;
+		}
+	}
+
+	/**
+	 * Returns the number of bytes currently used by the cache entries.
+	 *
+	 * @return size in bytes
+	 */
+	public long size() {
+		return mSize;
+	}
+
+	/**
+	 * Returns the number of entries in the cache.
+	 *
+	 * @return number of entries
+	 */
+	public int getEntryCount() {
+		return mIndex.size();
+	}
+
+	/**
+	 * Returns the maximum number of bytes the cache may use.
+	 *
+	 * @return maximum size in bytes
+	 */
+	public long getMaxSize() {
+		return mMaxSize;
+	}
+
+	/**
+	 * Sets the maximum number of bytes the cache may use, evicting entries if
+	 * necessary.
+	 *
+	 * @param maxSize
+	 *            maximum size in bytes
+	 */
+	public void setMaxSize(long maxSize) {
+		mMaxSize = maxSize;
+		trimToSize();
+	}
+
+	/**
+	 * Closes the journal.
+	 */
+	public void close() {
+		if (mJournalWriter == null)
+			return;
+		try {
+			mJournalWriter.close();
+		} catch (IOException e) {
+			// Nothing to do
+		}
+		mJournalWriter = null;
+	}
+
+	private void trimToSize() {
+		Iterator<Map.Entry<String, Entry>> iter = mIndex.entrySet().iterator();
+		while (mSize > mMaxSize && iter.hasNext()) {
+			Map.Entry<String, Entry> eldest = iter.next();
+			String name = eldest.getKey();
+			long size = eldest.getValue().mSize;
+			iter.remove();
+			getFile(name).delete();
+			mSize -= size;
+			appendRecord(REMOVE + ' ' + name);
+			mStats.recordEviction(EvictionCause.SIZE);
+		}
+	}
+
+	/**
+	 * Replays the journal into the index and reconciles the writes it records
+	 * as begun but never committed or aborted.
+	 *
+	 * @return {@code true} if the journal ended with a complete record and
+	 *         named no interrupted writes, {@code false} if it must be rebuilt
+	 *         before records are appended to it
+	 */
+	private boolean readJournal() throws IOException {
+		boolean complete = endsWithNewline(mJournalFile);
+		BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(
+				mJournalFile), "UTF-8"));
+		try {
+			if (!MAGIC.equals(reader.readLine()) || !VERSION.equals(reader.readLine()))
+				throw new IOException("Unexpected disk cache journal header");
+			long now = System.currentTimeMillis();
+			Map<String, String> interrupted = new HashMap<String, String>();
+			int records = 0;
+			String line = reader.readLine();
+			while (line != null) {
+				String next = reader.readLine();
+				// A crash mid-append leaves the last record without its newline
+				if (next == null && !complete)
+					break;
+				readRecord(line, now, interrupted);
+				records++;
+				line = next;
+			}
+			mRedundantOpCount = records - mIndex.size();
+			reconcileWrites(interrupted);
+			return complete && interrupted.isEmpty();
+		} finally {
+			reader.close();
+		}
+	}
+
+	/**
+	 * Deletes the files of writes which were begun but never committed or
+	 * aborted. If the temporary file is gone, it was renamed into place before
+	 * its record was appended, so the entry file holds uncommitted contents
+	 * and is removed as well.
+	 */
+	private void reconcileWrites(Map<String, String> interrupted) {
+		for (Map.Entry<String, String> write : interrupted.entrySet()) {
+			if (getTempFile(write.getKey()).delete())
+				continue;
+			String name = write.getValue();
+			Entry entry = mIndex.remove(name);
+			if (entry != null)
+				mSize -= entry.mSize;
+			getFile(name).delete();
+		}
+	}
+
+	private static boolean endsWithNewline(File file) throws IOException {
+		RandomAccessFile raf = new RandomAccessFile(file, "r");
+		try {
+			if (raf.length() == 0)
+				return true;
+			raf.seek(raf.length() - 1);
+			return raf.read() == '\n';
+		} finally {
+			raf.close();
+		}
+	}
+
+	private void readRecord(String line, long now, Map<String, String> interrupted)
+			throws IOException {
+		int space = line.indexOf(' ');
+		if (space == -1)
+			throw new IOException("Unexpected disk cache journal record: " + line);
+		String op = line.substring(0, space);
+		if (op.equals(DIRTY)) {
+			String write = line.substring(space + 1);
+			interrupted.put(write, parseWriteName(write, line));
+		} else if (op.equals(ABORT)) {
+			interrupted.remove(line.substring(space + 1));
+		} else if (op.equals(PUT)) {
+			int sizeEnd = line.indexOf(' ', space + 1);
+			int expiresEnd = sizeEnd == -1 ? -1 : line.indexOf(' ', sizeEnd + 1);
+			if (expiresEnd == -1)
+				throw new IOException("Unexpected disk cache journal record: " + line);
+			try {
+				long size = Long.parseLong(line.substring(space + 1, sizeEnd));
+				long expiresAt = Long.parseLong(line.substring(sizeEnd + 1, expiresEnd));
+				String write = line.substring(expiresEnd + 1);
+				String name = parseWriteName(write, line);
+				interrupted.remove(write);
+				Entry previous = mIndex.remove(name);
+				if (previous != null)
+					mSize -= previous.mSize;
+				if (expiresAt <= now) {
+					getFile(name).delete();
+					return;
+				}
+				mIndex.put(name, new Entry(size, expiresAt));
+				mSize += size;
+			} catch (NumberFormatException e) {
+				throw new IOException("Unexpected disk cache journal record: " + line);
+			}
+		} else if (op.equals(READ)) {
+			// Accessing the entry moves it to the tail of the LRU order
+			mIndex.get(line.substring(space + 1));
+		} else if (op.equals(REMOVE)) {
+			Entry entry = mIndex.remove(line.substring(space + 1));
+			if (entry != null)
+				mSize -= entry.mSize;
+		} else {
+			throw new IOException("Unexpected disk cache journal record: " + line);
+		}
+	}
+
+	/**
+	 * Returns the entry name of a write recorded as its ID followed by the
+	 * name, keeping write IDs issued after the journal is opened unique.
+	 */
+	private String parseWriteName(String write, String line) throws IOException {
+		int space = write.indexOf(' ');
+		if (space == -1)
+			throw new IOException("Unexpected disk cache journal record: " + line);
+		try {
+			mNextWriteId = Math.max(mNextWriteId, Long.parseLong(write.substring(0, space)) + 1);
+		} catch (NumberFormatException e) {
+			throw new IOException("Unexpected disk cache journal record: " + line);
+		}
+		return write.substring(space + 1);
+	}
+
+	private File getTempFile(String write) {
+		int space = write.indexOf(' ');
+		return new File(mDirectory, write.substring(space + 1) + '.' + write.substring(0, space)
+				+ TEMP_SUFFIX);
+	}
+
+	/**
+	 * Writes a new journal containing only the current entries, replacing the
+	 * existing one.
+	 */
+	private void rebuildJournal() throws IOException {
+		if (mJournalWriter != null)
+			close();
+		mDirectory.mkdirs();
+		File temp = new File(mDirectory, JOURNAL_FILE_TEMP);
+		Writer writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(temp),
+				"UTF-8"));
+		try {
+			writer.write(MAGIC);
+			writer.write('\n');
+			writer.write(VERSION);
+			writer.write('\n');
+			for (Map.Entry<String, Entry> e : mIndex.entrySet()) {
+				Entry entry = e.getValue();
+				writer.write(PUT + ' ' + entry.mSize + ' ' + entry.mExpiresAt + " 0 " + e.getKey());
+				writer.write('\n');
+			}
+			// Writes still in progress must remain recoverable
+			for (String write : mOpenWrites.values()) {
+				writer.write(DIRTY + ' ' + write);
+				writer.write('\n');
+			}
+		} finally {
+			writer.close();
+		}
+		if (!temp.renameTo(mJournalFile)) {
+			mJournalFile.delete();
+			if (!temp.renameTo(mJournalFile))
+				throw new IOException("Unable to replace disk cache journal");
+		}
+		mRedundantOpCount = 0;
+		mJournalWriter = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(
+				mJournalFile, true), "UTF-8"));
+	}
+
+	private void appendRecord(String record) {
+		if (mJournalWriter == null)
+			return;
+		try {
+			mJournalWriter.write(record);
+			mJournalWriter.write('\n');
+			mJournalWriter.flush();
+			if (++mRedundantOpCount >= REDUNDANT_OP_COMPACT_THRESHOLD
+					&& mRedundantOpCount >= mIndex.size())
+				rebuildJournal();
+		} catch (IOException e) {
+			// The journal can no longer be trusted, so stop recording and let
+			// it be discarded on the next open
+			close();
+			mJournalFile.delete();
+		}
+	}
+
+	private static void deleteContents(File dir) {
+		File[] files = dir.listFiles();
+		if (files == null)
+			return;
+		for (File file : files) {
+			if (file.getName().equals(NOMEDIA))
+				continue;
+			if (file.isDirectory())
+				deleteContents(file);
+			file.delete();
+		}
+	}
+
+	private static class Entry {
+
+		private final long mSize;
+		private final long mExpiresAt;
+
+		public Entry(long size, long expiresAt) {
+			mSize = size;
+			mExpiresAt = expiresAt;
+		}
+
+	}
+
+}
@@ -24,6 +24,8 @@ import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.Set;
 
+import com.clarionmedia.infinitum.internal.caching.CacheStats.EvictionCause;
+
 /**
  * <p>
  * A {@link Map} implementation that acts as a least-recently-used (LRU) cache.
@@ -38,12 +40,16 @@ import java.util.Set;
  * can store; however, units can be imposed by overriding the
  * {@link LruCache#sizeOf(Object, Object)} method.
  * </p>
+ * <p>
+ * The cache registers itself with the {@link CacheStatsRegistry}, and the time
+ * spent in {@link #create(Object)} is reported as its load time.
+ * </p>
  * 
  * @author Tyler Treat
  * @version 1.0 08/08/12
  * @since 1.0
  */
-public class LruCache<K, V> implements Map<K, V> {
+public class LruCache<K, V> implements Map<K, V>, InstrumentedCache {
 
 	private final LinkedHashMap<K, V> mMap;
 	private int mSize;
@@ -53,6 +59,8 @@ public class LruCache<K, V> implements Map<K, V> {
 	private int mEvictionCount;
 	private int mHitCount;
 	private int mMissCount;
+	private int mRemovalCount;
+	private long mLoadTime;
 
 	/**
 	 * @param maxSize
@@ -67,6 +75,7 @@ public class LruCache<K, V> implements Map<K, V> {
 		}
 		this.mMaxSize = maxSize;
 		this.mMap = new LinkedHashMap<K, V>(0, 0.75f, true);
+		CacheStatsRegistry.register(this);
 	}
 
 	/**
@@ -99,13 +108,16 @@ public class LruCache<K, V> implements Map<K, V> {
 		 * and release the created value.
 		 */
 
+		long start = System.nanoTime();
 		V createdValue = create(key);
+		long loadTime = System.nanoTime() - start;
 		if (createdValue == null) {
 			return null;
 		}
 
 		synchronized (this) {
 			mCreateCount++;
+			mLoadTime += loadTime;
 			mapValue = mMap.put((K) key, createdValue);
 
 			if (mapValue != null) {
@@ -182,6 +194,7 @@ public class LruCache<K, V> implements Map<K, V> {
 			previous = mMap.remove(key);
 			if (previous != null) {
 				mSize -= safeSizeOf(key, previous);
+				mRemovalCount++;
 			}
 		}
 
@@ -316,6 +329,15 @@ public class LruCache<K, V> implements Map<K, V> {
 		return mEvictionCount;
 	}
 
+	@Override
+	public synchronized CacheStats getStats() {
+		long[] evictionCounts = new long[EvictionCause.values().length];
+		evictionCounts[EvictionCause.SIZE.ordinal()] = mEvictionCount;
+		evictionCounts[EvictionCause.EXPLICIT.ordinal()] = mRemovalCount;
+		return new CacheStats(StatsCounter.nameOf(this), mHitCount, mMissCount, 0, 0, mCreateCount,
+				mLoadTime, evictionCounts, 0);
+	}
+
 	/**
 	 * Returns a copy of the current contents of the cache, ordered from least
 	 * recently accessed to most recently accessed.
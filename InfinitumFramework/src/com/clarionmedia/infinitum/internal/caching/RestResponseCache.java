@@ -19,14 +19,19 @@
 
 package com.clarionmedia.infinitum.internal.caching;
 
-import java.io.BufferedInputStream;
-import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.zip.CRC32;
 
 import org.apache.http.client.methods.HttpUriRequest;
 
@@ -38,7 +43,20 @@ import com.clarionmedia.infinitum.http.rest.impl.RestResponse;
  * Concrete implementation of {@link AbstractCache} for caching REST responses.
  * The cache is keyed off of a {@link HashableHttpRequest}, which is a wrapper
  * for {@link HttpUriRequest} that implements {@code hashCode} and
- * {@code equals} methods.
+ * {@code equals} methods. Responses are stored on disk under the sharded file
+ * name of the request's {@link CacheKey}.
+ * </p>
+ * <p>
+ * Responses are persisted in a versioned binary format. Each file begins with
+ * a fixed-size preamble containing a magic number, the format version, the
+ * length of the metadata block and its CRC32 checksum. The metadata block
+ * holds the status code, the end of the response's freshness lifetime and
+ * stale window, the headers and the values of the request headers the
+ * response varies on, encoded with varint lengths. It is followed by the
+ * message body, which therefore starts at an offset known from the preamble
+ * alone. Large bodies are memory-mapped when read back rather than copied onto
+ * the heap. Files written in an older format version are treated as cache
+ * misses.
  * </p>
  * 
  * @author Tyler Treat
@@ -48,6 +66,12 @@ import com.clarionmedia.infinitum.http.rest.impl.RestResponse;
 public class RestResponseCache extends AbstractCache<HashableHttpRequest, RestResponse> {
 
 	private static final String CACHE_NAME = "httpcache";
+	private static final int MAGIC = 0x49524331; // "IRC1"
+	private static final byte FORMAT_VERSION = 3;
+	private static final int PREAMBLE_SIZE = 13;
+	
+	// Mapping a file costs more than reading it for small responses
+	private static final int MAPPING_THRESHOLD = 16 * 1024;
 	
 	/**
 	 * Creates a new {@code HttpResponseCache} with the given initial capacity
@@ -87,76 +111,186 @@ public class RestResponseCache extends AbstractCache<HashableHttpRequest, RestRe
 
 	@Override
 	public String getFileNameForKey(HashableHttpRequest request) {
-		return getFileNameFromUri(request);
+		return request.getCacheKey().getFileName();
 	}
 
 	@Override
 	protected RestResponse readValueFromDisk(File file) throws IOException {
-		BufferedInputStream inputStream = new BufferedInputStream(new FileInputStream(file));
-		long fileSize = file.length();
-		if (fileSize > Integer.MAX_VALUE) {
+		FileInputStream inputStream = new FileInputStream(file);
+		ByteBuffer buffer;
+		try {
+			FileChannel channel = inputStream.getChannel();
+			long fileSize = channel.size();
+			if (fileSize > Integer.MAX_VALUE)
+				throw new IOException("Cannot read files larger than " + Integer.MAX_VALUE + " bytes.");
+			if (fileSize < PREAMBLE_SIZE)
+				throw new IOException("Truncated cache file " + file);
+			if (fileSize > MAPPING_THRESHOLD) {
+				// The mapping remains valid after the channel is closed
+				buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, fileSize);
+			} else {
+				buffer = ByteBuffer.allocate((int) fileSize);
+				while (buffer.hasRemaining()) {
+					if (channel.read(buffer) == -1)
+						throw new IOException("Truncated cache file " + file);
+				}
+				buffer.flip();
+			}
+		} finally {
 			inputStream.close();
-			throw new IOException("Cannot read files larger than " + Integer.MAX_VALUE + " bytes.");
 		}
+		try {
+			return decode(buffer);
+		} catch (BufferUnderflowException e) {
+			throw new IOException("Corrupt cache file " + file);
+		}
+	}
+
+	@Override
+	protected void writeValueToDisk(File file, RestResponse data) throws IOException {
+		ByteArrayOutputStream metadata = new ByteArrayOutputStream(256);
+		ByteBuffer body = data.getResponseDataAsBuffer();
+		writeVarint(metadata, data.getStatusCode());
+		writeVarlong(metadata, data.getFreshUntil());
+		writeVarlong(metadata, data.getStaleUntil());
+		writeVarint(metadata, body.remaining());
+		writeStringMap(metadata, data.getHeaders());
+		writeStringMap(metadata, data.getVaryHeaders());
+		byte[] metadataBytes = metadata.toByteArray();
+		CRC32 crc = new CRC32();
+		crc.update(metadataBytes);
+
+		ByteBuffer preamble = ByteBuffer.allocate(PREAMBLE_SIZE);
+		preamble.putInt(MAGIC);
+		preamble.put(FORMAT_VERSION);
+		preamble.putInt(metadataBytes.length);
+		preamble.putInt((int) crc.getValue());
+		preamble.flip();
+
+		FileOutputStream outputStream = new FileOutputStream(file);
+		try {
+			FileChannel channel = outputStream.getChannel();
+			ByteBuffer[] buffers = { preamble, ByteBuffer.wrap(metadataBytes), body };
+			long remaining = PREAMBLE_SIZE + metadataBytes.length + body.remaining();
+			while (remaining > 0)
+				remaining -= channel.write(buffers);
+		} finally {
+			outputStream.close();
+		}
+	}
 
-		// The first byte is the status code
-		int statusCode = inputStream.read();
-		
-		// The second byte is the size of the header data
-		int headerSize = inputStream.read();
-		
-		// Next is the header data itself
-		byte[] headerData = new byte[headerSize];
-		inputStream.read(headerData, 0, headerSize);
-
-		// The remainder is the message data
-		int messageDataSize = (int) fileSize - headerSize - 2;
-		byte[] messageData = new byte[messageDataSize];
-		inputStream.read(messageData, 0, messageDataSize);
-		inputStream.close();
+	private RestResponse decode(ByteBuffer buffer) throws IOException {
+		if (buffer.getInt() != MAGIC)
+			throw new IOException("Not a cache file");
+		byte version = buffer.get();
+		if (version != FORMAT_VERSION)
+			throw new IOException("Unsupported cache file version " + version);
+		int metadataLength = buffer.getInt();
+		int checksum = buffer.getInt();
+		if (metadataLength < 0 || metadataLength > buffer.remaining())
+			throw new IOException("Corrupt cache file");
+		ByteBuffer metadata = buffer.slice();
+		metadata.limit(metadataLength);
+		CRC32 crc = new CRC32();
+		if (metadata.hasArray()) {
+			crc.update(metadata.array(), metadata.arrayOffset(), metadataLength);
+		} else {
+			byte[] bytes = new byte[metadataLength];
+			metadata.duplicate().get(bytes);
+			crc.update(bytes);
+		}
+		if ((int) crc.getValue() != checksum)
+			throw new IOException("Cache file checksum mismatch");
 
 		RestResponse response = new RestResponse();
-		response.setStatusCode(statusCode);
-		response.setResponseData(messageData);
-		String headers = new String(headerData);
-		Map<String, String> headerMap = new HashMap<String, String>();
-		String[] values = headers.split("\n");
-		for (int i = 0; i < values.length;)
-			headerMap.put(values[i++], values[i++]);
-		response.setHeaders(headerMap);
+		response.setStatusCode(readVarint(metadata));
+		response.setFreshUntil(readVarlong(metadata));
+		response.setStaleUntil(readVarlong(metadata));
+		int bodyLength = readVarint(metadata);
+		response.setHeaders(readStringMap(metadata));
+		response.setVaryHeaders(readStringMap(metadata));
+
+		int bodyOffset = PREAMBLE_SIZE + metadataLength;
+		if (bodyOffset + bodyLength != buffer.limit())
+			throw new IOException("Corrupt cache file");
+		buffer.position(bodyOffset);
+		response.setResponseData(buffer.slice());
 		return response;
 	}
 
-	@Override
-	protected void writeValueToDisk(File file, RestResponse data) throws IOException {
-		BufferedOutputStream outputStream = new BufferedOutputStream(new FileOutputStream(file));
-		outputStream.write(data.getStatusCode());
-		byte[] headerData = getHeaderData(data.getHeaders());
-		outputStream.write(headerData.length);
-		outputStream.write(headerData);
-		outputStream.write(data.getResponseData());
-		outputStream.close();
+	private static void writeStringMap(OutputStream out, Map<String, String> map) throws IOException {
+		writeVarint(out, map.size());
+		for (Entry<String, String> entry : map.entrySet()) {
+			writeString(out, entry.getKey());
+			writeString(out, entry.getValue());
+		}
+	}
+
+	private static Map<String, String> readStringMap(ByteBuffer buffer) throws IOException {
+		int size = readVarint(buffer);
+		if (size < 0 || size > buffer.remaining())
+			throw new IOException("Corrupt cache file");
+		Map<String, String> map = new HashMap<String, String>(size * 2);
+		for (int i = 0; i < size; i++)
+			map.put(readString(buffer), readString(buffer));
+		return map;
+	}
+
+	private static void writeString(OutputStream out, String value) throws IOException {
+		byte[] bytes = value == null ? new byte[0] : value.getBytes("UTF-8");
+		writeVarint(out, bytes.length);
+		out.write(bytes);
+	}
+
+	private static String readString(ByteBuffer buffer) throws IOException {
+		int length = readVarint(buffer);
+		if (length > buffer.remaining())
+			throw new IOException("Corrupt cache file");
+		byte[] bytes = new byte[length];
+		buffer.get(bytes);
+		try {
+			return new String(bytes, "UTF-8");
+		} catch (UnsupportedEncodingException e) {
+			throw new RuntimeException(e);
+		}
 	}
 
-	private String getFileNameFromUri(HashableHttpRequest request) {
-		// replace all special URI characters with a single y symbol
-		String uri =  request.getRequestUri().toLowerCase();
-		if (uri.startsWith("http://"))
-			uri = uri.substring(7);
-		else if (uri.startsWith("https://"))
-			uri = uri.substring(8);
-		String formatted = request.getHttpMethod() + '_' + uri;
-		return formatted.replaceAll("[.:/,%?&=]", "_").replaceAll("[+]+", "_");
+	private static void writeVarint(OutputStream out, int value) throws IOException {
+		while ((value & ~0x7f) != 0) {
+			out.write((value & 0x7f) | 0x80);
+			value >>>= 7;
+		}
+		out.write(value);
+	}
+
+	private static int readVarint(ByteBuffer buffer) throws IOException {
+		int value = 0;
+		for (int shift = 0; shift < 35; shift += 7) {
+			byte b = buffer.get();
+			value |= (b & 0x7f) << shift;
+			if ((b & 0x80) == 0)
+				return value;
+		}
+		throw new IOException("Malformed varint");
+	}
+
+	private static void writeVarlong(OutputStream out, long value) throws IOException {
+		while ((value & ~0x7fL) != 0) {
+			out.write((int) (value & 0x7f) | 0x80);
+			value >>>= 7;
+		}
+		out.write((int) value);
 	}
 
-	private byte[] getHeaderData(Map<String, String> headers) {
-		StringBuilder sb = new StringBuilder();
-		String prefix = "";
-		for (Entry<String, String> header : headers.entrySet()) {
-			sb.append(prefix).append(header.getKey()).append('\n').append(header.getValue());
-			prefix = "\n";
+	private static long readVarlong(ByteBuffer buffer) throws IOException {
+		long value = 0;
+		for (int shift = 0; shift < 70; shift += 7) {
+			byte b = buffer.get();
+			value |= (long) (b & 0x7f) << shift;
+			if ((b & 0x80) == 0)
+				return value;
 		}
-		return sb.toString().getBytes();
+		throw new IOException("Malformed varint");
 	}
 	
 }
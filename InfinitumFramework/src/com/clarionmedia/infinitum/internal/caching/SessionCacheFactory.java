@@ -0,0 +1,58 @@
+/*
+ * Copyright (c) 2012 Tyler Treat
+ *
+ * This file is part of Infinitum Framework.
+ *
+ * Infinitum Framework is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Infinitum Framework is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Infinitum Framework.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.clarionmedia.infinitum.internal.caching;
+
+import java.util.Map;
+
+import com.clarionmedia.infinitum.context.InfinitumContext;
+import com.clarionmedia.infinitum.context.InfinitumContext.SessionCacheType;
+import com.clarionmedia.infinitum.orm.Session;
+
+/**
+ * <p>
+ * Creates the cache backing a {@link Session} according to the
+ * {@link SessionCacheType} configured in {@code infinitum.cfg.xml}.
+ * </p>
+ *
+ * @author Tyler Treat
+ * @version 1.0 10/17/26
+ * @since 1.0
+ */
+public class SessionCacheFactory {
+
+	/**
+	 * Creates a new {@code Session} cache of the configured type.
+	 *
+	 * @param context
+	 *            the {@link InfinitumContext} specifying the cache type
+	 * @param maxSize
+	 *            the maximum number of entries the cache can store
+	 * @return new {@link Map} to use as a {@code Session} cache
+	 */
+	public static <K, V> Map<K, V> createSessionCache(InfinitumContext context, int maxSize) {
+		switch (context.getSessionCacheType()) {
+		case CONCURRENT:
+			return new ConcurrentLruCache<K, V>(maxSize);
+		default:
+			return new LruCache<K, V>(maxSize);
+		}
+	}
+
+}
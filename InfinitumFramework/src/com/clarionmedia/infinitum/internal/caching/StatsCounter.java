@@ -0,0 +1,128 @@
+/*
+ * Copyright (c) 2012 Tyler Treat
+ *
+ * This file is part of Infinitum Framework.
+ *
+ * Infinitum Framework is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Infinitum Framework is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Infinitum Framework.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.clarionmedia.infinitum.internal.caching;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.clarionmedia.infinitum.internal.caching.CacheStats.EvictionCause;
+
+/**
+ * <p>
+ * Accumulates the statistics of a cache without locking. A single counter
+ * may be shared by the tiers of a multi-level cache.
+ * </p>
+ *
+ * @author Tyler Treat
+ * @version 1.0 10/17/26
+ * @since 1.0
+ */
+final class StatsCounter {
+
+	private final AtomicLong mMemoryHitCount = new AtomicLong();
+	private final AtomicLong mMemoryMissCount = new AtomicLong();
+	private final AtomicLong mDiskHitCount = new AtomicLong();
+	private final AtomicLong mDiskMissCount = new AtomicLong();
+	private final AtomicLong mLoadCount = new AtomicLong();
+	private final AtomicLong mTotalLoadTime = new AtomicLong();
+	private final AtomicLong[] mEvictionCounts;
+
+	public StatsCounter() {
+		mEvictionCounts = new AtomicLong[EvictionCause.values().length];
+		for (int i = 0; i < mEvictionCounts.length; i++)
+			mEvictionCounts[i] = new AtomicLong();
+	}
+
+	public void recordMemoryHit() {
+		mMemoryHitCount.incrementAndGet();
+	}
+
+	public void recordMemoryMiss() {
+		mMemoryMissCount.incrementAndGet();
+	}
+
+	public void recordDiskHit() {
+		mDiskHitCount.incrementAndGet();
+	}
+
+	public void recordDiskMiss() {
+		mDiskMissCount.incrementAndGet();
+	}
+
+	public void recordLoad(long loadTime) {
+		mLoadCount.incrementAndGet();
+		mTotalLoadTime.addAndGet(loadTime);
+	}
+
+	public void recordEviction(EvictionCause cause) {
+		mEvictionCounts[cause.ordinal()].incrementAndGet();
+	}
+
+	public void recordEvictions(EvictionCause cause, int count) {
+		if (count > 0)
+			mEvictionCounts[cause.ordinal()].addAndGet(count);
+	}
+
+	public long getMemoryHitCount() {
+		return mMemoryHitCount.get();
+	}
+
+	public long getMemoryMissCount() {
+		return mMemoryMissCount.get();
+	}
+
+	public long getEvictionCount(EvictionCause cause) {
+		return mEvictionCounts[cause.ordinal()].get();
+	}
+
+	public long getLoadCount() {
+		return mLoadCount.get();
+	}
+
+	/**
+	 * Returns the name to report the statistics of the given cache under,
+	 * falling back to the binary name for anonymous cache classes.
+	 *
+	 * @param cache
+	 *            the cache to name
+	 * @return cache name
+	 */
+	public static String nameOf(Object cache) {
+		String name = cache.getClass().getSimpleName();
+		return name.length() == 0 ? cache.getClass().getName() : name;
+	}
+
+	/**
+	 * Returns a {@link CacheStats} snapshot of the current counts.
+	 *
+	 * @param name
+	 *            the name of the cache
+	 * @param diskBytes
+	 *            the number of bytes the cache occupies on disk
+	 * @return {@code CacheStats}
+	 */
+	public CacheStats snapshot(String name, long diskBytes) {
+		long[] evictionCounts = new long[mEvictionCounts.length];
+		for (int i = 0; i < evictionCounts.length; i++)
+			evictionCounts[i] = mEvictionCounts[i].get();
+		return new CacheStats(name, mMemoryHitCount.get(), mMemoryMissCount.get(), mDiskHitCount.get(),
+				mDiskMissCount.get(), mLoadCount.get(), mTotalLoadTime.get(), evictionCounts, diskBytes);
+	}
+
+}
@@ -157,4 +157,13 @@ public abstract class Logger {
 	 */
 	public abstract void setTag(String tag);
 
+	/**
+	 * Indicates if messages logged by this {@code Logger} will be written.
+	 * Callers can use this to avoid building log messages which would be
+	 * discarded.
+	 * 
+	 * @return {@code true} if debug logging is enabled, {@code false} if not
+	 */
+	public abstract boolean isDebugEnabled();
+
 }
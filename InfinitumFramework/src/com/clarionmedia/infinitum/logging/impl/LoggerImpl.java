@@ -121,4 +121,9 @@ public class LoggerImpl extends Logger {
 		mTag = tag;
 	}
 
+	@Override
+	public boolean isDebugEnabled() {
+		return mContext.isDebug();
+	}
+
 }
@@ -0,0 +1,181 @@
+/*
+ * Copyright (c) 2012 Tyler Treat
+ *
+ * This file is part of Infinitum Framework.
+ *
+ * Infinitum Framework is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Infinitum Framework is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Infinitum Framework.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.clarionmedia.infinitum.orm;
+
+import java.util.Collection;
+import java.util.Iterator;
+
+import com.clarionmedia.infinitum.internal.Preconditions;
+
+/**
+ * <p>
+ * Wraps a {@link Collection} of related entities which has been configured to
+ * lazily load. The first method invoked on the {@code LazyLoadCollection}
+ * loads the wrapped {@code Collection}, which occurs in
+ * {@link LazyLoadCollection#loadCollection(Collection)}, and every method is
+ * then delegated to it. Unlike {@link LazyLoadDexMakerProxy}, no proxy class
+ * needs to be generated.
+ * </p>
+ * <p>
+ * Loading is synchronized, so the {@code Collection} is loaded exactly once
+ * even if it is accessed from several threads. Modifying the loaded
+ * {@code Collection} is only as thread-safe as the wrapped {@code Collection}.
+ * </p>
+ * 
+ * @author Tyler Treat
+ * @version 1.0 10/17/26
+ * @since 1.0
+ * @see LazyLoadList
+ * @see LazyLoadSet
+ */
+public abstract class LazyLoadCollection<E> implements Collection<E> {
+
+	private final Collection<E> mCollection;
+	private volatile boolean mIsLoaded;
+
+	/**
+	 * Creates a new {@code LazyLoadCollection}.
+	 * 
+	 * @param collection
+	 *            the {@link Collection} to load related entities into
+	 */
+	public LazyLoadCollection(Collection<E> collection) {
+		Preconditions.checkNotNull(collection);
+		mCollection = collection;
+	}
+
+	/**
+	 * Indicates if the wrapped {@link Collection} has been loaded.
+	 * 
+	 * @return {@code true} if it has been loaded, {@code false} if not
+	 */
+	public boolean isLoaded() {
+		return mIsLoaded;
+	}
+
+	/**
+	 * Returns the wrapped {@link Collection}, loading it if it has not been
+	 * loaded yet.
+	 * 
+	 * @return loaded {@code Collection}
+	 */
+	public Collection<E> getCollection() {
+		if (!mIsLoaded) {
+			synchronized (this) {
+				if (!mIsLoaded) {
+					loadCollection(mCollection);
+					mIsLoaded = true;
+				}
+			}
+		}
+		return mCollection;
+	}
+
+	@Override
+	public boolean add(E object) {
+		return getCollection().add(object);
+	}
+
+	@Override
+	public boolean addAll(Collection<? extends E> collection) {
+		return getCollection().addAll(collection);
+	}
+
+	@Override
+	public void clear() {
+		getCollection().clear();
+	}
+
+	@Override
+	public boolean contains(Object object) {
+		return getCollection().contains(object);
+	}
+
+	@Override
+	public boolean containsAll(Collection<?> collection) {
+		return getCollection().containsAll(collection);
+	}
+
+	@Override
+	public boolean isEmpty() {
+		return getCollection().isEmpty();
+	}
+
+	@Override
+	public Iterator<E> iterator() {
+		return getCollection().iterator();
+	}
+
+	@Override
+	public boolean remove(Object object) {
+		return getCollection().remove(object);
+	}
+
+	@Override
+	public boolean removeAll(Collection<?> collection) {
+		return getCollection().removeAll(collection);
+	}
+
+	@Override
+	public boolean retainAll(Collection<?> collection) {
+		return getCollection().retainAll(collection);
+	}
+
+	@Override
+	public int size() {
+		return getCollection().size();
+	}
+
+	@Override
+	public Object[] toArray() {
+		return getCollection().toArray();
+	}
+
+	@Override
+	public <T> T[] toArray(T[] array) {
+		return getCollection().toArray(array);
+	}
+
+	@Override
+	public boolean equals(Object object) {
+		if (object == this)
+			return true;
+		return getCollection().equals(object);
+	}
+
+	@Override
+	public int hashCode() {
+		return getCollection().hashCode();
+	}
+
+	@Override
+	public String toString() {
+		return getCollection().toString();
+	}
+
+	/**
+	 * Loads the related entities into the given {@link Collection}.
+	 * 
+	 * @param collection
+	 *            the {@code Collection} to load into
+	 */
+	protected abstract void loadCollection(Collection<E> collection);
+
+}
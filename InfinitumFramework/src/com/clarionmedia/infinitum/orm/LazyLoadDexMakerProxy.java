@@ -19,6 +19,7 @@
 
 package com.clarionmedia.infinitum.orm;
 
+import java.io.File;
 import java.io.IOException;
 import java.lang.reflect.InvocationHandler;
 import java.lang.reflect.Method;
@@ -43,6 +44,14 @@ import com.google.dexmaker.stock.ProxyBuilder;
  * {@code Object} being loaded and then the method will be passed to the loaded
  * {@code Object} for invocation. Any subsequent method invocation made on the
  * proxy will simply be intercepted and propagated to the {@code Object}.
+ * Loading is synchronized, so the {@code Object} is loaded exactly once even
+ * if the proxy is used from several threads.
+ * </p>
+ * <p>
+ * Proxy classes are generated with the application's {@link ClassLoader} and
+ * reused by DexMaker, so creating a proxy does not generate bytecode after the
+ * first proxy of a given type, and no {@link Context} other than the
+ * application's is kept alive by them.
  * </p>
  * 
  * @author Tyler Treat
@@ -51,7 +60,10 @@ import com.google.dexmaker.stock.ProxyBuilder;
  */
 public abstract class LazyLoadDexMakerProxy extends DexMakerProxy {
 
+	private static volatile File sDexCache;
+
 	protected Class<?> mType;
+	private volatile boolean mIsLoaded;
 
 	/**
 	 * Creates a new {@code LazyLoadDexMakerProxy}.
@@ -70,17 +82,17 @@ public abstract class LazyLoadDexMakerProxy extends DexMakerProxy {
 	@Override
 	public Object invoke(Object proxy, Method method, Object[] args)
 			throws Throwable {
-		if (mTarget == null) {
-			mTarget = loadObject();
-		}
-		return method.invoke(mTarget, args);
+		return method.invoke(getTarget(), args);
 	}
 
 	@Override
 	public Object getProxy() {
+		Context context = mContext.getApplicationContext();
+		if (context == null)
+			context = mContext;
 		try {
-			return ProxyBuilder.forClass(mType).handler(this)
-					.dexCache(DexCaching.getDexCache(mContext)).build();
+			return ProxyBuilder.forClass(mType).handler(this).parentClassLoader(context.getClassLoader())
+					.dexCache(getDexCache(context)).build();
 		} catch (IOException e) {
 			throw new InfinitumRuntimeException("DEX cache was not writeable.");
 		}
@@ -88,12 +100,26 @@ public abstract class LazyLoadDexMakerProxy extends DexMakerProxy {
 	
 	@Override
 	public Object getTarget() {
-		if (mTarget == null) {
-		    mTarget = loadObject();
+		if (!mIsLoaded) {
+			synchronized (this) {
+				if (!mIsLoaded) {
+					mTarget = loadObject();
+					mIsLoaded = true;
+				}
+			}
 		}
 		return mTarget;
 	}
 	
+	/**
+	 * Indicates if the proxied {@link Object} has been loaded.
+	 * 
+	 * @return {@code true} if it has been loaded, {@code false} if not
+	 */
+	public boolean isLoaded() {
+		return mIsLoaded;
+	}
+
 	@Override
 	public LazyLoadDexMakerProxy clone() {
 		throw new UnsupportedOperationException("Clone is not supported for LazyLoadDexMakerProxy!");
@@ -106,4 +132,14 @@ public abstract class LazyLoadDexMakerProxy extends DexMakerProxy {
 	 */
 	protected abstract Object loadObject();
 
+	private static File getDexCache(Context context) {
+		// The directory is only needed to generate a class, which DexMaker then reuses
+		File dexCache = sDexCache;
+		if (dexCache == null) {
+			dexCache = DexCaching.getDexCache(context);
+			sDexCache = dexCache;
+		}
+		return dexCache;
+	}
+
 }
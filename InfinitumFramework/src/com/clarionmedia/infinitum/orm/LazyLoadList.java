@@ -0,0 +1,101 @@
+/*
+ * Copyright (c) 2012 Tyler Treat
+ *
+ * This file is part of Infinitum Framework.
+ *
+ * Infinitum Framework is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Infinitum Framework is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Infinitum Framework.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.clarionmedia.infinitum.orm;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.ListIterator;
+
+/**
+ * <p>
+ * {@link LazyLoadCollection} for relationships held in a {@link List}.
+ * </p>
+ * 
+ * @author Tyler Treat
+ * @version 1.0 10/17/26
+ * @since 1.0
+ */
+public abstract class LazyLoadList<E> extends LazyLoadCollection<E> implements List<E> {
+
+	/**
+	 * Creates a new {@code LazyLoadList}.
+	 * 
+	 * @param list
+	 *            the {@link List} to load related entities into
+	 */
+	public LazyLoadList(List<E> list) {
+		super(list);
+	}
+
+	@Override
+	public void add(int location, E object) {
+		getList().add(location, object);
+	}
+
+	@Override
+	public boolean addAll(int location, Collection<? extends E> collection) {
+		return getList().addAll(location, collection);
+	}
+
+	@Override
+	public E get(int location) {
+		return getList().get(location);
+	}
+
+	@Override
+	public int indexOf(Object object) {
+		return getList().indexOf(object);
+	}
+
+	@Override
+	public int lastIndexOf(Object object) {
+		return getList().lastIndexOf(object);
+	}
+
+	@Override
+	public ListIterator<E> listIterator() {
+		return getList().listIterator();
+	}
+
+	@Override
+	public ListIterator<E> listIterator(int location) {
+		return getList().listIterator(location);
+	}
+
+	@Override
+	public E remove(int location) {
+		return getList().remove(location);
+	}
+
+	@Override
+	public E set(int location, E object) {
+		return getList().set(location, object);
+	}
+
+	@Override
+	public List<E> subList(int start, int end) {
+		return getList().subList(start, end);
+	}
+
+	private List<E> getList() {
+		return (List<E>) getCollection();
+	}
+
+}
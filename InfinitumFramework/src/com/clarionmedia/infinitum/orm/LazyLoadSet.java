@@ -0,0 +1,45 @@
+/*
+ * Copyright (c) 2012 Tyler Treat
+ *
+ * This file is part of Infinitum Framework.
+ *
+ * Infinitum Framework is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Infinitum Framework is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Infinitum Framework.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.clarionmedia.infinitum.orm;
+
+import java.util.Set;
+
+/**
+ * <p>
+ * {@link LazyLoadCollection} for relationships held in a {@link Set}.
+ * </p>
+ * 
+ * @author Tyler Treat
+ * @version 1.0 10/17/26
+ * @since 1.0
+ */
+public abstract class LazyLoadSet<E> extends LazyLoadCollection<E> implements Set<E> {
+
+	/**
+	 * Creates a new {@code LazyLoadSet}.
+	 * 
+	 * @param set
+	 *            the {@link Set} to load related entities into
+	 */
+	public LazyLoadSet(Set<E> set) {
+		super(set);
+	}
+
+}
@@ -31,6 +31,7 @@ import com.clarionmedia.infinitum.exception.InfinitumRuntimeException;
 import com.clarionmedia.infinitum.http.rest.Deserializer;
 import com.clarionmedia.infinitum.orm.criteria.Criteria;
 import com.clarionmedia.infinitum.orm.exception.SQLGrammarException;
+import com.clarionmedia.infinitum.orm.persistence.EntityKey;
 import com.clarionmedia.infinitum.orm.persistence.TypeAdapter;
 import com.clarionmedia.infinitum.orm.sqlite.impl.SqliteSession;
 
@@ -178,35 +179,35 @@ public interface Session {
 	int getCacheSize();
 	
 	/**
-	 * Caches the given model identified by the given hash code.
+	 * Caches the given model identified by the given {@link EntityKey}.
 	 * 
-	 * @param hash
-	 *            the hash code which maps to the model
+	 * @param key
+	 *            the {@code EntityKey} which maps to the model
 	 * @param model
 	 *            the {@link Object} to cache
 	 * @return {@code true} if the model was cached, {@code false} if not
 	 */
-	boolean cache(int hash, Object model);
+	boolean cache(EntityKey key, Object model);
 	
 	/**
-	 * Indicates if the session cache contains the given hash code.
+	 * Indicates if the session cache contains the given {@link EntityKey}.
 	 * 
-	 * @param hash
-	 *            the hash code to check for
-	 * @return {@code true} if the cache contains the hash code, {@code false}
-	 *         if not
+	 * @param key
+	 *            the {@code EntityKey} to check for
+	 * @return {@code true} if the cache contains the key, {@code false} if not
 	 */
-	boolean checkCache(int hash);
+	boolean checkCache(EntityKey key);
 	
 	/**
-	 * Returns the model with the given hash code from the session cache.
+	 * Returns the model with the given {@link EntityKey} from the session
+	 * cache.
 	 * 
-	 * @param hash
-	 *            the hash code of the model to retrieve
-	 * @return the model {@link Object} identified by the given hash code or
+	 * @param key
+	 *            the {@code EntityKey} of the model to retrieve
+	 * @return the model {@link Object} identified by the given key or
 	 *         {@code null} if no such entity exists in the cache
 	 */
-	Object searchCache(int hash);
+	Object searchCache(EntityKey key);
 
 	/**
 	 * Persists the given {@link Object} to the database. This method is
@@ -215,8 +216,9 @@ public interface Session {
 	 * 
 	 * @param model
 	 *            {@code Object} to persist to the database
-	 * @return the row ID of the newly inserted record, or -1 if the insert
-	 *         failed
+	 * @return the row ID of the newly inserted record, -1 if the insert
+	 *         failed, or 0 if the insert was queued by a unit of work and
+	 *         will be written when the {@code Session} is flushed
 	 * @throws InfinitumRuntimeException
 	 *             if the model is marked transient
 	 */
@@ -250,7 +252,9 @@ public interface Session {
 	 * 
 	 * @param model
 	 *            {@code Object} to save or update in the database
-	 * @return the row ID of the newly inserted row, 0 if the row was updated, or -1 if the operation failed.
+	 * @return the row ID of the newly inserted row, 0 if the row was updated
+	 *         or the operation was queued by a unit of work, or -1 if the
+	 *         operation failed.
 	 * @throws InfinitumRuntimeException
 	 *             if the model is marked transient
 	 */
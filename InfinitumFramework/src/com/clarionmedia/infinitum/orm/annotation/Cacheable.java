@@ -0,0 +1,85 @@
+/*
+ * Copyright (c) 2012 Tyler Treat
+ *
+ * This file is part of Infinitum Framework.
+ *
+ * Infinitum Framework is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Infinitum Framework is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Infinitum Framework.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.clarionmedia.infinitum.orm.annotation;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+import com.clarionmedia.infinitum.orm.persistence.PersistencePolicy.CacheStrategy;
+
+/**
+ * <p>
+ * This annotation is used to hold an entity in the second-level cache, which
+ * is shared by every {@code Session}. It is best suited to reference data
+ * which is read often and written rarely. For example:
+ * </p>
+ * 
+ * <pre>
+ * &#064;Cacheable(strategy = CacheStrategy.READ_ONLY, maxSize = 250)
+ * public class Country {
+ * 	// ...
+ * }
+ * </pre>
+ * 
+ * @author Tyler Treat
+ * @version 1.0 10/17/26
+ * @since 1.0
+ */
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.TYPE)
+public @interface Cacheable {
+
+	/**
+	 * The default maximum number of cached entities of a class.
+	 */
+	int DEFAULT_MAX_SIZE = 500;
+
+	/**
+	 * The default number of seconds an entity is cached for.
+	 */
+	long DEFAULT_TIMEOUT = 300;
+
+	/**
+	 * Returns the {@link CacheStrategy} for this entity. The default strategy
+	 * is {@link CacheStrategy#READ_WRITE}.
+	 * 
+	 * @return {@code CacheStrategy}
+	 */
+	CacheStrategy strategy() default CacheStrategy.READ_WRITE;
+
+	/**
+	 * Returns the maximum number of entities of this class to cache.
+	 * 
+	 * @return maximum number of cached entities
+	 */
+	int maxSize() default DEFAULT_MAX_SIZE;
+
+	/**
+	 * Returns the number of seconds an entity is cached for.
+	 * 
+	 * @return cache timeout in seconds
+	 */
+	long timeout() default DEFAULT_TIMEOUT;
+
+}
@@ -19,10 +19,12 @@
 
 package com.clarionmedia.infinitum.orm.criteria;
 
+import java.lang.reflect.Field;
 import java.util.List;
 import com.clarionmedia.infinitum.exception.InfinitumRuntimeException;
 import com.clarionmedia.infinitum.orm.ObjectMapper;
 import com.clarionmedia.infinitum.orm.criteria.criterion.Criterion;
+import com.clarionmedia.infinitum.orm.criteria.projection.Projection;
 
 /**
  * <p>
@@ -37,12 +39,22 @@ import com.clarionmedia.infinitum.orm.criteria.criterion.Criterion;
 public interface Criteria<T> {
 
 	/**
-	 * Returns the {@code Criteria} query in SQL form.
+	 * Returns the {@code Criteria} query in SQL form. Values are not inlined
+	 * into the SQL but bound to {@code ?} parameters, which are returned by
+	 * {@link #getArgs()}.
 	 * 
 	 * @return SQL {@link String} for this {@code Criteria}
 	 */
 	String toSql();
 
+	/**
+	 * Returns the values bound to the parameters of the SQL returned by
+	 * {@link #toSql()}, in order.
+	 * 
+	 * @return bound arguments for this {@code Criteria}
+	 */
+	String[] getArgs();
+
 	/**
 	 * Returns the {@link Class} associated with this {@code Criteria}.
 	 * 
@@ -71,6 +83,39 @@ public interface Criteria<T> {
 	 */
 	int getOffset();
 
+	/**
+	 * Returns the relationship {@link Field}'s which are fetched along with
+	 * the results of this {@code Criteria}.
+	 * 
+	 * @return {@code List} of fetched relationship {@code Fields}
+	 */
+	List<Field> getFetches();
+
+	/**
+	 * Returns the {@link List} of {@link Order} applied to the results of this
+	 * {@code Criteria}, in order of precedence.
+	 * 
+	 * @return {@code List} of {@code Order}
+	 */
+	List<Order> getOrders();
+
+	/**
+	 * Returns the {@link List} of {@link Projection} selected by this
+	 * {@code Criteria}.
+	 * 
+	 * @return {@code List} of {@code Projection}
+	 */
+	List<Projection> getProjections();
+
+	/**
+	 * Returns the keys this {@code Criteria} seeks past, or {@code null} if it
+	 * does not use keyset pagination.
+	 * 
+	 * @return seek keys
+	 * @see #seek(Object...)
+	 */
+	Object[] getSeekKeys();
+
 	/**
 	 * Returns the {@link ObjectMapper} associated with this {@code Criteria}.
 	 * 
@@ -105,6 +150,79 @@ public interface Criteria<T> {
 	 */
 	Criteria<T> offset(int offset);
 
+	/**
+	 * Indicates that the given relationship should be retrieved in the same
+	 * query as the results, by joining its table, rather than being loaded
+	 * separately afterwards. Fetched relationships are loaded eagerly, even
+	 * for lazily loaded entities.
+	 * 
+	 * @param field
+	 *            the name of the relationship {@link Field} to fetch
+	 * @return this {@code Criteria} to allow for method chaining
+	 * @throws InfinitumRuntimeException
+	 *             if {@code field} is not a persistent relationship of the
+	 *             {@code Criteria} entity {@code Class}
+	 */
+	Criteria<T> fetch(String field) throws InfinitumRuntimeException;
+
+	/**
+	 * Orders the query results by the given {@link Field}. Successive calls
+	 * break ties left by the previous ones.
+	 * 
+	 * @param field
+	 *            the name of the {@code Field} to order by
+	 * @param ascending
+	 *            {@code true} to order results ascending, {@code false} to
+	 *            order them descending
+	 * @return this {@code Criteria} to allow for method chaining
+	 */
+	Criteria<T> orderBy(String field, boolean ascending);
+
+	/**
+	 * Adds a {@link Projection} to select from the query. Projections are
+	 * retrieved with {@link #listProjections()} and have no effect on the
+	 * entities retrieved by {@link #list()}.
+	 * 
+	 * @param projection
+	 *            the {@code Projection} to select
+	 * @return this {@code Criteria} to allow for method chaining
+	 */
+	Criteria<T> addProjection(Projection projection);
+
+	/**
+	 * Restricts the query results to those following the row with the given
+	 * keys, which is far cheaper than skipping rows with {@link #offset(int)}
+	 * when paging deep into a large result set. The keys are the values of
+	 * the {@link Field}'s passed to {@link #orderBy(String, boolean)}, in
+	 * order, followed by the primary key unless results are already ordered
+	 * by it. Results are ordered by the primary key after any other ordering.
+	 * 
+	 * <p>
+	 * Calling this with no keys starts from the first result, but still
+	 * enables keyset pagination, so that {@link #scroll(int)} reads each page
+	 * by seeking past the last entity of the previous one.
+	 * </p>
+	 * 
+	 * @param keys
+	 *            the keys of the last row already read, none of which may be
+	 *            {@code null}
+	 * @return this {@code Criteria} to allow for method chaining
+	 */
+	Criteria<T> seek(Object... keys);
+
+	/**
+	 * Restricts the query results to those following the given entity, as
+	 * described by {@link #seek(Object...)}. This is typically the last
+	 * entity of the previous page.
+	 * 
+	 * @param entity
+	 *            the entity to retrieve the results following
+	 * @return this {@code Criteria} to allow for method chaining
+	 * @throws InfinitumRuntimeException
+	 *             if the keys of {@code entity} could not be read
+	 */
+	Criteria<T> after(Object entity) throws InfinitumRuntimeException;
+
 	/**
 	 * Retrieves the query results as a {@link List}.
 	 * 
@@ -112,6 +230,90 @@ public interface Criteria<T> {
 	 */
 	List<T> list();
 
+	/**
+	 * Retrieves the values selected by this {@code Criteria}'s
+	 * {@link Projection}'s without constructing any entities. Each row
+	 * contains one value per {@code Projection}, in the order they were added.
+	 * Counts are returned as {@link Long}, averages as {@link Double}, and
+	 * other values according to the column type of their {@link Field}.
+	 * 
+	 * @return {@link List} of projected rows
+	 * @throws InfinitumRuntimeException
+	 *             if no projections have been added
+	 */
+	List<Object[]> listProjections() throws InfinitumRuntimeException;
+
+	/**
+	 * Retrieves the query results as a {@link ResultIterator}, which
+	 * constructs each entity only as it is read from the underlying cursor.
+	 * If relationships are fetched, results are instead read a page at a time
+	 * so that joined rows can be grouped. The returned {@code ResultIterator}
+	 * should be closed if it is not exhausted.
+	 * 
+	 * @return {@code ResultIterator} over the query results
+	 */
+	ResultIterator<T> iterate();
+
+	/**
+	 * Retrieves the query results as a {@link ResultIterator} which reads
+	 * them from the database in pages of {@code fetchSize} rows. Only a single
+	 * page is held in memory at a time, making this suitable for result sets
+	 * too large to fit in a single cursor window. The relationships of each
+	 * page are loaded together. The returned
+	 * {@code ResultIterator} should be closed if it is not exhausted.
+	 * 
+	 * @param fetchSize
+	 *            the number of rows to read from the database at a time
+	 * @return {@code ResultIterator} over the query results
+	 * @throws IllegalArgumentException
+	 *             if {@code fetchSize} is not positive
+	 */
+	ResultIterator<T> scroll(int fetchSize);
+
+	/**
+	 * Indicates if results retrieved by this {@code Criteria} should bypass
+	 * the session cache. Bypassing the cache means results are neither read
+	 * from nor added to it, so entities which are no longer referenced can be
+	 * garbage collected while iterating over a large result set.
+	 * 
+	 * @param bypass
+	 *            {@code true} if the session cache should be bypassed,
+	 *            {@code false} if not
+	 * @return this {@code Criteria} to allow for method chaining
+	 */
+	Criteria<T> bypassCache(boolean bypass);
+
+	/**
+	 * Indicates if results retrieved by this {@code Criteria} bypass the
+	 * session cache.
+	 * 
+	 * @return {@code true} if the session cache is bypassed, {@code false} if
+	 *         not
+	 */
+	boolean isCacheBypassed();
+
+	/**
+	 * Indicates if the results of this {@code Criteria} query should be held
+	 * in the second-level query cache, which is shared by every session.
+	 * Cached results are discarded once any table read by the query is
+	 * written.
+	 * 
+	 * @param cacheable
+	 *            {@code true} if the query results should be cached,
+	 *            {@code false} if not
+	 * @return this {@code Criteria} to allow for method chaining
+	 */
+	Criteria<T> cacheable(boolean cacheable);
+
+	/**
+	 * Indicates if the results of this {@code Criteria} query are held in the
+	 * second-level query cache.
+	 * 
+	 * @return {@code true} if the query results are cached, {@code false} if
+	 *         not
+	 */
+	boolean isCacheable();
+
 	/**
 	 * Retrieves a unique query result for the {@code Criteria} query.
 	 * 
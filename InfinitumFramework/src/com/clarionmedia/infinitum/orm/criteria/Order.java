@@ -0,0 +1,74 @@
+/*
+ * Copyright (c) 2012 Tyler Treat
+ *
+ * This file is part of Infinitum Framework.
+ *
+ * Infinitum Framework is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Infinitum Framework is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Infinitum Framework.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.clarionmedia.infinitum.orm.criteria;
+
+import java.io.Serializable;
+import java.lang.reflect.Field;
+
+/**
+ * <p>
+ * Represents the ordering of {@link Criteria} query results by the value of a
+ * persistent {@link Field}.
+ * </p>
+ * 
+ * @author Tyler Treat
+ * @version 1.0 10/17/26
+ * @since 1.0
+ */
+public class Order implements Serializable {
+
+	private static final long serialVersionUID = -3519262738123508542L;
+
+	private String mFieldName;
+	private boolean mAscending;
+
+	/**
+	 * Constructs a new {@code Order} on the {@link Field} with the given name.
+	 * 
+	 * @param fieldName
+	 *            the name of the {@code Field} to order by
+	 * @param ascending
+	 *            {@code true} if results should be in ascending order,
+	 *            {@code false} if descending
+	 */
+	public Order(String fieldName, boolean ascending) {
+		mFieldName = fieldName;
+		mAscending = ascending;
+	}
+
+	/**
+	 * Returns the name of the {@link Field} to order by.
+	 * 
+	 * @return name of {@code Field}
+	 */
+	public String getFieldName() {
+		return mFieldName;
+	}
+
+	/**
+	 * Indicates if results are in ascending order.
+	 * 
+	 * @return {@code true} if ascending, {@code false} if descending
+	 */
+	public boolean isAscending() {
+		return mAscending;
+	}
+
+}
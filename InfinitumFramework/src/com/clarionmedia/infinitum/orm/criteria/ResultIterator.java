@@ -0,0 +1,68 @@
+/*
+ * Copyright (c) 2012 Tyler Treat
+ *
+ * This file is part of Infinitum Framework.
+ *
+ * Infinitum Framework is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Infinitum Framework is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Infinitum Framework.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.clarionmedia.infinitum.orm.criteria;
+
+import java.io.Closeable;
+import java.util.Iterator;
+
+/**
+ * <p>
+ * An {@link Iterator} over the results of a {@link Criteria} query which is
+ * backed by an open database cursor. Each result is constructed only when it
+ * is requested, so large result sets can be processed without holding every
+ * entity in memory at once.
+ * </p>
+ * <p>
+ * The underlying cursor is closed automatically once the last result has
+ * been read. {@code ResultIterator} instances which are abandoned before
+ * being exhausted must be closed explicitly by calling {@link #close()}.
+ * </p>
+ * 
+ * @author Tyler Treat
+ * @version 1.0 10/17/26
+ * @since 1.0
+ */
+public interface ResultIterator<T> extends Iterator<T>, Closeable {
+
+	/**
+	 * Closes the underlying cursor and releases its resources. Once closed,
+	 * {@link #hasNext()} will always return {@code false}. Calling this method
+	 * on a closed {@code ResultIterator} has no effect.
+	 */
+	@Override
+	void close();
+
+	/**
+	 * Indicates if this {@code ResultIterator} has been closed.
+	 * 
+	 * @return {@code true} if it has been closed, {@code false} if not
+	 */
+	boolean isClosed();
+
+	/**
+	 * Not supported, {@code ResultIterator} is read-only.
+	 * 
+	 * @throws UnsupportedOperationException
+	 *             always
+	 */
+	@Override
+	void remove();
+
+}
@@ -20,10 +20,10 @@
 package com.clarionmedia.infinitum.orm.criteria.criterion;
 
 import java.lang.reflect.Field;
+import java.util.List;
 
 import com.clarionmedia.infinitum.orm.criteria.Criteria;
 import com.clarionmedia.infinitum.orm.exception.InvalidCriteriaException;
-import com.clarionmedia.infinitum.orm.persistence.PersistencePolicy;
 import com.clarionmedia.infinitum.orm.sql.SqlConstants;
 
 /**
@@ -62,24 +62,23 @@ public class BetweenExpression extends Criterion {
 	@Override
 	public String toSql(Criteria<?> criteria) throws InvalidCriteriaException {
 		StringBuilder query = new StringBuilder();
-		Class<?> clazz = criteria.getEntityClass();
-		Field field = null;
-		PersistencePolicy policy = mContextFactory.getPersistencePolicy();
-		field = policy.findPersistentField(clazz, mFieldName);
-		if (field == null)
-		    throw new InvalidCriteriaException(String.format("Invalid Criteria for type '%s'", clazz.getName()));
-		String columnName = policy.getFieldColumnName(field);
-		query.append(columnName).append(' ').append(SqlConstants.OP_BETWEEN).append(' ');
-		if (criteria.getObjectMapper().isTextColumn(field))
-			query.append("'").append(mLow.toString()).append("'");
-		else
-			query.append(mLow.toString());
-		query.append(' ').append(SqlConstants.AND).append(' ');
-		if (criteria.getObjectMapper().isTextColumn(field))
-			query.append("'").append(mHigh.toString()).append("'");
-		else
-			query.append(mHigh.toString());
+		Field field = getField(criteria);
+		String columnName = mContextFactory.getPersistencePolicy().getFieldColumnName(field);
+		query.append(columnName).append(' ').append(SqlConstants.OP_BETWEEN).append(" ? ").append(SqlConstants.AND)
+				.append(" ?");
 		return query.toString();
 	}
 
+	@Override
+	public void appendArgs(Criteria<?> criteria, List<String> args) throws InvalidCriteriaException {
+		Field field = getField(criteria);
+		args.add(toArg(field, mLow));
+		args.add(toArg(field, mHigh));
+	}
+
+	@Override
+	public String getShape(Criteria<?> criteria) {
+		return getClass().getName() + ' ' + mFieldName;
+	}
+
 }
@@ -19,12 +19,11 @@
 
 package com.clarionmedia.infinitum.orm.criteria.criterion;
 
-import java.io.Serializable;
 import java.lang.reflect.Field;
+import java.util.List;
 
 import com.clarionmedia.infinitum.orm.criteria.Criteria;
 import com.clarionmedia.infinitum.orm.exception.InvalidCriteriaException;
-import com.clarionmedia.infinitum.orm.persistence.PersistencePolicy;
 import com.clarionmedia.infinitum.orm.sql.SqlConstants;
 
 /**
@@ -84,41 +83,33 @@ public class BinaryExpression extends Criterion {
 	@Override
 	public String toSql(Criteria<?> criteria) throws InvalidCriteriaException {
 		StringBuilder query = new StringBuilder();
-		Class<?> c = criteria.getEntityClass();
-		Field f = null;
-		PersistencePolicy policy = mContextFactory.getPersistencePolicy();
-		try {
-			f = policy.findPersistentField(c, mFieldName);
-			if (f == null)
-				throw new InvalidCriteriaException(String.format(mPropLoader.getErrorMessage("INVALID_CRITERIA"),
-						c.getName()));
-			f.setAccessible(true);
-		} catch (SecurityException e) {
-			throw new InvalidCriteriaException(String.format(mPropLoader.getErrorMessage("INVALID_CRITERIA"),
-					c.getName()));
-		}
-		String colName = policy.getFieldColumnName(f);
+		Field f = getField(criteria);
+		String colName = mContextFactory.getPersistencePolicy().getFieldColumnName(f);
 		boolean lowerCase = mIgnoreCase && criteria.getObjectMapper().isTextColumn(f);
 		if (lowerCase)
-			query.append(SqlConstants.LOWER).append('(');
-		query.append(colName);
-		if (lowerCase)
-			query.append(')');
+			query.append(SqlConstants.LOWER).append('(').append(colName).append(')');
+		else
+			query.append(colName);
 		query.append(' ').append(mOperator).append(' ');
-		// If it's a related object, use its primary key
-		if (policy.isToOneRelationship(f)) {
-			Serializable pk = policy.getPrimaryKey(mValue);
-			if (criteria.getObjectMapper().isTextColumn(f))
-				query.append("'").append(pk).append("'");
-			else
-				query.append(pk);
-		} else {
-			if (criteria.getObjectMapper().isTextColumn(f))
-				query.append("'").append(mValue).append("'");
-			else
-				query.append(mValue);
-		}
+		if (mValue == null)
+			query.append("NULL");
+		else if (lowerCase)
+			query.append(SqlConstants.LOWER).append("(?)");
+		else
+			query.append('?');
 		return query.toString();
 	}
 
+	@Override
+	public void appendArgs(Criteria<?> criteria, List<String> args) throws InvalidCriteriaException {
+		if (mValue != null)
+			args.add(toArg(getField(criteria), mValue));
+	}
+
+	@Override
+	public String getShape(Criteria<?> criteria) {
+		return new StringBuilder(getClass().getName()).append(' ').append(mFieldName).append(' ').append(mOperator)
+				.append(mIgnoreCase ? " ignoreCase" : "").append(mValue == null ? " null" : "").toString();
+	}
+
 }
@@ -20,10 +20,14 @@
 package com.clarionmedia.infinitum.orm.criteria.criterion;
 
 import java.io.Serializable;
+import java.lang.reflect.Field;
+import java.util.List;
 import com.clarionmedia.infinitum.context.ContextFactory;
 import com.clarionmedia.infinitum.internal.PropertyLoader;
 import com.clarionmedia.infinitum.orm.criteria.Criteria;
 import com.clarionmedia.infinitum.orm.exception.InvalidCriteriaException;
+import com.clarionmedia.infinitum.orm.persistence.PersistencePolicy;
+import com.clarionmedia.infinitum.orm.sql.SqlQuery;
 
 /**
  * <p>
@@ -56,6 +60,8 @@ public abstract class Criterion implements Serializable {
 
 	/**
 	 * Retrieves the SQL fragment for the {@code Criterion} as a {@link String}.
+	 * Values should be represented by {@code ?} parameters and supplied by
+	 * {@link #appendArgs(Criteria, List)} rather than written into the SQL.
 	 * 
 	 * @param criteria
 	 *            the {@link Criteria} this {@code Criterion} belongs to
@@ -76,4 +82,71 @@ public abstract class Criterion implements Serializable {
 		return mFieldName;
 	}
 
+	/**
+	 * Appends the values bound to the parameters of this {@code Criterion}'s
+	 * SQL fragment to the given {@link List}, in the order the parameters
+	 * appear. By default, no values are appended.
+	 * 
+	 * @param criteria
+	 *            the {@link Criteria} this {@code Criterion} belongs to
+	 * @param args
+	 *            the {@code List} to append bound values to
+	 * @throws InvalidCriteriaException
+	 *             if there was a problem creating the {@code Criteria} instance
+	 */
+	public void appendArgs(Criteria<?> criteria, List<String> args) throws InvalidCriteriaException {
+	}
+
+	/**
+	 * Returns a key identifying the SQL fragment of this {@code Criterion}
+	 * independently of its bound values. {@code Criterion} with equal shapes
+	 * must produce the same SQL for the same entity {@link Class}, which
+	 * allows the SQL to be cached. By default, this is the SQL fragment
+	 * itself.
+	 * 
+	 * @param criteria
+	 *            the {@link Criteria} this {@code Criterion} belongs to
+	 * @return shape of this {@code Criterion}
+	 * @throws InvalidCriteriaException
+	 *             if there was a problem creating the {@code Criteria} instance
+	 */
+	public String getShape(Criteria<?> criteria) throws InvalidCriteriaException {
+		return toSql(criteria);
+	}
+
+	/**
+	 * Retrieves the persistent {@link Field} this {@code Criterion} is being
+	 * applied to.
+	 * 
+	 * @param criteria
+	 *            the {@link Criteria} this {@code Criterion} belongs to
+	 * @return persistent {@code Field}
+	 * @throws InvalidCriteriaException
+	 *             if the entity has no such persistent {@code Field}
+	 */
+	protected Field getField(Criteria<?> criteria) throws InvalidCriteriaException {
+		Class<?> c = criteria.getEntityClass();
+		Field f = mContextFactory.getPersistencePolicy().findPersistentField(c, mFieldName);
+		if (f == null)
+			throw new InvalidCriteriaException(String.format(mPropLoader.getErrorMessage("INVALID_CRITERIA"), c.getName()));
+		return f;
+	}
+
+	/**
+	 * Converts the given value of the given {@link Field} to its bound form.
+	 * Related entities are represented by their primary key.
+	 * 
+	 * @param f
+	 *            the {@code Field} the value is compared with
+	 * @param value
+	 *            the value to convert
+	 * @return bound argument
+	 */
+	protected String toArg(Field f, Object value) {
+		PersistencePolicy policy = mContextFactory.getPersistencePolicy();
+		if (policy.isToOneRelationship(f))
+			value = policy.getPrimaryKey(value);
+		return SqlQuery.toArg(value);
+	}
+
 }
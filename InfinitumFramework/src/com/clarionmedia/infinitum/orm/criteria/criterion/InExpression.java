@@ -20,10 +20,10 @@
 package com.clarionmedia.infinitum.orm.criteria.criterion;
 
 import java.lang.reflect.Field;
+import java.util.List;
 
 import com.clarionmedia.infinitum.orm.criteria.Criteria;
 import com.clarionmedia.infinitum.orm.exception.InvalidCriteriaException;
-import com.clarionmedia.infinitum.orm.persistence.PersistencePolicy;
 import com.clarionmedia.infinitum.orm.sql.SqlConstants;
 
 /**
@@ -58,32 +58,29 @@ public class InExpression extends Criterion {
 	@Override
 	public String toSql(Criteria<?> criteria) throws InvalidCriteriaException {
 		StringBuilder query = new StringBuilder();
-		Class<?> c = criteria.getEntityClass();
-		Field f = null;
-		PersistencePolicy policy = mContextFactory.getPersistencePolicy();
-		try {
-			f = policy.findPersistentField(c, mFieldName);
-			if (f == null)
-				throw new InvalidCriteriaException(String.format(mPropLoader.getErrorMessage("INVALID_CRITERIA"),
-						c.getName()));
-			f.setAccessible(true);
-		} catch (SecurityException e) {
-			throw new InvalidCriteriaException(String.format(mPropLoader.getErrorMessage("INVALID_CRITERIA"),
-					c.getName()));
-		}
-		String colName = policy.getFieldColumnName(f);
+		Field f = getField(criteria);
+		String colName = mContextFactory.getPersistencePolicy().getFieldColumnName(f);
 		query.append(colName).append(' ').append(SqlConstants.OP_IN).append(" (");
 		String prefix = "";
-		for (Object val : mValues) {
-			query.append(prefix);
+		for (int i = 0; i < mValues.length; i++) {
+			query.append(prefix).append('?');
 			prefix = ", ";
-			if (criteria.getObjectMapper().isTextColumn(f))
-				query.append("'").append(val.toString()).append("'");
-			else
-				query.append(val.toString());
 		}
 		query.append(')');
 		return query.toString();
 	}
 
+	@Override
+	public void appendArgs(Criteria<?> criteria, List<String> args) throws InvalidCriteriaException {
+		Field f = getField(criteria);
+		for (Object val : mValues)
+			args.add(toArg(f, val));
+	}
+
+	@Override
+	public String getShape(Criteria<?> criteria) {
+		return new StringBuilder(getClass().getName()).append(' ').append(mFieldName).append(' ').append(mValues.length)
+				.toString();
+	}
+
 }
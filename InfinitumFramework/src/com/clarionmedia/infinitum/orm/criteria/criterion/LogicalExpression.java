@@ -19,6 +19,8 @@
 
 package com.clarionmedia.infinitum.orm.criteria.criterion;
 
+import java.util.List;
+
 import com.clarionmedia.infinitum.orm.criteria.Criteria;
 import com.clarionmedia.infinitum.orm.exception.InvalidCriteriaException;
 
@@ -52,4 +54,16 @@ public class LogicalExpression extends Criterion {
 				.append(mRhs.toSql(criteria)).append(')').toString();
 	}
 
+	@Override
+	public void appendArgs(Criteria<?> criteria, List<String> args) throws InvalidCriteriaException {
+		mLhs.appendArgs(criteria, args);
+		mRhs.appendArgs(criteria, args);
+	}
+
+	@Override
+	public String getShape(Criteria<?> criteria) throws InvalidCriteriaException {
+		return new StringBuilder("(").append(mLhs.getShape(criteria)).append(' ').append(mOperator).append(' ')
+				.append(mRhs.getShape(criteria)).append(')').toString();
+	}
+
 }
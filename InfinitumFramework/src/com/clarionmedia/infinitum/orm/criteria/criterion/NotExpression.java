@@ -19,6 +19,8 @@
 
 package com.clarionmedia.infinitum.orm.criteria.criterion;
 
+import java.util.List;
+
 import com.clarionmedia.infinitum.orm.criteria.Criteria;
 import com.clarionmedia.infinitum.orm.exception.InvalidCriteriaException;
 import com.clarionmedia.infinitum.orm.sql.SqlConstants;
@@ -48,4 +50,15 @@ public class NotExpression extends Criterion {
 				.toString();
 	}
 
+	@Override
+	public void appendArgs(Criteria<?> criteria, List<String> args) throws InvalidCriteriaException {
+		mExpression.appendArgs(criteria, args);
+	}
+
+	@Override
+	public String getShape(Criteria<?> criteria) throws InvalidCriteriaException {
+		return new StringBuilder(SqlConstants.NEGATION).append(" (").append(mExpression.getShape(criteria)).append(')')
+				.toString();
+	}
+
 }
@@ -70,4 +70,9 @@ public class NotNullExpression extends Criterion {
 		return query.toString();
 	}
 
+	@Override
+	public String getShape(Criteria<?> criteria) {
+		return getClass().getName() + ' ' + mFieldName;
+	}
+
 }
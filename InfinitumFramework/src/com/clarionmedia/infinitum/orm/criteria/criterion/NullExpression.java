@@ -69,4 +69,9 @@ public class NullExpression extends Criterion {
 		return query.toString();
 	}
 
+	@Override
+	public String getShape(Criteria<?> criteria) {
+		return getClass().getName() + ' ' + mFieldName;
+	}
+
 }
@@ -0,0 +1,96 @@
+/*
+ * Copyright (c) 2012 Tyler Treat
+ *
+ * This file is part of Infinitum Framework.
+ *
+ * Infinitum Framework is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Infinitum Framework is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Infinitum Framework.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.clarionmedia.infinitum.orm.criteria.projection;
+
+import java.io.Serializable;
+import java.lang.reflect.Field;
+
+import com.clarionmedia.infinitum.orm.criteria.Criteria;
+
+/**
+ * <p>
+ * This class represents a single value selected by a {@link Criteria} query
+ * in place of its entities, either the value of a persistent {@link Field} or
+ * an aggregate computed over it. Projections are generally obtained through
+ * {@link Projections}.
+ * </p>
+ * 
+ * @author Tyler Treat
+ * @version 1.0 10/17/26
+ * @since 1.0
+ */
+public class Projection implements Serializable {
+
+	private static final long serialVersionUID = 4480346218316409273L;
+
+	private String mFieldName;
+	private String mFunction;
+	private boolean mGrouped;
+
+	/**
+	 * Constructs a new {@code Projection}.
+	 * 
+	 * @param fieldName
+	 *            the name of the {@link Field} to project, or {@code null} to
+	 *            project every row, which is only meaningful for
+	 *            {@code count}
+	 * @param function
+	 *            the SQL aggregate function to apply, or {@code null} to
+	 *            project the value itself
+	 * @param grouped
+	 *            indicates if results should be grouped by the value
+	 */
+	public Projection(String fieldName, String function, boolean grouped) {
+		mFieldName = fieldName;
+		mFunction = function;
+		mGrouped = grouped;
+	}
+
+	/**
+	 * Returns the name of the {@link Field} this {@code Projection} selects, or
+	 * {@code null} if it applies to whole rows.
+	 * 
+	 * @return name of {@code Field}
+	 */
+	public String getFieldName() {
+		return mFieldName;
+	}
+
+	/**
+	 * Returns the SQL aggregate function applied by this {@code Projection},
+	 * or {@code null} if it selects the value itself.
+	 * 
+	 * @return aggregate function name
+	 */
+	public String getFunction() {
+		return mFunction;
+	}
+
+	/**
+	 * Indicates if query results are grouped by the value of this
+	 * {@code Projection}.
+	 * 
+	 * @return {@code true} if grouped, {@code false} if not
+	 */
+	public boolean isGrouped() {
+		return mGrouped;
+	}
+
+}
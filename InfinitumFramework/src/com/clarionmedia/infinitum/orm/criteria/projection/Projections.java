@@ -0,0 +1,142 @@
+/*
+ * Copyright (c) 2012 Tyler Treat
+ *
+ * This file is part of Infinitum Framework.
+ *
+ * Infinitum Framework is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Infinitum Framework is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Infinitum Framework.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.clarionmedia.infinitum.orm.criteria.projection;
+
+import java.lang.reflect.Field;
+
+import com.clarionmedia.infinitum.orm.criteria.Criteria;
+import com.clarionmedia.infinitum.orm.sql.SqlConstants;
+
+/**
+ * <p>
+ * Provides static factory methods for creating new {@link Projection} to add
+ * to {@link Criteria} queries. A {@code Criteria} with projections returns
+ * rows of scalar values, one per {@code Projection} in the order they were
+ * added, instead of entities.
+ * </p>
+ * 
+ * <p>
+ * For example, to retrieve the number of models and their largest "price" for
+ * each value of the {@link Field} "category", one would add
+ * {@code Projections.groupBy("category")}, {@code Projections.rowCount()}
+ * and {@code Projections.max("price")}, which is essentially the equivalent
+ * of {@code SELECT category, count(*), max(price) ... GROUP BY category}.
+ * </p>
+ * 
+ * @author Tyler Treat
+ * @version 1.0 10/17/26
+ * @since 1.0
+ */
+public class Projections {
+
+	/**
+	 * Returns a new {@link Projection} selecting the value of the
+	 * {@link Field} with the given name.
+	 * 
+	 * @param fieldName
+	 *            the name of the {@code Field} to select
+	 * @return a {@code Projection} selecting the value
+	 */
+	public static Projection property(String fieldName) {
+		return new Projection(fieldName, null, false);
+	}
+
+	/**
+	 * Returns a new {@link Projection} selecting the value of the
+	 * {@link Field} with the given name and grouping results by it.
+	 * 
+	 * @param fieldName
+	 *            the name of the {@code Field} to group by
+	 * @return a {@code Projection} grouping by the value
+	 */
+	public static Projection groupBy(String fieldName) {
+		return new Projection(fieldName, null, true);
+	}
+
+	/**
+	 * Returns a new {@link Projection} counting the rows of each result.
+	 * 
+	 * @return a {@code Projection} selecting the number of rows
+	 */
+	public static Projection rowCount() {
+		return new Projection(null, SqlConstants.FN_COUNT, false);
+	}
+
+	/**
+	 * Returns a new {@link Projection} counting the non-null values of the
+	 * {@link Field} with the given name.
+	 * 
+	 * @param fieldName
+	 *            the name of the {@code Field} to count
+	 * @return a {@code Projection} selecting the number of values
+	 */
+	public static Projection count(String fieldName) {
+		return new Projection(fieldName, SqlConstants.FN_COUNT, false);
+	}
+
+	/**
+	 * Returns a new {@link Projection} summing the values of the {@link Field}
+	 * with the given name.
+	 * 
+	 * @param fieldName
+	 *            the name of the {@code Field} to sum
+	 * @return a {@code Projection} selecting the sum
+	 */
+	public static Projection sum(String fieldName) {
+		return new Projection(fieldName, SqlConstants.FN_SUM, false);
+	}
+
+	/**
+	 * Returns a new {@link Projection} selecting the smallest value of the
+	 * {@link Field} with the given name.
+	 * 
+	 * @param fieldName
+	 *            the name of the {@code Field} to find the minimum of
+	 * @return a {@code Projection} selecting the minimum
+	 */
+	public static Projection min(String fieldName) {
+		return new Projection(fieldName, SqlConstants.FN_MIN, false);
+	}
+
+	/**
+	 * Returns a new {@link Projection} selecting the largest value of the
+	 * {@link Field} with the given name.
+	 * 
+	 * @param fieldName
+	 *            the name of the {@code Field} to find the maximum of
+	 * @return a {@code Projection} selecting the maximum
+	 */
+	public static Projection max(String fieldName) {
+		return new Projection(fieldName, SqlConstants.FN_MAX, false);
+	}
+
+	/**
+	 * Returns a new {@link Projection} selecting the average value of the
+	 * {@link Field} with the given name.
+	 * 
+	 * @param fieldName
+	 *            the name of the {@code Field} to average
+	 * @return a {@code Projection} selecting the average
+	 */
+	public static Projection avg(String fieldName) {
+		return new Projection(fieldName, SqlConstants.FN_AVG, false);
+	}
+
+}
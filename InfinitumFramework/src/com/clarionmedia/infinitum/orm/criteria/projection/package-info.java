@@ -0,0 +1,7 @@
+/**
+ * <p>
+ * Provides the projection classes, which select scalar values rather than
+ * entities from a {@link Criteria} query.
+ * </p>
+ */
+package com.clarionmedia.infinitum.orm.criteria.projection;
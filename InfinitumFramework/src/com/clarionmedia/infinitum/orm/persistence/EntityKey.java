@@ -0,0 +1,150 @@
+/*
+ * Copyright (c) 2012 Tyler Treat
+ *
+ * This file is part of Infinitum Framework.
+ *
+ * Infinitum Framework is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Infinitum Framework is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Infinitum Framework.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.clarionmedia.infinitum.orm.persistence;
+
+import java.io.Serializable;
+
+/**
+ * <p>
+ * Identifies a persistent entity by its {@link Class} and primary key. Two
+ * {@code EntityKeys} are equal only if both the class and the primary key are
+ * equal, so unlike a combined hash code they never collide for distinct
+ * entities. {@code EntityKey} is used to key session caches.
+ * </p>
+ * <p>
+ * Integral primary keys ({@code long}, {@code int}, {@code short} and
+ * {@code byte} and their wrappers) are stored as a primitive {@code long}, so
+ * an {@code Integer} and a {@code Long} key with the same value identify the
+ * same entity, and keys created through {@link #EntityKey(Class, long)} do not
+ * box.
+ * </p>
+ * 
+ * @author Tyler Treat
+ * @version 1.0 10/17/26
+ * @since 1.0
+ */
+public final class EntityKey implements Serializable {
+
+	private static final long serialVersionUID = -2316620733213745906L;
+
+	private final Class<?> mEntityClass;
+	private final long mId;
+	private final Serializable mKey;
+	private final boolean mIsLongKey;
+	private final int mHash;
+
+	/**
+	 * Constructs a new {@code EntityKey} for an integral primary key.
+	 * 
+	 * @param entityClass
+	 *            the persistent {@link Class} of the entity
+	 * @param id
+	 *            the primary key of the entity
+	 */
+	public EntityKey(Class<?> entityClass, long id) {
+		mEntityClass = entityClass;
+		mId = id;
+		mKey = null;
+		mIsLongKey = true;
+		mHash = 31 * entityClass.hashCode() + (int) (id ^ (id >>> 32));
+	}
+
+	/**
+	 * Constructs a new {@code EntityKey} for the given primary key.
+	 * 
+	 * @param entityClass
+	 *            the persistent {@link Class} of the entity
+	 * @param key
+	 *            the primary key of the entity, which may be {@code null} if
+	 *            the entity has not been persisted
+	 */
+	public EntityKey(Class<?> entityClass, Serializable key) {
+		mEntityClass = entityClass;
+		if (isIntegral(key)) {
+			long id = ((Number) key).longValue();
+			mId = id;
+			mKey = null;
+			mIsLongKey = true;
+			mHash = 31 * entityClass.hashCode() + (int) (id ^ (id >>> 32));
+		} else {
+			mId = 0;
+			mKey = key;
+			mIsLongKey = false;
+			mHash = 31 * entityClass.hashCode() + (key == null ? 0 : key.hashCode());
+		}
+	}
+
+	/**
+	 * Returns the persistent {@link Class} of the entity.
+	 * 
+	 * @return entity {@code Class}
+	 */
+	public Class<?> getEntityClass() {
+		return mEntityClass;
+	}
+
+	/**
+	 * Returns the primary key of the entity. Integral keys are returned as a
+	 * {@link Long}.
+	 * 
+	 * @return primary key
+	 */
+	public Serializable getKey() {
+		return isLongKey() ? Long.valueOf(mId) : mKey;
+	}
+
+	/**
+	 * Indicates if this {@code EntityKey} holds an integral primary key.
+	 * 
+	 * @return {@code true} if the primary key is integral, {@code false} if not
+	 */
+	public boolean isLongKey() {
+		return mIsLongKey;
+	}
+
+	@Override
+	public int hashCode() {
+		return mHash;
+	}
+
+	@Override
+	public boolean equals(Object other) {
+		if (this == other)
+			return true;
+		if (!(other instanceof EntityKey))
+			return false;
+		EntityKey otherKey = (EntityKey) other;
+		if (mEntityClass != otherKey.mEntityClass || mHash != otherKey.mHash || mIsLongKey != otherKey.mIsLongKey)
+			return false;
+		if (mIsLongKey)
+			return mId == otherKey.mId;
+		return mKey == null ? otherKey.mKey == null : mKey.equals(otherKey.mKey);
+	}
+
+	@Override
+	public String toString() {
+		return mEntityClass.getName() + "#" + getKey();
+	}
+
+	private static boolean isIntegral(Object key) {
+		return key instanceof Long || key instanceof Integer || key instanceof Short || key instanceof Byte;
+	}
+
+}
@@ -44,6 +44,7 @@ import com.clarionmedia.infinitum.orm.relationship.ModelRelationship;
 import com.clarionmedia.infinitum.orm.relationship.OneToManyRelationship;
 import com.clarionmedia.infinitum.orm.relationship.OneToOneRelationship;
 import com.clarionmedia.infinitum.reflection.ClassReflector;
+import com.clarionmedia.infinitum.reflection.FieldAccessor;
 
 /**
  * <p>
@@ -74,6 +75,16 @@ public abstract class PersistencePolicy {
 		ALL, NONE, KEYS
 	};
 
+	/**
+	 * Used to indicate how an entity is held in the second-level cache.
+	 * {@code NONE} means it is not cached, {@code READ_ONLY} means it is cached
+	 * and cannot be updated or deleted, and {@code READ_WRITE} means it is
+	 * cached and evicted whenever it is written.
+	 */
+	public static enum CacheStrategy {
+		NONE, READ_ONLY, READ_WRITE
+	};
+
 	// This Map caches which fields are persistent
 	protected Map<Class<?>, List<Field>> mPersistenceCache;
 
@@ -355,6 +366,36 @@ public abstract class PersistencePolicy {
 	 */
 	public abstract boolean isLazy(Class<?> c);
 
+	/**
+	 * Retrieves the {@link CacheStrategy} of the given persistent
+	 * {@link Class}.
+	 * 
+	 * @param c
+	 *            the {@code Class} to retrieve the {@code CacheStrategy} for
+	 * @return {@code CacheStrategy}
+	 */
+	public abstract CacheStrategy getCacheStrategy(Class<?> c);
+
+	/**
+	 * Retrieves the maximum number of entities of the given persistent
+	 * {@link Class} held in the second-level cache.
+	 * 
+	 * @param c
+	 *            the {@code Class} to retrieve the cache size for
+	 * @return maximum number of cached entities
+	 */
+	public abstract int getCacheSize(Class<?> c);
+
+	/**
+	 * Retrieves the number of seconds an entity of the given persistent
+	 * {@link Class} is held in the second-level cache before it expires.
+	 * 
+	 * @param c
+	 *            the {@code Class} to retrieve the cache timeout for
+	 * @return cache timeout in seconds
+	 */
+	public abstract long getCacheTimeout(Class<?> c);
+
 	/**
 	 * Retrieves the REST endpoint name for the given persistent {@link Class}.
 	 * 
@@ -432,39 +473,42 @@ public abstract class PersistencePolicy {
 	}
 
 	/**
-	 * Calculates a hash code for the specified persistent model based on its
-	 * {@link Class} and primary key.
+	 * Retrieves the {@link EntityKey} identifying the specified persistent
+	 * model by its {@link Class} and primary key. Integral primary keys are
+	 * read without boxing.
 	 * 
 	 * @param model
-	 *            the model entity to compute the hash for
-	 * @return hash code for the model
+	 *            the model entity to retrieve the key for
+	 * @return {@code EntityKey} for the model
 	 */
-	public int computeModelHash(Object model) {
-		Field f = getPrimaryKeyField(model.getClass());
-		Serializable pk = null;
-		try {
-			pk = (Serializable) mClassReflector.getFieldValue(model, f);
-		} catch (ClassCastException e) {
-			throw new ModelConfigurationException("Invalid primary key specified for '" + model.getClass().getName() + "'.");
+	public EntityKey getEntityKey(Object model) {
+		if (AopProxy.isAopProxy(model))
+			model = AopProxy.getProxy(model).getTarget();
+		Class<?> c = model.getClass();
+		FieldAccessor accessor = FieldAccessor.forField(getPrimaryKeyField(c));
+		Class<?> type = accessor.getField().getType();
+		if (type == long.class || type == int.class || type == short.class || type == byte.class) {
+			try {
+				return new EntityKey(c, accessor.getLong(model));
+			} catch (IllegalAccessException e) {
+				mLogger.error("Unable to retrieve primary key for object of type '" + c.getName() + "'", e);
+			}
 		}
-		return computeModelHash(model.getClass(), pk);
+		return new EntityKey(c, getPrimaryKey(model));
 	}
 
 	/**
-	 * Calculates a hash code based on the given {@link Class} and primary key.
+	 * Retrieves the {@link EntityKey} identifying the entity of the given
+	 * {@link Class} with the given primary key.
 	 * 
 	 * @param c
-	 *            the {@code Class} to compute the hash for
+	 *            the {@code Class} of the entity
 	 * @param pk
-	 *            the primary key to compute hash for
-	 * @return hash code
-	 */
-	public int computeModelHash(Class<?> c, Serializable pk) {
-		final int PRIME = 31;
-		int hash = 7;
-		hash *= PRIME + c.hashCode();
-		hash *= PRIME + pk.hashCode();
-		return hash;
+	 *            the primary key of the entity
+	 * @return {@code EntityKey} for the entity
+	 */
+	public EntityKey getEntityKey(Class<?> c, Serializable pk) {
+		return new EntityKey(c, pk);
 	}
 
 	/**
@@ -480,9 +524,8 @@ public abstract class PersistencePolicy {
 			model = AopProxy.getProxy(model).getTarget();
 		}
 		Field pkField = getPrimaryKeyField(model.getClass());
-		pkField.setAccessible(true);
 		try {
-			ret = (Serializable) pkField.get(model);
+			ret = (Serializable) FieldAccessor.forField(pkField).get(model);
 		} catch (IllegalArgumentException e) {
 			mLogger.error("Unable to retrieve primary key for object of type '"
 					+ model.getClass().getName() + "'", e);
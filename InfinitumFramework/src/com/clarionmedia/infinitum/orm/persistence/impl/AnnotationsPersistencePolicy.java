@@ -29,6 +29,7 @@ import java.util.Set;
 import com.clarionmedia.infinitum.exception.InfinitumRuntimeException;
 import com.clarionmedia.infinitum.internal.StringUtil;
 import com.clarionmedia.infinitum.orm.OrmConstants.PersistenceMode;
+import com.clarionmedia.infinitum.orm.annotation.Cacheable;
 import com.clarionmedia.infinitum.orm.annotation.Column;
 import com.clarionmedia.infinitum.orm.annotation.Entity;
 import com.clarionmedia.infinitum.orm.annotation.ManyToMany;
@@ -334,6 +335,30 @@ public class AnnotationsPersistencePolicy extends PersistencePolicy {
 		return ret;
 	}
 
+	@Override
+	public CacheStrategy getCacheStrategy(Class<?> c) {
+		if (!c.isAnnotationPresent(Cacheable.class))
+			return CacheStrategy.NONE;
+		Cacheable cacheable = c.getAnnotation(Cacheable.class);
+		return cacheable.strategy();
+	}
+
+	@Override
+	public int getCacheSize(Class<?> c) {
+		if (!c.isAnnotationPresent(Cacheable.class))
+			return Cacheable.DEFAULT_MAX_SIZE;
+		Cacheable cacheable = c.getAnnotation(Cacheable.class);
+		return cacheable.maxSize();
+	}
+
+	@Override
+	public long getCacheTimeout(Class<?> c) {
+		if (!c.isAnnotationPresent(Cacheable.class))
+			return Cacheable.DEFAULT_TIMEOUT;
+		Cacheable cacheable = c.getAnnotation(Cacheable.class);
+		return cacheable.timeout();
+	}
+
 	@Override
 	public String getRestEndpoint(Class<?> c)
 			throws IllegalArgumentException {
@@ -41,6 +41,7 @@ import com.clarionmedia.infinitum.context.InfinitumContext;
 import com.clarionmedia.infinitum.di.annotation.Autowired;
 import com.clarionmedia.infinitum.exception.InfinitumRuntimeException;
 import com.clarionmedia.infinitum.internal.StringUtil;
+import com.clarionmedia.infinitum.orm.annotation.Cacheable;
 import com.clarionmedia.infinitum.orm.exception.InvalidMapFileException;
 import com.clarionmedia.infinitum.orm.exception.ModelConfigurationException;
 import com.clarionmedia.infinitum.orm.persistence.PersistencePolicy;
@@ -281,6 +282,30 @@ public class XmlPersistencePolicy extends PersistencePolicy {
 		return mapping.isLazy();
 	}
 
+	@Override
+	public CacheStrategy getCacheStrategy(Class<?> c) {
+		if (!isPersistent(c) || !mTypePolicy.isDomainModel(c))
+			throw new IllegalArgumentException("Class '" + c.getName() + "' is transient.");
+		EntityMapping mapping = loadEntityMapping(c);
+		return mapping.getCacheStrategy();
+	}
+
+	@Override
+	public int getCacheSize(Class<?> c) {
+		if (!isPersistent(c) || !mTypePolicy.isDomainModel(c))
+			throw new IllegalArgumentException("Class '" + c.getName() + "' is transient.");
+		EntityMapping mapping = loadEntityMapping(c);
+		return mapping.getCacheSize();
+	}
+
+	@Override
+	public long getCacheTimeout(Class<?> c) {
+		if (!isPersistent(c) || !mTypePolicy.isDomainModel(c))
+			throw new IllegalArgumentException("Class '" + c.getName() + "' is transient.");
+		EntityMapping mapping = loadEntityMapping(c);
+		return mapping.getCacheTimeout();
+	}
+
 	@Override
 	public String getRestEndpoint(Class<?> c) throws IllegalArgumentException {
 		if (!isPersistent(c) || !mTypePolicy.isDomainModel(c))
@@ -395,6 +420,27 @@ public class XmlPersistencePolicy extends PersistencePolicy {
 			return mClassMapping.mRest;
 		}
 
+		public CacheStrategy getCacheStrategy() {
+			String cache = mClassMapping.mCache;
+			if (cache == null)
+				return CacheStrategy.NONE;
+			if (cache.equalsIgnoreCase("read-only"))
+				return CacheStrategy.READ_ONLY;
+			if (cache.equalsIgnoreCase("read-write"))
+				return CacheStrategy.READ_WRITE;
+			return CacheStrategy.NONE;
+		}
+
+		public int getCacheSize() {
+			Integer size = mClassMapping.mCacheSize;
+			return size == null ? Cacheable.DEFAULT_MAX_SIZE : size;
+		}
+
+		public long getCacheTimeout() {
+			Long timeout = mClassMapping.mCacheTimeout;
+			return timeout == null ? Cacheable.DEFAULT_TIMEOUT : timeout;
+		}
+
 		public PrimaryKey getPrimaryKey() {
 			return mClassMapping.mPrimaryKey;
 		}
@@ -447,6 +493,15 @@ public class XmlPersistencePolicy extends PersistencePolicy {
 			@Attribute(name = "rest", required = false)
 			private String mRest;
 
+			@Attribute(name = "cache", required = false)
+			private String mCache;
+
+			@Attribute(name = "cache-size", required = false)
+			private Integer mCacheSize;
+
+			@Attribute(name = "cache-timeout", required = false)
+			private Long mCacheTimeout;
+
 			@Element(name = "primary-key")
 			private PrimaryKey mPrimaryKey;
 
@@ -25,6 +25,7 @@ import java.util.List;
 import com.clarionmedia.infinitum.context.exception.InfinitumConfigurationException;
 import com.clarionmedia.infinitum.exception.InfinitumRuntimeException;
 import com.clarionmedia.infinitum.orm.criteria.Criteria;
+import com.clarionmedia.infinitum.orm.criteria.projection.Projection;
 import com.clarionmedia.infinitum.orm.exception.ModelConfigurationException;
 import com.clarionmedia.infinitum.orm.relationship.ManyToManyRelationship;
 import com.clarionmedia.infinitum.orm.relationship.OneToManyRelationship;
@@ -74,35 +75,102 @@ public interface SqlBuilder {
 	int dropTables(SqliteDbHelper dbHelper);
 
 	/**
-	 * Generates a SQL query {@link String} from the given {@link Criteria}.
+	 * Generates a {@link SqlQuery} from the given {@link Criteria}. The values
+	 * of the {@code Criteria} are bound as parameters rather than written into
+	 * the SQL.
 	 * 
 	 * @param criteria
 	 *            the {@code Criteria} to build the SQL query from
-	 * @return SQL query
+	 * @return SQL query and its bound arguments
 	 */
-	String createQuery(Criteria<?> criteria);
+	SqlQuery createQuery(Criteria<?> criteria);
 
 	/**
-	 * Generates a SQL query {@link String} from the given {@link Criteria} for
+	 * Generates a {@link SqlQuery} from the given {@link Criteria}, using the
+	 * given limit and offset in place of those specified by the
+	 * {@code Criteria}. This is used to read a query's results one page at a
+	 * time.
+	 * 
+	 * @param criteria
+	 *            the {@code Criteria} to build the SQL query from
+	 * @param limit
+	 *            max number of rows to retrieve, or {@code 0} for no limit
+	 * @param offset
+	 *            number of rows to skip
+	 * @return SQL query and its bound arguments
+	 */
+	SqlQuery createQuery(Criteria<?> criteria, int limit, int offset);
+
+	/**
+	 * Generates a {@link SqlQuery} from the given {@link Criteria}
+	 * which retrieves the results following the given seek keys, using the
+	 * given limit in place of that specified by the {@code Criteria}. This is
+	 * used to read a query's results one page at a time without an offset.
+	 * 
+	 * @param criteria
+	 *            the {@code Criteria} to build the SQL query from
+	 * @param limit
+	 *            max number of rows to retrieve, or {@code 0} for no limit
+	 * @param keys
+	 *            the seek keys of the last row already read, as described by
+	 *            {@link Criteria#seek(Object...)}
+	 * @return SQL query and its bound arguments
+	 */
+	SqlQuery createSeekQuery(Criteria<?> criteria, int limit, Object[] keys);
+
+	/**
+	 * Generates a {@link SqlQuery} from the given {@link Criteria} which
+	 * retrieves the results following the given seek keys, using the given
+	 * limit and offset in place of those specified by the {@code Criteria}.
+	 * The results are ordered by the {@code Criteria}'s ordering followed by
+	 * the entity's primary key even if {@code keys} is empty, which retrieves
+	 * the first page. This gives the pages of a query a stable order.
+	 * 
+	 * @param criteria
+	 *            the {@code Criteria} to build the SQL query from
+	 * @param limit
+	 *            max number of rows to retrieve, or {@code 0} for no limit
+	 * @param offset
+	 *            number of rows to skip
+	 * @param keys
+	 *            the seek keys of the last row already read, as described by
+	 *            {@link Criteria#seek(Object...)}, or an empty array
+	 * @return SQL query and its bound arguments
+	 */
+	SqlQuery createSeekQuery(Criteria<?> criteria, int limit, int offset, Object[] keys);
+
+	/**
+	 * Generates a {@link SqlQuery} from the given {@link Criteria} for
 	 * counting records.
 	 * 
 	 * @param criteria
 	 *            the {@code Criteria} to build the SQL query from
-	 * @return SQL query
+	 * @return SQL query and its bound arguments
+	 */
+	SqlQuery createCountQuery(Criteria<?> criteria);
+
+	/**
+	 * Generates a {@link SqlQuery} from the given {@link Criteria}
+	 * which selects its {@link Projection}'s rather than its entities.
+	 * 
+	 * @param criteria
+	 *            the {@code Criteria} to build the SQL query from
+	 * @return SQL query and its bound arguments
 	 */
-	String createCountQuery(Criteria<?> criteria);
+	SqlQuery createProjectionQuery(Criteria<?> criteria);
 
 	/**
-	 * Generates a SQL query {@link String} from the given
+	 * Generates a parameterized SQL query {@link String} from the given
 	 * {@link ManyToManyRelationship} which retrieves rows of the given
-	 * direction type which are associated with the given ID.
+	 * direction type which are associated with the ID bound to its single
+	 * placeholder.
 	 * 
 	 * <p>
 	 * For example, assume you have the models {@code Foo} and {@code Bar} which
 	 * have a many-to-many association and are mapped to the tables {@code foo}
 	 * and {@code bar} respectively with the relationships being stored in
-	 * {@code foobar}. Calling {@code createManyToManyJoinQuery(rel, 42,
-	 * Bar.class)} would generate a query that would retrieve all records of
+	 * {@code foobar}. Calling {@code createManyToManyJoinQuery(rel, Bar.class)}
+	 * and binding 42 would generate a query that would retrieve all records of
 	 * {@code Bar} associated with the instance of {@code Foo} which has an ID
 	 * of 42.
 	 * </p>
@@ -110,8 +178,6 @@ public interface SqlBuilder {
 	 * @param rel
 	 *            the {@link ManyToManyRelationship} containing the association
 	 *            being queried
-	 * @param id
-	 *            the ID in which the associated records are linked with
 	 * @param direction
 	 *            the direction the relationship is being queried in, returning
 	 *            records of this {@link Class}
@@ -121,8 +187,7 @@ public interface SqlBuilder {
 	 *             {@code ManyToManyRelationship}
 	 */
 	String createManyToManyJoinQuery(ManyToManyRelationship rel,
-			Serializable id, Class<?> direction)
-			throws InfinitumRuntimeException;
+			Class<?> direction) throws InfinitumRuntimeException;
 
 	/**
 	 * Generates a SQL {@link String} consisting of the query for deleting stale
@@ -202,4 +267,163 @@ public interface SqlBuilder {
 	 */
 	String createUpdateQuery(Object model, Object related, String column);
 
+	/**
+	 * Generates a parameterized SQL statement for inserting an instance of the
+	 * given model {@link Class}. Column values are bound in the order of
+	 * {@code columns}.
+	 * 
+	 * @param c
+	 *            the model {@code Class} to insert
+	 * @param columns
+	 *            the names of the columns to insert values for
+	 * @return SQL statement
+	 */
+	String createInsertStatement(Class<?> c, String[] columns);
+
+	/**
+	 * Generates a parameterized SQL statement for updating an instance of the
+	 * given model {@link Class} by primary key. Column values are bound in the
+	 * order of {@code columns}, followed by the primary key.
+	 * 
+	 * @param c
+	 *            the model {@code Class} to update
+	 * @param columns
+	 *            the names of the columns to update
+	 * @return SQL statement
+	 */
+	String createUpdateStatement(Class<?> c, String[] columns);
+
+	/**
+	 * Generates a parameterized SQL statement for updating a single column of
+	 * an instance of the given model {@link Class} by primary key, such as a
+	 * foreign key column. The column value is bound first, followed by the
+	 * primary key.
+	 * 
+	 * @param c
+	 *            the model {@code Class} to update
+	 * @param column
+	 *            the name of the column to update
+	 * @return SQL statement
+	 */
+	String createUpdateColumnStatement(Class<?> c, String column);
+
+	/**
+	 * Generates a parameterized SQL statement for setting a single column of
+	 * every instance of the given model {@link Class} whose primary key is one
+	 * of {@code keyCount} keys. The column value is bound first, followed by
+	 * the primary keys.
+	 * 
+	 * @param c
+	 *            the model {@code Class} to update
+	 * @param column
+	 *            the name of the column to update
+	 * @param keyCount
+	 *            the number of primary keys to bind
+	 * @return SQL statement
+	 */
+	String createUpdateColumnInStatement(Class<?> c, String column, int keyCount);
+
+	/**
+	 * Generates a parameterized SQL query for retrieving every instance of the
+	 * given model {@link Class} whose value for {@code column} matches the
+	 * single key bound to it. This is used to lazily load the many side of a
+	 * one-to-many relationship.
+	 * 
+	 * @param c
+	 *            the model {@code Class} to retrieve
+	 * @param column
+	 *            the name of the column to match the key against
+	 * @return SQL query
+	 */
+	String createRelatedQuery(Class<?> c, String column);
+
+	/**
+	 * Generates a parameterized SQL query for retrieving every instance of the
+	 * given model {@link Class} whose value for {@code column} is one of
+	 * {@code keyCount} keys. This is used to load a relationship for several
+	 * entities with a single query.
+	 * 
+	 * @param c
+	 *            the model {@code Class} to retrieve
+	 * @param column
+	 *            the name of the column to match keys against
+	 * @param keyCount
+	 *            the number of keys to bind
+	 * @return SQL query
+	 */
+	String createBatchQuery(Class<?> c, String column, int keyCount);
+
+	/**
+	 * Generates a parameterized SQL query for retrieving which of
+	 * {@code keyCount} keys are present in {@code column} of the given model
+	 * {@link Class}'s table. This is used to determine which of several
+	 * entities have a related entity without loading it.
+	 * 
+	 * @param c
+	 *            the model {@code Class} to check
+	 * @param column
+	 *            the name of the column to match keys against
+	 * @param keyCount
+	 *            the number of keys to bind
+	 * @return SQL query
+	 */
+	String createBatchKeyQuery(Class<?> c, String column, int keyCount);
+
+	/**
+	 * Generates a parameterized SQL query for retrieving the entities related
+	 * to {@code keyCount} entities through the given
+	 * {@link ManyToManyRelationship}. Each result row also contains the primary
+	 * key of the entity it is related to in the column
+	 * {@link SqlConstants#BATCH_KEY_ALIAS}.
+	 * 
+	 * @param rel
+	 *            the {@code ManyToManyRelationship} to query
+	 * @param direction
+	 *            the {@code Class} of the entities to retrieve
+	 * @param keyCount
+	 *            the number of primary keys to bind
+	 * @return SQL query
+	 * @throws InfinitumRuntimeException
+	 *             if {@code direction} is not a part of {@code rel}
+	 */
+	String createManyToManyBatchJoinQuery(ManyToManyRelationship rel,
+			Class<?> direction, int keyCount) throws InfinitumRuntimeException;
+
+	/**
+	 * Generates a parameterized SQL statement for deleting an instance of the
+	 * given model {@link Class} by primary key.
+	 * 
+	 * @param c
+	 *            the model {@code Class} to delete
+	 * @return SQL statement
+	 */
+	String createDeleteStatement(Class<?> c);
+
+	/**
+	 * Generates a parameterized SQL query for loading an instance of the
+	 * given model {@link Class} by primary key.
+	 * 
+	 * @param c
+	 *            the model {@code Class} to load
+	 * @return SQL query
+	 */
+	String createLoadStatement(Class<?> c);
+
+	/**
+	 * Generates a parameterized SQL statement for deleting the stale
+	 * relationships of a many-to-many table. The primary key of the owning
+	 * model is bound first, followed by the {@code keyCount} keys of the
+	 * entities which are still related.
+	 * 
+	 * @param rel
+	 *            the {@link ManyToManyRelationship} to delete stale
+	 *            relationships for
+	 * @param c
+	 *            the {@code Class} of the model containing the relationship
+	 * @param keyCount
+	 *            the number of related keys to retain
+	 * @return SQL statement
+	 */
+	String createDeleteStaleRelationshipStatement(ManyToManyRelationship rel, Class<?> c, int keyCount);
+
 }
@@ -47,6 +47,18 @@ public class SqlConstants {
 	public static final String IN = "IN";
 	public static final String UPDATE = "UPDATE";
 	public static final String SET = "SET";
+	public static final String VALUES = "VALUES";
+	public static final String ORDER_BY = "ORDER BY";
+	public static final String GROUP_BY = "GROUP BY";
+	public static final String ASCENDING = "ASC";
+	public static final String DESCENDING = "DESC";
+	
+	// SQL aggregate functions
+	public static final String FN_COUNT = "count";
+	public static final String FN_SUM = "sum";
+	public static final String FN_MIN = "min";
+	public static final String FN_MAX = "max";
+	public static final String FN_AVG = "avg";
 	
 	// SQL Operators
 	public static final String OP_EQUALS = "=";
@@ -67,5 +79,9 @@ public class SqlConstants {
 	public static final String ALIASED_SELECT_ALL_FROM = "SELECT %s.* FROM ";
 	public static final String DELETE_FROM = "DELETE FROM ";
 	public static final String DELETE_FROM_WHERE = "DELETE FROM %s WHERE ";
+	public static final String INSERT_INTO = "INSERT INTO ";
+	public static final String SELECT_CHANGES = "SELECT changes()";
+	public static final String BATCH_KEY_ALIAS = "infinitum_batch_key";
+	public static final String FETCH_ALIAS_FORMAT = "infinitum_f%d_";
 
 }
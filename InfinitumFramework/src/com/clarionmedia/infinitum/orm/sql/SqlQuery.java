@@ -0,0 +1,95 @@
+/*
+ * Copyright (c) 2012 Tyler Treat
+ *
+ * This file is part of Infinitum Framework.
+ *
+ * Infinitum Framework is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Infinitum Framework is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Infinitum Framework.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.clarionmedia.infinitum.orm.sql;
+
+import java.util.Date;
+
+import com.clarionmedia.infinitum.internal.DateFormatter;
+
+/**
+ * <p>
+ * A SQL query along with the values bound to its {@code ?} parameters. Values
+ * are kept out of the SQL itself so that queries differing only in their
+ * values share the same SQL, which lets SQLite reuse its compiled statement,
+ * and so that values never need to be quoted or escaped.
+ * </p>
+ * 
+ * @author Tyler Treat
+ * @version 1.0 10/17/26
+ * @since 1.0
+ */
+public class SqlQuery {
+
+	private final String mSql;
+	private final String[] mArgs;
+
+	/**
+	 * Constructs a new {@code SqlQuery}.
+	 * 
+	 * @param sql
+	 *            the SQL query
+	 * @param args
+	 *            the values bound to the parameters of {@code sql}, in order
+	 */
+	public SqlQuery(String sql, String[] args) {
+		mSql = sql;
+		mArgs = args;
+	}
+
+	/**
+	 * Converts the given value to its bound form, matching how it is stored
+	 * in the database.
+	 * 
+	 * @param value
+	 *            the value to convert
+	 * @return bound argument
+	 */
+	public static String toArg(Object value) {
+		if (value instanceof Date)
+			return DateFormatter.getDateAsISO8601String((Date) value);
+		if (value instanceof Boolean)
+			return (Boolean) value ? "1" : "0";
+		return String.valueOf(value);
+	}
+
+	/**
+	 * Returns the SQL for this {@code SqlQuery}.
+	 * 
+	 * @return SQL {@link String}
+	 */
+	public String getSql() {
+		return mSql;
+	}
+
+	/**
+	 * Returns the values bound to the parameters of this {@code SqlQuery}.
+	 * 
+	 * @return bound arguments
+	 */
+	public String[] getArgs() {
+		return mArgs;
+	}
+
+	@Override
+	public String toString() {
+		return mSql;
+	}
+
+}
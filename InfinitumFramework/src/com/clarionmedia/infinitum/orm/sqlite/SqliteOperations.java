@@ -20,11 +20,14 @@
 package com.clarionmedia.infinitum.orm.sqlite;
 
 import java.lang.reflect.Field;
+import java.util.Collection;
+import java.util.List;
 import java.util.Map;
 
 import android.database.Cursor;
 import android.database.SQLException;
 
+import com.clarionmedia.infinitum.exception.InfinitumRuntimeException;
 import com.clarionmedia.infinitum.orm.DatastoreOperations;
 import com.clarionmedia.infinitum.orm.exception.SQLGrammarException;
 import com.clarionmedia.infinitum.orm.persistence.TypeAdapter;
@@ -109,6 +112,34 @@ public interface SqliteOperations extends DatastoreOperations {
 	 */
 	boolean isAutocommit();
 
+	/**
+	 * Persists the given collection of models in a single batch. Models are
+	 * written grouped by {@link Class} using one compiled statement per
+	 * {@code Class}, and relationship foreign keys are updated with set-based
+	 * statements once every model has been written. If autocommit is enabled,
+	 * the batch is executed in its own transaction.
+	 * 
+	 * @param models
+	 *            the models to persist
+	 * @return {@link List} of the models which were persisted
+	 * @throws InfinitumRuntimeException
+	 *             if one or more of the models is marked transient
+	 */
+	List<Object> saveAll(Collection<? extends Object> models) throws InfinitumRuntimeException;
+
+	/**
+	 * Updates the given collection of models, or persists them if they do not
+	 * exist, in a single batch. See {@link #saveAll(Collection)} for how the
+	 * batch is executed.
+	 * 
+	 * @param models
+	 *            the models to save or update
+	 * @return {@link List} of the models which were saved or updated
+	 * @throws InfinitumRuntimeException
+	 *             if one or more of the models is marked transient
+	 */
+	List<Object> saveOrUpdateAll(Collection<? extends Object> models) throws InfinitumRuntimeException;
+
 	/**
 	 * Executes the given SQL query on the database for a result.
 	 * 
@@ -124,6 +155,23 @@ public interface SqliteOperations extends DatastoreOperations {
 	Cursor executeForResult(String sql, boolean force)
 			throws SQLGrammarException;
 
+	/**
+	 * Executes the given parameterized SQL query on the database for a result.
+	 * 
+	 * @param sql
+	 *            the SQL query to execute
+	 * @param args
+	 *            the values to bind to the query's parameters
+	 * @param force
+	 *            indicates if the query should be executed regardless of
+	 *            transaction state
+	 * @return {@link Cursor} containing the results of the query
+	 * @throws SQLGrammarException
+	 *             if the SQL was formatted incorrectly
+	 */
+	Cursor executeForResult(String sql, String[] args, boolean force)
+			throws SQLGrammarException;
+
 	/**
 	 * Registers the given {@link TypeAdapter} for the specified {@link Class}
 	 * with this {@code SqliteMapper} instance. The {@code TypeAdapter} allows a
@@ -20,8 +20,12 @@
 package com.clarionmedia.infinitum.orm.sqlite;
 
 import android.content.ContentValues;
+import java.lang.reflect.Field;
+
+import com.clarionmedia.infinitum.orm.ResultSet;
 import com.clarionmedia.infinitum.orm.persistence.TypeAdapter;
 import com.clarionmedia.infinitum.orm.persistence.TypeResolutionPolicy.SqliteDataType;
+import com.clarionmedia.infinitum.reflection.FieldAccessor;
 
 /**
  * <p>
@@ -73,6 +77,32 @@ public abstract class SqliteTypeAdapter<T> implements TypeAdapter<T> {
 	 */
 	public abstract void mapObjectToColumn(Object value, String column, ContentValues values);
 
+	/**
+	 * Maps the value at the given index of the {@link ResultSet} to the field
+	 * of the model accessed by the given {@link FieldAccessor}. This is used
+	 * when the accessor has already been resolved, and by default delegates to
+	 * {@link #mapToObject(ResultSet, int, Field, Object)}. Adapters for
+	 * primitive types should override it to use the typed setters of the
+	 * accessor.
+	 * 
+	 * @param result
+	 *            the {@code ResultSet} containing the value
+	 * @param index
+	 *            the column index of the value
+	 * @param accessor
+	 *            the {@code FieldAccessor} for the field being mapped to
+	 * @param model
+	 *            the model to set the value on
+	 * @throws IllegalArgumentException
+	 *             if the value cannot be assigned to the field
+	 * @throws IllegalAccessException
+	 *             if the field cannot be accessed
+	 */
+	public void mapToObject(ResultSet result, int index, FieldAccessor accessor, Object model) throws IllegalArgumentException,
+			IllegalAccessException {
+		mapToObject(result, index, accessor.getField(), model);
+	}
+
 	/**
 	 * Sets the {@link SqliteDataType} for this {@code SqliteTypeAdapter}. This
 	 * value indicates the data type of the column being mapped to.
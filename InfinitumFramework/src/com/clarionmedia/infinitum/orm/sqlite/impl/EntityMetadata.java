@@ -0,0 +1,338 @@
+/*
+ * Copyright (c) 2012 Tyler Treat
+ *
+ * This file is part of Infinitum Framework.
+ *
+ * Infinitum Framework is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Infinitum Framework is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Infinitum Framework.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.clarionmedia.infinitum.orm.sqlite.impl;
+
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.List;
+
+import android.database.Cursor;
+
+import com.clarionmedia.infinitum.orm.exception.InvalidMappingException;
+import com.clarionmedia.infinitum.orm.persistence.PersistencePolicy;
+import com.clarionmedia.infinitum.orm.relationship.ForeignKeyRelationship;
+import com.clarionmedia.infinitum.orm.relationship.ModelRelationship;
+import com.clarionmedia.infinitum.orm.relationship.ModelRelationship.RelationType;
+import com.clarionmedia.infinitum.orm.relationship.OneToOneRelationship;
+import com.clarionmedia.infinitum.orm.sqlite.SqliteTypeAdapter;
+import com.clarionmedia.infinitum.reflection.FieldAccessor;
+
+/**
+ * <p>
+ * Immutable description of how a persistent class is mapped to its table,
+ * resolved once so that entities can be constructed from query results
+ * without consulting the {@link PersistencePolicy} for every row. It holds
+ * the class's column {@link Field}'s in order along with their column names
+ * and {@link SqliteTypeAdapter}'s, and its relationships along with the
+ * foreign key columns stored in its rows.
+ * </p>
+ * <p>
+ * A {@link ColumnPlan} resolves the positions of these columns in a
+ * particular {@link Cursor}, so each query needs to look up its columns
+ * only once.
+ * </p>
+ * 
+ * @author Tyler Treat
+ * @version 1.0 10/17/26
+ * @since 1.0
+ */
+public class EntityMetadata {
+
+	private final Class<?> mEntityClass;
+	private final Field[] mColumnFields;
+	private final FieldAccessor[] mColumnAccessors;
+	private final String[] mColumnNames;
+	private final SqliteTypeAdapter<?>[] mTypeAdapters;
+	private final Field[] mRelationshipFields;
+	private final ModelRelationship[] mRelationships;
+	private final String[] mForeignKeyColumns;
+	private final String mPrimaryKeyColumn;
+	private final boolean mIsLazy;
+
+	/**
+	 * Constructs a new {@code EntityMetadata} for the given persistent
+	 * {@link Class}.
+	 * 
+	 * @param c
+	 *            the persistent {@code Class} to describe
+	 * @param policy
+	 *            the {@link PersistencePolicy} describing {@code c}
+	 * @param mapper
+	 *            the {@link SqliteMapper} used to resolve column types
+	 * @throws InvalidMappingException
+	 *             if a column of {@code c} has a type which cannot be mapped
+	 */
+	public EntityMetadata(Class<?> c, PersistencePolicy policy, SqliteMapper mapper) throws InvalidMappingException {
+		mEntityClass = c;
+		List<Field> columnFields = new ArrayList<Field>();
+		List<Field> relationshipFields = new ArrayList<Field>();
+		for (Field f : policy.getPersistentFields(c)) {
+			f.setAccessible(true);
+			if (policy.isRelationship(f))
+				relationshipFields.add(f);
+			else
+				columnFields.add(f);
+		}
+		int columnCount = columnFields.size();
+		mColumnFields = columnFields.toArray(new Field[columnCount]);
+		mColumnAccessors = new FieldAccessor[columnCount];
+		mColumnNames = new String[columnCount];
+		mTypeAdapters = new SqliteTypeAdapter<?>[columnCount];
+		for (int i = 0; i < columnCount; i++) {
+			mColumnAccessors[i] = FieldAccessor.forField(mColumnFields[i]);
+			mColumnNames[i] = policy.getFieldColumnName(mColumnFields[i]);
+			mTypeAdapters[i] = mapper.resolveType(mColumnFields[i].getType());
+		}
+		int relationshipCount = relationshipFields.size();
+		mRelationshipFields = relationshipFields.toArray(new Field[relationshipCount]);
+		mRelationships = new ModelRelationship[relationshipCount];
+		mForeignKeyColumns = new String[relationshipCount];
+		for (int i = 0; i < relationshipCount; i++) {
+			ModelRelationship rel = policy.getRelationship(mRelationshipFields[i]);
+			mRelationships[i] = rel;
+			// Only many-to-one and owned one-to-one keys are stored in this row
+			if (rel.getRelationType() == RelationType.ManyToOne
+					|| (rel.getRelationType() == RelationType.OneToOne && ((OneToOneRelationship) rel).getOwner() == c))
+				mForeignKeyColumns[i] = ((ForeignKeyRelationship) rel).getColumn();
+		}
+		Field pkField = policy.getPrimaryKeyField(c);
+		mPrimaryKeyColumn = pkField == null ? null : policy.getFieldColumnName(pkField);
+		mIsLazy = policy.isLazy(c);
+	}
+
+	/**
+	 * Returns the {@link Class} described by this {@code EntityMetadata}.
+	 * 
+	 * @return entity {@code Class}
+	 */
+	public Class<?> getEntityClass() {
+		return mEntityClass;
+	}
+
+	/**
+	 * Returns the number of non-relationship columns of the entity.
+	 * 
+	 * @return number of columns
+	 */
+	public int getColumnCount() {
+		return mColumnFields.length;
+	}
+
+	/**
+	 * Returns the {@link Field} mapped to the column at the given position.
+	 * 
+	 * @param column
+	 *            the position of the column
+	 * @return column {@code Field}
+	 */
+	public Field getColumnField(int column) {
+		return mColumnFields[column];
+	}
+
+	/**
+	 * Returns the {@link FieldAccessor} for the column at the given position.
+	 * 
+	 * @param column
+	 *            the position of the column
+	 * @return column {@code FieldAccessor}
+	 */
+	public FieldAccessor getColumnAccessor(int column) {
+		return mColumnAccessors[column];
+	}
+
+	/**
+	 * Returns the name of the column at the given position.
+	 * 
+	 * @param column
+	 *            the position of the column
+	 * @return column name
+	 */
+	public String getColumnName(int column) {
+		return mColumnNames[column];
+	}
+
+	/**
+	 * Returns the {@link SqliteTypeAdapter} for the column at the given
+	 * position.
+	 * 
+	 * @param column
+	 *            the position of the column
+	 * @return column {@code SqliteTypeAdapter}
+	 */
+	public SqliteTypeAdapter<?> getTypeAdapter(int column) {
+		return mTypeAdapters[column];
+	}
+
+	/**
+	 * Returns the number of relationships of the entity.
+	 * 
+	 * @return number of relationships
+	 */
+	public int getRelationshipCount() {
+		return mRelationshipFields.length;
+	}
+
+	/**
+	 * Returns the {@link Field} holding the relationship at the given
+	 * position.
+	 * 
+	 * @param relationship
+	 *            the position of the relationship
+	 * @return relationship {@code Field}
+	 */
+	public Field getRelationshipField(int relationship) {
+		return mRelationshipFields[relationship];
+	}
+
+	/**
+	 * Returns the {@link ModelRelationship} at the given position.
+	 * 
+	 * @param relationship
+	 *            the position of the relationship
+	 * @return {@code ModelRelationship}
+	 */
+	public ModelRelationship getRelationship(int relationship) {
+		return mRelationships[relationship];
+	}
+
+	/**
+	 * Returns the name of the foreign key column stored in the entity's rows
+	 * for the relationship at the given position.
+	 * 
+	 * @param relationship
+	 *            the position of the relationship
+	 * @return foreign key column name or {@code null} if the relationship's
+	 *         key is not stored in the entity's rows
+	 */
+	public String getForeignKeyColumn(int relationship) {
+		return mForeignKeyColumns[relationship];
+	}
+
+	/**
+	 * Returns the name of the entity's primary key column.
+	 * 
+	 * @return primary key column name
+	 */
+	public String getPrimaryKeyColumn() {
+		return mPrimaryKeyColumn;
+	}
+
+	/**
+	 * Indicates if the entity's relationships are lazily loaded.
+	 * 
+	 * @return {@code true} if relationships are lazily loaded, {@code false}
+	 *         if not
+	 */
+	public boolean isLazy() {
+		return mIsLazy;
+	}
+
+	/**
+	 * Resolves the positions of the entity's columns in the given
+	 * {@link Cursor}.
+	 * 
+	 * @param cursor
+	 *            the {@code Cursor} to resolve column positions in
+	 * @param prefix
+	 *            the prefix of the entity's column names in {@code cursor},
+	 *            or an empty {@link String} if they are not aliased
+	 * @return {@code ColumnPlan} for {@code cursor}
+	 */
+	public ColumnPlan createColumnPlan(Cursor cursor, String prefix) {
+		int[] columns = new int[mColumnNames.length];
+		for (int i = 0; i < columns.length; i++)
+			columns[i] = cursor.getColumnIndex(prefix + mColumnNames[i]);
+		int[] foreignKeys = new int[mForeignKeyColumns.length];
+		for (int i = 0; i < foreignKeys.length; i++)
+			foreignKeys[i] = mForeignKeyColumns[i] == null ? -1 : cursor.getColumnIndex(prefix + mForeignKeyColumns[i]);
+		int primaryKey = mPrimaryKeyColumn == null ? -1 : cursor.getColumnIndex(prefix + mPrimaryKeyColumn);
+		return new ColumnPlan(this, columns, foreignKeys, primaryKey);
+	}
+
+	/**
+	 * <p>
+	 * The positions of an entity's columns in a particular {@link Cursor}. A
+	 * position of {@code -1} indicates the column is not present.
+	 * </p>
+	 * 
+	 * @author Tyler Treat
+	 * @version 1.0 10/17/26
+	 * @since 1.0
+	 */
+	public static class ColumnPlan {
+
+		private final EntityMetadata mMetadata;
+		private final int[] mColumns;
+		private final int[] mForeignKeys;
+		private final int mPrimaryKey;
+
+		private ColumnPlan(EntityMetadata metadata, int[] columns, int[] foreignKeys, int primaryKey) {
+			mMetadata = metadata;
+			mColumns = columns;
+			mForeignKeys = foreignKeys;
+			mPrimaryKey = primaryKey;
+		}
+
+		/**
+		 * Returns the {@link EntityMetadata} this {@code ColumnPlan} was
+		 * created from.
+		 * 
+		 * @return {@code EntityMetadata}
+		 */
+		public EntityMetadata getMetadata() {
+			return mMetadata;
+		}
+
+		/**
+		 * Returns the {@link Cursor} position of the given column.
+		 * 
+		 * @param column
+		 *            the position of the column in the {@link EntityMetadata}
+		 * @return {@code Cursor} column index
+		 */
+		public int getColumnIndex(int column) {
+			return mColumns[column];
+		}
+
+		/**
+		 * Returns the {@link Cursor} position of the foreign key column of the
+		 * given relationship.
+		 * 
+		 * @param relationship
+		 *            the position of the relationship in the
+		 *            {@link EntityMetadata}
+		 * @return {@code Cursor} column index
+		 */
+		public int getForeignKeyIndex(int relationship) {
+			return mForeignKeys[relationship];
+		}
+
+		/**
+		 * Returns the {@link Cursor} position of the primary key column.
+		 * 
+		 * @return {@code Cursor} column index
+		 */
+		public int getPrimaryKeyIndex() {
+			return mPrimaryKey;
+		}
+
+	}
+
+}
@@ -0,0 +1,283 @@
+/*
+ * Copyright (c) 2012 Tyler Treat
+ *
+ * This file is part of Infinitum Framework.
+ *
+ * Infinitum Framework is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Infinitum Framework is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Infinitum Framework.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.clarionmedia.infinitum.orm.sqlite.impl;
+
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+
+import android.content.ContentValues;
+
+import com.clarionmedia.infinitum.aop.AopProxy;
+import com.clarionmedia.infinitum.exception.InfinitumRuntimeException;
+import com.clarionmedia.infinitum.internal.Pair;
+import com.clarionmedia.infinitum.orm.LazyLoadCollection;
+import com.clarionmedia.infinitum.orm.LazyLoadDexMakerProxy;
+import com.clarionmedia.infinitum.orm.persistence.PersistencePolicy;
+import com.clarionmedia.infinitum.orm.relationship.ManyToManyRelationship;
+import com.clarionmedia.infinitum.orm.relationship.ManyToOneRelationship;
+import com.clarionmedia.infinitum.orm.relationship.ModelRelationship;
+import com.clarionmedia.infinitum.orm.relationship.OneToManyRelationship;
+import com.clarionmedia.infinitum.orm.relationship.OneToOneRelationship;
+
+/**
+ * <p>
+ * The persistent state of an entity as it was last read from or written to
+ * the database by a {@link SqliteSession}. A snapshot holds the entity's
+ * column values along with the primary keys of its related entities, which
+ * {@link SqliteTemplate} compares against the entity's current state so that
+ * an update writes only the columns and relationships which changed.
+ * </p>
+ * <p>
+ * Relationships which are still unloaded lazy proxies are recorded by
+ * identity rather than by key, so taking a snapshot never loads them.
+ * </p>
+ * 
+ * @author Tyler Treat
+ * @version 1.0 10/17/26
+ * @since 1.0
+ */
+public class EntitySnapshot {
+
+	private final Object mEntity;
+	private final ContentValues mValues;
+	private final Map<String, Related> mRelated;
+
+	/**
+	 * Constructs a new {@code EntitySnapshot} of the given entity.
+	 * 
+	 * @param entity
+	 *            the entity to take a snapshot of
+	 * @param map
+	 *            the {@link SqliteModelMap} of the entity's current state
+	 * @param policy
+	 *            the {@link PersistencePolicy} used to resolve primary keys
+	 */
+	public EntitySnapshot(Object entity, SqliteModelMap map, PersistencePolicy policy) {
+		mEntity = entity;
+		mValues = new ContentValues();
+		mValues.putAll(map.getContentValues());
+		mRelated = new HashMap<String, Related>();
+		for (Pair<ManyToManyRelationship, Iterable<Object>> relationship : map.getManyToManyRelationships())
+			mRelated.put(relationship.getFirst().getName(), toMany(relationship.getSecond(), policy));
+		for (Pair<OneToManyRelationship, Iterable<Object>> relationship : map.getOneToManyRelationships())
+			mRelated.put(relationship.getFirst().getName(), toMany(relationship.getSecond(), policy));
+		for (Pair<ManyToOneRelationship, Object> relationship : map.getManyToOneRelationships())
+			mRelated.put(relationship.getFirst().getName(), toOne(relationship.getSecond(), policy));
+		for (Pair<OneToOneRelationship, Object> relationship : map.getOneToOneRelationships())
+			mRelated.put(relationship.getFirst().getName(), toOne(relationship.getSecond(), policy));
+	}
+
+	/**
+	 * Constructs a new {@code EntitySnapshot} of an entity which was just read
+	 * from the database. The entity's state is read through the given
+	 * {@link EntityMetadata}, which avoids mapping every hydrated row with
+	 * {@link SqliteMapper#mapModel(Object)}.
+	 * 
+	 * @param entity
+	 *            the entity to take a snapshot of
+	 * @param metadata
+	 *            the {@code EntityMetadata} the entity was read with
+	 * @param policy
+	 *            the {@link PersistencePolicy} used to resolve primary keys
+	 * @throws InfinitumRuntimeException
+	 *             if a field of the entity cannot be read
+	 */
+	@SuppressWarnings("unchecked")
+	public EntitySnapshot(Object entity, EntityMetadata metadata, PersistencePolicy policy) throws InfinitumRuntimeException {
+		mEntity = entity;
+		mValues = new ContentValues();
+		mRelated = new HashMap<String, Related>();
+		try {
+			for (int i = 0; i < metadata.getColumnCount(); i++)
+				metadata.getTypeAdapter(i).mapObjectToColumn(metadata.getColumnAccessor(i).get(entity), metadata.getColumnName(i), mValues);
+			for (int i = 0; i < metadata.getRelationshipCount(); i++) {
+				ModelRelationship relationship = metadata.getRelationship(i);
+				Object related = metadata.getRelationshipField(i).get(entity);
+				switch (relationship.getRelationType()) {
+				case ManyToMany:
+				case OneToMany:
+					// A missing collection is left unrecorded so it is written in full
+					if (related instanceof Iterable)
+						mRelated.put(relationship.getName(), toMany((Iterable<Object>) related, policy));
+					break;
+				default:
+					mRelated.put(relationship.getName(), toOne(related, policy));
+				}
+			}
+		} catch (IllegalAccessException e) {
+			throw new InfinitumRuntimeException("Could not read '" + entity.getClass().getName() + "'");
+		}
+	}
+
+	/**
+	 * Indicates if this {@code EntitySnapshot} was taken of the given
+	 * instance.
+	 * 
+	 * @param entity
+	 *            the entity to check
+	 * @return {@code true} if the snapshot is of {@code entity}, {@code false}
+	 *         if not
+	 */
+	public boolean isSnapshotOf(Object entity) {
+		return mEntity == entity;
+	}
+
+	/**
+	 * Returns the column values in the given {@link ContentValues} which
+	 * differ from this snapshot.
+	 * 
+	 * @param values
+	 *            the entity's current column values
+	 * @return new {@code ContentValues} containing only the changed columns
+	 */
+	public ContentValues getChangedValues(ContentValues values) {
+		ContentValues ret = new ContentValues();
+		ret.putAll(values);
+		for (Entry<String, Object> value : values.valueSet()) {
+			String column = value.getKey();
+			if (mValues.containsKey(column) && isEqual(mValues.get(column), value.getValue()))
+				ret.remove(column);
+		}
+		return ret;
+	}
+
+	/**
+	 * Indicates if the given related entity is the same one recorded for the
+	 * given to-one relationship, meaning its foreign key does not need to be
+	 * written.
+	 * 
+	 * @param relationship
+	 *            the {@link ModelRelationship} to check
+	 * @param related
+	 *            the entity's current related entity
+	 * @param policy
+	 *            the {@link PersistencePolicy} used to resolve primary keys
+	 * @return {@code true} if the related entity is unchanged, {@code false}
+	 *         if it changed or was not recorded
+	 */
+	public boolean isRelatedUnchanged(ModelRelationship relationship, Object related, PersistencePolicy policy) {
+		Related recorded = mRelated.get(relationship.getName());
+		if (recorded == null)
+			return false;
+		if (recorded.mLazy != null)
+			return recorded.mLazy == related;
+		if (recorded.mKeys != null || isUnloaded(related))
+			return false;
+		Serializable key = related == null ? null : policy.getPrimaryKey(related);
+		return key == null ? recorded.mKey == null : key.equals(recorded.mKey);
+	}
+
+	/**
+	 * Indicates if the given related entity or collection is the same unloaded
+	 * lazy proxy recorded for the given relationship, meaning it cannot have
+	 * been modified.
+	 * 
+	 * @param relationship
+	 *            the {@link ModelRelationship} to check
+	 * @param related
+	 *            the entity's current related entity or collection
+	 * @return {@code true} if the relationship is untouched, {@code false} if
+	 *         not
+	 */
+	public boolean isRelatedUntouched(ModelRelationship relationship, Object related) {
+		Related recorded = mRelated.get(relationship.getName());
+		return recorded != null && recorded.mLazy != null && recorded.mLazy == related && isUnloaded(related);
+	}
+
+	/**
+	 * Returns the primary keys of the related entities recorded for the given
+	 * to-many relationship.
+	 * 
+	 * @param relationship
+	 *            the {@link ModelRelationship} to retrieve keys for
+	 * @return {@link Set} of related primary keys or {@code null} if they were
+	 *         not recorded
+	 */
+	public Set<Serializable> getRelatedKeys(ModelRelationship relationship) {
+		Related recorded = mRelated.get(relationship.getName());
+		return recorded == null ? null : recorded.mKeys;
+	}
+
+	/**
+	 * Indicates if the given {@link Object} is a lazy proxy or
+	 * {@link LazyLoadCollection} which has not been loaded yet.
+	 * 
+	 * @param object
+	 *            the {@code Object} to check
+	 * @return {@code true} if it is an unloaded lazy proxy or collection,
+	 *         {@code false} if not
+	 */
+	public static boolean isUnloaded(Object object) {
+		if (object instanceof LazyLoadCollection)
+			return !((LazyLoadCollection<?>) object).isLoaded();
+		if (object == null || !AopProxy.isAopProxy(object))
+			return false;
+		AopProxy proxy = AopProxy.getProxy(object);
+		return proxy instanceof LazyLoadDexMakerProxy && !((LazyLoadDexMakerProxy) proxy).isLoaded();
+	}
+
+	private static Related toMany(Iterable<Object> related, PersistencePolicy policy) {
+		if (isUnloaded(related))
+			return new Related(related, null, null);
+		Set<Serializable> keys = new HashSet<Serializable>();
+		for (Object entity : related) {
+			if (entity != null)
+				keys.add(policy.getPrimaryKey(entity));
+		}
+		return new Related(null, null, keys);
+	}
+
+	private static Related toOne(Object related, PersistencePolicy policy) {
+		if (isUnloaded(related))
+			return new Related(related, null, null);
+		return new Related(null, related == null ? null : policy.getPrimaryKey(related), null);
+	}
+
+	private static boolean isEqual(Object first, Object second) {
+		if (first instanceof byte[] && second instanceof byte[])
+			return Arrays.equals((byte[]) first, (byte[]) second);
+		return first == null ? second == null : first.equals(second);
+	}
+
+	/**
+	 * The recorded state of a relationship, which is either an unloaded lazy
+	 * proxy, the primary key of a related entity or the primary keys of a
+	 * collection of related entities.
+	 */
+	private static class Related {
+
+		private final Object mLazy;
+		private final Serializable mKey;
+		private final Set<Serializable> mKeys;
+
+		public Related(Object lazy, Serializable key, Set<Serializable> keys) {
+			mLazy = lazy;
+			mKey = key;
+			mKeys = keys;
+		}
+
+	}
+
+}
@@ -0,0 +1,392 @@
+/*
+ * Copyright (c) 2012 Tyler Treat
+ *
+ * This file is part of Infinitum Framework.
+ *
+ * Infinitum Framework is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Infinitum Framework is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Infinitum Framework.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.clarionmedia.infinitum.orm.sqlite.impl;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import android.database.AbstractWindowedCursor;
+import android.database.Cursor;
+import android.database.MatrixCursor;
+
+import com.clarionmedia.infinitum.internal.caching.ConcurrentLruCache;
+import com.clarionmedia.infinitum.orm.criteria.Criteria;
+import com.clarionmedia.infinitum.orm.persistence.EntityKey;
+import com.clarionmedia.infinitum.orm.persistence.PersistencePolicy.CacheStrategy;
+
+/**
+ * <p>
+ * Second-level cache shared by every {@link SqliteSession}. It holds the rows
+ * of entities whose {@link CacheStrategy} is not {@code NONE}, keyed by
+ * {@link EntityKey}, and the rows returned by cacheable {@link Criteria}
+ * queries, keyed by their SQL and arguments. Rows are cached rather than
+ * entities, so every session constructs its own instances from them and no
+ * mutable state is shared between sessions.
+ * </p>
+ * <p>
+ * Each table has a version which is incremented whenever it is written.
+ * Cached query results are stale once the version of any table they read has
+ * changed, and rows read before a write are never cached after it. Every
+ * entry also expires after its timeout.
+ * </p>
+ * 
+ * @author Tyler Treat
+ * @version 1.0 10/17/26
+ * @since 1.0
+ */
+public class SecondLevelCache {
+
+	/**
+	 * The maximum number of cached query results.
+	 */
+	public static final int DEFAULT_QUERY_CACHE_SIZE = 200;
+
+	/**
+	 * The number of seconds query results are cached for.
+	 */
+	public static final long DEFAULT_QUERY_TIMEOUT = 300;
+
+	private static SecondLevelCache sInstance;
+
+	private final ConcurrentMap<Class<?>, Map<EntityKey, CachedRows>> mRegions;
+	private final Map<QueryKey, CachedRows> mQueries;
+	private final ConcurrentMap<String, AtomicLong> mTableVersions;
+	private final Object mLock;
+
+	/**
+	 * Returns the {@code SecondLevelCache} instance.
+	 * 
+	 * @return {@code SecondLevelCache}
+	 */
+	public static synchronized SecondLevelCache getInstance() {
+		if (sInstance == null)
+			sInstance = new SecondLevelCache();
+		return sInstance;
+	}
+
+	private SecondLevelCache() {
+		mRegions = new ConcurrentHashMap<Class<?>, Map<EntityKey, CachedRows>>();
+		mQueries = new ConcurrentLruCache<QueryKey, CachedRows>(DEFAULT_QUERY_CACHE_SIZE);
+		mTableVersions = new ConcurrentHashMap<String, AtomicLong>();
+		mLock = new Object();
+	}
+
+	/**
+	 * Returns the current versions of the given tables. These should be read
+	 * before querying the tables and passed along with the results when they
+	 * are cached.
+	 * 
+	 * @param tables
+	 *            the names of the tables
+	 * @return table versions in the same order as {@code tables}
+	 */
+	public long[] getTableVersions(String... tables) {
+		long[] ret = new long[tables.length];
+		for (int i = 0; i < tables.length; i++)
+			ret[i] = getVersion(tables[i]).get();
+		return ret;
+	}
+
+	/**
+	 * Retrieves the cached row of the entity with the given {@link EntityKey}.
+	 * 
+	 * @param key
+	 *            the {@code EntityKey} of the entity
+	 * @return {@link Cursor} over the cached row or {@code null} if it is not
+	 *         cached
+	 */
+	public Cursor getEntity(EntityKey key) {
+		Map<EntityKey, CachedRows> region = mRegions.get(key.getEntityClass());
+		if (region == null)
+			return null;
+		CachedRows rows = region.get(key);
+		if (rows == null)
+			return null;
+		if (rows.isExpired()) {
+			region.remove(key);
+			return null;
+		}
+		return rows.toCursor();
+	}
+
+	/**
+	 * Caches the row of the entity with the given {@link EntityKey}. The
+	 * row is only cached if {@code table} has not been written since
+	 * {@code version} was read.
+	 * 
+	 * @param key
+	 *            the {@code EntityKey} of the entity
+	 * @param cursor
+	 *            the {@link Cursor} over the entity's row, which is closed if
+	 *            it is cached
+	 * @param table
+	 *            the name of the entity's table
+	 * @param version
+	 *            the version of {@code table} read before the row was
+	 *            queried
+	 * @param maxSize
+	 *            the maximum number of cached entities of the entity's class
+	 * @param timeout
+	 *            the number of seconds to cache the row for, or {@code 0} to
+	 *            cache it until it is evicted
+	 * @return {@code Cursor} over the entity's row, which is {@code cursor} if
+	 *         its rows could not be read
+	 */
+	public Cursor putEntity(EntityKey key, Cursor cursor, String table, long version, int maxSize, long timeout) {
+		CachedRows rows = CachedRows.read(cursor, timeout, null, null);
+		if (rows == null)
+			return cursor;
+		cursor.close();
+		synchronized (mLock) {
+			if (getVersion(table).get() == version)
+				getRegion(key.getEntityClass(), maxSize).put(key, rows);
+		}
+		return rows.toCursor();
+	}
+
+	/**
+	 * Evicts the entity with the given {@link EntityKey} and invalidates the
+	 * cached query results which read its table.
+	 * 
+	 * @param key
+	 *            the {@code EntityKey} of the entity which was written
+	 * @param table
+	 *            the name of the entity's table
+	 */
+	public void invalidate(EntityKey key, String table) {
+		synchronized (mLock) {
+			getVersion(table).incrementAndGet();
+			Map<EntityKey, CachedRows> region = mRegions.get(key.getEntityClass());
+			if (region != null)
+				region.remove(key);
+		}
+	}
+
+	/**
+	 * Invalidates the cached query results which read the given table.
+	 * 
+	 * @param table
+	 *            the name of the table which was written
+	 */
+	public void invalidateTable(String table) {
+		synchronized (mLock) {
+			getVersion(table).incrementAndGet();
+		}
+	}
+
+	/**
+	 * Retrieves the cached results of the given query.
+	 * 
+	 * @param sql
+	 *            the SQL query
+	 * @param args
+	 *            the values bound to the query's parameters
+	 * @return {@link Cursor} over the cached results or {@code null} if they
+	 *         are not cached
+	 */
+	public Cursor getQuery(String sql, String[] args) {
+		QueryKey key = new QueryKey(sql, args);
+		CachedRows rows = mQueries.get(key);
+		if (rows == null)
+			return null;
+		if (rows.isExpired() || !Arrays.equals(rows.mVersions, getTableVersions(rows.mTables))) {
+			mQueries.remove(key);
+			return null;
+		}
+		return rows.toCursor();
+	}
+
+	/**
+	 * Caches the results of the given query. The results are only cached if
+	 * none of {@code tables} have been written since {@code versions} were
+	 * read.
+	 * 
+	 * @param sql
+	 *            the SQL query
+	 * @param args
+	 *            the values bound to the query's parameters
+	 * @param cursor
+	 *            the {@link Cursor} over the query results, which is closed
+	 *            if they are cached
+	 * @param tables
+	 *            the names of the tables read by the query
+	 * @param versions
+	 *            the versions of {@code tables} read before the query was
+	 *            executed
+	 * @return {@code Cursor} over the query results, which is {@code cursor}
+	 *         if its rows could not be read
+	 */
+	public Cursor putQuery(String sql, String[] args, Cursor cursor, String[] tables, long[] versions) {
+		CachedRows rows = CachedRows.read(cursor, DEFAULT_QUERY_TIMEOUT, tables, versions);
+		if (rows == null)
+			return cursor;
+		cursor.close();
+		synchronized (mLock) {
+			if (Arrays.equals(versions, getTableVersions(tables)))
+				mQueries.put(new QueryKey(sql, args), rows);
+		}
+		return rows.toCursor();
+	}
+
+	/**
+	 * Evicts every cached entity and query result. This should be called
+	 * when the database is modified in a way the cache cannot track, such as
+	 * with arbitrary SQL.
+	 */
+	public void clear() {
+		synchronized (mLock) {
+			// Rows being read now must not be cached once they complete
+			for (AtomicLong version : mTableVersions.values())
+				version.incrementAndGet();
+			for (Map<EntityKey, CachedRows> region : mRegions.values())
+				region.clear();
+			mQueries.clear();
+		}
+	}
+
+	private Map<EntityKey, CachedRows> getRegion(Class<?> c, int maxSize) {
+		Map<EntityKey, CachedRows> region = mRegions.get(c);
+		if (region == null) {
+			region = new ConcurrentLruCache<EntityKey, CachedRows>(maxSize);
+			Map<EntityKey, CachedRows> existing = mRegions.putIfAbsent(c, region);
+			if (existing != null)
+				region = existing;
+		}
+		return region;
+	}
+
+	private AtomicLong getVersion(String table) {
+		AtomicLong version = mTableVersions.get(table);
+		if (version == null) {
+			version = new AtomicLong();
+			AtomicLong existing = mTableVersions.putIfAbsent(table, version);
+			if (existing != null)
+				version = existing;
+		}
+		return version;
+	}
+
+	/**
+	 * Rows read from a {@link Cursor}, along with when they expire and the
+	 * versions of the tables they were read from.
+	 */
+	private static class CachedRows {
+
+		private final String[] mColumns;
+		private final List<Object[]> mRows;
+		private final long mDeadline;
+		private final String[] mTables;
+		private final long[] mVersions;
+
+		public static CachedRows read(Cursor cursor, long timeout, String[] tables, long[] versions) {
+			// Column types can only be read from a windowed cursor on this API level
+			if (!(cursor instanceof AbstractWindowedCursor))
+				return null;
+			AbstractWindowedCursor windowed = (AbstractWindowedCursor) cursor;
+			int columnCount = windowed.getColumnCount();
+			List<Object[]> rows = new ArrayList<Object[]>(windowed.getCount());
+			windowed.moveToPosition(-1);
+			while (windowed.moveToNext()) {
+				Object[] row = new Object[columnCount];
+				for (int i = 0; i < columnCount; i++)
+					row[i] = readValue(windowed, i);
+				rows.add(row);
+			}
+			long deadline = timeout > 0 ? System.currentTimeMillis() + timeout * 1000 : Long.MAX_VALUE;
+			return new CachedRows(windowed.getColumnNames(), rows, deadline, tables, versions);
+		}
+
+		private static Object readValue(AbstractWindowedCursor cursor, int column) {
+			if (cursor.isNull(column))
+				return null;
+			if (cursor.isLong(column))
+				return cursor.getLong(column);
+			if (cursor.isFloat(column))
+				return cursor.getDouble(column);
+			if (cursor.isBlob(column))
+				return cursor.getBlob(column);
+			return cursor.getString(column);
+		}
+
+		public CachedRows(String[] columns, List<Object[]> rows, long deadline, String[] tables, long[] versions) {
+			mColumns = columns;
+			mRows = rows;
+			mDeadline = deadline;
+			mTables = tables;
+			mVersions = versions;
+		}
+
+		public boolean isExpired() {
+			return System.currentTimeMillis() > mDeadline;
+		}
+
+		public Cursor toCursor() {
+			MatrixCursor ret = new MatrixCursor(mColumns, mRows.size());
+			for (Object[] row : mRows) {
+				Object[] copy = new Object[row.length];
+				for (int i = 0; i < row.length; i++) {
+					// Blobs are mutable, so each session gets its own copy
+					copy[i] = row[i] instanceof byte[] ? ((byte[]) row[i]).clone() : row[i];
+				}
+				ret.addRow(copy);
+			}
+			return ret;
+		}
+
+	}
+
+	/**
+	 * Identifies a query by its SQL and the values bound to its parameters.
+	 */
+	private static class QueryKey {
+
+		private final String mSql;
+		private final String[] mArgs;
+		private final int mHash;
+
+		public QueryKey(String sql, String[] args) {
+			mSql = sql;
+			mArgs = args;
+			mHash = 31 * sql.hashCode() + Arrays.hashCode(args);
+		}
+
+		@Override
+		public int hashCode() {
+			return mHash;
+		}
+
+		@Override
+		public boolean equals(Object other) {
+			if (this == other)
+				return true;
+			if (!(other instanceof QueryKey))
+				return false;
+			QueryKey key = (QueryKey) other;
+			return mHash == key.mHash && mSql.equals(key.mSql) && Arrays.equals(mArgs, key.mArgs);
+		}
+
+	}
+
+}
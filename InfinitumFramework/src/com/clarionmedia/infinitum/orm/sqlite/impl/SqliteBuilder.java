@@ -21,7 +21,10 @@ package com.clarionmedia.infinitum.orm.sqlite.impl;
 
 import java.io.Serializable;
 import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 import android.database.sqlite.SQLiteDatabase;
 
@@ -32,15 +35,21 @@ import com.clarionmedia.infinitum.di.annotation.PostConstruct;
 import com.clarionmedia.infinitum.exception.InfinitumRuntimeException;
 import com.clarionmedia.infinitum.internal.PropertyLoader;
 import com.clarionmedia.infinitum.orm.criteria.Criteria;
+import com.clarionmedia.infinitum.orm.criteria.Order;
 import com.clarionmedia.infinitum.orm.criteria.criterion.Criterion;
+import com.clarionmedia.infinitum.orm.criteria.projection.Projection;
+import com.clarionmedia.infinitum.orm.exception.InvalidCriteriaException;
 import com.clarionmedia.infinitum.orm.exception.ModelConfigurationException;
 import com.clarionmedia.infinitum.orm.persistence.PersistencePolicy;
 import com.clarionmedia.infinitum.orm.persistence.TypeResolutionPolicy.SqliteDataType;
+import com.clarionmedia.infinitum.orm.relationship.ForeignKeyRelationship;
 import com.clarionmedia.infinitum.orm.relationship.ManyToManyRelationship;
+import com.clarionmedia.infinitum.orm.relationship.ModelRelationship;
 import com.clarionmedia.infinitum.orm.relationship.OneToManyRelationship;
 import com.clarionmedia.infinitum.orm.relationship.OneToOneRelationship;
 import com.clarionmedia.infinitum.orm.sql.SqlBuilder;
 import com.clarionmedia.infinitum.orm.sql.SqlConstants;
+import com.clarionmedia.infinitum.orm.sql.SqlQuery;
 import com.clarionmedia.infinitum.reflection.PackageReflector;
 
 /**
@@ -54,6 +63,16 @@ import com.clarionmedia.infinitum.reflection.PackageReflector;
  */
 public class SqliteBuilder implements SqlBuilder {
 
+	/**
+	 * The maximum number of {@link Criteria} query shapes whose SQL is cached.
+	 * Queries differing only in their bound values share a single entry.
+	 */
+	public static final int QUERY_CACHE_SIZE = 64;
+
+	private static final char SELECT_QUERY = 'S';
+	private static final char COUNT_QUERY = 'C';
+	private static final char PROJECTION_QUERY = 'P';
+
 	// TODO: this class currently doesn't handle reserved keywords.
 	// See: http://www.sqlite.org/lang_keywords.html
 
@@ -71,6 +90,17 @@ public class SqliteBuilder implements SqlBuilder {
 
 	private PropertyLoader mPropLoader;
 
+	private final Map<String, String> mQueryCache = new LinkedHashMap<String, String>(16, 0.75f, true) {
+
+		private static final long serialVersionUID = 3472181095376502516L;
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<String, String> eldest) {
+			return size() > QUERY_CACHE_SIZE;
+		}
+
+	};
+
 	@PostConstruct
 	private void init() {
 		mPropLoader = new PropertyLoader(mContext.getAndroidContext());
@@ -123,49 +153,85 @@ public class SqliteBuilder implements SqlBuilder {
 	}
 
 	@Override
-	public String createQuery(Criteria<?> criteria) {
+	public SqlQuery createQuery(Criteria<?> criteria) {
+		return createQuery(criteria, criteria.getLimit(), criteria.getOffset());
+	}
+
+	@Override
+	public SqlQuery createQuery(Criteria<?> criteria, int limit, int offset) {
+		return createQuery(criteria, limit, offset, criteria.getSeekKeys());
+	}
+
+	@Override
+	public SqlQuery createSeekQuery(Criteria<?> criteria, int limit, Object[] keys) {
+		return createQuery(criteria, limit, 0, keys);
+	}
+
+	@Override
+	public SqlQuery createSeekQuery(Criteria<?> criteria, int limit, int offset, Object[] keys) {
+		return createQuery(criteria, limit, offset, keys);
+	}
+
+	@Override
+	public SqlQuery createProjectionQuery(Criteria<?> criteria) {
 		Class<?> c = criteria.getEntityClass();
-		StringBuilder query = new StringBuilder(SqlConstants.SELECT_ALL_FROM)
-				.append(mPersistencePolicy.getModelTableName(c));
-		String prefix = " WHERE ";
-		for (Criterion criterion : criteria.getCriterion()) {
-			query.append(prefix);
-			prefix = ' ' + SqlConstants.AND + ' ';
-			query.append(criterion.toSql(criteria));
-		}
-		if (criteria.getLimit() > 0)
-			query.append(' ').append(SqlConstants.LIMIT).append(' ')
-					.append(criteria.getLimit());
-		if (criteria.getOffset() > 0)
-			query.append(' ').append(SqlConstants.OFFSET).append(' ')
-					.append(criteria.getOffset());
-		return query.toString();
+		List<Criterion> criterion = criteria.getCriterion();
+		Object[] keys = criteria.getSeekKeys();
+		int limit = criteria.getLimit();
+		int offset = criteria.getOffset();
+		String shape = getShape(PROJECTION_QUERY, c, criteria, criterion, keys, limit, offset);
+		String sql = getCachedQuery(shape);
+		if (sql == null) {
+			StringBuilder query = new StringBuilder("SELECT ");
+			StringBuilder groupBy = new StringBuilder();
+			String prefix = "";
+			for (Projection projection : criteria.getProjections()) {
+				query.append(prefix);
+				prefix = ", ";
+				String column = projection.getFieldName() == null ? "*" : getColumnName(criteria, projection.getFieldName());
+				if (projection.getFunction() == null)
+					query.append(column);
+				else
+					query.append(projection.getFunction()).append('(').append(column).append(')');
+				if (projection.isGrouped()) {
+					if (groupBy.length() > 0)
+						groupBy.append(", ");
+					groupBy.append(column);
+				}
+			}
+			query.append(" FROM ").append(mPersistencePolicy.getModelTableName(c));
+			appendRestrictions(criteria, criterion, keys, query);
+			if (groupBy.length() > 0)
+				query.append(' ').append(SqlConstants.GROUP_BY).append(' ').append(groupBy);
+			appendOrders(criteria, keys != null, null, query);
+			appendLimit(query, limit, offset);
+			sql = cacheQuery(shape, query.toString());
+		}
+		return new SqlQuery(sql, getArgs(criteria, criterion, keys, limit, offset));
 	}
 
 	@Override
-	public String createCountQuery(Criteria<?> criteria) {
+	public SqlQuery createCountQuery(Criteria<?> criteria) {
 		Class<?> c = criteria.getEntityClass();
-		StringBuilder query = new StringBuilder(SqlConstants.SELECT_COUNT_FROM)
-				.append(mPersistencePolicy.getModelTableName(c));
-		String prefix = " WHERE ";
-		for (Criterion criterion : criteria.getCriterion()) {
-			query.append(prefix);
-			prefix = ' ' + SqlConstants.AND + ' ';
-			query.append(criterion.toSql(criteria));
-		}
-		if (criteria.getLimit() > 0)
-			query.append(' ').append(SqlConstants.LIMIT).append(' ')
-					.append(criteria.getLimit());
-		if (criteria.getOffset() > 0)
-			query.append(' ').append(SqlConstants.OFFSET).append(' ')
-					.append(criteria.getOffset());
-		return query.toString();
+		List<Criterion> criterion = criteria.getCriterion();
+		Object[] keys = criteria.getSeekKeys();
+		int limit = criteria.getLimit();
+		int offset = criteria.getOffset();
+		String shape = getShape(COUNT_QUERY, c, criteria, criterion, keys, limit, offset);
+		String sql = getCachedQuery(shape);
+		if (sql == null) {
+			StringBuilder query = new StringBuilder(SqlConstants.SELECT_COUNT_FROM)
+					.append(mPersistencePolicy.getModelTableName(c));
+			appendRestrictions(criteria, criterion, keys, query);
+			appendLimit(query, limit, offset);
+			sql = cacheQuery(shape, query.toString());
+		}
+		return new SqlQuery(sql, getArgs(criteria, criterion, keys, limit, offset));
 	}
 
 	@Override
 	public String createManyToManyJoinQuery(ManyToManyRelationship rel,
-			Serializable id, Class<?> direction)
-			throws InfinitumRuntimeException {
+			Class<?> direction) throws InfinitumRuntimeException {
 		if (!rel.contains(direction))
 			throw new InfinitumRuntimeException(
 					String.format(
@@ -243,14 +309,7 @@ public class SqliteBuilder implements SqlBuilder {
 					.append(mPersistencePolicy.getFieldColumnName(rel
 							.getFirstField())).append(" = ");
 		}
-		switch (mMapper.getSqliteDataType(id)) {
-		case TEXT:
-			query.append("'").append(id).append("'");
-			break;
-		default:
-			query.append(id);
-		}
-		return query.toString();
+		return query.append('?').toString();
 	}
 
 	@Override
@@ -444,6 +503,470 @@ public class SqliteBuilder implements SqlBuilder {
 		return update.toString();
 	}
 
+	@Override
+	public String createInsertStatement(Class<?> c, String[] columns) {
+		StringBuilder sb = new StringBuilder(SqlConstants.INSERT_INTO)
+				.append(mPersistencePolicy.getModelTableName(c)).append(" (");
+		StringBuilder params = new StringBuilder();
+		String prefix = "";
+		for (String column : columns) {
+			sb.append(prefix).append(column);
+			params.append(prefix).append('?');
+			prefix = ", ";
+		}
+		return sb.append(") ").append(SqlConstants.VALUES).append(" (")
+				.append(params).append(')').toString();
+	}
+
+	@Override
+	public String createUpdateStatement(Class<?> c, String[] columns) {
+		StringBuilder sb = new StringBuilder(SqlConstants.UPDATE).append(' ')
+				.append(mPersistencePolicy.getModelTableName(c)).append(' ')
+				.append(SqlConstants.SET).append(' ');
+		String prefix = "";
+		for (String column : columns) {
+			sb.append(prefix).append(column).append(" = ?");
+			prefix = ", ";
+		}
+		return appendPrimaryKeyCondition(c, sb).toString();
+	}
+
+	@Override
+	public String createUpdateColumnStatement(Class<?> c, String column) {
+		StringBuilder sb = new StringBuilder(SqlConstants.UPDATE).append(' ')
+				.append(mPersistencePolicy.getModelTableName(c)).append(' ')
+				.append(SqlConstants.SET).append(' ').append(column)
+				.append(" = ?");
+		return appendPrimaryKeyCondition(c, sb).toString();
+	}
+
+	@Override
+	public String createUpdateColumnInStatement(Class<?> c, String column,
+			int keyCount) {
+		Field pkField = mPersistencePolicy.getPrimaryKeyField(c);
+		StringBuilder sb = new StringBuilder(SqlConstants.UPDATE).append(' ')
+				.append(mPersistencePolicy.getModelTableName(c)).append(' ')
+				.append(SqlConstants.SET).append(' ').append(column)
+				.append(" = ? ").append(SqlConstants.WHERE).append(' ')
+				.append(mPersistencePolicy.getFieldColumnName(pkField))
+				.append(' ').append(SqlConstants.IN).append(" (");
+		return appendPlaceholders(sb, keyCount).append(')').toString();
+	}
+
+	@Override
+	public String createRelatedQuery(Class<?> c, String column) {
+		return new StringBuilder(SqlConstants.SELECT_ALL_FROM)
+				.append(mPersistencePolicy.getModelTableName(c)).append(' ')
+				.append(SqlConstants.WHERE).append(' ').append(column)
+				.append(" = ?").toString();
+	}
+
+	@Override
+	public String createBatchQuery(Class<?> c, String column, int keyCount) {
+		StringBuilder sb = new StringBuilder(SqlConstants.SELECT_ALL_FROM)
+				.append(mPersistencePolicy.getModelTableName(c)).append(' ')
+				.append(SqlConstants.WHERE).append(' ').append(column)
+				.append(' ').append(SqlConstants.IN).append(" (");
+		return appendPlaceholders(sb, keyCount).append(')').toString();
+	}
+
+	@Override
+	public String createBatchKeyQuery(Class<?> c, String column, int keyCount) {
+		StringBuilder sb = new StringBuilder("SELECT DISTINCT ").append(column)
+				.append(" FROM ").append(mPersistencePolicy.getModelTableName(c))
+				.append(' ').append(SqlConstants.WHERE).append(' ')
+				.append(column).append(' ').append(SqlConstants.IN)
+				.append(" (");
+		return appendPlaceholders(sb, keyCount).append(')').toString();
+	}
+
+	@Override
+	public String createManyToManyBatchJoinQuery(ManyToManyRelationship rel,
+			Class<?> direction, int keyCount) throws InfinitumRuntimeException {
+		if (!rel.contains(direction))
+			throw new InfinitumRuntimeException(
+					String.format(
+							"'%s' is not a valid direction for relationship '%s'<=>'%s'.",
+							direction.getName(), rel.getFirstType().getName(),
+							rel.getSecondType().getName()));
+		String firstColumn = mPersistencePolicy.getFieldColumnName(rel.getFirstField());
+		String secondColumn = mPersistencePolicy.getFieldColumnName(rel.getSecondField());
+		String firstJoinColumn = mPersistencePolicy.getModelTableName(rel.getFirstType()) + '_' + firstColumn;
+		String secondJoinColumn = mPersistencePolicy.getModelTableName(rel.getSecondType()) + '_' + secondColumn;
+		boolean isFirst = direction == rel.getFirstType();
+		StringBuilder sb = new StringBuilder("SELECT x.*, z.")
+				.append(isFirst ? secondJoinColumn : firstJoinColumn)
+				.append(' ').append(SqlConstants.BATCH_KEY_ALIAS)
+				.append(" FROM ")
+				.append(mPersistencePolicy.getModelTableName(direction))
+				.append(" x, ").append(rel.getTableName()).append(" z ")
+				.append(SqlConstants.WHERE).append(" z.")
+				.append(isFirst ? firstJoinColumn : secondJoinColumn)
+				.append(" = x.").append(isFirst ? firstColumn : secondColumn)
+				.append(' ').append(SqlConstants.AND).append(" z.")
+				.append(isFirst ? secondJoinColumn : firstJoinColumn)
+				.append(' ').append(SqlConstants.IN).append(" (");
+		return appendPlaceholders(sb, keyCount).append(')').toString();
+	}
+
+	@Override
+	public String createDeleteStatement(Class<?> c) {
+		StringBuilder sb = new StringBuilder(SqlConstants.DELETE_FROM)
+				.append(mPersistencePolicy.getModelTableName(c));
+		return appendPrimaryKeyCondition(c, sb).toString();
+	}
+
+	@Override
+	public String createLoadStatement(Class<?> c) {
+		StringBuilder sb = new StringBuilder(SqlConstants.SELECT_ALL_FROM)
+				.append(mPersistencePolicy.getModelTableName(c));
+		return appendPrimaryKeyCondition(c, sb).append(' ')
+				.append(SqlConstants.LIMIT).append(" 1").toString();
+	}
+
+	@Override
+	public String createDeleteStaleRelationshipStatement(
+			ManyToManyRelationship rel, Class<?> c, int keyCount) {
+		String firstCol = mPersistencePolicy.getModelTableName(rel
+				.getFirstType())
+				+ '_'
+				+ mPersistencePolicy.getFieldColumnName(rel.getFirstField());
+		String secondCol = mPersistencePolicy.getModelTableName(rel
+				.getSecondType())
+				+ '_'
+				+ mPersistencePolicy.getFieldColumnName(rel.getSecondField());
+		boolean first = c == rel.getFirstType();
+		StringBuilder sb = new StringBuilder(SqlConstants.DELETE_FROM)
+				.append(rel.getTableName()).append(' ')
+				.append(SqlConstants.WHERE).append(' ')
+				.append(first ? firstCol : secondCol).append(" = ? ")
+				.append(SqlConstants.AND).append(' ')
+				.append(first ? secondCol : firstCol).append(' ')
+				.append(SqlConstants.NOT_IN).append(" (");
+		String prefix = "";
+		for (int i = 0; i < keyCount; i++) {
+			sb.append(prefix).append('?');
+			prefix = ", ";
+		}
+		return sb.append(')').toString();
+	}
+
+	/**
+	 * Wraps the given query, which selects instances of {@code c}, in a query
+	 * which left joins each fetched relationship. The joined columns of the
+	 * i-th relationship are aliased with the prefix
+	 * {@link SqlConstants#FETCH_ALIAS_FORMAT}. The original query remains a
+	 * subquery so that its restrictions, limit and offset apply to
+	 * {@code c} alone.
+	 */
+	private String createFetchQuery(Class<?> c, List<Field> fetches, String query) {
+		String pkColumn = mPersistencePolicy.getFieldColumnName(mPersistencePolicy.getPrimaryKeyField(c));
+		StringBuilder select = new StringBuilder("SELECT t0.*");
+		StringBuilder from = new StringBuilder(" FROM (").append(query).append(") t0");
+		for (int i = 0; i < fetches.size(); i++) {
+			ModelRelationship rel = mPersistencePolicy.getRelationship(fetches.get(i));
+			Class<?> related = getRelatedType(rel, c);
+			String alias = "f" + i;
+			String prefix = String.format(SqlConstants.FETCH_ALIAS_FORMAT, i);
+			for (String column : getColumnNames(related))
+				select.append(", ").append(alias).append('.').append(column).append(' ').append(prefix).append(column);
+			String relatedTable = mPersistencePolicy.getModelTableName(related);
+			String relatedPkColumn = mPersistencePolicy.getFieldColumnName(mPersistencePolicy.getPrimaryKeyField(related));
+			from.append(" LEFT JOIN ");
+			switch (rel.getRelationType()) {
+			case ManyToOne:
+				from.append(relatedTable).append(' ').append(alias).append(" ON ").append(alias).append('.').append(relatedPkColumn)
+						.append(" = t0.").append(((ForeignKeyRelationship) rel).getColumn());
+				break;
+			case OneToOne:
+				OneToOneRelationship oto = (OneToOneRelationship) rel;
+				from.append(relatedTable).append(' ').append(alias).append(" ON ").append(alias).append('.');
+				if (oto.getOwner() == c)
+					from.append(relatedPkColumn).append(" = t0.").append(oto.getColumn());
+				else
+					from.append(oto.getColumn()).append(" = t0.").append(pkColumn);
+				break;
+			case OneToMany:
+				from.append(relatedTable).append(' ').append(alias).append(" ON ").append(alias).append('.')
+						.append(((OneToManyRelationship) rel).getColumn()).append(" = t0.").append(pkColumn);
+				break;
+			case ManyToMany:
+				ManyToManyRelationship mtm = (ManyToManyRelationship) rel;
+				boolean isFirst = c == mtm.getFirstType();
+				String column = mPersistencePolicy.getFieldColumnName(isFirst ? mtm.getFirstField() : mtm.getSecondField());
+				String relatedColumn = mPersistencePolicy.getFieldColumnName(isFirst ? mtm.getSecondField() : mtm.getFirstField());
+				String joinAlias = "j" + i;
+				from.append(mtm.getTableName()).append(' ').append(joinAlias).append(" ON ").append(joinAlias).append('.')
+						.append(mPersistencePolicy.getModelTableName(c)).append('_').append(column).append(" = t0.").append(column)
+						.append(" LEFT JOIN ").append(relatedTable).append(' ').append(alias).append(" ON ").append(alias)
+						.append('.').append(relatedColumn).append(" = ").append(joinAlias).append('.').append(relatedTable)
+						.append('_').append(relatedColumn);
+				break;
+			}
+		}
+		return select.append(from).toString();
+	}
+
+	private Class<?> getRelatedType(ModelRelationship rel, Class<?> c) {
+		switch (rel.getRelationType()) {
+		case OneToMany:
+			return ((OneToManyRelationship) rel).getManyType();
+		case OneToOne:
+			return rel.getSecondType();
+		default:
+			return c == rel.getFirstType() ? rel.getSecondType() : rel.getFirstType();
+		}
+	}
+
+	// Mirrors the columns created by appendColumns
+	private List<String> getColumnNames(Class<?> c) {
+		List<String> columns = new ArrayList<String>();
+		for (Field f : mPersistencePolicy.getPersistentFields(c)) {
+			if (mPersistencePolicy.isManyToManyRelationship(f))
+				continue;
+			if (mPersistencePolicy.isOneToOneRelationship(f)
+					&& ((OneToOneRelationship) mPersistencePolicy.getRelationship(f)).getOwner() != c)
+				continue;
+			if (mMapper.getSqliteDataType(f) == null)
+				continue;
+			columns.add(mPersistencePolicy.getFieldColumnName(f));
+		}
+		return columns;
+	}
+
+	private SqlQuery createQuery(Criteria<?> criteria, int limit, int offset, Object[] keys) {
+		Class<?> c = criteria.getEntityClass();
+		List<Criterion> criterion = criteria.getCriterion();
+		String shape = getShape(SELECT_QUERY, c, criteria, criterion, keys, limit, offset);
+		String sql = getCachedQuery(shape);
+		if (sql == null) {
+			StringBuilder query = new StringBuilder(SqlConstants.SELECT_ALL_FROM)
+					.append(mPersistencePolicy.getModelTableName(c));
+			appendRestrictions(criteria, criterion, keys, query);
+			appendOrders(criteria, keys != null, null, query);
+			appendLimit(query, limit, offset);
+			if (!criteria.getFetches().isEmpty()) {
+				query = new StringBuilder(createFetchQuery(c, criteria.getFetches(), query.toString()));
+				// The subquery's ordering does not carry through the joins
+				appendOrders(criteria, keys != null, "t0", query);
+			}
+			sql = cacheQuery(shape, query.toString());
+		}
+		return new SqlQuery(sql, getArgs(criteria, criterion, keys, limit, offset));
+	}
+
+	/*
+	 * Describes the SQL generated for a Criteria independently of the values
+	 * bound to it, so that queries differing only in their values share a
+	 * cached SQL string.
+	 */
+	private String getShape(char type, Class<?> c, Criteria<?> criteria, List<Criterion> criterion, Object[] keys, int limit,
+			int offset) {
+		StringBuilder shape = new StringBuilder().append(type).append(c.getName());
+		for (Criterion crit : criterion)
+			shape.append('|').append(crit.getShape(criteria));
+		shape.append("|o");
+		for (Order order : criteria.getOrders())
+			shape.append(order.getFieldName()).append(order.isAscending() ? '+' : '-');
+		shape.append("|f");
+		for (Field f : criteria.getFetches())
+			shape.append(f.getName()).append(',');
+		shape.append("|p");
+		for (Projection projection : criteria.getProjections())
+			shape.append(projection.getFunction()).append(' ').append(projection.getFieldName())
+					.append(projection.isGrouped() ? '#' : ',');
+		shape.append("|s").append(keys == null ? -1 : keys.length);
+		if (keys != null) {
+			// Null keys are compared with IS NULL rather than bound
+			for (Object key : keys)
+				shape.append(key == null ? 'n' : 'v');
+		}
+		if (limit > 0)
+			shape.append("|l");
+		if (offset > 0)
+			shape.append("|x");
+		return shape.toString();
+	}
+
+	private String getCachedQuery(String shape) {
+		synchronized (mQueryCache) {
+			return mQueryCache.get(shape);
+		}
+	}
+
+	private String cacheQuery(String shape, String sql) {
+		synchronized (mQueryCache) {
+			mQueryCache.put(shape, sql);
+		}
+		return sql;
+	}
+
+	// Collects the bound values in the order their placeholders appear
+	private String[] getArgs(Criteria<?> criteria, List<Criterion> criterion, Object[] keys, int limit, int offset) {
+		List<String> args = new ArrayList<String>();
+		for (Criterion crit : criterion)
+			crit.appendArgs(criteria, args);
+		if (keys != null && keys.length > 0)
+			appendSeekArgs(criteria, keys, args);
+		if (limit > 0)
+			args.add(Integer.toString(limit));
+		if (offset > 0)
+			args.add(Integer.toString(offset));
+		return args.toArray(new String[args.size()]);
+	}
+
+	private StringBuilder appendRestrictions(Criteria<?> criteria, List<Criterion> criterion, Object[] keys, StringBuilder sb) {
+		String prefix = " WHERE ";
+		for (Criterion crit : criterion) {
+			sb.append(prefix);
+			prefix = ' ' + SqlConstants.AND + ' ';
+			sb.append(crit.toSql(criteria));
+		}
+		if (keys != null && keys.length > 0)
+			appendSeekCondition(criteria, keys, sb.append(prefix));
+		return sb;
+	}
+
+	/*
+	 * Restricts results to those after the given keys in the seek ordering.
+	 * Row values are not supported by the SQLite versions shipped with older
+	 * Android releases, so (a, b) > (?, ?) is expanded to
+	 * (a > ? OR (a = ? AND b > ?)). SQLite sorts NULL before every other
+	 * value, so a null key is matched with IS NULL, nothing follows a null in
+	 * descending order, and NULL follows every value in descending order.
+	 */
+	private void appendSeekCondition(Criteria<?> criteria, Object[] keys, StringBuilder sb) {
+		List<Order> orders = getSeekOrders(criteria);
+		checkSeekKeys(criteria, orders, keys.length);
+		String[] columns = new String[keys.length];
+		for (int i = 0; i < keys.length; i++)
+			columns[i] = getColumnName(criteria, orders.get(i).getFieldName());
+		sb.append('(');
+		String prefix = "";
+		for (int i = 0; i < keys.length; i++) {
+			boolean ascending = orders.get(i).isAscending();
+			if (keys[i] == null && !ascending)
+				continue;
+			sb.append(prefix).append('(');
+			prefix = ' ' + SqlConstants.OR + ' ';
+			for (int j = 0; j < i; j++) {
+				sb.append(columns[j]).append(' ');
+				if (keys[j] == null)
+					sb.append(SqlConstants.IS_NULL);
+				else
+					sb.append(SqlConstants.OP_EQUALS).append(" ?");
+				sb.append(' ').append(SqlConstants.AND).append(' ');
+			}
+			if (keys[i] == null)
+				sb.append(columns[i]).append(' ').append(SqlConstants.IS_NOT_NULL);
+			else if (ascending)
+				sb.append(columns[i]).append(' ').append(SqlConstants.OP_GREATER_THAN).append(" ?");
+			else if (i == 0)
+				sb.append(columns[i]).append(' ').append(SqlConstants.OP_LESS_THAN).append(" ? ").append(SqlConstants.OR)
+						.append(' ').append(columns[i]).append(' ').append(SqlConstants.IS_NULL);
+			else
+				sb.append('(').append(columns[i]).append(' ').append(SqlConstants.OP_LESS_THAN).append(" ? ")
+						.append(SqlConstants.OR).append(' ').append(columns[i]).append(' ').append(SqlConstants.IS_NULL).append(')');
+			sb.append(')');
+		}
+		// Every key was null in descending order, so no row follows them
+		if (prefix.length() == 0)
+			sb.append('0');
+		sb.append(')');
+	}
+
+	// Binds the keys in the order of the placeholders created by appendSeekCondition
+	private void appendSeekArgs(Criteria<?> criteria, Object[] keys, List<String> args) {
+		List<Order> orders = getSeekOrders(criteria);
+		checkSeekKeys(criteria, orders, keys.length);
+		Class<?> c = criteria.getEntityClass();
+		String[] values = new String[keys.length];
+		for (int i = 0; i < keys.length; i++) {
+			Object key = keys[i];
+			if (key == null)
+				continue;
+			Field f = mPersistencePolicy.findPersistentField(c, orders.get(i).getFieldName());
+			if (f != null && mPersistencePolicy.isToOneRelationship(f))
+				key = mPersistencePolicy.getPrimaryKey(key);
+			values[i] = SqlQuery.toArg(key);
+		}
+		for (int i = 0; i < keys.length; i++) {
+			if (keys[i] == null && !orders.get(i).isAscending())
+				continue;
+			for (int j = 0; j < i; j++) {
+				if (values[j] != null)
+					args.add(values[j]);
+			}
+			if (values[i] != null)
+				args.add(values[i]);
+		}
+	}
+
+	private void checkSeekKeys(Criteria<?> criteria, List<Order> orders, int keyCount) {
+		if (keyCount != orders.size())
+			throw new InvalidCriteriaException(String.format("Criteria query for '%s' requires %d seek keys but %d were given.",
+					criteria.getEntityClass().getName(), orders.size(), keyCount));
+	}
+
+	// The criteria's ordering, followed by its primary key unless already included
+	private List<Order> getSeekOrders(Criteria<?> criteria) {
+		List<Order> orders = new ArrayList<Order>(criteria.getOrders());
+		String pkName = mPersistencePolicy.getPrimaryKeyField(criteria.getEntityClass()).getName();
+		for (Order order : orders) {
+			if (order.getFieldName().equalsIgnoreCase(pkName))
+				return orders;
+		}
+		orders.add(new Order(pkName, true));
+		return orders;
+	}
+
+	private StringBuilder appendOrders(Criteria<?> criteria, boolean seeking, String alias, StringBuilder sb) {
+		String prefix = " " + SqlConstants.ORDER_BY + " ";
+		for (Order order : seeking ? getSeekOrders(criteria) : criteria.getOrders()) {
+			sb.append(prefix);
+			prefix = ", ";
+			if (alias != null)
+				sb.append(alias).append('.');
+			sb.append(getColumnName(criteria, order.getFieldName())).append(' ')
+					.append(order.isAscending() ? SqlConstants.ASCENDING : SqlConstants.DESCENDING);
+		}
+		return sb;
+	}
+
+	private StringBuilder appendLimit(StringBuilder sb, int limit, int offset) {
+		if (limit > 0)
+			sb.append(' ').append(SqlConstants.LIMIT).append(" ?");
+		if (offset > 0)
+			sb.append(' ').append(SqlConstants.OFFSET).append(" ?");
+		return sb;
+	}
+
+	// Resolves the column of a field named in a Criteria, which must be stored in the entity's table
+	private String getColumnName(Criteria<?> criteria, String fieldName) {
+		Class<?> c = criteria.getEntityClass();
+		Field f = mPersistencePolicy.findPersistentField(c, fieldName);
+		String column = f == null ? null : mPersistencePolicy.getFieldColumnName(f);
+		if (column == null || !getColumnNames(c).contains(column))
+			throw new InvalidCriteriaException(String.format(mPropLoader.getErrorMessage("INVALID_CRITERIA"), c.getName()));
+		return column;
+	}
+
+	private StringBuilder appendPlaceholders(StringBuilder sb, int count) {
+		String prefix = "";
+		for (int i = 0; i < count; i++) {
+			sb.append(prefix).append('?');
+			prefix = ", ";
+		}
+		return sb;
+	}
+
+	private StringBuilder appendPrimaryKeyCondition(Class<?> c, StringBuilder sb) {
+		Field pkField = mPersistencePolicy.getPrimaryKeyField(c);
+		return sb.append(' ').append(SqlConstants.WHERE).append(' ')
+				.append(mPersistencePolicy.getFieldColumnName(pkField))
+				.append(" = ?");
+	}
+
 	private String createManyToManyTableString(ManyToManyRelationship rel)
 			throws ModelConfigurationException {
 		if (!mPersistencePolicy.isPersistent(rel.getFirstType())
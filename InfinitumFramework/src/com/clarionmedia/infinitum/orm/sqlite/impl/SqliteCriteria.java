@@ -19,19 +19,34 @@
 
 package com.clarionmedia.infinitum.orm.sqlite.impl;
 
+import java.lang.reflect.Field;
 import java.util.ArrayList;
+import java.util.Date;
+import java.util.LinkedHashSet;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Set;
 
 import android.database.Cursor;
 
+import com.clarionmedia.infinitum.aop.AopProxy;
 import com.clarionmedia.infinitum.context.InfinitumContext;
 import com.clarionmedia.infinitum.exception.InfinitumRuntimeException;
 import com.clarionmedia.infinitum.internal.Preconditions;
 import com.clarionmedia.infinitum.orm.criteria.Criteria;
+import com.clarionmedia.infinitum.orm.criteria.Order;
+import com.clarionmedia.infinitum.orm.criteria.ResultIterator;
 import com.clarionmedia.infinitum.orm.criteria.criterion.Criterion;
+import com.clarionmedia.infinitum.orm.criteria.projection.Projection;
 import com.clarionmedia.infinitum.orm.persistence.PersistencePolicy;
+import com.clarionmedia.infinitum.orm.persistence.TypeResolutionPolicy.SqliteDataType;
+import com.clarionmedia.infinitum.orm.relationship.ManyToManyRelationship;
+import com.clarionmedia.infinitum.orm.relationship.ModelRelationship;
 import com.clarionmedia.infinitum.orm.sql.SqlBuilder;
+import com.clarionmedia.infinitum.orm.sql.SqlConstants;
+import com.clarionmedia.infinitum.orm.sql.SqlQuery;
+import com.clarionmedia.infinitum.orm.sqlite.impl.EntityMetadata.ColumnPlan;
+import com.clarionmedia.infinitum.reflection.FieldAccessor;
 
 /**
  * <p>
@@ -43,6 +58,10 @@ import com.clarionmedia.infinitum.orm.sql.SqlBuilder;
  */
 public class SqliteCriteria<T> implements Criteria<T> {
 
+	// Rows joined by fetches can't be grouped while streaming, so iterate()
+	// reads pages of this many entities instead
+	private static final int FETCH_PAGE_SIZE = 100;
+
 	private Class<T> mEntityClass;
 	private SqliteSession mSession;
 	private SqliteModelFactory mModelFactory;
@@ -51,6 +70,12 @@ public class SqliteCriteria<T> implements Criteria<T> {
 	private int mOffset;
 	private SqlBuilder mSqlBuilder;
 	private PersistencePolicy mPersistencePolicy;
+	private boolean mBypassCache;
+	private boolean mIsCacheable;
+	private List<Field> mFetches;
+	private List<Order> mOrders;
+	private List<Projection> mProjections;
+	private Object[] mSeekKeys;
 
 	/**
 	 * Constructs a new {@code SqliteCriteria}.
@@ -74,13 +99,21 @@ public class SqliteCriteria<T> implements Criteria<T> {
 		mEntityClass = entityClass;
 		mModelFactory = modelFactory;
 		mCriterion = new ArrayList<Criterion>();
+		mFetches = new ArrayList<Field>();
+		mOrders = new ArrayList<Order>();
+		mProjections = new ArrayList<Projection>();
 		mSqlBuilder = sqlBuilder;
 		mPersistencePolicy = context.getPersistencePolicy();
 	}
 
 	@Override
 	public String toSql() {
-		return mSqlBuilder.createQuery(this);
+		return mSqlBuilder.createQuery(this).getSql();
+	}
+
+	@Override
+	public String[] getArgs() {
+		return mSqlBuilder.createQuery(this).getArgs();
 	}
 
 	@Override
@@ -103,6 +136,26 @@ public class SqliteCriteria<T> implements Criteria<T> {
 		return mOffset;
 	}
 
+	@Override
+	public List<Field> getFetches() {
+		return mFetches;
+	}
+
+	@Override
+	public List<Order> getOrders() {
+		return mOrders;
+	}
+
+	@Override
+	public List<Projection> getProjections() {
+		return mProjections;
+	}
+
+	@Override
+	public Object[] getSeekKeys() {
+		return mSeekKeys;
+	}
+
 	@Override
 	public Criteria<T> add(Criterion criterion) {
 		mCriterion.add(criterion);
@@ -121,22 +174,91 @@ public class SqliteCriteria<T> implements Criteria<T> {
 		return this;
 	}
 
+	@Override
+	public Criteria<T> fetch(String field) throws InfinitumRuntimeException {
+		for (Field f : mPersistencePolicy.getPersistentFields(mEntityClass)) {
+			if (!f.getName().equals(field))
+				continue;
+			if (!mPersistencePolicy.isRelationship(f))
+				break;
+			if (!mFetches.contains(f))
+				mFetches.add(f);
+			return this;
+		}
+		throw new InfinitumRuntimeException(String.format("'%s' is not a relationship of '%s'.", field, mEntityClass.getName()));
+	}
+
+	@Override
+	public Criteria<T> orderBy(String field, boolean ascending) {
+		mOrders.add(new Order(field, ascending));
+		return this;
+	}
+
+	@Override
+	public Criteria<T> addProjection(Projection projection) {
+		mProjections.add(projection);
+		return this;
+	}
+
+	@Override
+	public Criteria<T> seek(Object... keys) {
+		mSeekKeys = keys;
+		return this;
+	}
+
+	@Override
+	public Criteria<T> after(Object entity) throws InfinitumRuntimeException {
+		mSeekKeys = createSeekKeys(entity);
+		return this;
+	}
+
+	@Override
+	public List<Object[]> listProjections() throws InfinitumRuntimeException {
+		if (mProjections.isEmpty())
+			throw new InfinitumRuntimeException(String.format("Criteria query for '%s' has no projections.", mEntityClass.getName()));
+		// Resolve how each column is read before touching the rows
+		SqliteDataType[] types = new SqliteDataType[mProjections.size()];
+		for (int i = 0; i < types.length; i++)
+			types[i] = getProjectionType(mProjections.get(i));
+		List<Object[]> ret = new ArrayList<Object[]>();
+		Cursor result = execute(mSqlBuilder.createProjectionQuery(this));
+		try {
+			while (result.moveToNext()) {
+				Object[] row = new Object[types.length];
+				for (int i = 0; i < types.length; i++) {
+					if (result.isNull(i))
+						continue;
+					switch (types[i]) {
+					case INTEGER:
+						row[i] = result.getLong(i);
+						break;
+					case REAL:
+						row[i] = result.getDouble(i);
+						break;
+					case BLOB:
+						row[i] = result.getBlob(i);
+						break;
+					default:
+						row[i] = result.getString(i);
+					}
+				}
+				ret.add(row);
+			}
+		} finally {
+			result.close();
+		}
+		return ret;
+	}
+
 	@Override
 	public List<T> list() {
-		List<T> ret = new LinkedList<T>();
-		Cursor result = mSession.executeForResult(toSql(), true);
+		Cursor result = execute(mSqlBuilder.createQuery(this));
 		if (result.getCount() == 0) {
 			result.close();
-			return ret;
+			return new LinkedList<T>();
 		}
 		try {
-			while (result.moveToNext()) {
-				T entity = mModelFactory.createFromCursor(result, mEntityClass);
-				ret.add(entity);
-				// Cache results
-				mSession.cache(mPersistencePolicy.computeModelHash(entity), entity);
-			}
-			return ret;
+			return mModelFactory.createAllFromCursor(result, mEntityClass, !mBypassCache, mFetches);
 		} finally {
 			result.close();
 		}
@@ -144,7 +266,16 @@ public class SqliteCriteria<T> implements Criteria<T> {
 
 	@Override
 	public T unique() throws InfinitumRuntimeException {
-		Cursor result = mSession.executeForResult(toSql(), true);
+		if (!mFetches.isEmpty()) {
+			// Joined rows repeat the entity, so count the constructed results
+			List<T> results = list();
+			if (results.size() > 1)
+				throw new InfinitumRuntimeException(String.format(
+						"Criteria query for '%s' specified unique result but there were %d results.", mEntityClass.getName(),
+						results.size()));
+			return results.isEmpty() ? null : results.get(0);
+		}
+		Cursor result = execute(mSqlBuilder.createQuery(this));
 		if (result.getCount() > 1) {
 			throw new InfinitumRuntimeException(String.format("Criteria query for '%s' specified unique result but there were %d results.",
 					mEntityClass.getName(), result.getCount()));
@@ -154,15 +285,46 @@ public class SqliteCriteria<T> implements Criteria<T> {
 		}
 		result.moveToFirst();
 		try {
-			T ret = mModelFactory.createFromCursor(result, mEntityClass);
-			// Cache result
-			mSession.cache(mPersistencePolicy.computeModelHash(ret), ret);
-			return ret;
+			return createEntity(result);
 		} finally {
 			result.close();
 		}
 	}
 
+	@Override
+	public ResultIterator<T> iterate() {
+		return new SqliteResultIterator<T>(this, mFetches.isEmpty() ? 0 : FETCH_PAGE_SIZE);
+	}
+
+	@Override
+	public ResultIterator<T> scroll(int fetchSize) {
+		if (fetchSize <= 0)
+			throw new IllegalArgumentException("Fetch size must be positive.");
+		return new SqliteResultIterator<T>(this, fetchSize);
+	}
+
+	@Override
+	public Criteria<T> bypassCache(boolean bypass) {
+		mBypassCache = bypass;
+		return this;
+	}
+
+	@Override
+	public boolean isCacheBypassed() {
+		return mBypassCache;
+	}
+
+	@Override
+	public Criteria<T> cacheable(boolean cacheable) {
+		mIsCacheable = cacheable;
+		return this;
+	}
+
+	@Override
+	public boolean isCacheable() {
+		return mIsCacheable;
+	}
+
 	@Override
 	public SqliteMapper getObjectMapper() {
 		return mSession.getSqliteMapper();
@@ -170,11 +332,162 @@ public class SqliteCriteria<T> implements Criteria<T> {
 
 	@Override
 	public long count() {
-		Cursor result = mSession.executeForResult(mSqlBuilder.createCountQuery(this), true);
+		Cursor result = execute(mSqlBuilder.createCountQuery(this));
 		result.moveToFirst();
 		long ret = result.getLong(0);
 		result.close();
 		return ret;
 	}
 
+	/**
+	 * Executes this {@code SqliteCriteria} query using the given limit and
+	 * offset in place of its own.
+	 * 
+	 * @param limit
+	 *            max number of rows to retrieve, or {@code 0} for no limit
+	 * @param offset
+	 *            number of rows to skip
+	 * @return {@link Cursor} over the query results
+	 */
+	Cursor query(int limit, int offset) {
+		return execute(mSqlBuilder.createQuery(this, limit, offset));
+	}
+
+	/**
+	 * Executes this {@code SqliteCriteria} query for the results following the
+	 * given seek keys, using the given limit and offset in place of its own,
+	 * and constructs every resulting entity. The results are ordered by
+	 * primary key after this query's own ordering. Relationships are loaded
+	 * for all of the results together.
+	 * 
+	 * @param limit
+	 *            max number of rows to retrieve, or {@code 0} for no limit
+	 * @param offset
+	 *            number of rows to skip
+	 * @param keys
+	 *            the seek keys of the last row already read, or an empty
+	 *            array to read the first page
+	 * @return {@link List} of query results
+	 */
+	List<T> list(int limit, int offset, Object[] keys) {
+		Cursor result = execute(mSqlBuilder.createSeekQuery(this, limit, offset, keys));
+		try {
+			return mModelFactory.createAllFromCursor(result, mEntityClass, !mBypassCache, mFetches);
+		} finally {
+			result.close();
+		}
+	}
+
+	/**
+	 * Reads the seek keys of the given entity, which are the values of its
+	 * ordered {@link Field}'s followed by its primary key.
+	 * 
+	 * @param entity
+	 *            the entity to read the seek keys of
+	 * @return seek keys
+	 * @throws InfinitumRuntimeException
+	 *             if a key could not be read
+	 */
+	Object[] createSeekKeys(Object entity) throws InfinitumRuntimeException {
+		if (AopProxy.isAopProxy(entity))
+			entity = AopProxy.getProxy(entity).getTarget();
+		List<Object> keys = new ArrayList<Object>();
+		Field pkField = mPersistencePolicy.getPrimaryKeyField(mEntityClass);
+		boolean hasPrimaryKey = false;
+		try {
+			for (Order order : mOrders) {
+				Field f = mPersistencePolicy.findPersistentField(mEntityClass, order.getFieldName());
+				if (f == null)
+					throw new InfinitumRuntimeException(String.format("'%s' is not a persistent field of '%s'.", order.getFieldName(),
+							mEntityClass.getName()));
+				hasPrimaryKey |= f.equals(pkField);
+				keys.add(FieldAccessor.forField(f).get(entity));
+			}
+			if (!hasPrimaryKey)
+				keys.add(FieldAccessor.forField(pkField).get(entity));
+		} catch (IllegalAccessException e) {
+			throw new InfinitumRuntimeException("Unable to read seek keys for '" + mEntityClass.getName() + "'.", e);
+		}
+		return keys.toArray();
+	}
+
+	/**
+	 * Constructs an entity from the current row of the given {@link Cursor},
+	 * caching it unless the session cache is bypassed.
+	 * 
+	 * @param cursor
+	 *            the {@code Cursor} positioned at the row to convert
+	 * @return entity
+	 */
+	T createEntity(Cursor cursor) {
+		if (mBypassCache)
+			return mModelFactory.createFromCursor(cursor, mEntityClass, false);
+		T entity = mModelFactory.createFromCursor(cursor, mEntityClass);
+		mSession.cache(mPersistencePolicy.getEntityKey(entity), entity);
+		return entity;
+	}
+
+	/**
+	 * Constructs an entity from the current row of the given {@link Cursor}
+	 * using a {@link ColumnPlan} previously created for it, caching it unless
+	 * the session cache is bypassed.
+	 * 
+	 * @param cursor
+	 *            the {@code Cursor} positioned at the row to convert
+	 * @param plan
+	 *            the {@code ColumnPlan} created for {@code cursor}
+	 * @return entity
+	 */
+	T createEntity(Cursor cursor, ColumnPlan plan) {
+		return mModelFactory.createFromCursor(cursor, mEntityClass, plan, !mBypassCache);
+	}
+
+	private Cursor execute(SqlQuery query) {
+		// Queued unit-of-work writes have to reach the database before it is queried
+		mSession.autoFlush();
+		if (mIsCacheable)
+			return mSession.executeForCachedResult(query.getSql(), query.getArgs(), getTables());
+		return mSession.executeForResult(query.getSql(), query.getArgs(), true);
+	}
+
+	private String[] getTables() {
+		Set<String> tables = new LinkedHashSet<String>();
+		tables.add(mPersistencePolicy.getModelTableName(mEntityClass));
+		// Fetched relationships are joined into the query
+		for (Field fetch : mFetches) {
+			ModelRelationship rel = mPersistencePolicy.getRelationship(fetch);
+			tables.add(mPersistencePolicy.getModelTableName(rel.getFirstType()));
+			tables.add(mPersistencePolicy.getModelTableName(rel.getSecondType()));
+			if (rel instanceof ManyToManyRelationship)
+				tables.add(((ManyToManyRelationship) rel).getTableName());
+		}
+		return tables.toArray(new String[tables.size()]);
+	}
+
+	private SqliteDataType getProjectionType(Projection projection) {
+		String function = projection.getFunction();
+		if (SqlConstants.FN_COUNT.equals(function))
+			return SqliteDataType.INTEGER;
+		if (SqlConstants.FN_AVG.equals(function))
+			return SqliteDataType.REAL;
+		Field f = mPersistencePolicy.findPersistentField(mEntityClass, projection.getFieldName());
+		SqliteDataType type = f == null ? null : getObjectMapper().getSqliteDataType(f);
+		// Dates are stored as ISO 8601 text despite their column type
+		if (type == null || Date.class.isAssignableFrom(f.getType()))
+			return SqliteDataType.TEXT;
+		return type;
+	}
+
+	/**
+	 * Resolves the positions of the entity's columns in the given
+	 * {@link Cursor}.
+	 * 
+	 * @param cursor
+	 *            the {@code Cursor} to resolve column positions in
+	 * @return {@link ColumnPlan} for {@code cursor}
+	 */
+	ColumnPlan createColumnPlan(Cursor cursor) {
+		return mModelFactory.createColumnPlan(cursor, mEntityClass);
+	}
+
 }
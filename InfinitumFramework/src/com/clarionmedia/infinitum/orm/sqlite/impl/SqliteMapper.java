@@ -49,11 +49,13 @@ import com.clarionmedia.infinitum.orm.sqlite.SqliteTypeAdapter;
 public class SqliteMapper extends ObjectMapper {
 
 	private Map<Class<?>, SqliteTypeAdapter<?>> mTypeAdapters;
+	private Map<Class<?>, EntityMetadata> mEntityMetadata;
 
 	/**
 	 * Constructs a new {@code SqliteMapper}.
 	 */
 	public SqliteMapper() {
+		mEntityMetadata = new HashMap<Class<?>, EntityMetadata>();
 		mTypeAdapters = new HashMap<Class<?>, SqliteTypeAdapter<?>>();
 		mTypeAdapters.put(boolean.class, SqliteTypeAdapters.BOOLEAN);
 		mTypeAdapters.put(byte.class, SqliteTypeAdapters.BYTE);
@@ -116,8 +118,34 @@ public class SqliteMapper extends ObjectMapper {
 
 	@Override
 	public <T> void registerTypeAdapter(Class<T> type, TypeAdapter<T> adapter) {
-		if (adapter instanceof SqliteTypeAdapter)
+		if (adapter instanceof SqliteTypeAdapter) {
 			mTypeAdapters.put(type, (SqliteTypeAdapter<T>) adapter);
+			// Metadata holds resolved adapters, so it must be rebuilt
+			synchronized (mEntityMetadata) {
+				mEntityMetadata.clear();
+			}
+		}
+	}
+
+	/**
+	 * Returns the {@link EntityMetadata} for the given persistent
+	 * {@link Class}, building it the first time it is requested.
+	 * 
+	 * @param c
+	 *            the persistent {@code Class} to retrieve metadata for
+	 * @return {@code EntityMetadata} for {@code c}
+	 * @throws InvalidMappingException
+	 *             if a column of {@code c} has a type which cannot be mapped
+	 */
+	public EntityMetadata getEntityMetadata(Class<?> c) throws InvalidMappingException {
+		synchronized (mEntityMetadata) {
+			EntityMetadata ret = mEntityMetadata.get(c);
+			if (ret == null) {
+				ret = new EntityMetadata(c, mPersistencePolicy, this);
+				mEntityMetadata.put(c, ret);
+			}
+			return ret;
+		}
 	}
 
 	@Override
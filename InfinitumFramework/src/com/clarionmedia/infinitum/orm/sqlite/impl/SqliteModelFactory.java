@@ -21,17 +21,29 @@ package com.clarionmedia.infinitum.orm.sqlite.impl;
 
 import java.io.Serializable;
 import java.lang.reflect.Field;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 import android.database.Cursor;
 
 import com.clarionmedia.infinitum.di.annotation.Autowired;
 import com.clarionmedia.infinitum.exception.InfinitumRuntimeException;
+import com.clarionmedia.infinitum.orm.LazyLoadCollection;
 import com.clarionmedia.infinitum.orm.LazyLoadDexMakerProxy;
+import com.clarionmedia.infinitum.orm.LazyLoadList;
+import com.clarionmedia.infinitum.orm.LazyLoadSet;
 import com.clarionmedia.infinitum.orm.ModelFactory;
 import com.clarionmedia.infinitum.orm.ResultSet;
 import com.clarionmedia.infinitum.orm.exception.ModelConfigurationException;
+import com.clarionmedia.infinitum.orm.persistence.EntityKey;
 import com.clarionmedia.infinitum.orm.persistence.PersistencePolicy;
 import com.clarionmedia.infinitum.orm.relationship.ForeignKeyRelationship;
 import com.clarionmedia.infinitum.orm.relationship.ManyToManyRelationship;
@@ -39,8 +51,11 @@ import com.clarionmedia.infinitum.orm.relationship.ManyToOneRelationship;
 import com.clarionmedia.infinitum.orm.relationship.ModelRelationship;
 import com.clarionmedia.infinitum.orm.relationship.OneToManyRelationship;
 import com.clarionmedia.infinitum.orm.relationship.OneToOneRelationship;
-import com.clarionmedia.infinitum.orm.sqlite.SqliteTypeAdapter;
+import com.clarionmedia.infinitum.orm.sql.SqlConstants;
+import com.clarionmedia.infinitum.orm.sql.SqlQuery;
+import com.clarionmedia.infinitum.orm.sqlite.impl.EntityMetadata.ColumnPlan;
 import com.clarionmedia.infinitum.reflection.ClassReflector;
+import com.clarionmedia.infinitum.reflection.FieldAccessor;
 
 /**
  * <p>
@@ -73,7 +88,7 @@ public class SqliteModelFactory implements ModelFactory {
 	public <T> T createFromResult(ResultSet result, Class<T> modelClass) {
 		if (!(result instanceof SqliteResult))
 			throw new IllegalArgumentException("SqliteModelFactory can only process SqliteResults.");
-		return createFromCursorRec(((SqliteResult) result).getCursor(), modelClass);
+		return createFromCursorRec(((SqliteResult) result).getCursor(), modelClass, null, true);
 	}
 	
 	/**
@@ -95,251 +110,606 @@ public class SqliteModelFactory implements ModelFactory {
 	 *             if the model could not be instantiated
 	 */
 	public <T> T createFromCursor(Cursor cursor, Class<T> modelClass) throws ModelConfigurationException, InfinitumRuntimeException {
-		return createFromCursorRec(cursor, modelClass);
+		return createFromCursorRec(cursor, modelClass, null, true);
 	}
 
+	/**
+	 * Constructs a domain model instance and populates its {@link Field}'s from
+	 * the given {@link Cursor}, optionally bypassing the session cache. When
+	 * the cache is bypassed, a new instance is always returned and it is not
+	 * added to the cache. Related entities are still resolved through the
+	 * cache.
+	 * 
+	 * @param cursor
+	 *            the {@code Cursor} containing the row to convert to an
+	 *            {@code Object}
+	 * @param modelClass
+	 *            the {@code Class} of the {@code Object} being instantiated
+	 * @param useCache
+	 *            {@code true} if the session cache should be used,
+	 *            {@code false} if not
+	 * @return a populated instance of the specified {@code Class}
+	 * @throws ModelConfigurationException
+	 *             if the specified model {@code Class} does not contain an
+	 *             empty constructor
+	 * @throws InfinitumRuntimeException
+	 *             if the model could not be instantiated
+	 */
+	public <T> T createFromCursor(Cursor cursor, Class<T> modelClass, boolean useCache) throws ModelConfigurationException,
+			InfinitumRuntimeException {
+		return createFromCursorRec(cursor, modelClass, null, useCache);
+	}
+
+	/**
+	 * Constructs a domain model instance from the current row of the given
+	 * {@link Cursor} using a {@link ColumnPlan} previously created for it.
+	 * This avoids resolving the model's columns again for each row read from
+	 * the same {@code Cursor}.
+	 * 
+	 * @param cursor
+	 *            the {@code Cursor} containing the row to convert to an
+	 *            {@code Object}
+	 * @param modelClass
+	 *            the {@code Class} of the {@code Object} being instantiated
+	 * @param plan
+	 *            the {@code ColumnPlan} created for {@code cursor}
+	 * @param useCache
+	 *            {@code true} if the session cache should be used,
+	 *            {@code false} if not
+	 * @return a populated instance of the specified {@code Class}
+	 * @throws ModelConfigurationException
+	 *             if the specified model {@code Class} does not contain an
+	 *             empty constructor
+	 * @throws InfinitumRuntimeException
+	 *             if the model could not be instantiated
+	 */
+	public <T> T createFromCursor(Cursor cursor, Class<T> modelClass, ColumnPlan plan, boolean useCache)
+			throws ModelConfigurationException, InfinitumRuntimeException {
+		return createFromCursorRec(cursor, modelClass, plan, useCache);
+	}
+
+	/**
+	 * Resolves the positions of the given model {@link Class}'s columns in
+	 * the given {@link Cursor}.
+	 * 
+	 * @param cursor
+	 *            the {@code Cursor} to resolve column positions in
+	 * @param modelClass
+	 *            the {@code Class} of the models being read
+	 * @return {@link ColumnPlan} for {@code cursor}
+	 */
+	public ColumnPlan createColumnPlan(Cursor cursor, Class<?> modelClass) {
+		return mMapper.getEntityMetadata(modelClass).createColumnPlan(cursor, "");
+	}
+
+	/**
+	 * Constructs domain model instances from every remaining row of the given
+	 * {@link Cursor}. Unlike {@link #createFromCursor(Cursor, Class)}, the
+	 * relationships of the resulting instances are loaded together, using a
+	 * single query per relationship rather than one per row.
+	 * 
+	 * @param cursor
+	 *            the {@code Cursor} containing the rows to convert to
+	 *            {@code Objects}
+	 * @param modelClass
+	 *            the {@code Class} of the {@code Objects} being instantiated
+	 * @param useCache
+	 *            {@code true} if the session cache should be used,
+	 *            {@code false} if not
+	 * @return {@link List} of populated instances of the specified
+	 *         {@code Class}, in the order of the rows they were read from
+	 * @throws ModelConfigurationException
+	 *             if the specified model {@code Class} does not contain an
+	 *             empty constructor
+	 * @throws InfinitumRuntimeException
+	 *             if the models could not be instantiated
+	 */
+	public <T> List<T> createAllFromCursor(Cursor cursor, Class<T> modelClass, boolean useCache) throws ModelConfigurationException,
+			InfinitumRuntimeException {
+		return createAllFromCursor(cursor, modelClass, useCache, null, null);
+	}
+
+	/**
+	 * Constructs domain model instances from every remaining row of the given
+	 * {@link Cursor}, which was produced by a query joining the given fetched
+	 * relationships. Each row contains the columns of a model and of one
+	 * entity for each fetched relationship, so models and related entities
+	 * appearing in more than one row are only constructed once. Relationships
+	 * which were not fetched are loaded as they would be by
+	 * {@link #createAllFromCursor(Cursor, Class, boolean)}.
+	 * 
+	 * @param cursor
+	 *            the {@code Cursor} containing the rows to convert to
+	 *            {@code Objects}
+	 * @param modelClass
+	 *            the {@code Class} of the {@code Objects} being instantiated
+	 * @param useCache
+	 *            {@code true} if the session cache should be used,
+	 *            {@code false} if not
+	 * @param fetches
+	 *            the relationship {@link Field}'s joined by the query
+	 * @return {@link List} of populated instances of the specified
+	 *         {@code Class}, in the order they first appeared
+	 * @throws ModelConfigurationException
+	 *             if the specified model {@code Class} does not contain an
+	 *             empty constructor
+	 * @throws InfinitumRuntimeException
+	 *             if the models could not be instantiated
+	 */
 	@SuppressWarnings("unchecked")
-	private <T> T createFromCursorRec(Cursor cursor, Class<T> modelClass) throws ModelConfigurationException, InfinitumRuntimeException {
-		T ret = null;
+	public <T> List<T> createAllFromCursor(Cursor cursor, Class<T> modelClass, boolean useCache, List<Field> fetches)
+			throws ModelConfigurationException, InfinitumRuntimeException {
+		if (fetches.isEmpty())
+			return createAllFromCursor(cursor, modelClass, useCache, null, null);
+		Map<String, T> models = new LinkedHashMap<String, T>();
+		Set<String> cachedKeys = new HashSet<String>();
+		List<PendingModel> pending = new ArrayList<PendingModel>();
 		SqliteResult result = new SqliteResult(cursor);
-		ret = (T) mClassReflector.getClassInstance(modelClass);
-		List<Field> fields = mPersistencePolicy.getPersistentFields(modelClass);
-		for (Field field : fields) {
-			field.setAccessible(true);
-			if (!mPersistencePolicy.isRelationship(field)) {
-				SqliteTypeAdapter<?> resolver = mMapper.resolveType(field.getType());
-				int index = result.getColumnIndex(mPersistencePolicy.getFieldColumnName(field));
-				try {
-					resolver.mapToObject(result, index, field, ret);
-				} catch (IllegalArgumentException e) {
-					throw new InfinitumRuntimeException("Could not map '" + field.getType().getName() + "'");
-				} catch (IllegalAccessException e) {
-					throw new InfinitumRuntimeException("Could not map '" + field.getType().getName() + "'");
+		ColumnPlan plan = createColumnPlan(cursor, modelClass);
+		List<ColumnPlan> fetchedPlans = new ArrayList<ColumnPlan>(fetches.size());
+		List<Map<String, Object>> fetched = new ArrayList<Map<String, Object>>(fetches.size());
+		List<List<PendingModel>> pendingFetched = new ArrayList<List<PendingModel>>(fetches.size());
+		for (int i = 0; i < fetches.size(); i++) {
+			Class<?> relatedType = getRelatedType(mPersistencePolicy.getRelationship(fetches.get(i)), modelClass);
+			String prefix = String.format(SqlConstants.FETCH_ALIAS_FORMAT, i);
+			fetchedPlans.add(mMapper.getEntityMetadata(relatedType).createColumnPlan(cursor, prefix));
+			fetched.add(new HashMap<String, Object>());
+			pendingFetched.add(new ArrayList<PendingModel>());
+		}
+		Set<String> attached = new HashSet<String>();
+		int keyIndex = plan.getPrimaryKeyIndex();
+		while (cursor.moveToNext()) {
+			String key = cursor.getString(keyIndex);
+			T model = models.get(key);
+			if (model == null) {
+				model = mapRow(result, plan);
+				if (useCache) {
+					EntityKey entityKey = mPersistencePolicy.getEntityKey(model);
+					if (mSession.checkCache(entityKey)) {
+						// Cached models already have their relationships
+						model = (T) mSession.searchCache(entityKey);
+						cachedKeys.add(key);
+					} else {
+						mSession.cache(entityKey, model);
+					}
 				}
+				models.put(key, model);
+				if (!cachedKeys.contains(key))
+					pending.add(new PendingModel(model, readForeignKeys(cursor, plan)));
 			}
+			if (cachedKeys.contains(key))
+				continue;
+			for (int i = 0; i < fetches.size(); i++) {
+				ColumnPlan relatedPlan = fetchedPlans.get(i);
+				int relatedKeyIndex = relatedPlan.getPrimaryKeyIndex();
+				if (relatedKeyIndex == -1 || cursor.isNull(relatedKeyIndex))
+					continue;
+				String relatedKey = cursor.getString(relatedKeyIndex);
+				Object related = fetched.get(i).get(relatedKey);
+				if (related == null) {
+					related = mapRow(result, relatedPlan);
+					EntityKey entityKey = mPersistencePolicy.getEntityKey(related);
+					if (mSession.checkCache(entityKey)) {
+						related = mSession.searchCache(entityKey);
+					} else {
+						mSession.cache(entityKey, related);
+						pendingFetched.get(i).add(new PendingModel(related, readForeignKeys(cursor, relatedPlan)));
+					}
+					fetched.get(i).put(relatedKey, related);
+				}
+				if (attached.add(i + ":" + key + ":" + relatedKey))
+					attachRelated(model, fetches.get(i), related);
+			}
+		}
+		loadRelationships(plan.getMetadata(), pending, fetches);
+		for (int i = 0; i < fetches.size(); i++) {
+			loadRelationships(fetchedPlans.get(i).getMetadata(), pendingFetched.get(i), Collections.<Field> emptyList());
+			snapshotAll(fetchedPlans.get(i).getMetadata(), pendingFetched.get(i));
+		}
+		if (useCache)
+			snapshotAll(plan.getMetadata(), pending);
+		return new ArrayList<T>(models.values());
+	}
+
+	@SuppressWarnings("unchecked")
+	private <T> T createFromCursorRec(Cursor cursor, Class<T> modelClass, ColumnPlan plan, boolean useCache)
+			throws ModelConfigurationException, InfinitumRuntimeException {
+		if (plan == null)
+			plan = createColumnPlan(cursor, modelClass);
+		T ret = mapRow(new SqliteResult(cursor), plan);
+		if (useCache) {
+			EntityKey entityKey = mPersistencePolicy.getEntityKey(ret);
+			if (mSession.checkCache(entityKey))
+				return (T) mSession.searchCache(entityKey);
+			mSession.cache(entityKey, ret);
 		}
-		int objHash = mPersistencePolicy.computeModelHash(ret);
-		if (mSession.checkCache(objHash))
-			return (T) mSession.searchCache(objHash);
-		mSession.cache(objHash, ret);
-		loadRelationships(ret);
+		List<PendingModel> pending = new ArrayList<PendingModel>(1);
+		pending.add(new PendingModel(ret, readForeignKeys(cursor, plan)));
+		loadRelationships(plan.getMetadata(), pending, Collections.<Field> emptyList());
+		if (useCache)
+			snapshotAll(plan.getMetadata(), pending);
 		return ret;
 	}
 
-	private <T> void loadRelationships(T model)
+	@SuppressWarnings("unchecked")
+	private <T> List<T> createAllFromCursor(Cursor cursor, Class<T> modelClass, boolean useCache, String keyColumn, List<String> keys)
 			throws ModelConfigurationException, InfinitumRuntimeException {
-		for (Field f : mPersistencePolicy.getPersistentFields(model.getClass())) {
-			f.setAccessible(true);
-			if (!mPersistencePolicy.isRelationship(f))
+		List<T> ret = new ArrayList<T>();
+		List<PendingModel> pending = new ArrayList<PendingModel>();
+		SqliteResult result = new SqliteResult(cursor);
+		ColumnPlan plan = createColumnPlan(cursor, modelClass);
+		int keyIndex = keyColumn == null ? -1 : cursor.getColumnIndex(keyColumn);
+		while (cursor.moveToNext()) {
+			if (keys != null)
+				keys.add(keyIndex == -1 || cursor.isNull(keyIndex) ? null : cursor.getString(keyIndex));
+			T model = mapRow(result, plan);
+			if (useCache) {
+				EntityKey entityKey = mPersistencePolicy.getEntityKey(model);
+				if (mSession.checkCache(entityKey)) {
+					ret.add((T) mSession.searchCache(entityKey));
+					continue;
+				}
+				mSession.cache(entityKey, model);
+			}
+			ret.add(model);
+			pending.add(new PendingModel(model, readForeignKeys(cursor, plan)));
+		}
+		loadRelationships(plan.getMetadata(), pending, Collections.<Field> emptyList());
+		if (useCache)
+			snapshotAll(plan.getMetadata(), pending);
+		return ret;
+	}
+
+	private void snapshotAll(EntityMetadata metadata, List<PendingModel> pending) {
+		// Snapshots are taken once relationships are attached
+		for (PendingModel model : pending)
+			mSession.snapshot(model.mModel, metadata);
+	}
+
+	@SuppressWarnings("unchecked")
+	private <T> T mapRow(SqliteResult result, ColumnPlan plan) throws ModelConfigurationException, InfinitumRuntimeException {
+		EntityMetadata metadata = plan.getMetadata();
+		T ret = (T) mClassReflector.getClassInstance(metadata.getEntityClass());
+		for (int i = 0; i < metadata.getColumnCount(); i++) {
+			Field field = metadata.getColumnField(i);
+			FieldAccessor accessor = metadata.getColumnAccessor(i);
+			try {
+				metadata.getTypeAdapter(i).mapToObject(result, plan.getColumnIndex(i), accessor, ret);
+			} catch (IllegalArgumentException e) {
+				throw new InfinitumRuntimeException("Could not map '" + field.getType().getName() + "'");
+			} catch (IllegalAccessException e) {
+				throw new InfinitumRuntimeException("Could not map '" + field.getType().getName() + "'");
+			}
+		}
+		return ret;
+	}
+
+	private Map<Field, String> readForeignKeys(Cursor cursor, ColumnPlan plan) {
+		EntityMetadata metadata = plan.getMetadata();
+		Map<Field, String> ret = new HashMap<Field, String>();
+		for (int i = 0; i < metadata.getRelationshipCount(); i++) {
+			int index = plan.getForeignKeyIndex(i);
+			if (index != -1)
+				ret.put(metadata.getRelationshipField(i), cursor.isNull(index) ? null : cursor.getString(index));
+		}
+		return ret;
+	}
+
+	@SuppressWarnings("unchecked")
+	private void loadRelationships(EntityMetadata metadata, List<PendingModel> pending, List<Field> fetched)
+			throws ModelConfigurationException, InfinitumRuntimeException {
+		if (pending.isEmpty())
+			return;
+		Class<?> modelClass = metadata.getEntityClass();
+		boolean isLazy = metadata.isLazy();
+		for (int i = 0; i < metadata.getRelationshipCount(); i++) {
+			Field f = metadata.getRelationshipField(i);
+			if (fetched.contains(f))
 				continue;
-			ModelRelationship rel = mPersistencePolicy.getRelationship(f);
+			ModelRelationship rel = metadata.getRelationship(i);
 			switch (rel.getRelationType()) {
 			case ManyToMany:
-				if (mPersistencePolicy.isLazy(model.getClass()))
-					lazilyLoadManyToMany((ManyToManyRelationship) rel, f, model);
-				else
-					loadManyToMany((ManyToManyRelationship) rel, f, model);
+				if (isLazy) {
+					for (PendingModel model : pending)
+						lazilyLoadManyToMany((ManyToManyRelationship) rel, f, model.mModel);
+				} else {
+					loadManyToMany((ManyToManyRelationship) rel, f, modelClass, pending);
+				}
 				break;
 			case ManyToOne:
-				if (mPersistencePolicy.isLazy(model.getClass()))
-					lazilyLoadManyToOne((ManyToOneRelationship) rel, f, model);
-				else
-					loadManyToOne((ManyToOneRelationship) rel, f, model);
+				if (isLazy) {
+					for (PendingModel model : pending)
+						lazilyLoadManyToOne((ManyToOneRelationship) rel, f, model);
+				} else {
+					loadManyToOne((ManyToOneRelationship) rel, f, modelClass, pending);
+				}
 				break;
 			case OneToMany:
-				if (mPersistencePolicy.isLazy(model.getClass()))
-					lazilyLoadOneToMany((OneToManyRelationship) rel, f, model);
-				else
-					loadOneToMany((OneToManyRelationship) rel, f, model);
+				if (isLazy) {
+					for (PendingModel model : pending)
+						lazilyLoadOneToMany((OneToManyRelationship) rel, f, model.mModel);
+				} else {
+					loadOneToMany((OneToManyRelationship) rel, f, pending);
+				}
 				break;
 			case OneToOne:
-				if (mPersistencePolicy.isLazy(model.getClass()))
-					lazilyLoadOneToOne((OneToOneRelationship) rel, f, model);
-				else
-					loadOneToOne((OneToOneRelationship) rel, f, model);
+				if (isLazy) {
+					lazilyLoadOneToOne((OneToOneRelationship) rel, f, modelClass, pending);
+				} else {
+					loadOneToOne((OneToOneRelationship) rel, f, modelClass, pending);
+				}
 				break;
 			}
 		}
 	}
 
-	private <T> void lazilyLoadOneToOne(final OneToOneRelationship rel, Field field, T model) {
-		final String sql = getOneToOneEntityQuery(model, rel.getSecondType(), field, rel);
-		Object related = null;
-		if (mSession.count(sql.replace("*", "count(*)")) > 0) {
-			related = new LazyLoadDexMakerProxy(mSession.getContext(), rel.getSecondType()) {
+	private void lazilyLoadOneToOne(OneToOneRelationship rel, Field field, Class<?> modelClass, List<PendingModel> pending) {
+		boolean isOwner = rel.getOwner() == modelClass;
+		// Only the owner's row holds the foreign key, so check the other side for all models at once
+		Set<String> referencedKeys = isOwner ? null : getReferencedKeys(rel.getSecondType(), rel.getColumn(), getPrimaryKeys(pending));
+		for (PendingModel model : pending) {
+			String key = isOwner ? resolveForeignKey(model, field, rel) : String.valueOf(mPersistencePolicy.getPrimaryKey(model.mModel));
+			Object related = null;
+			if (key != null && (isOwner || referencedKeys.contains(key)))
+				related = createLazyProxy(rel.getSecondType(), getOneToOneEntityQuery(key, isOwner, rel.getSecondType(), rel));
+			mClassReflector.setFieldValue(model.mModel, field, related);
+		}
+	}
+
+	private void loadOneToOne(OneToOneRelationship rel, Field field, Class<?> modelClass, List<PendingModel> pending) {
+		if (rel.getOwner() == modelClass) {
+			loadByForeignKey(rel, field, rel.getSecondType(), pending);
+			return;
+		}
+		// The foreign key is stored in the related entity's row
+		Map<String, List<Object>> related = batchLoad(rel.getSecondType(), rel.getColumn(), getPrimaryKeys(pending), null);
+		for (PendingModel model : pending) {
+			List<Object> match = related.get(String.valueOf(mPersistencePolicy.getPrimaryKey(model.mModel)));
+			if (match != null)
+				mClassReflector.setFieldValue(model.mModel, field, match.get(match.size() - 1));
+		}
+	}
+
+	private <T> void lazilyLoadOneToMany(OneToManyRelationship rel, Field field, T model) {
+		String sql = mSqlBuilder.createRelatedQuery(rel.getManyType(), rel.getColumn());
+		Serializable pk = mPersistencePolicy.getPrimaryKey(model);
+		setLazyCollection(model, field, rel.getManyType(), new SqlQuery(sql, new String[] { SqlQuery.toArg(pk) }));
+	}
+
+	private void loadOneToMany(OneToManyRelationship rel, Field field, List<PendingModel> pending) {
+		Map<String, List<Object>> related = batchLoad(rel.getManyType(), rel.getColumn(), getPrimaryKeys(pending), null);
+		addRelated(related, field, pending);
+	}
+
+	private void lazilyLoadManyToOne(ManyToOneRelationship rel, Field field, PendingModel model) {
+		Class<?> direction = model.mModel.getClass() == rel.getFirstType() ? rel.getSecondType() : rel.getFirstType();
+		// A null foreign key means there is no related entity
+		String key = resolveForeignKey(model, field, rel);
+		Object related = key == null ? null : createLazyProxy(direction, getEntityQuery(key, direction));
+		mClassReflector.setFieldValue(model.mModel, field, related);
+	}
+
+	private void loadManyToOne(ManyToOneRelationship rel, Field field, Class<?> modelClass, List<PendingModel> pending) {
+		Class<?> direction = modelClass == rel.getFirstType() ? rel.getSecondType() : rel.getFirstType();
+		loadByForeignKey(rel, field, direction, pending);
+	}
+
+	private <T> void lazilyLoadManyToMany(ManyToManyRelationship rel, Field field, T model) {
+		// TODO Add reflexive M:M support
+		Class<?> direction = model.getClass() == rel.getFirstType() ? rel.getSecondType() : rel.getFirstType();
+		Serializable pk = mPersistencePolicy.getPrimaryKey(model);
+		setLazyCollection(model, field, direction, new SqlQuery(mSqlBuilder.createManyToManyJoinQuery(rel, direction), new String[] { SqlQuery.toArg(pk) }));
+	}
+
+	private void loadManyToMany(ManyToManyRelationship rel, Field field, Class<?> modelClass, List<PendingModel> pending)
+			throws ModelConfigurationException, InfinitumRuntimeException {
+		// TODO Add reflexive M:M support
+		Class<?> direction = modelClass == rel.getFirstType() ? rel.getSecondType() : rel.getFirstType();
+		Map<String, List<Object>> related = batchLoad(direction, null, getPrimaryKeys(pending), rel);
+		addRelated(related, field, pending);
+	}
+
+	private Object createLazyProxy(final Class<?> c, final SqlQuery query) {
+		return new LazyLoadDexMakerProxy(mSession.getContext(), c) {
+			@Override
+			protected Object loadObject() {
+				Object ret = null;
+				Cursor result = mSession.executeForResult(query.getSql(), query.getArgs(), true);
+				try {
+				    while (result.moveToNext())
+					    ret = createFromCursor(result, c);
+				} finally {
+				    result.close();
+				}
+				return ret;
+			}
+		}.getProxy();
+	}
+
+	@SuppressWarnings("unchecked")
+	private void setLazyCollection(Object model, Field field, final Class<?> c, final SqlQuery query) {
+		final Collection<Object> collection = (Collection<Object>) mClassReflector.getFieldValue(model, field);
+		Class<?> fieldType = field.getType();
+		Collection<Object> related;
+		if (collection instanceof List && fieldType.isAssignableFrom(LazyLoadList.class)) {
+			related = new LazyLoadList<Object>((List<Object>) collection) {
+				@Override
+				protected void loadCollection(Collection<Object> collection) {
+					loadAll(c, query, collection);
+				}
+			};
+		} else if (collection instanceof Set && fieldType.isAssignableFrom(LazyLoadSet.class)) {
+			related = new LazyLoadSet<Object>((Set<Object>) collection) {
+				@Override
+				protected void loadCollection(Collection<Object> collection) {
+					loadAll(c, query, collection);
+				}
+			};
+		} else if (!(collection instanceof List || collection instanceof Set) && fieldType.isAssignableFrom(LazyLoadCollection.class)) {
+			related = new LazyLoadCollection<Object>(collection) {
+				@Override
+				protected void loadCollection(Collection<Object> collection) {
+					loadAll(c, query, collection);
+				}
+			};
+		} else {
+			// Fields declared as a concrete collection class can only hold a proxy of it
+			related = (Collection<Object>) new LazyLoadDexMakerProxy(mSession.getContext(), collection.getClass()) {
 				@Override
 				protected Object loadObject() {
-					Object ret = null;
-					Cursor result = mSession.executeForResult(sql, true);
-					try {
-					    while (result.moveToNext())
-						    ret = createFromCursor(result, rel.getSecondType());
-					} finally {
-					    result.close();
-					}
-					return ret;
+					loadAll(c, query, collection);
+					return collection;
 				}
 			}.getProxy();
 		}
 		mClassReflector.setFieldValue(model, field, related);
 	}
 
-	private <T> void loadOneToOne(OneToOneRelationship rel, Field field, T model) {
-		String sql = getOneToOneEntityQuery(model, rel.getSecondType(), field, rel);
-		Cursor result = mSession.executeForResult(sql, true);
+	private void loadAll(Class<?> c, SqlQuery query, Collection<Object> collection) {
+		Cursor result = mSession.executeForResult(query.getSql(), query.getArgs(), true);
 		try {
 		    while (result.moveToNext())
-		        mClassReflector.setFieldValue(model, field, createFromCursor(result, rel.getSecondType()));
+			    collection.add(createFromCursor(result, c));
 		} finally {
 		    result.close();
 		}
 	}
 
-	private <T> void lazilyLoadOneToMany(final OneToManyRelationship rel, Field field, T model) {
-		final StringBuilder sql = new StringBuilder("SELECT * FROM ")
-				.append(mPersistencePolicy.getModelTableName(rel.getManyType()))
-				.append(" WHERE ").append(rel.getColumn()).append(" = ");
-		Serializable pk = mPersistencePolicy.getPrimaryKey(model);
-		switch (mMapper.getSqliteDataType(mPersistencePolicy.getPrimaryKeyField(model.getClass()))) {
-		case TEXT:
-			sql.append("'").append(pk).append("'");
-			break;
-		default:
-			sql.append(pk);
-		}
-		@SuppressWarnings("unchecked")
-		final Collection<Object> collection = (Collection<Object>) mClassReflector.getFieldValue(model, field);
-		@SuppressWarnings("unchecked")
-		Collection<Object> related = (Collection<Object>) new LazyLoadDexMakerProxy(mSession.getContext(), collection.getClass()) {
-			@Override
-			protected Object loadObject() {
-				Cursor result = mSession.executeForResult(sql.toString(), true);
+	private Set<String> getReferencedKeys(Class<?> c, String column, Set<String> keys) {
+		Set<String> ret = new HashSet<String>();
+		List<String> allKeys = new ArrayList<String>(keys);
+		for (int i = 0; i < allKeys.size(); i += SqliteStatementCache.MAX_KEYS_PER_STATEMENT) {
+			List<String> chunk = allKeys.subList(i, Math.min(i + SqliteStatementCache.MAX_KEYS_PER_STATEMENT, allKeys.size()));
+			Cursor result = mSession.executeForResult(mSqlBuilder.createBatchKeyQuery(c, column, chunk.size()),
+					chunk.toArray(new String[chunk.size()]), true);
+			try {
 				while (result.moveToNext())
-					collection.add(createFromCursor(result, rel.getManyType()));
+					ret.add(result.getString(0));
+			} finally {
 				result.close();
-				return collection;
 			}
-		}.getProxy();
-		mClassReflector.setFieldValue(model, field, related);
+		}
+		return ret;
 	}
 
-	private <T> void loadOneToMany(OneToManyRelationship rel, Field field, T model) {
-		StringBuilder sql = new StringBuilder("SELECT * FROM ")
-				.append(mPersistencePolicy.getModelTableName(rel.getManyType()))
-				.append(" WHERE ").append(rel.getColumn()).append(" = ");
-		Serializable pk = mPersistencePolicy.getPrimaryKey(model);
-		switch (mMapper.getSqliteDataType(mPersistencePolicy.getPrimaryKeyField(model.getClass()))) {
-		case TEXT:
-			sql.append("'").append(pk).append("'");
+	private void loadByForeignKey(ForeignKeyRelationship rel, Field field, Class<?> relatedClass, List<PendingModel> pending) {
+		Set<String> keys = new LinkedHashSet<String>();
+		for (PendingModel model : pending) {
+			String key = resolveForeignKey(model, field, rel);
+			if (key != null)
+				keys.add(key);
+		}
+		String pkColumn = getPrimaryKeyColumn(relatedClass);
+		Map<String, List<Object>> related = batchLoad(relatedClass, pkColumn, keys, null);
+		for (PendingModel model : pending) {
+			List<Object> match = related.get(model.mForeignKeys.get(field));
+			if (match != null)
+				mClassReflector.setFieldValue(model.mModel, field, match.get(0));
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	private void attachRelated(Object model, Field field, Object related) {
+		switch (mPersistencePolicy.getRelationship(field).getRelationType()) {
+		case OneToMany:
+		case ManyToMany:
+			Collection<Object> collection = (Collection<Object>) mClassReflector.getFieldValue(model, field);
+			collection.add(related);
+			mClassReflector.setFieldValue(model, field, collection);
 			break;
 		default:
-			sql.append(pk);
-		}
-		@SuppressWarnings("unchecked")
-		Collection<Object> related = (Collection<Object>) mClassReflector.getFieldValue(model, field);
-		Cursor result = mSession.executeForResult(sql.toString(), true);
-		try {
-		    while (result.moveToNext())
-			    related.add(createFromCursor(result, rel.getManyType()));
-		} finally {
-			result.close();
+			mClassReflector.setFieldValue(model, field, related);
 		}
-		mClassReflector.setFieldValue(model, field, related);
 	}
 
-	private <T> void lazilyLoadManyToOne(ManyToOneRelationship rel, Field field, T model) {
-		final Class<?> direction = model.getClass() == rel.getFirstType() ? rel.getSecondType() : rel.getFirstType();
-		final String sql = getEntityQuery(model, direction, field, rel);
-		Object related = null;
-		if (mSession.count(sql.replace("*", "count(*)")) > 0) {
-			related = new LazyLoadDexMakerProxy(mSession.getContext(), rel.getSecondType()) {
-				@Override
-				protected Object loadObject() {
-					Object ret = null;
-					Cursor result = mSession.executeForResult(sql, true);
-					try {
-					    while (result.moveToNext())
-						    ret = createFromCursor(result, direction);
-					} finally {
-					    result.close();
-					}
-					return ret;
-				}
-			}.getProxy();
+	private Class<?> getRelatedType(ModelRelationship rel, Class<?> modelClass) {
+		switch (rel.getRelationType()) {
+		case OneToMany:
+			return ((OneToManyRelationship) rel).getManyType();
+		case OneToOne:
+			return rel.getSecondType();
+		default:
+			return modelClass == rel.getFirstType() ? rel.getSecondType() : rel.getFirstType();
 		}
-		mClassReflector.setFieldValue(model, field, related);
 	}
 
-	private <T> void loadManyToOne(ManyToOneRelationship rel, Field field, T model) {
-		Class<?> direction = model.getClass() == rel.getFirstType() ? rel.getSecondType() : rel.getFirstType();
-		String sql = getEntityQuery(model, direction, field, rel);
-		Cursor result = mSession.executeForResult(sql, true);
-		try {
-		    while (result.moveToNext())
-		        mClassReflector.setFieldValue(model, field, createFromCursor(result, direction));
-		} finally {
-		    result.close();
+	private String getPrimaryKeyColumn(Class<?> c) {
+		return mMapper.getEntityMetadata(c).getPrimaryKeyColumn();
+	}
+
+	@SuppressWarnings("unchecked")
+	private void addRelated(Map<String, List<Object>> related, Field field, List<PendingModel> pending) {
+		for (PendingModel model : pending) {
+			Collection<Object> collection = (Collection<Object>) mClassReflector.getFieldValue(model.mModel, field);
+			List<Object> match = related.get(String.valueOf(mPersistencePolicy.getPrimaryKey(model.mModel)));
+			if (match != null)
+				collection.addAll(match);
+			mClassReflector.setFieldValue(model.mModel, field, collection);
 		}
 	}
 
-	private <T> void lazilyLoadManyToMany(final ManyToManyRelationship rel, Field field, T model) {
-		// TODO Add reflexive M:M support
-		final Class<?> direction = model.getClass() == rel.getFirstType() ? rel.getSecondType() : rel.getFirstType();
-		Serializable pk = mPersistencePolicy.getPrimaryKey(model);
-		final String sql = mSqlBuilder.createManyToManyJoinQuery(rel, pk, direction);
-		@SuppressWarnings("unchecked")
-		final Collection<Object> collection = (Collection<Object>) mClassReflector.getFieldValue(model, field);
-		@SuppressWarnings("unchecked")
-		Collection<Object> related = (Collection<Object>) new LazyLoadDexMakerProxy(mSession.getContext(), collection.getClass()) {
-			@Override
-			protected Object loadObject() {
-				Cursor result = mSession.executeForResult(sql, true);
-				try {
-				    while (result.moveToNext())
-					    collection.add(createFromCursor(result, direction));
-				} finally {
-				    result.close();
+	/**
+	 * Retrieves the entities of the given {@link Class} matching any of the
+	 * given keys, grouped by the key they matched. If {@code rel} is
+	 * specified, keys are matched against the other side of the
+	 * {@link ManyToManyRelationship}, otherwise against {@code column}. Keys
+	 * are queried in chunks to stay within SQLite's bound parameter limit.
+	 */
+	private Map<String, List<Object>> batchLoad(Class<?> c, String column, Set<String> keys, ManyToManyRelationship rel) {
+		Map<String, List<Object>> ret = new HashMap<String, List<Object>>();
+		List<String> allKeys = new ArrayList<String>(keys);
+		String keyColumn = rel == null ? column : SqlConstants.BATCH_KEY_ALIAS;
+		for (int i = 0; i < allKeys.size(); i += SqliteStatementCache.MAX_KEYS_PER_STATEMENT) {
+			List<String> chunk = allKeys.subList(i, Math.min(i + SqliteStatementCache.MAX_KEYS_PER_STATEMENT, allKeys.size()));
+			String sql = rel == null ? mSqlBuilder.createBatchQuery(c, column, chunk.size()) : mSqlBuilder.createManyToManyBatchJoinQuery(rel, c,
+					chunk.size());
+			List<String> rowKeys = new ArrayList<String>();
+			List<?> entities;
+			Cursor result = mSession.executeForResult(sql, chunk.toArray(new String[chunk.size()]), true);
+			try {
+				entities = createAllFromCursor(result, c, true, keyColumn, rowKeys);
+			} finally {
+				result.close();
+			}
+			for (int j = 0; j < entities.size(); j++) {
+				List<Object> group = ret.get(rowKeys.get(j));
+				if (group == null) {
+					group = new ArrayList<Object>();
+					ret.put(rowKeys.get(j), group);
 				}
-				return collection;
+				group.add(entities.get(j));
 			}
-		}.getProxy();
-		mClassReflector.setFieldValue(model, field, related);
+		}
+		return ret;
 	}
 
-	private <T> void loadManyToMany(ManyToManyRelationship rel, Field f, T model) throws ModelConfigurationException, InfinitumRuntimeException {
-		// TODO Add reflexive M:M support
-		Class<?> direction = model.getClass() == rel.getFirstType() ? rel.getSecondType() : rel.getFirstType();
-		Serializable pk = mPersistencePolicy.getPrimaryKey(model);
-		String sql = mSqlBuilder.createManyToManyJoinQuery(rel, pk, direction);
-		Cursor result = mSession.executeForResult(sql, true);
-		@SuppressWarnings("unchecked")
-		Collection<Object> related = (Collection<Object>) mClassReflector.getFieldValue(model, f);
-		try {
-		    while (result.moveToNext())
-			    related.add(createFromCursor(result, direction));
-		} finally {
-		    result.close();
+	private Set<String> getPrimaryKeys(List<PendingModel> pending) {
+		Set<String> ret = new LinkedHashSet<String>();
+		for (PendingModel model : pending) {
+			Serializable pk = mPersistencePolicy.getPrimaryKey(model.mModel);
+			if (pk != null)
+				ret.add(String.valueOf(pk));
 		}
-		mClassReflector.setFieldValue(model, f, related);
+		return ret;
 	}
 
-	private String getEntityQuery(Object model, Class<?> c, Field field, ForeignKeyRelationship rel) {
-		StringBuilder sql = new StringBuilder("SELECT * FROM ")
+	private String resolveForeignKey(PendingModel model, Field field, ForeignKeyRelationship rel) {
+		// Fall back to querying for the key if it wasn't in the model's row
+		if (!model.mForeignKeys.containsKey(field))
+			model.mForeignKeys.put(field, getForeignKey(model.mModel, rel));
+		return model.mForeignKeys.get(field);
+	}
+
+	private SqlQuery getEntityQuery(String foreignKey, Class<?> c) {
+		String sql = new StringBuilder("SELECT * FROM ")
 				.append(mPersistencePolicy.getModelTableName(c))
 				.append(" WHERE ")
-				.append(mPersistencePolicy.getFieldColumnName(mPersistencePolicy.getPrimaryKeyField(c))).append(" = ");
-		switch (mMapper.getSqliteDataType(field)) {
-		case TEXT:
-			sql.append("'").append(getForeignKey(model, rel)).append("'");
-			break;
-		default:
-			sql.append(getForeignKey(model, rel));
-		}
-		return sql.append(" LIMIT 1").toString();
+				.append(mPersistencePolicy.getFieldColumnName(mPersistencePolicy.getPrimaryKeyField(c)))
+				.append(" = ? LIMIT 1").toString();
+		return new SqlQuery(sql, new String[] { foreignKey });
 	}
 	
-	private String getOneToOneEntityQuery(Object model, Class<?> relatedClass, Field field, OneToOneRelationship rel) {
-		boolean isOwner = rel.getOwner() == model.getClass();
+	private SqlQuery getOneToOneEntityQuery(String key, boolean isOwner, Class<?> relatedClass, OneToOneRelationship rel) {
 		StringBuilder sql = new StringBuilder("SELECT * FROM ")
 				.append(mPersistencePolicy.getModelTableName(relatedClass))
 				.append(" WHERE ");
@@ -348,44 +718,22 @@ public class SqliteModelFactory implements ModelFactory {
 		} else {
 			sql.append(rel.getColumn());
 		}
-		sql.append(" = ");
-		switch (mMapper.getSqliteDataType(field)) {
-		case TEXT:
-			sql.append("'").append(getOneToOneKey(model, isOwner, rel)).append("'");
-			break;
-		default:
-			sql.append(getOneToOneKey(model, isOwner, rel));
-		}
-		return sql.append(" LIMIT 1").toString();
-	}
-	
-	private Serializable getOneToOneKey(Object model, boolean isOwner, OneToOneRelationship rel) {
-		if (isOwner) {
-			return getForeignKey(model, rel);
-		} else {
-			return mPersistencePolicy.getPrimaryKey(model);
-		}
+		sql.append(" = ? LIMIT 1");
+		return new SqlQuery(sql.toString(), new String[] { key });
 	}
 
-	private Serializable getForeignKey(Object model, ForeignKeyRelationship rel) {
+	private String getForeignKey(Object model, ForeignKeyRelationship rel) {
 		StringBuilder q = new StringBuilder("SELECT ")
 				.append(rel.getColumn())
 				.append(" FROM ")
 				.append(mPersistencePolicy.getModelTableName(model.getClass()))
 				.append(" WHERE ")
 				.append(mPersistencePolicy.getFieldColumnName(mPersistencePolicy
-						.getPrimaryKeyField(model.getClass()))).append(" = ");
+						.getPrimaryKeyField(model.getClass()))).append(" = ?");
 		Serializable pk = mPersistencePolicy.getPrimaryKey(model);
-		switch (mMapper.getSqliteDataType(pk)) {
-		case TEXT:
-			q.append("'").append(pk).append("'");
-			break;
-		default:
-			q.append(pk);
-		}
-		Cursor result = mSession.executeForResult(q.toString(), true);
+		Cursor result = mSession.executeForResult(q.toString(), new String[] { SqlQuery.toArg(pk) }, true);
 		result.moveToFirst();
-		Serializable id;
+		String id;
 		try {
 			id = result.getString(0);
 		} catch (ClassCastException e) {
@@ -396,4 +744,20 @@ public class SqliteModelFactory implements ModelFactory {
 		return id;
 	}
 
+	/**
+	 * Holds a newly constructed model whose relationships have yet to be
+	 * loaded, along with the foreign keys read from its row.
+	 */
+	private static class PendingModel {
+
+		private Object mModel;
+		private Map<Field, String> mForeignKeys;
+
+		public PendingModel(Object model, Map<Field, String> foreignKeys) {
+			mModel = model;
+			mForeignKeys = foreignKeys;
+		}
+
+	}
+
 }
@@ -0,0 +1,163 @@
+/*
+ * Copyright (c) 2012 Tyler Treat
+ *
+ * This file is part of Infinitum Framework.
+ *
+ * Infinitum Framework is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Infinitum Framework is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Infinitum Framework.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.clarionmedia.infinitum.orm.sqlite.impl;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import android.database.Cursor;
+
+import com.clarionmedia.infinitum.orm.criteria.ResultIterator;
+import com.clarionmedia.infinitum.orm.sqlite.impl.EntityMetadata.ColumnPlan;
+
+/**
+ * <p>
+ * Implementation of {@link ResultIterator} for SQLite queries. Without a fetch
+ * size, entities are constructed from the underlying {@link Cursor} one row at
+ * a time as they are read. With a fetch size, results are read in pages of
+ * that many rows, each page being retrieved with its own query once the
+ * previous one has been exhausted, so that relationships can be loaded for
+ * the whole page at once. Pages are ordered by primary key after the
+ * {@link SqliteCriteria}'s own ordering, and each page after the first seeks
+ * past the last entity of the previous one rather than skipping rows with an
+ * offset, so rows are neither repeated nor skipped between pages.
+ * </p>
+ * 
+ * @author Tyler Treat
+ * @version 1.0 10/17/26
+ * @since 1.0
+ */
+public class SqliteResultIterator<T> implements ResultIterator<T> {
+
+	private SqliteCriteria<T> mCriteria;
+	private int mFetchSize;
+	private int mLimit;
+	private int mOffset;
+	private int mRead;
+	private int mPageSize;
+	private Cursor mCursor;
+	private ColumnPlan mPlan;
+	private Iterator<T> mPage;
+	private T mLast;
+	private boolean mHasRow;
+	private boolean mIsClosed;
+
+	/**
+	 * Constructs a new {@code SqliteResultIterator} and executes the query for
+	 * its first page of results.
+	 * 
+	 * @param criteria
+	 *            the {@link SqliteCriteria} to iterate over the results of
+	 * @param fetchSize
+	 *            the number of rows to read per page, or {@code 0} to read
+	 *            every result from a single {@link Cursor}
+	 */
+	public SqliteResultIterator(SqliteCriteria<T> criteria, int fetchSize) {
+		mCriteria = criteria;
+		mFetchSize = fetchSize;
+		mLimit = criteria.getLimit();
+		mOffset = criteria.getOffset();
+		if (mFetchSize > 0)
+			fetchPage();
+		else
+			mCursor = criteria.query(mLimit, mOffset);
+	}
+
+	@Override
+	public boolean hasNext() {
+		if (mIsClosed)
+			return false;
+		if (mFetchSize > 0) {
+			if (mPage.hasNext())
+				return true;
+			// A full page means there may be more results
+			if (mPageSize == mFetchSize && (mLimit <= 0 || mRead < mLimit)) {
+				fetchPage();
+				if (mPage.hasNext())
+					return true;
+			}
+		} else {
+			if (mHasRow)
+				return true;
+			if (mCursor.moveToNext()) {
+				if (mPlan == null)
+					mPlan = mCriteria.createColumnPlan(mCursor);
+				mHasRow = true;
+				return true;
+			}
+		}
+		close();
+		return false;
+	}
+
+	@Override
+	public T next() {
+		if (!hasNext())
+			throw new NoSuchElementException();
+		mRead++;
+		if (mFetchSize > 0)
+			return mPage.next();
+		mHasRow = false;
+		try {
+			return mCriteria.createEntity(mCursor, mPlan);
+		} catch (RuntimeException e) {
+			close();
+			throw e;
+		}
+	}
+
+	@Override
+	public void remove() {
+		throw new UnsupportedOperationException("ResultIterator does not support remove.");
+	}
+
+	@Override
+	public void close() {
+		if (mIsClosed)
+			return;
+		mIsClosed = true;
+		mPage = null;
+		mLast = null;
+		if (mCursor != null)
+			mCursor.close();
+	}
+
+	@Override
+	public boolean isClosed() {
+		return mIsClosed;
+	}
+
+	private void fetchPage() {
+		int limit = mLimit > 0 ? Math.min(mFetchSize, mLimit - mRead) : mFetchSize;
+		List<T> page;
+		if (mLast != null) {
+			page = mCriteria.list(limit, 0, mCriteria.createSeekKeys(mLast));
+		} else {
+			Object[] keys = mCriteria.getSeekKeys();
+			page = mCriteria.list(limit, mOffset, keys == null ? new Object[0] : keys);
+		}
+		mPageSize = page.size();
+		if (mPageSize > 0)
+			mLast = page.get(mPageSize - 1);
+		mPage = page.iterator();
+	}
+
+}
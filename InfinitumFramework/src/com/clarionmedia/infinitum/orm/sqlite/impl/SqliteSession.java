@@ -21,25 +21,30 @@ package com.clarionmedia.infinitum.orm.sqlite.impl;
 
 import java.io.Serializable;
 import java.util.Collection;
+import java.util.List;
 import java.util.Map;
 
 import android.content.Context;
 import android.database.Cursor;
 import android.database.SQLException;
 
+import com.clarionmedia.infinitum.aop.AopProxy;
 import com.clarionmedia.infinitum.context.InfinitumContext;
 import com.clarionmedia.infinitum.di.annotation.Autowired;
 import com.clarionmedia.infinitum.di.annotation.PostConstruct;
 import com.clarionmedia.infinitum.exception.InfinitumRuntimeException;
 import com.clarionmedia.infinitum.http.rest.Deserializer;
-import com.clarionmedia.infinitum.internal.caching.LruCache;
+import com.clarionmedia.infinitum.internal.Preconditions;
+import com.clarionmedia.infinitum.internal.caching.SessionCacheFactory;
 import com.clarionmedia.infinitum.logging.Logger;
 import com.clarionmedia.infinitum.orm.Session;
 import com.clarionmedia.infinitum.orm.criteria.Criteria;
 import com.clarionmedia.infinitum.orm.exception.SQLGrammarException;
+import com.clarionmedia.infinitum.orm.persistence.EntityKey;
 import com.clarionmedia.infinitum.orm.persistence.PersistencePolicy;
 import com.clarionmedia.infinitum.orm.persistence.TypeAdapter;
 import com.clarionmedia.infinitum.orm.sqlite.SqliteTypeAdapter;
+import com.clarionmedia.infinitum.orm.sqlite.impl.UnitOfWork.WriteType;
 
 /**
  * <p>
@@ -61,7 +66,9 @@ public class SqliteSession implements Session {
 	@Autowired
 	private PersistencePolicy mPolicy;
 	
-	private Map<Integer, Object> mSessionCache;
+	private Map<EntityKey, Object> mSessionCache;
+	private Map<EntityKey, EntitySnapshot> mSnapshots;
+	private UnitOfWork mUnitOfWork;
 	private Logger mLogger;
 	private int mCacheSize;
 
@@ -86,7 +93,8 @@ public class SqliteSession implements Session {
 	@PostConstruct
 	private void init() {
 		mLogger = Logger.getInstance(mInfinitumContext, getClass().getSimpleName());
-		mSessionCache = new LruCache<Integer, Object>(mCacheSize);
+		mSessionCache = SessionCacheFactory.createSessionCache(mInfinitumContext, mCacheSize);
+		mSnapshots = SessionCacheFactory.createSessionCache(mInfinitumContext, mCacheSize);
 	}
 
 	@Override
@@ -103,6 +111,8 @@ public class SqliteSession implements Session {
 
 	@Override
 	public Session close() {
+		if (mUnitOfWork != null)
+			mUnitOfWork.clear();
 		mSqlite.close();
 		recycleCache();
 		mLogger.debug("Session closed");
@@ -117,6 +127,7 @@ public class SqliteSession implements Session {
 	@Override
 	public Session recycleCache() {
 		mSessionCache.clear();
+		mSnapshots.clear();
 		return this;
 	}
 
@@ -138,44 +149,53 @@ public class SqliteSession implements Session {
 
 	@Override
 	public long save(Object model) throws InfinitumRuntimeException {
+		if (queue(model, WriteType.SAVE))
+			return 0;
 		long id = mSqlite.save(model);
 		if (id != -1) {
 			// Add to session cache
-			int hash = mPolicy.computeModelHash(model);
-			mSessionCache.put(hash, model);
+			EntityKey key = mPolicy.getEntityKey(model);
+			mSessionCache.put(key, model);
 		}
 		return id;
 	}
 
 	@Override
 	public boolean update(Object model) throws InfinitumRuntimeException {
+		if (queue(model, WriteType.UPDATE))
+			return true;
 		boolean success = mSqlite.update(model);
 		if (success) {
 			// Update session cache
-			int hash = mPolicy.computeModelHash(model);
-			mSessionCache.put(hash, model);
+			EntityKey key = mPolicy.getEntityKey(model);
+			mSessionCache.put(key, model);
 		}
 		return success;
 	}
 
 	@Override
 	public boolean delete(Object model) throws InfinitumRuntimeException {
+		if (queue(model, WriteType.DELETE))
+			return true;
 		boolean success = mSqlite.delete(model);
 		if (success) {
 			// Remove from session cache
-			int hash = mPolicy.computeModelHash(model);
-			mSessionCache.remove(hash);
+			EntityKey key = mPolicy.getEntityKey(model);
+			mSessionCache.remove(key);
+			mSnapshots.remove(key);
 		}
 		return success;
 	}
 
 	@Override
 	public long saveOrUpdate(Object model) throws InfinitumRuntimeException {
+		if (queue(model, WriteType.SAVE_OR_UPDATE))
+			return 0;
 		long id = mSqlite.saveOrUpdate(model);
 		if (id >= 0) {
 			// Update session cache
-			int hash = mPolicy.computeModelHash(model);
-			mSessionCache.put(hash, model);
+			EntityKey key = mPolicy.getEntityKey(model);
+			mSessionCache.put(key, model);
 		}
 		return id;
 	}
@@ -183,43 +203,36 @@ public class SqliteSession implements Session {
 	@Override
 	public int saveOrUpdateAll(Collection<? extends Object> models)
 			throws InfinitumRuntimeException {
-		int count = 0;
-		for (Object model : models) {
-			if (mSqlite.saveOrUpdate(model) >= 0) {
-				count++;
-				// Update session cache
-				int hash = mPolicy.computeModelHash(model);
-				mSessionCache.put(hash, model);
-			}
-		}
-		return count;
+		if (queueAll(models, WriteType.SAVE_OR_UPDATE))
+			return models.size();
+		List<Object> written = mSqlite.saveOrUpdateAll(models);
+		cacheAll(written);
+		return written.size();
 	}
 
 	@Override
 	public int saveAll(Collection<? extends Object> models)
 			throws InfinitumRuntimeException {
-		int count = 0;
-		for (Object model : models) {
-			if (mSqlite.save(model) > 0) {
-				count++;
-				// Update session cache
-				int hash = mPolicy.computeModelHash(model);
-				mSessionCache.put(hash, model);
-			}
-		}
-		return count;
+		if (queueAll(models, WriteType.SAVE))
+			return models.size();
+		List<Object> written = mSqlite.saveAll(models);
+		cacheAll(written);
+		return written.size();
 	}
 
 	@Override
 	public int deleteAll(Collection<? extends Object> models)
 			throws InfinitumRuntimeException {
+		if (queueAll(models, WriteType.DELETE))
+			return models.size();
 		int count = 0;
 		for (Object model : models) {
 			if (mSqlite.delete(model)) {
 				count++;
 				// Remove from session cache
-				int hash = mPolicy.computeModelHash(model);
-				mSessionCache.remove(hash);
+				EntityKey key = mPolicy.getEntityKey(model);
+				mSessionCache.remove(key);
+				mSnapshots.remove(key);
 			}
 		}
 		return count;
@@ -229,9 +242,10 @@ public class SqliteSession implements Session {
 	@Override
 	public <T> T load(Class<T> c, Serializable id)
 			throws InfinitumRuntimeException, IllegalArgumentException {
-		int hash = mPolicy.computeModelHash(c, id);
-		if (checkCache(hash))
-			return (T) mSessionCache.get(hash);
+		autoFlush();
+		EntityKey key = mPolicy.getEntityKey(c, id);
+		if (checkCache(key))
+			return (T) mSessionCache.get(key);
 		return mSqlite.load(c, id);
 	}
 
@@ -261,12 +275,17 @@ public class SqliteSession implements Session {
 
 	@Override
 	public Session commit() {
+		flush();
 		mSqlite.commit();
 		return this;
 	}
 
 	@Override
 	public Session rollback() {
+		if (mUnitOfWork != null)
+			mUnitOfWork.clear();
+		// Snapshots taken during the transaction describe writes which were undone
+		mSnapshots.clear();
 		mSqlite.rollback();
 		return this;
 	}
@@ -295,21 +314,155 @@ public class SqliteSession implements Session {
 	}
 	
 	@Override
-	public boolean cache(int hash, Object model) {
+	public boolean cache(EntityKey key, Object model) {
 		if (mSessionCache.size() >= mCacheSize)
 			return false;
-		mSessionCache.put(hash, model);
+		mSessionCache.put(key, model);
 		return true;
 	}
 
 	@Override
-	public boolean checkCache(int hash) {
-		return mSessionCache.containsKey(hash);
+	public boolean checkCache(EntityKey key) {
+		return mSessionCache.containsKey(key);
 	}
 
 	@Override
-	public Object searchCache(int hash) {
-		return mSessionCache.get(hash);
+	public Object searchCache(EntityKey key) {
+		return mSessionCache.get(key);
+	}
+
+	/**
+	 * Enables or disables unit-of-work mode. While enabled, saves, updates and
+	 * deletes are queued rather than written, and are written together when
+	 * {@link #flush()} or {@link #commit()} is called, or before the next
+	 * load or {@link Criteria} query. Queued writes are discarded on
+	 * {@link #rollback()} and {@link #close()}. Disabling unit-of-work mode
+	 * flushes any queued writes.
+	 * <p>
+	 * Since queued writes have not reached the database, {@link #save(Object)}
+	 * and {@link #saveOrUpdate(Object)} return 0 rather than a row ID for them,
+	 * and {@link #update(Object)} and {@link #delete(Object)} return
+	 * {@code true}. Row IDs are assigned when the writes are flushed.
+	 * </p>
+	 * 
+	 * @param enabled
+	 *            {@code true} to queue writes, {@code false} to write them
+	 *            immediately
+	 * @return this {@code Session} to allow for method chaining
+	 */
+	public Session setUnitOfWork(boolean enabled) {
+		if (enabled) {
+			if (mUnitOfWork == null)
+				mUnitOfWork = new UnitOfWork();
+		} else if (mUnitOfWork != null) {
+			flush();
+			mUnitOfWork = null;
+		}
+		return this;
+	}
+
+	/**
+	 * Indicates if unit-of-work mode is enabled.
+	 * 
+	 * @return {@code true} if writes are queued, {@code false} if not
+	 */
+	public boolean isUnitOfWork() {
+		return mUnitOfWork != null;
+	}
+
+	/**
+	 * Writes the saves, updates and deletes queued in unit-of-work mode. Has
+	 * no effect if unit-of-work mode is disabled or nothing is queued.
+	 * 
+	 * @return this {@code Session} to allow for method chaining
+	 * @throws InfinitumRuntimeException
+	 *             if autocommit is disabled and a transaction has not been
+	 *             started
+	 */
+	public Session flush() throws InfinitumRuntimeException {
+		if (mUnitOfWork == null || mUnitOfWork.isEmpty())
+			return this;
+		List<Object> written = mSqlite.flush(mUnitOfWork);
+		for (Object model : mUnitOfWork.getEntities(WriteType.DELETE)) {
+			// Remove from session cache
+			EntityKey key = mPolicy.getEntityKey(model);
+			mSessionCache.remove(key);
+			mSnapshots.remove(key);
+		}
+		mUnitOfWork.clear();
+		cacheAll(written);
+		mLogger.debug("Session flushed");
+		return this;
+	}
+
+	/**
+	 * Flushes the writes queued in unit-of-work mode so that a query made
+	 * next sees them. Has no effect if unit-of-work mode is disabled, nothing
+	 * is queued, or autocommit is disabled and a transaction has not been
+	 * started, in which case the writes remain queued until {@link #commit()}.
+	 * 
+	 * @return this {@code Session} to allow for method chaining
+	 */
+	public Session autoFlush() {
+		if (mSqlite.isAutocommit() || mSqlite.isTransactionOpen())
+			flush();
+		return this;
+	}
+
+	/**
+	 * Records the persistent state of the given entity, which was just read
+	 * from or written to the database, so that later updates to it only write
+	 * what changed. Entities modified through {@link #execute(String)} or
+	 * outside of this {@code SqliteSession} should be evicted with
+	 * {@link #recycleCache()}.
+	 * 
+	 * @param model
+	 *            the entity to take a snapshot of
+	 * @param map
+	 *            the {@link SqliteModelMap} of the entity's current state
+	 */
+	public void snapshot(Object model, SqliteModelMap map) {
+		mSnapshots.put(mPolicy.getEntityKey(model), new EntitySnapshot(model, map, mPolicy));
+	}
+
+	/**
+	 * Records the persistent state of the given entity, which was just read
+	 * from the database with the given {@link EntityMetadata}, so that later
+	 * updates to it only write what changed.
+	 * 
+	 * @param model
+	 *            the entity to take a snapshot of
+	 * @param metadata
+	 *            the {@code EntityMetadata} the entity was read with
+	 */
+	public void snapshot(Object model, EntityMetadata metadata) {
+		mSnapshots.put(mPolicy.getEntityKey(model), new EntitySnapshot(model, metadata, mPolicy));
+	}
+
+	/**
+	 * Discards every {@link EntitySnapshot} recorded by this
+	 * {@code SqliteSession}, so that the next update of each entity writes all
+	 * of its columns. This is used when writes which snapshots were taken of
+	 * may not have reached the database.
+	 */
+	public void discardSnapshots() {
+		mSnapshots.clear();
+	}
+
+	/**
+	 * Returns the {@link EntitySnapshot} last recorded for the given entity
+	 * instance.
+	 * 
+	 * @param model
+	 *            the entity to retrieve the snapshot for
+	 * @return {@code EntitySnapshot} or {@code null} if the session has no
+	 *         snapshot of this instance
+	 */
+	public EntitySnapshot getSnapshot(Object model) {
+		EntitySnapshot snapshot = mSnapshots.get(mPolicy.getEntityKey(model));
+		if (snapshot == null || !snapshot.isSnapshotOf(model))
+			return null;
+		return snapshot;
 	}
 
 	/**
@@ -329,6 +482,46 @@ public class SqliteSession implements Session {
 		return mSqlite.executeForResult(sql, force);
 	}
 
+	/**
+	 * Executes the given parameterized SQL query on the database for a
+	 * result.
+	 * 
+	 * @param sql
+	 *            the SQL query to execute
+	 * @param args
+	 *            the values to bind to the query's parameters
+	 * @param force
+	 *            indicates if the query should be executed regardless of
+	 *            transaction state, i.e. there is no open transaction
+	 * @return {@link Cursor} containing the results of the query
+	 * @throws SQLGrammarException
+	 *             if the SQL was formatted incorrectly
+	 */
+	public Cursor executeForResult(String sql, String[] args, boolean force)
+			throws SQLGrammarException {
+		return mSqlite.executeForResult(sql, args, force);
+	}
+
+	/**
+	 * Executes the given parameterized SQL query on the database for a
+	 * result, using the results held in the {@link SecondLevelCache} if the
+	 * tables it reads have not been written since they were cached.
+	 * 
+	 * @param sql
+	 *            the SQL query to execute
+	 * @param args
+	 *            the values to bind to the query's parameters
+	 * @param tables
+	 *            the names of the tables read by the query
+	 * @return {@link Cursor} over the query results
+	 * @throws SQLGrammarException
+	 *             if the SQL was formatted incorrectly
+	 */
+	public Cursor executeForCachedResult(String sql, String[] args, String[] tables)
+			throws SQLGrammarException {
+		return mSqlite.executeForCachedResult(sql, args, tables);
+	}
+
 	/**
 	 * Executes the given count query and returns the number of rows resulting
 	 * from it.
@@ -372,4 +565,34 @@ public class SqliteSession implements Session {
 		return mSqlite.getSqliteMapper();
 	}
 
+	private void cacheAll(List<Object> models) {
+		// Only the most recently written models would survive in the cache
+		int start = Math.max(0, models.size() - mCacheSize);
+		for (Object model : models.subList(start, models.size())) {
+			EntityKey key = mPolicy.getEntityKey(model);
+			mSessionCache.put(key, model);
+		}
+	}
+
+	private boolean queue(Object model, WriteType type) {
+		if (mUnitOfWork == null)
+			return false;
+		Preconditions.checkPersistenceForModify(model, mPolicy);
+		model = AopProxy.getTarget(model);
+		if (!mUnitOfWork.queue(model, type)) {
+			// The entity is queued for deletion, so the delete has to be written first
+			flush();
+			mUnitOfWork.queue(model, type);
+		}
+		return true;
+	}
+
+	private boolean queueAll(Collection<? extends Object> models, WriteType type) {
+		if (mUnitOfWork == null)
+			return false;
+		for (Object model : models)
+			queue(model, type);
+		return true;
+	}
+
 }
@@ -0,0 +1,350 @@
+/*
+ * Copyright (c) 2012 Tyler Treat
+ *
+ * This file is part of Infinitum Framework.
+ *
+ * Infinitum Framework is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Infinitum Framework is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Infinitum Framework.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.clarionmedia.infinitum.orm.sqlite.impl;
+
+import java.io.Serializable;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import android.content.ContentValues;
+import android.database.Cursor;
+import android.database.SQLException;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteProgram;
+import android.database.sqlite.SQLiteStatement;
+
+import com.clarionmedia.infinitum.logging.Logger;
+import com.clarionmedia.infinitum.orm.sql.SqlBuilder;
+import com.clarionmedia.infinitum.orm.sql.SqlConstants;
+
+/**
+ * <p>
+ * Caches the precompiled {@link SQLiteStatement}s used to insert, update and
+ * delete entities by primary key, grouped by entity {@link Class}. Statements
+ * are compiled once per distinct set of columns and executed with their values
+ * bound as parameters, so SQLite does not parse and plan them on every call
+ * and values are never interpolated into SQL.
+ * </p>
+ * <p>
+ * Statements belong to the {@link SQLiteDatabase} they were compiled against
+ * and must be released by calling {@link #close()} before it is closed.
+ * </p>
+ *
+ * @author Tyler Treat
+ * @version 1.0 10/17/26
+ * @since 1.0
+ */
+public class SqliteStatementCache {
+
+	/**
+	 * The maximum number of statements cached for a single entity
+	 * {@link Class}. Entities with many nullable columns may otherwise compile
+	 * a statement for every combination of columns.
+	 */
+	public static final int MAX_STATEMENTS_PER_CLASS = 16;
+
+	/**
+	 * The maximum number of keys bound to a single set-based statement. SQLite
+	 * limits a statement to 999 parameters by default.
+	 */
+	public static final int MAX_KEYS_PER_STATEMENT = 500;
+
+	private static final String INSERT = "I:";
+	private static final String UPDATE = "U:";
+	private static final String UPDATE_COLUMN = "C:";
+	private static final String DELETE = "D:";
+
+	private final SQLiteDatabase mSqliteDb;
+	private final SqlBuilder mSqlBuilder;
+	private final Logger mLogger;
+	private final Map<Class<?>, Map<String, SQLiteStatement>> mStatements;
+	private final Map<Class<?>, String> mLoadQueries;
+	private SQLiteStatement mChangesStatement;
+
+	/**
+	 * Constructs a new {@code SqliteStatementCache}.
+	 *
+	 * @param sqliteDb
+	 *            the {@link SQLiteDatabase} to compile statements against
+	 * @param sqlBuilder
+	 *            the {@link SqlBuilder} used to generate statements
+	 * @param logger
+	 *            the {@link Logger} failed inserts are reported to
+	 */
+	public SqliteStatementCache(SQLiteDatabase sqliteDb, SqlBuilder sqlBuilder, Logger logger) {
+		mSqliteDb = sqliteDb;
+		mSqlBuilder = sqlBuilder;
+		mLogger = logger;
+		mStatements = new HashMap<Class<?>, Map<String, SQLiteStatement>>();
+		mLoadQueries = new HashMap<Class<?>, String>();
+	}
+
+	/**
+	 * Inserts a row for the given entity {@link Class} with the given values.
+	 * Like {@link SQLiteDatabase#insert(String, String, ContentValues)}, a
+	 * failed insert, such as one violating a constraint, is logged rather
+	 * than thrown.
+	 *
+	 * @param c
+	 *            the entity {@code Class} to insert a row for
+	 * @param values
+	 *            the column values to insert
+	 * @return the row ID of the inserted row or -1 if it could not be inserted
+	 */
+	public synchronized long insert(Class<?> c, ContentValues values) {
+		int size = values.size();
+		String[] columns = new String[size];
+		Object[] args = new Object[size];
+		String key = collectValues(INSERT, values, columns, args);
+		SQLiteStatement statement = getStatement(c, key);
+		if (statement == null)
+			statement = putStatement(c, key, mSqlBuilder.createInsertStatement(c, columns));
+		bindAll(statement, args);
+		try {
+			return statement.executeInsert();
+		} catch (SQLException e) {
+			mLogger.error("Error inserting " + values, e);
+			return -1;
+		}
+	}
+
+	/**
+	 * Updates the row of the given entity {@link Class} identified by the
+	 * given primary key with the given values.
+	 *
+	 * @param c
+	 *            the entity {@code Class} to update a row for
+	 * @param values
+	 *            the column values to update
+	 * @param pk
+	 *            the primary key of the row to update
+	 * @return the number of rows updated
+	 */
+	public synchronized int update(Class<?> c, ContentValues values, Serializable pk) {
+		int size = values.size();
+		String[] columns = new String[size];
+		Object[] args = new Object[size + 1];
+		String key = collectValues(UPDATE, values, columns, args);
+		args[size] = pk;
+		SQLiteStatement statement = getStatement(c, key);
+		if (statement == null)
+			statement = putStatement(c, key, mSqlBuilder.createUpdateStatement(c, columns));
+		bindAll(statement, args);
+		return executeForChanges(statement);
+	}
+
+	/**
+	 * Sets a single column, such as a foreign key, of the row of the given
+	 * entity {@link Class} identified by the given primary key.
+	 *
+	 * @param c
+	 *            the entity {@code Class} to update a row for
+	 * @param column
+	 *            the name of the column to update
+	 * @param value
+	 *            the value to set
+	 * @param pk
+	 *            the primary key of the row to update
+	 * @return the number of rows updated
+	 */
+	public synchronized int updateColumn(Class<?> c, String column, Object value, Serializable pk) {
+		String key = UPDATE_COLUMN + column;
+		SQLiteStatement statement = getStatement(c, key);
+		if (statement == null)
+			statement = putStatement(c, key, mSqlBuilder.createUpdateColumnStatement(c, column));
+		bindAll(statement, new Object[] { value, pk });
+		return executeForChanges(statement);
+	}
+
+	/**
+	 * Sets a single column, such as a foreign key, of every row of the given
+	 * entity {@link Class} identified by one of the given primary keys. Keys
+	 * are bound in chunks of at most {@link #MAX_KEYS_PER_STATEMENT}.
+	 *
+	 * @param c
+	 *            the entity {@code Class} to update rows for
+	 * @param column
+	 *            the name of the column to update
+	 * @param value
+	 *            the value to set
+	 * @param pks
+	 *            the primary keys of the rows to update
+	 */
+	public synchronized void updateColumnIn(Class<?> c, String column, Object value, List<Serializable> pks) {
+		for (int start = 0; start < pks.size(); start += MAX_KEYS_PER_STATEMENT) {
+			int count = Math.min(MAX_KEYS_PER_STATEMENT, pks.size() - start);
+			String key = UPDATE_COLUMN + column + ':' + count;
+			SQLiteStatement statement = getStatement(c, key);
+			if (statement == null)
+				statement = putStatement(c, key, mSqlBuilder.createUpdateColumnInStatement(c, column, count));
+			Object[] args = new Object[count + 1];
+			args[0] = value;
+			for (int i = 0; i < count; i++)
+				args[i + 1] = pks.get(start + i);
+			bindAll(statement, args);
+			statement.execute();
+		}
+	}
+
+	/**
+	 * Deletes the row of the given entity {@link Class} identified by the
+	 * given primary key.
+	 *
+	 * @param c
+	 *            the entity {@code Class} to delete a row for
+	 * @param pk
+	 *            the primary key of the row to delete
+	 * @return the number of rows deleted
+	 */
+	public synchronized int delete(Class<?> c, Serializable pk) {
+		SQLiteStatement statement = getStatement(c, DELETE);
+		if (statement == null)
+			statement = putStatement(c, DELETE, mSqlBuilder.createDeleteStatement(c));
+		bindAll(statement, new Object[] { pk });
+		return executeForChanges(statement);
+	}
+
+	/**
+	 * Queries the row of the given entity {@link Class} identified by the
+	 * given primary key. The query text is generated once per {@code Class}
+	 * so that the {@link SQLiteDatabase} can reuse its compiled form.
+	 *
+	 * @param c
+	 *            the entity {@code Class} to query a row for
+	 * @param pk
+	 *            the primary key of the row to query
+	 * @return {@link Cursor} positioned before the matching row, if any
+	 */
+	public Cursor load(Class<?> c, Serializable pk) {
+		String sql;
+		synchronized (this) {
+			sql = mLoadQueries.get(c);
+			if (sql == null) {
+				sql = mSqlBuilder.createLoadStatement(c);
+				mLoadQueries.put(c, sql);
+			}
+		}
+		return mSqliteDb.rawQuery(sql, new String[] { toArgument(pk) });
+	}
+
+	/**
+	 * Releases every cached statement.
+	 */
+	public synchronized void close() {
+		for (Map<String, SQLiteStatement> statements : mStatements.values()) {
+			for (SQLiteStatement statement : statements.values())
+				statement.close();
+		}
+		mStatements.clear();
+		mLoadQueries.clear();
+		if (mChangesStatement != null) {
+			mChangesStatement.close();
+			mChangesStatement = null;
+		}
+	}
+
+	/**
+	 * Binds the given value to the parameter at the given one-based index of
+	 * the given {@link SQLiteProgram} according to its type.
+	 *
+	 * @param program
+	 *            the {@code SQLiteProgram} to bind to
+	 * @param index
+	 *            the one-based index of the parameter
+	 * @param value
+	 *            the value to bind
+	 */
+	public static void bindValue(SQLiteProgram program, int index, Object value) {
+		if (value == null)
+			program.bindNull(index);
+		else if (value instanceof Long || value instanceof Integer || value instanceof Short || value instanceof Byte)
+			program.bindLong(index, ((Number) value).longValue());
+		else if (value instanceof Double || value instanceof Float)
+			program.bindDouble(index, ((Number) value).doubleValue());
+		else if (value instanceof Boolean)
+			program.bindLong(index, ((Boolean) value) ? 1 : 0);
+		else if (value instanceof byte[])
+			program.bindBlob(index, (byte[]) value);
+		else
+			program.bindString(index, value.toString());
+	}
+
+	private static String toArgument(Serializable pk) {
+		if (pk instanceof Boolean)
+			return ((Boolean) pk) ? "1" : "0";
+		return String.valueOf(pk);
+	}
+
+	private static String collectValues(String prefix, ContentValues values, String[] columns, Object[] args) {
+		StringBuilder key = new StringBuilder(prefix);
+		int i = 0;
+		for (Entry<String, Object> value : values.valueSet()) {
+			columns[i] = value.getKey();
+			args[i] = value.getValue();
+			if (i > 0)
+				key.append(',');
+			key.append(columns[i]);
+			i++;
+		}
+		return key.toString();
+	}
+
+	private static void bindAll(SQLiteStatement statement, Object[] args) {
+		statement.clearBindings();
+		for (int i = 0; i < args.length; i++)
+			bindValue(statement, i + 1, args[i]);
+	}
+
+	private int executeForChanges(SQLiteStatement statement) {
+		statement.execute();
+		// SQLiteStatement cannot report affected rows before API level 11
+		if (mChangesStatement == null)
+			mChangesStatement = mSqliteDb.compileStatement(SqlConstants.SELECT_CHANGES);
+		return (int) mChangesStatement.simpleQueryForLong();
+	}
+
+	private SQLiteStatement getStatement(Class<?> c, String key) {
+		Map<String, SQLiteStatement> statements = mStatements.get(c);
+		if (statements == null)
+			return null;
+		return statements.get(key);
+	}
+
+	private SQLiteStatement putStatement(Class<?> c, String key, String sql) {
+		Map<String, SQLiteStatement> statements = mStatements.get(c);
+		if (statements == null) {
+			statements = new LinkedHashMap<String, SQLiteStatement>(MAX_STATEMENTS_PER_CLASS, 0.75f, true);
+			mStatements.put(c, statements);
+		}
+		SQLiteStatement statement = mSqliteDb.compileStatement(sql);
+		statements.put(key, statement);
+		if (statements.size() > MAX_STATEMENTS_PER_CLASS) {
+			Iterator<SQLiteStatement> eldest = statements.values().iterator();
+			eldest.next().close();
+			eldest.remove();
+		}
+		return statement;
+	}
+
+}
@@ -22,9 +22,15 @@ package com.clarionmedia.infinitum.orm.sqlite.impl;
 import java.io.Serializable;
 import java.lang.reflect.Field;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
 import java.util.Stack;
 
 import android.annotation.SuppressLint;
@@ -47,17 +53,22 @@ import com.clarionmedia.infinitum.logging.Logger;
 import com.clarionmedia.infinitum.orm.criteria.Criteria;
 import com.clarionmedia.infinitum.orm.exception.ModelConfigurationException;
 import com.clarionmedia.infinitum.orm.exception.SQLGrammarException;
+import com.clarionmedia.infinitum.orm.persistence.EntityKey;
 import com.clarionmedia.infinitum.orm.persistence.PersistencePolicy;
+import com.clarionmedia.infinitum.orm.persistence.PersistencePolicy.CacheStrategy;
 import com.clarionmedia.infinitum.orm.persistence.PersistencePolicy.Cascade;
 import com.clarionmedia.infinitum.orm.persistence.TypeResolutionPolicy;
+import com.clarionmedia.infinitum.orm.relationship.ForeignKeyRelationship;
 import com.clarionmedia.infinitum.orm.relationship.ManyToManyRelationship;
 import com.clarionmedia.infinitum.orm.relationship.ManyToOneRelationship;
+import com.clarionmedia.infinitum.orm.relationship.ModelRelationship;
 import com.clarionmedia.infinitum.orm.relationship.OneToManyRelationship;
 import com.clarionmedia.infinitum.orm.relationship.OneToOneRelationship;
 import com.clarionmedia.infinitum.orm.sql.SqlBuilder;
 import com.clarionmedia.infinitum.orm.sqlite.SqliteOperations;
 import com.clarionmedia.infinitum.orm.sqlite.SqliteTypeAdapter;
 import com.clarionmedia.infinitum.orm.sqlite.SqliteUtil;
+import com.clarionmedia.infinitum.orm.sqlite.impl.UnitOfWork.WriteType;
 import com.clarionmedia.infinitum.reflection.ClassReflector;
 
 /**
@@ -108,6 +119,13 @@ public class SqliteTemplate implements SqliteOperations {
 	protected boolean mIsOpen;
 	protected Stack<Boolean> mTransactionStack;
 	protected SQLiteDatabase mSqliteDb;
+	protected SqliteStatementCache mStatementCache;
+	protected SecondLevelCache mSecondLevelCache;
+	private Map<ColumnKey, Map<Serializable, Object>> mDeferredUpdates;
+	// Written in the open transaction, so invalidated again once it ends
+	private final Map<EntityKey, String> mTransactionKeys = new HashMap<EntityKey, String>();
+	private final Set<String> mTransactionTables = new HashSet<String>();
+	private boolean mTransactionExecuted;
 	protected Logger mLogger;
 	protected PropertyLoader mPropLoader;
 	
@@ -116,6 +134,7 @@ public class SqliteTemplate implements SqliteOperations {
 		mLogger = Logger.getInstance(mInfinitumContext, getClass().getSimpleName());
 		mPropLoader = new PropertyLoader(mInfinitumContext.getAndroidContext());
 		mTransactionStack = new Stack<Boolean>();
+		mSecondLevelCache = SecondLevelCache.getInstance();
 	}
 
 	@Override
@@ -126,11 +145,18 @@ public class SqliteTemplate implements SqliteOperations {
 	@Override
 	public void open() throws SQLException {
 		mSqliteDb = mDbHelper.getWritableDatabase();
+		if (mStatementCache != null)
+			mStatementCache.close();
+		mStatementCache = new SqliteStatementCache(mSqliteDb, mSqlBuilder, mLogger);
 		mIsOpen = true;
 	}
 
 	@Override
 	public void close() {
+		if (mStatementCache != null) {
+			mStatementCache.close();
+			mStatementCache = null;
+		}
 		mDbHelper.close();
 		mIsOpen = false;
 	}
@@ -154,7 +180,7 @@ public class SqliteTemplate implements SqliteOperations {
 		if (!isTransactionOpen())
 			return;
 		mSqliteDb.setTransactionSuccessful();
-		mSqliteDb.endTransaction();
+		endTransaction();
 		mTransactionStack.pop();
 		mLogger.debug("Transaction committed");
 	}
@@ -163,7 +189,7 @@ public class SqliteTemplate implements SqliteOperations {
 	public void rollback() {
 		if (!isTransactionOpen())
 			return;
-		mSqliteDb.endTransaction();
+		endTransaction();
 		mTransactionStack.pop();
 		mLogger.debug("Transaction rolled back");
 	}
@@ -188,7 +214,7 @@ public class SqliteTemplate implements SqliteOperations {
 	public long save(Object model) throws InfinitumRuntimeException {
 		Preconditions.checkForTransaction(mIsAutocommit, isTransactionOpen());
 		Preconditions.checkPersistenceForModify(model, mPersistencePolicy);
-		Map<Integer, Object> objectMap = new HashMap<Integer, Object>();
+		Map<EntityKey, Object> objectMap = new HashMap<EntityKey, Object>();
 		long result = saveRec(model, objectMap);
 		if (result > 0)
 			mLogger.debug(model.getClass().getSimpleName() + " model saved");
@@ -202,7 +228,7 @@ public class SqliteTemplate implements SqliteOperations {
 	public boolean update(Object model) throws InfinitumRuntimeException {
 		Preconditions.checkForTransaction(mIsAutocommit, isTransactionOpen());
 		Preconditions.checkPersistenceForModify(model, mPersistencePolicy);
-		Map<Integer, Object> objectMap = new HashMap<Integer, Object>();
+		Map<EntityKey, Object> objectMap = new HashMap<EntityKey, Object>();
 		boolean result = updateRec(model, objectMap);
 		if (result)
 			mLogger.debug(model.getClass().getSimpleName() + " model updated");
@@ -216,16 +242,12 @@ public class SqliteTemplate implements SqliteOperations {
 		model = AopProxy.getTarget(model);
 		Preconditions.checkForTransaction(mIsAutocommit, isTransactionOpen());
 		Preconditions.checkPersistenceForModify(model, mPersistencePolicy);
-		String tableName = mPersistencePolicy.getModelTableName(model.getClass());
-		String whereClause = mSqliteUtil.getWhereClause(model, mMapper);
-		int result = mSqliteDb.delete(tableName, whereClause, null);
-		if (result == 1) {
-			deleteRelationships(model);
+		boolean result = deleteRec(model);
+		if (result)
 			mLogger.debug(model.getClass().getSimpleName() + " model deleted");
-		} else {
+		else
 			mLogger.debug(model.getClass().getSimpleName() + " model was not deleted");
-		}
-		return result == 1;
+		return result;
 	}
 
 	@SuppressLint("UseSparseArrays")
@@ -233,7 +255,7 @@ public class SqliteTemplate implements SqliteOperations {
 	public long saveOrUpdate(Object model) throws InfinitumRuntimeException {
 		Preconditions.checkForTransaction(mIsAutocommit, isTransactionOpen());
 		Preconditions.checkPersistenceForModify(model, mPersistencePolicy);
-		Map<Integer, Object> objectMap = new HashMap<Integer, Object>();
+		Map<EntityKey, Object> objectMap = new HashMap<EntityKey, Object>();
 		long result = saveOrUpdateRec(model, objectMap);
 		if (result == 0)
 			mLogger.debug(model.getClass().getSimpleName() + " model updated");
@@ -244,18 +266,25 @@ public class SqliteTemplate implements SqliteOperations {
 		return result;
 	}
 
+	@Override
+	public List<Object> saveAll(Collection<? extends Object> models) throws InfinitumRuntimeException {
+		return writeAll(models, false);
+	}
+
+	@Override
+	public List<Object> saveOrUpdateAll(Collection<? extends Object> models) throws InfinitumRuntimeException {
+		return writeAll(models, true);
+	}
+
 	@Override
 	public <T> T load(Class<T> clazz, Serializable id) throws InfinitumRuntimeException, IllegalArgumentException {
 		Preconditions.checkPersistenceForLoading(clazz, mPersistencePolicy);
 		if (!mTypePolicy.isValidPrimaryKey(mPersistencePolicy.getPrimaryKeyField(clazz), id))
 			throw new IllegalArgumentException(String.format(mPropLoader.getErrorMessage("INVALID_PK"), id.getClass()
 					.getSimpleName(), clazz.getName()));
-		Cursor cursor = mSqliteDb.query(mPersistencePolicy.getModelTableName(clazz), null,
-				mSqliteUtil.getWhereClause(clazz, id, mMapper), null, null, null, null, "1");
-		if (cursor.getCount() == 0) {
-			cursor.close();
+		Cursor cursor = loadRow(clazz, id);
+		if (cursor == null)
 			return null;
-		}
 		cursor.moveToFirst();
 		SqliteResult result = new SqliteResult(cursor);
 		T ret = null;
@@ -278,23 +307,63 @@ public class SqliteTemplate implements SqliteOperations {
 			mSqliteDb.execSQL(sql);
 		} catch (SQLiteException e) {
 			throw new SQLGrammarException(String.format(mPropLoader.getErrorMessage("BAD_SQL"), sql));
+		} finally {
+			// There's no telling which rows arbitrary SQL wrote
+			mSecondLevelCache.clear();
+			if (mSqliteDb.inTransaction())
+				mTransactionExecuted = true;
 		}
 	}
 
 	@Override
 	public Cursor executeForResult(String sql, boolean force) throws SQLGrammarException {
+		return executeForResult(sql, null, force);
+	}
+
+	@Override
+	public Cursor executeForResult(String sql, String[] args, boolean force) throws SQLGrammarException {
 		if (!force)
 			Preconditions.checkForTransaction(mIsAutocommit, isTransactionOpen());
 		mLogger.debug("Executing SQL: " + sql);
 		Cursor ret = null;
 		try {
-			ret = mSqliteDb.rawQuery(sql, null);
+			ret = mSqliteDb.rawQuery(sql, args);
 		} catch (SQLiteException e) {
 			throw new SQLGrammarException(String.format(mPropLoader.getErrorMessage("BAD_SQL"), sql));
 		}
 		return ret;
 	}
 
+	/**
+	 * Executes the given parameterized SQL query on the database for a result,
+	 * using the results held in the {@link SecondLevelCache} if the tables it
+	 * reads have not been written since they were cached. Results read
+	 * outside of a transaction are cached.
+	 * 
+	 * @param sql
+	 *            the SQL query to execute
+	 * @param args
+	 *            the values to bind to the query's parameters
+	 * @param tables
+	 *            the names of the tables read by the query
+	 * @return {@link Cursor} over the query results
+	 * @throws SQLGrammarException
+	 *             if the SQL was formatted incorrectly
+	 */
+	public Cursor executeForCachedResult(String sql, String[] args, String[] tables) throws SQLGrammarException {
+		Cursor ret = mSecondLevelCache.getQuery(sql, args);
+		if (ret != null) {
+			mLogger.debug("Query results retrieved from second-level cache: " + sql);
+			return ret;
+		}
+		// Versions are read first so writes made while querying aren't missed
+		long[] versions = mSecondLevelCache.getTableVersions(tables);
+		ret = executeForResult(sql, args, true);
+		if (mSqliteDb.inTransaction())
+			return ret;
+		return mSecondLevelCache.putQuery(sql, args, ret, tables, versions);
+	}
+
 	@Override
 	public <T> void registerTypeAdapter(Class<T> type, SqliteTypeAdapter<T> adapter) {
 		mMapper.registerTypeAdapter(type, (SqliteTypeAdapter<T>) adapter);
@@ -315,74 +384,352 @@ public class SqliteTemplate implements SqliteOperations {
 		return mMapper;
 	}
 
-	private long saveOrUpdateRec(Object model, Map<Integer, Object> objectMap) {
+	/**
+	 * Writes the changes queued in the given {@link UnitOfWork}. Inserts and
+	 * updates are grouped by class, with referenced classes written before
+	 * the classes holding foreign keys to them, and deletes are written
+	 * afterwards in the reverse order. If autocommit is enabled, the writes are
+	 * made in a single transaction.
+	 * 
+	 * @param work
+	 *            the {@code UnitOfWork} to write
+	 * @return {@link List} of the entities which were saved or updated
+	 * @throws InfinitumRuntimeException
+	 *             if autocommit is disabled and a transaction has not been
+	 *             started
+	 */
+	@SuppressLint("UseSparseArrays")
+	public List<Object> flush(UnitOfWork work) throws InfinitumRuntimeException {
+		Preconditions.checkForTransaction(mIsAutocommit, isTransactionOpen());
+		Map<Class<?>, List<Object>> groups = new LinkedHashMap<Class<?>, List<Object>>();
+		List<Object> entities = work.getEntities();
+		for (Object model : entities) {
+			List<Object> group = groups.get(model.getClass());
+			if (group == null) {
+				group = new ArrayList<Object>();
+				groups.put(model.getClass(), group);
+			}
+			group.add(model);
+		}
+		List<Class<?>> order = sortByDependency(groups.keySet());
+		List<Object> written = new ArrayList<Object>(entities.size());
+		int deleted = 0;
+		Map<EntityKey, Object> objectMap = new HashMap<EntityKey, Object>();
+		boolean ownTransaction = mIsAutocommit;
+		if (ownTransaction)
+			mSqliteDb.beginTransaction();
+		mDeferredUpdates = new LinkedHashMap<ColumnKey, Map<Serializable, Object>>();
+		try {
+			for (Class<?> c : order) {
+				List<Object> group = groups.get(c);
+				// Write one kind of statement at a time so each is reused back to back
+				for (Object model : group) {
+					if (work.getWriteType(model) == WriteType.SAVE && saveRec(model, objectMap) >= 0)
+						written.add(model);
+				}
+				for (Object model : group) {
+					if (work.getWriteType(model) == WriteType.SAVE_OR_UPDATE && saveOrUpdateRec(model, objectMap) >= 0)
+						written.add(model);
+				}
+				for (Object model : group) {
+					if (work.getWriteType(model) == WriteType.UPDATE && updateRec(model, objectMap))
+						written.add(model);
+				}
+			}
+			flushDeferredUpdates();
+			for (int i = order.size() - 1; i >= 0; i--) {
+				for (Object model : groups.get(order.get(i))) {
+					if (work.getWriteType(model) == WriteType.DELETE && deleteRec(model))
+						deleted++;
+				}
+			}
+			if (ownTransaction)
+				mSqliteDb.setTransactionSuccessful();
+		} catch (RuntimeException e) {
+			// Entities written before the failure may have been rolled back with it
+			mSession.discardSnapshots();
+			throw e;
+		} finally {
+			mDeferredUpdates = null;
+			if (ownTransaction)
+				endTransaction();
+		}
+		mLogger.debug(written.size() + " models written and " + deleted + " models deleted of " + entities.size()
+				+ " queued");
+		return written;
+	}
+
+	@SuppressLint("UseSparseArrays")
+	private List<Object> writeAll(Collection<? extends Object> models, boolean saveOrUpdate) {
+		Preconditions.checkForTransaction(mIsAutocommit, isTransactionOpen());
+		// Group models by class so each class's statements are reused back to back
+		Map<Class<?>, List<Object>> groups = new LinkedHashMap<Class<?>, List<Object>>();
+		for (Object model : models) {
+			Preconditions.checkPersistenceForModify(model, mPersistencePolicy);
+			Class<?> c = AopProxy.getTarget(model).getClass();
+			List<Object> group = groups.get(c);
+			if (group == null) {
+				group = new ArrayList<Object>();
+				groups.put(c, group);
+			}
+			group.add(model);
+		}
+		List<Object> written = new ArrayList<Object>(models.size());
+		Map<EntityKey, Object> objectMap = new HashMap<EntityKey, Object>();
+		boolean ownTransaction = mIsAutocommit;
+		if (ownTransaction)
+			mSqliteDb.beginTransaction();
+		mDeferredUpdates = new LinkedHashMap<ColumnKey, Map<Serializable, Object>>();
+		try {
+			for (List<Object> group : groups.values()) {
+				for (Object model : group) {
+					// Zero means the model was already written earlier in this batch
+					long result = saveOrUpdate ? saveOrUpdateRec(model, objectMap) : saveRec(model, objectMap);
+					if (result >= 0)
+						written.add(model);
+				}
+			}
+			flushDeferredUpdates();
+			if (ownTransaction)
+				mSqliteDb.setTransactionSuccessful();
+		} catch (RuntimeException e) {
+			// Entities written before the failure may have been rolled back with it
+			mSession.discardSnapshots();
+			throw e;
+		} finally {
+			mDeferredUpdates = null;
+			if (ownTransaction)
+				endTransaction();
+		}
+		mLogger.debug(written.size() + " of " + models.size() + " models " + (saveOrUpdate ? "saved or updated" : "saved"));
+		return written;
+	}
+
+	private void flushDeferredUpdates() {
+		for (Entry<ColumnKey, Map<Serializable, Object>> update : mDeferredUpdates.entrySet()) {
+			// Invert to one key list per value so each value is set with one statement
+			Map<Object, List<Serializable>> keysByValue = new LinkedHashMap<Object, List<Serializable>>();
+			for (Entry<Serializable, Object> row : update.getValue().entrySet()) {
+				List<Serializable> keys = keysByValue.get(row.getValue());
+				if (keys == null) {
+					keys = new ArrayList<Serializable>();
+					keysByValue.put(row.getValue(), keys);
+				}
+				keys.add(row.getKey());
+			}
+			ColumnKey column = update.getKey();
+			for (Entry<Object, List<Serializable>> keys : keysByValue.entrySet())
+				mStatementCache.updateColumnIn(column.mClass, column.mColumn, keys.getKey(), keys.getValue());
+			for (Serializable pk : update.getValue().keySet())
+				invalidate(column.mClass, pk);
+		}
+	}
+
+	private Cursor loadRow(Class<?> c, Serializable id) {
+		CacheStrategy strategy = mPersistencePolicy.getCacheStrategy(c);
+		EntityKey key = null;
+		String table = null;
+		long version = 0;
+		if (strategy != CacheStrategy.NONE) {
+			key = new EntityKey(c, id);
+			Cursor cached = mSecondLevelCache.getEntity(key);
+			if (cached != null) {
+				mLogger.debug(c.getSimpleName() + " model retrieved from second-level cache");
+				return cached;
+			}
+			table = mPersistencePolicy.getModelTableName(c);
+			version = mSecondLevelCache.getTableVersions(table)[0];
+		}
+		Cursor cursor = mStatementCache.load(c, id);
+		if (cursor.getCount() == 0) {
+			cursor.close();
+			return null;
+		}
+		// Rows read in a transaction may yet be rolled back
+		if (strategy == CacheStrategy.NONE || cursor.getCount() != 1 || mSqliteDb.inTransaction())
+			return cursor;
+		return mSecondLevelCache.putEntity(key, cursor, table, version, mPersistencePolicy.getCacheSize(c),
+				mPersistencePolicy.getCacheTimeout(c));
+	}
+
+	private void checkCacheStrategyForModify(Class<?> c) {
+		if (mPersistencePolicy.getCacheStrategy(c) == CacheStrategy.READ_ONLY)
+			throw new InfinitumRuntimeException(String.format("Cannot modify read-only cached class '%s'.", c.getName()));
+	}
+
+	private void invalidate(Class<?> c, Serializable pk) {
+		EntityKey key = new EntityKey(c, pk);
+		String table = mPersistencePolicy.getModelTableName(c);
+		mSecondLevelCache.invalidate(key, table);
+		if (mSqliteDb.inTransaction())
+			mTransactionKeys.put(key, table);
+	}
+
+	private void invalidateTable(String table) {
+		mSecondLevelCache.invalidateTable(table);
+		if (mSqliteDb.inTransaction())
+			mTransactionTables.add(table);
+	}
+
+	/*
+	 * Ends the innermost transaction. Other connections keep reading the old
+	 * rows until the outermost transaction ends and may cache them after the
+	 * writes invalidated them, so everything written is invalidated again.
+	 */
+	private void endTransaction() {
+		mSqliteDb.endTransaction();
+		if (mSqliteDb.inTransaction())
+			return;
+		if (mTransactionExecuted)
+			mSecondLevelCache.clear();
+		for (Entry<EntityKey, String> written : mTransactionKeys.entrySet())
+			mSecondLevelCache.invalidate(written.getKey(), written.getValue());
+		for (String table : mTransactionTables)
+			mSecondLevelCache.invalidateTable(table);
+		mTransactionKeys.clear();
+		mTransactionTables.clear();
+		mTransactionExecuted = false;
+	}
+
+	private List<Class<?>> sortByDependency(Set<Class<?>> classes) {
+		// Collect the classes referenced by each class's foreign keys
+		Map<Class<?>, Set<Class<?>>> dependencies = new HashMap<Class<?>, Set<Class<?>>>();
+		for (Class<?> c : classes) {
+			EntityMetadata metadata = mMapper.getEntityMetadata(c);
+			for (int i = 0; i < metadata.getRelationshipCount(); i++) {
+				ModelRelationship rel = metadata.getRelationship(i);
+				if (!(rel instanceof ForeignKeyRelationship))
+					continue;
+				Class<?> owner = ((ForeignKeyRelationship) rel).getOwner();
+				Class<?> referenced = owner == rel.getFirstType() ? rel.getSecondType() : rel.getFirstType();
+				if (owner == referenced || !classes.contains(owner) || !classes.contains(referenced))
+					continue;
+				Set<Class<?>> referencedClasses = dependencies.get(owner);
+				if (referencedClasses == null) {
+					referencedClasses = new LinkedHashSet<Class<?>>();
+					dependencies.put(owner, referencedClasses);
+				}
+				referencedClasses.add(referenced);
+			}
+		}
+		List<Class<?>> sorted = new ArrayList<Class<?>>(classes.size());
+		Set<Class<?>> visited = new HashSet<Class<?>>();
+		for (Class<?> c : classes)
+			visitDependencies(c, dependencies, visited, sorted);
+		return sorted;
+	}
+
+	private void visitDependencies(Class<?> c, Map<Class<?>, Set<Class<?>>> dependencies, Set<Class<?>> visited,
+			List<Class<?>> sorted) {
+		// Marking before recursing leaves cycles in queue order
+		if (!visited.add(c))
+			return;
+		Set<Class<?>> referencedClasses = dependencies.get(c);
+		if (referencedClasses != null) {
+			for (Class<?> referenced : referencedClasses)
+				visitDependencies(referenced, dependencies, visited, sorted);
+		}
+		sorted.add(c);
+	}
+
+	private long saveOrUpdateRec(Object model, Map<EntityKey, Object> objectMap) {
 		// First try to update the entity, then try to save it if needed
 		return updateRec(model, objectMap) ? 0 : saveRec(model, objectMap);
 	}
 
-	private long saveRec(Object model, Map<Integer, Object> objectMap) {
+	private long saveRec(Object model, Map<EntityKey, Object> objectMap) {
 		model = AopProxy.getTarget(model);
 		// Check if the entity has already been persisted
-		int objHash = mPersistencePolicy.computeModelHash(model);
-		if (objectMap.containsKey(objHash) && !mPersistencePolicy.isPKNullOrZero(model))
+		EntityKey key = mPersistencePolicy.getEntityKey(model);
+		if (objectMap.containsKey(key) && !mPersistencePolicy.isPKNullOrZero(model))
 			return 0;
 		// Persist it
 		SqliteModelMap map = mMapper.mapModel(model);
 		ContentValues values = map.getContentValues();
-		String tableName = mPersistencePolicy.getModelTableName(model.getClass());
-		long rowId = mSqliteDb.insert(tableName, null, values);
+		long rowId = mStatementCache.insert(model.getClass(), values);
 		if (rowId <= 0) {
 			// Persist failed
 			return rowId;
 		}
+		invalidateTable(mPersistencePolicy.getModelTableName(model.getClass()));
 		// Persist succeeded
 		setPrimaryKey(model, rowId);
-		objHash = mPersistencePolicy.computeModelHash(model);
-		objectMap.put(objHash, model);
-		processRelationships(map, objectMap, model, mPersistencePolicy.getCascadeMode(model.getClass()));
+		key = mPersistencePolicy.getEntityKey(model);
+		objectMap.put(key, model);
+		processRelationships(map, objectMap, model, mPersistencePolicy.getCascadeMode(model.getClass()), null);
+		mSession.snapshot(model, map);
 		return rowId;
 	}
 
-	private boolean updateRec(Object model, Map<Integer, Object> objectMap) {
+	private boolean updateRec(Object model, Map<EntityKey, Object> objectMap) {
 		model = AopProxy.getTarget(model);
-		int objHash = mPersistencePolicy.computeModelHash(model);
-		if (objectMap.containsKey(objHash) && !mPersistencePolicy.isPKNullOrZero(model))
+		EntityKey key = mPersistencePolicy.getEntityKey(model);
+		if (objectMap.containsKey(key) && !mPersistencePolicy.isPKNullOrZero(model))
 			return true;
 		SqliteModelMap map = mMapper.mapModel(model);
 		ContentValues values = map.getContentValues();
-		String tableName = mPersistencePolicy.getModelTableName(model.getClass());
-		String whereClause = mSqliteUtil.getWhereClause(model, mMapper);
-		if (values.size() == 0)
-			return false;
-		long ret = mSqliteDb.update(tableName, values, whereClause, null);
-		if (ret <= 0) {
+		// Entities read or written by the session only need their changes written
+		EntitySnapshot snapshot = mSession.getSnapshot(model);
+		if (snapshot != null) {
+			values = snapshot.getChangedValues(values);
+		} else if (values.size() == 0) {
 			return false;
 		}
-		objectMap.put(objHash, model);
-		processRelationships(map, objectMap, model, mPersistencePolicy.getCascadeMode(model.getClass()));
+		if (values.size() > 0) {
+			checkCacheStrategyForModify(model.getClass());
+			Serializable pk = mPersistencePolicy.getPrimaryKey(model);
+			long ret = mStatementCache.update(model.getClass(), values, pk);
+			if (ret <= 0) {
+				return false;
+			}
+			invalidate(model.getClass(), pk);
+		}
+		objectMap.put(key, model);
+		processRelationships(map, objectMap, model, mPersistencePolicy.getCascadeMode(model.getClass()), snapshot);
+		mSession.snapshot(model, map);
+		return true;
+	}
+
+	private boolean deleteRec(Object model) {
+		checkCacheStrategyForModify(model.getClass());
+		Serializable pk = mPersistencePolicy.getPrimaryKey(model);
+		int result = mStatementCache.delete(model.getClass(), pk);
+		if (result != 1)
+			return false;
+		invalidate(model.getClass(), pk);
+		deleteRelationships(model);
 		return true;
 	}
 
-	private void processRelationships(SqliteModelMap map, Map<Integer, Object> objectMap, Object model, Cascade cascade) {
+	private void processRelationships(SqliteModelMap map, Map<EntityKey, Object> objectMap, Object model, Cascade cascade,
+			EntitySnapshot snapshot) {
 		if (cascade == Cascade.NONE)
 			return;
-		processManyToManyRelationships(model, map, objectMap, cascade);
-		processManyToOneRelationships(model, map, objectMap, cascade);
-		processOneToManyRelationships(model, map, objectMap, cascade);
-		processOneToOneRelationships(model, map, objectMap, cascade);
+		processManyToManyRelationships(model, map, objectMap, cascade, snapshot);
+		processManyToOneRelationships(model, map, objectMap, cascade, snapshot);
+		processOneToManyRelationships(model, map, objectMap, cascade, snapshot);
+		processOneToOneRelationships(model, map, objectMap, cascade, snapshot);
 	}
 
-	private void processManyToManyRelationships(Object model, SqliteModelMap map, Map<Integer, Object> objectMap, Cascade cascade) {
+	private void processManyToManyRelationships(Object model, SqliteModelMap map, Map<EntityKey, Object> objectMap, Cascade cascade,
+			EntitySnapshot snapshot) {
 		for (Pair<ManyToManyRelationship, Iterable<Object>> relationshipPair : map.getManyToManyRelationships()) {
 			ManyToManyRelationship relationship = relationshipPair.getFirst();
+			if (snapshot != null && snapshot.isRelatedUntouched(relationship, relationshipPair.getSecond()))
+				continue;
+			Set<Serializable> originalKeys = snapshot == null ? null : snapshot.getRelatedKeys(relationship);
+			if (originalKeys != null) {
+				diffManyToManyRelationship(model, relationship, relationshipPair.getSecond(), originalKeys, objectMap, cascade);
+				continue;
+			}
 			List<Serializable> staleKeys = new ArrayList<Serializable>();
 			for (Object relatedEntity : relationshipPair.getSecond()) {
 				if (relatedEntity == null) {
 					// Related entity is null, nothing to do here...
 					continue;
 				}
-				int relatedHash = mPersistencePolicy.computeModelHash(relatedEntity);
-				if (objectMap.containsKey(relatedHash) && !mPersistencePolicy.isPKNullOrZero(relatedEntity)) {
+				EntityKey relatedEntityKey = mPersistencePolicy.getEntityKey(relatedEntity);
+				if (objectMap.containsKey(relatedEntityKey) && !mPersistencePolicy.isPKNullOrZero(relatedEntity)) {
 					staleKeys.add(mPersistencePolicy.getPrimaryKey(relatedEntity));
 					continue;
 				}
@@ -401,15 +748,58 @@ public class SqliteTemplate implements SqliteOperations {
 				    staleKeys.add(mPersistencePolicy.getPrimaryKey(relatedEntity));
 				}
 			}
-			// Delete stale relationships
-			String staleRelQuery = mSqlBuilder.createDeleteStaleRelationshipQuery(relationship, model, staleKeys);
-			// Execute only if there are stale relationships
-			if (!staleRelQuery.contains("NOT IN ()"))
-				mSqliteDb.execSQL(staleRelQuery);
+			// Delete stale relationships, only if there are related entities to retain
+			if (staleKeys.size() > 0)
+				deleteStaleRelationships(model, relationship, staleKeys);
 		}
 	}
 
-	private void processOneToOneRelationships(Object model, SqliteModelMap map, Map<Integer, Object> objectMap, Cascade cascade) {
+	private void diffManyToManyRelationship(Object model, ManyToManyRelationship relationship, Iterable<Object> related,
+			Set<Serializable> originalKeys, Map<EntityKey, Object> objectMap, Cascade cascade) {
+		Set<Serializable> currentKeys = new LinkedHashSet<Serializable>();
+		for (Object relatedEntity : related) {
+			if (relatedEntity == null)
+				continue;
+			EntityKey relatedEntityKey = mPersistencePolicy.getEntityKey(relatedEntity);
+			if (objectMap.containsKey(relatedEntityKey) && !mPersistencePolicy.isPKNullOrZero(relatedEntity)) {
+				currentKeys.add(mPersistencePolicy.getPrimaryKey(relatedEntity));
+				continue;
+			}
+			if (cascade == Cascade.ALL) {
+				if (saveOrUpdateRec(relatedEntity, objectMap) < 0)
+					continue;
+			} else if (mPersistencePolicy.isPKNullOrZero(relatedEntity)) {
+				continue;
+			}
+			Serializable relatedKey = mPersistencePolicy.getPrimaryKey(relatedEntity);
+			currentKeys.add(relatedKey);
+			// Only rows for newly related entities need to be inserted
+			if (!originalKeys.contains(relatedKey))
+				insertManyToManyRelationship(model, relatedEntity, relationship);
+		}
+		if (currentKeys.containsAll(originalKeys))
+			return;
+		if (currentKeys.isEmpty()) {
+			mSqliteDb.execSQL(mSqlBuilder.createManyToManyDeleteQuery(model, relationship));
+			invalidateTable(relationship.getTableName());
+		} else {
+			deleteStaleRelationships(model, relationship, new ArrayList<Serializable>(currentKeys));
+		}
+	}
+
+	private void deleteStaleRelationships(Object model, ManyToManyRelationship relationship, List<Serializable> retainedKeys) {
+		String staleRelQuery = mSqlBuilder.createDeleteStaleRelationshipStatement(relationship, model.getClass(),
+				retainedKeys.size());
+		Object[] args = new Object[retainedKeys.size() + 1];
+		args[0] = mPersistencePolicy.getPrimaryKey(model);
+		for (int i = 0; i < retainedKeys.size(); i++)
+			args[i + 1] = retainedKeys.get(i);
+		mSqliteDb.execSQL(staleRelQuery, args);
+		invalidateTable(relationship.getTableName());
+	}
+
+	private void processOneToOneRelationships(Object model, SqliteModelMap map, Map<EntityKey, Object> objectMap, Cascade cascade,
+			EntitySnapshot snapshot) {
 		for (Pair<OneToOneRelationship, Object> relationshipPair : map.getOneToOneRelationships()) {
 			OneToOneRelationship relationship = relationshipPair.getFirst();
 			Object relatedEntity = relationshipPair.getSecond();
@@ -417,33 +807,42 @@ public class SqliteTemplate implements SqliteOperations {
 				// Related entity is null, nothing to do here...
 				continue;
 			}
+			if (snapshot != null && snapshot.isRelatedUnchanged(relationship, relatedEntity, mPersistencePolicy)) {
+				// Only cascade to the related entity, its foreign key is unchanged
+				if (cascade == Cascade.ALL && !EntitySnapshot.isUnloaded(relatedEntity))
+					saveOrUpdateRec(relatedEntity, objectMap);
+				continue;
+			}
 			// Cascade.All means we persist/update related entities
 			if (cascade == Cascade.ALL) {
 			    // Save or update the related entity
 			    if (saveOrUpdateRec(relatedEntity, objectMap) >= 0 && relationship.getOwner() == model.getClass()) {
 				    // Update the relationship owner's foreign key
-				    String sql = mSqlBuilder.createUpdateOneToOneForeignKeyQuery(relationship, model, relatedEntity);
-				    mSqliteDb.execSQL(sql);
+				    updateForeignKey(model, relationship.getColumn(), relatedEntity);
 			    }
 			// Cascade.Keys means we persist/update foreign keys
 			} else if (cascade == Cascade.KEYS && !mPersistencePolicy.isPKNullOrZero(relatedEntity)) {
 				// Update the relationship owner's foreign key
-			    String sql = mSqlBuilder.createUpdateOneToOneForeignKeyQuery(relationship, model, relatedEntity);
-			    mSqliteDb.execSQL(sql);
+			    updateForeignKey(model, relationship.getColumn(), relatedEntity);
 			}
 		}
 	}
 
-	private void processOneToManyRelationships(Object model, SqliteModelMap map, Map<Integer, Object> objectMap, Cascade cascade) {
+	private void processOneToManyRelationships(Object model, SqliteModelMap map, Map<EntityKey, Object> objectMap, Cascade cascade,
+			EntitySnapshot snapshot) {
 		for (Pair<OneToManyRelationship, Iterable<Object>> relationshipPair : map.getOneToManyRelationships()) {
+			if (snapshot != null && snapshot.isRelatedUntouched(relationshipPair.getFirst(), relationshipPair.getSecond()))
+				continue;
+			// Entities which were already related keep their foreign key
+			Set<Serializable> originalKeys = snapshot == null ? null : snapshot.getRelatedKeys(relationshipPair.getFirst());
 			List<Serializable> relatedKeys = new ArrayList<Serializable>();
 			for (Object relatedEntity : relationshipPair.getSecond()) {
 				if (relatedEntity == null) {
 					// Related entity is null, nothing to do here...
 					continue;
 				}
-				int relatedHash = mPersistencePolicy.computeModelHash(relatedEntity);
-				if (objectMap.containsKey(relatedHash) && !mPersistencePolicy.isPKNullOrZero(relatedEntity))
+				EntityKey relatedEntityKey = mPersistencePolicy.getEntityKey(relatedEntity);
+				if (objectMap.containsKey(relatedEntityKey) && !mPersistencePolicy.isPKNullOrZero(relatedEntity))
 					continue;
 				// Cascade.All means we persist/update related entities
 				if (cascade == Cascade.ALL) {
@@ -459,35 +858,65 @@ public class SqliteTemplate implements SqliteOperations {
 				}
 			}
 			// Update the foreign keys
-			String updateQuery = mSqlBuilder.createUpdateForeignKeyQuery(relationshipPair.getFirst(), model, relatedKeys);
-			mSqliteDb.execSQL(updateQuery);
+			OneToManyRelationship relationship = relationshipPair.getFirst();
+			Serializable pk = mPersistencePolicy.getPrimaryKey(model);
+			for (Serializable relatedKey : relatedKeys) {
+				if (originalKeys == null || !originalKeys.contains(relatedKey))
+					updateColumn(relationship.getManyType(), relationship.getColumn(), pk, relatedKey);
+			}
 		}
 	}
 
-	private void processManyToOneRelationships(Object model, SqliteModelMap map, Map<Integer, Object> objectMap, Cascade cascade) {
+	private void processManyToOneRelationships(Object model, SqliteModelMap map, Map<EntityKey, Object> objectMap, Cascade cascade,
+			EntitySnapshot snapshot) {
 		for (Pair<ManyToOneRelationship, Object> relationshipPair : map.getManyToOneRelationships()) {
 			Object relatedEntity = relationshipPair.getSecond();
 			if (mClassReflector.isNull(relatedEntity)) {
 				// Related entity is null, nothing to do here...
 				continue;
 			}
+			if (snapshot != null && snapshot.isRelatedUnchanged(relationshipPair.getFirst(), relatedEntity, mPersistencePolicy)) {
+				// Only cascade to the related entity, its foreign key is unchanged
+				if (cascade == Cascade.ALL && !EntitySnapshot.isUnloaded(relatedEntity))
+					saveOrUpdateRec(relatedEntity, objectMap);
+				continue;
+			}
 			// Cascade.All means we persist/update related entities
 			if (cascade == Cascade.ALL) {
 			    // Save or update the related entity
 			    if (saveOrUpdateRec(relatedEntity, objectMap) >= 0) {
 				    // Update the foreign key
-			        String update = mSqlBuilder.createUpdateQuery(model, relatedEntity, relationshipPair.getFirst().getColumn());
-			        mSqliteDb.execSQL(update);
+			        updateForeignKey(model, relationshipPair.getFirst().getColumn(), relatedEntity);
 			    }
 			// Cascade.Keys means we persist/update foreign keys
 			} else if (cascade == Cascade.KEYS && !mPersistencePolicy.isPKNullOrZero(relatedEntity)) {
 				// Update the foreign key
-		        String update = mSqlBuilder.createUpdateQuery(model, relatedEntity, relationshipPair.getFirst().getColumn());
-		        mSqliteDb.execSQL(update);
+		        updateForeignKey(model, relationshipPair.getFirst().getColumn(), relatedEntity);
 			}
 		}
 	}
 
+	private void updateForeignKey(Object model, String column, Object related) {
+		updateColumn(model.getClass(), column, mPersistencePolicy.getPrimaryKey(related),
+				mPersistencePolicy.getPrimaryKey(model));
+	}
+
+	private void updateColumn(Class<?> c, String column, Object value, Serializable pk) {
+		if (mDeferredUpdates == null) {
+			mStatementCache.updateColumn(c, column, value, pk);
+			invalidate(c, pk);
+			return;
+		}
+		// Batch writes set the column once every row exists, last value wins
+		ColumnKey key = new ColumnKey(c, column);
+		Map<Serializable, Object> rows = mDeferredUpdates.get(key);
+		if (rows == null) {
+			rows = new LinkedHashMap<Serializable, Object>();
+			mDeferredUpdates.put(key, rows);
+		}
+		rows.put(pk, value);
+	}
+
 	private void insertManyToManyRelationship(Object model, Object related, ManyToManyRelationship mtm) {
 		ContentValues relationshipData = new ContentValues();
 		Class<?> firstType = mtm.getFirstType();
@@ -521,6 +950,7 @@ public class SqliteTemplate implements SqliteOperations {
 			} catch (SQLException e) {
 				return;
 			}
+			invalidateTable(mtm.getTableName());
 			if (result)
 				mLogger.debug(firstType.getSimpleName() + "-" + secondType.getSimpleName() + " relationship saved");
 			else
@@ -535,6 +965,7 @@ public class SqliteTemplate implements SqliteOperations {
 		for (Pair<ManyToManyRelationship, Iterable<Object>> relationshipPair : map.getManyToManyRelationships()) {
 			ManyToManyRelationship relationship = relationshipPair.getFirst();
 			mSqliteDb.execSQL(mSqlBuilder.createManyToManyDeleteQuery(model, relationship), null);
+			invalidateTable(relationship.getTableName());
 		}
 		// TODO Update non M:M relationships?
 	}
@@ -573,4 +1004,32 @@ public class SqliteTemplate implements SqliteOperations {
 	    }
 	}
 
+	/**
+	 * Identifies a column of an entity table for deferred updates.
+	 */
+	private static class ColumnKey {
+
+		private final Class<?> mClass;
+		private final String mColumn;
+
+		public ColumnKey(Class<?> c, String column) {
+			mClass = c;
+			mColumn = column;
+		}
+
+		@Override
+		public int hashCode() {
+			return 31 * mClass.hashCode() + mColumn.hashCode();
+		}
+
+		@Override
+		public boolean equals(Object other) {
+			if (!(other instanceof ColumnKey))
+				return false;
+			ColumnKey otherKey = (ColumnKey) other;
+			return mClass == otherKey.mClass && mColumn.equals(otherKey.mColumn);
+		}
+
+	}
+
 }
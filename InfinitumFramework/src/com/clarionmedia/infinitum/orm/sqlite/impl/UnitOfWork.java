@@ -0,0 +1,158 @@
+/*
+ * Copyright (c) 2012 Tyler Treat
+ *
+ * This file is part of Infinitum Framework.
+ *
+ * Infinitum Framework is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Infinitum Framework is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Infinitum Framework.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.clarionmedia.infinitum.orm.sqlite.impl;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * <p>
+ * Queues the writes made through a {@link SqliteSession} in unit-of-work
+ * mode until they are flushed. Writes are tracked per entity instance, so
+ * an entity updated several times is written once, and an entity saved and
+ * then deleted before a flush is never written at all.
+ * </p>
+ * 
+ * @author Tyler Treat
+ * @version 1.0 10/17/26
+ * @since 1.0
+ */
+public class UnitOfWork {
+
+	/**
+	 * The kind of write queued for an entity.
+	 */
+	public static enum WriteType {
+		SAVE, SAVE_OR_UPDATE, UPDATE, DELETE
+	};
+
+	private final Map<Object, WriteType> mWrites;
+	private final List<Object> mEntities;
+
+	/**
+	 * Constructs a new, empty {@code UnitOfWork}.
+	 */
+	public UnitOfWork() {
+		mWrites = new IdentityHashMap<Object, WriteType>();
+		mEntities = new ArrayList<Object>();
+	}
+
+	/**
+	 * Queues a write of the given type for the given entity, merging it with
+	 * any write already queued for the same instance.
+	 * 
+	 * @param model
+	 *            the entity to write
+	 * @param type
+	 *            the {@link WriteType} to queue
+	 * @return {@code true} if the write was queued, {@code false} if the
+	 *         entity is queued for deletion and must be flushed before it can
+	 *         be saved or updated again
+	 */
+	public boolean queue(Object model, WriteType type) {
+		WriteType queued = mWrites.get(model);
+		if (queued == null) {
+			mWrites.put(model, type);
+			mEntities.add(model);
+			return true;
+		}
+		switch (queued) {
+		case SAVE:
+			// An entity which was never written does not need to be deleted
+			if (type == WriteType.DELETE)
+				remove(model);
+			return true;
+		case DELETE:
+			return type == WriteType.DELETE;
+		default:
+			if (type != WriteType.UPDATE)
+				mWrites.put(model, type);
+			return true;
+		}
+	}
+
+	/**
+	 * Returns the {@link WriteType} queued for the given entity.
+	 * 
+	 * @param model
+	 *            the entity to check
+	 * @return {@code WriteType} or {@code null} if no write is queued
+	 */
+	public WriteType getWriteType(Object model) {
+		return mWrites.get(model);
+	}
+
+	/**
+	 * Returns the entities with queued writes in the order they were first
+	 * queued.
+	 * 
+	 * @return {@link List} of entities
+	 */
+	public List<Object> getEntities() {
+		return new ArrayList<Object>(mEntities);
+	}
+
+	/**
+	 * Returns the entities with a queued write of the given type in the order
+	 * they were first queued.
+	 * 
+	 * @param type
+	 *            the {@link WriteType} to retrieve entities for
+	 * @return {@link List} of entities
+	 */
+	public List<Object> getEntities(WriteType type) {
+		List<Object> ret = new ArrayList<Object>();
+		for (Object model : mEntities) {
+			if (mWrites.get(model) == type)
+				ret.add(model);
+		}
+		return ret;
+	}
+
+	/**
+	 * Indicates if there are no queued writes.
+	 * 
+	 * @return {@code true} if nothing is queued, {@code false} if not
+	 */
+	public boolean isEmpty() {
+		return mEntities.isEmpty();
+	}
+
+	/**
+	 * Discards every queued write.
+	 */
+	public void clear() {
+		mWrites.clear();
+		mEntities.clear();
+	}
+
+	private void remove(Object model) {
+		mWrites.remove(model);
+		for (int i = 0; i < mEntities.size(); i++) {
+			if (mEntities.get(i) == model) {
+				mEntities.remove(i);
+				return;
+			}
+		}
+	}
+
+}
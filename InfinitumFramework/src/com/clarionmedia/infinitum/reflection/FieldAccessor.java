@@ -0,0 +1,301 @@
+/*
+ * Copyright (c) 2012 Tyler Treat
+ *
+ * This file is part of Infinitum Framework.
+ *
+ * Infinitum Framework is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Infinitum Framework is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Infinitum Framework.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.clarionmedia.infinitum.reflection;
+
+import java.lang.reflect.Field;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * <p>
+ * Reads and writes the value of a single {@link Field}. A
+ * {@code FieldAccessor} is created once per {@code Field} and made accessible
+ * up front, so repeated access avoids the security checks performed by
+ * {@link Field#setAccessible(boolean)}. Primitive fields are written through
+ * the typed setters such as {@link #setInt(Object, int)}, which do not box
+ * their values.
+ * </p>
+ * <p>
+ * Instances are obtained through {@link #forField(Field)}, which caches them
+ * for the lifetime of the application.
+ * </p>
+ * 
+ * @author Tyler Treat
+ * @version 1.0 10/17/26
+ * @since 1.0
+ */
+public final class FieldAccessor {
+
+	private static final Map<Field, FieldAccessor> sAccessors = new ConcurrentHashMap<Field, FieldAccessor>();
+
+	private final Field mField;
+	private final boolean mIsPrimitive;
+
+	/**
+	 * Returns the {@code FieldAccessor} for the given {@link Field}, creating
+	 * it if necessary.
+	 * 
+	 * @param field
+	 *            the {@code Field} to access
+	 * @return {@code FieldAccessor} for {@code field}
+	 */
+	public static FieldAccessor forField(Field field) {
+		FieldAccessor accessor = sAccessors.get(field);
+		if (accessor == null) {
+			accessor = new FieldAccessor(field);
+			sAccessors.put(field, accessor);
+		}
+		return accessor;
+	}
+
+	private FieldAccessor(Field field) {
+		field.setAccessible(true);
+		mField = field;
+		mIsPrimitive = field.getType().isPrimitive();
+	}
+
+	/**
+	 * Returns the {@link Field} accessed by this {@code FieldAccessor}.
+	 * 
+	 * @return accessed {@code Field}
+	 */
+	public Field getField() {
+		return mField;
+	}
+
+	/**
+	 * Retrieves the value of the field from the given object.
+	 * 
+	 * @param object
+	 *            the object to read the field from
+	 * @return field value, boxed if the field is primitive
+	 * @throws IllegalArgumentException
+	 *             if {@code object} does not declare the field
+	 * @throws IllegalAccessException
+	 *             if the field cannot be accessed
+	 */
+	public Object get(Object object) throws IllegalArgumentException, IllegalAccessException {
+		return mField.get(object);
+	}
+
+	/**
+	 * Retrieves the value of an integral primitive field ({@code long},
+	 * {@code int}, {@code short}, {@code byte} or {@code char}) from the given
+	 * object without boxing it.
+	 * 
+	 * @param object
+	 *            the object to read the field from
+	 * @return field value widened to a {@code long}
+	 * @throws IllegalArgumentException
+	 *             if {@code object} does not declare the field or the field is
+	 *             not an integral primitive
+	 * @throws IllegalAccessException
+	 *             if the field cannot be accessed
+	 */
+	public long getLong(Object object) throws IllegalArgumentException, IllegalAccessException {
+		return mField.getLong(object);
+	}
+
+	/**
+	 * Sets the value of the field on the given object.
+	 * 
+	 * @param object
+	 *            the object to set the field on
+	 * @param value
+	 *            the value to set
+	 * @throws IllegalArgumentException
+	 *             if {@code object} does not declare the field or
+	 *             {@code value} has the wrong type
+	 * @throws IllegalAccessException
+	 *             if the field cannot be accessed
+	 */
+	public void set(Object object, Object value) throws IllegalArgumentException, IllegalAccessException {
+		mField.set(object, value);
+	}
+
+	/**
+	 * Sets an {@code int} value on the given object, boxing it only if the
+	 * field is not primitive.
+	 * 
+	 * @param object
+	 *            the object to set the field on
+	 * @param value
+	 *            the value to set
+	 * @throws IllegalArgumentException
+	 *             if {@code object} does not declare the field or
+	 *             {@code value} has the wrong type
+	 * @throws IllegalAccessException
+	 *             if the field cannot be accessed
+	 */
+	public void setInt(Object object, int value) throws IllegalArgumentException, IllegalAccessException {
+		if (mIsPrimitive)
+			mField.setInt(object, value);
+		else
+			mField.set(object, value);
+	}
+
+	/**
+	 * Sets a {@code long} value on the given object, boxing it only if the
+	 * field is not primitive.
+	 * 
+	 * @param object
+	 *            the object to set the field on
+	 * @param value
+	 *            the value to set
+	 * @throws IllegalArgumentException
+	 *             if {@code object} does not declare the field or
+	 *             {@code value} has the wrong type
+	 * @throws IllegalAccessException
+	 *             if the field cannot be accessed
+	 */
+	public void setLong(Object object, long value) throws IllegalArgumentException, IllegalAccessException {
+		if (mIsPrimitive)
+			mField.setLong(object, value);
+		else
+			mField.set(object, value);
+	}
+
+	/**
+	 * Sets a {@code float} value on the given object, boxing it only if the
+	 * field is not primitive.
+	 * 
+	 * @param object
+	 *            the object to set the field on
+	 * @param value
+	 *            the value to set
+	 * @throws IllegalArgumentException
+	 *             if {@code object} does not declare the field or
+	 *             {@code value} has the wrong type
+	 * @throws IllegalAccessException
+	 *             if the field cannot be accessed
+	 */
+	public void setFloat(Object object, float value) throws IllegalArgumentException, IllegalAccessException {
+		if (mIsPrimitive)
+			mField.setFloat(object, value);
+		else
+			mField.set(object, value);
+	}
+
+	/**
+	 * Sets a {@code double} value on the given object, boxing it only if the
+	 * field is not primitive.
+	 * 
+	 * @param object
+	 *            the object to set the field on
+	 * @param value
+	 *            the value to set
+	 * @throws IllegalArgumentException
+	 *             if {@code object} does not declare the field or
+	 *             {@code value} has the wrong type
+	 * @throws IllegalAccessException
+	 *             if the field cannot be accessed
+	 */
+	public void setDouble(Object object, double value) throws IllegalArgumentException, IllegalAccessException {
+		if (mIsPrimitive)
+			mField.setDouble(object, value);
+		else
+			mField.set(object, value);
+	}
+
+	/**
+	 * Sets a {@code short} value on the given object, boxing it only if the
+	 * field is not primitive.
+	 * 
+	 * @param object
+	 *            the object to set the field on
+	 * @param value
+	 *            the value to set
+	 * @throws IllegalArgumentException
+	 *             if {@code object} does not declare the field or
+	 *             {@code value} has the wrong type
+	 * @throws IllegalAccessException
+	 *             if the field cannot be accessed
+	 */
+	public void setShort(Object object, short value) throws IllegalArgumentException, IllegalAccessException {
+		if (mIsPrimitive)
+			mField.setShort(object, value);
+		else
+			mField.set(object, value);
+	}
+
+	/**
+	 * Sets a {@code byte} value on the given object, boxing it only if the
+	 * field is not primitive.
+	 * 
+	 * @param object
+	 *            the object to set the field on
+	 * @param value
+	 *            the value to set
+	 * @throws IllegalArgumentException
+	 *             if {@code object} does not declare the field or
+	 *             {@code value} has the wrong type
+	 * @throws IllegalAccessException
+	 *             if the field cannot be accessed
+	 */
+	public void setByte(Object object, byte value) throws IllegalArgumentException, IllegalAccessException {
+		if (mIsPrimitive)
+			mField.setByte(object, value);
+		else
+			mField.set(object, value);
+	}
+
+	/**
+	 * Sets a {@code boolean} value on the given object, boxing it only if the
+	 * field is not primitive.
+	 * 
+	 * @param object
+	 *            the object to set the field on
+	 * @param value
+	 *            the value to set
+	 * @throws IllegalArgumentException
+	 *             if {@code object} does not declare the field or
+	 *             {@code value} has the wrong type
+	 * @throws IllegalAccessException
+	 *             if the field cannot be accessed
+	 */
+	public void setBoolean(Object object, boolean value) throws IllegalArgumentException, IllegalAccessException {
+		if (mIsPrimitive)
+			mField.setBoolean(object, value);
+		else
+			mField.set(object, value);
+	}
+
+	/**
+	 * Sets a {@code char} value on the given object, boxing it only if the
+	 * field is not primitive.
+	 * 
+	 * @param object
+	 *            the object to set the field on
+	 * @param value
+	 *            the value to set
+	 * @throws IllegalArgumentException
+	 *             if {@code object} does not declare the field or
+	 *             {@code value} has the wrong type
+	 * @throws IllegalAccessException
+	 *             if the field cannot be accessed
+	 */
+	public void setChar(Object object, char value) throws IllegalArgumentException, IllegalAccessException {
+		if (mIsPrimitive)
+			mField.setChar(object, value);
+		else
+			mField.set(object, value);
+	}
+
+}
@@ -30,6 +30,7 @@ import java.util.List;
 import com.clarionmedia.infinitum.aop.AopProxy;
 import com.clarionmedia.infinitum.exception.InfinitumRuntimeException;
 import com.clarionmedia.infinitum.reflection.ClassReflector;
+import com.clarionmedia.infinitum.reflection.FieldAccessor;
 
 /**
  * <p>
@@ -183,8 +184,7 @@ public class DefaultClassReflector implements ClassReflector {
 	@Override
 	public Object getFieldValue(Object object, Field field) {
 		try {
-			field.setAccessible(true);
-			return field.get(object);
+			return FieldAccessor.forField(field).get(object);
 		} catch (IllegalArgumentException e) {
 			throw new InfinitumRuntimeException("Unable to access field '"
 					+ field.getName() + "' for object of type '"
@@ -219,8 +219,7 @@ public class DefaultClassReflector implements ClassReflector {
 	@Override
 	public void setFieldValue(Object object, Field field, Object value) {
 		try {
-			field.setAccessible(true);
-			field.set(object, value);
+			FieldAccessor.forField(field).set(object, value);
 		} catch (IllegalArgumentException e) {
 			throw new InfinitumRuntimeException("Unable to set field '"
 					+ field.getName() + "' for object of type '"
@@ -0,0 +1,147 @@
+package com.clarionmedia.infinitum.http.rest.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Test;
+
+import com.clarionmedia.infinitum.internal.DateFormatter;
+
+public class CacheControlTest {
+
+	@Test
+	public void testParse_quotedNoCache() {
+		// Setup
+		RestResponse response = createResponse("Cache-Control", "no-cache=\"Set-Cookie, X-Foo\", max-age=60");
+
+		// Run
+		CacheControl cacheControl = CacheControl.parse(response);
+
+		// Verify
+		assertEquals("Qualified no-cache should never be fresh", 0, cacheControl.getFreshnessLifetime());
+		assertEquals("Qualified no-cache should never be served stale", 0, cacheControl.getStaleWindow(30));
+		assertTrue("Qualified no-cache should still be storable", cacheControl.isStorable());
+	}
+
+	@Test
+	public void testParse_quotedSeparatorsDoNotSplit() {
+		// Setup
+		RestResponse response = createResponse("Cache-Control",
+				"private=\"X-Foo, no-store; max-age=0\", max-age=60");
+
+		// Run
+		CacheControl cacheControl = CacheControl.parse(response);
+
+		// Verify
+		assertTrue("Directives inside a quoted string should be ignored", cacheControl.isStorable());
+		assertEquals("Directive after a quoted string should be parsed", 60, cacheControl.getFreshnessLifetime());
+	}
+
+	@Test
+	public void testParse_escapedQuote() {
+		// Setup
+		RestResponse response = createResponse("Cache-Control", "ext=\"a\\\", no-store\", max-age=60");
+
+		// Run
+		CacheControl cacheControl = CacheControl.parse(response);
+
+		// Verify
+		assertTrue("Escaped quote should not end the quoted string", cacheControl.isStorable());
+		assertEquals("Directive after the quoted string should be parsed", 60, cacheControl.getFreshnessLifetime());
+	}
+
+	@Test
+	public void testParse_joinedHeaders() {
+		// Setup
+		RestResponse response = createResponse("Cache-Control", "max-age=60;stale-while-revalidate=\"30\"");
+
+		// Run
+		CacheControl cacheControl = CacheControl.parse(response);
+
+		// Verify
+		assertEquals("max-age should be parsed", 60, cacheControl.getFreshnessLifetime());
+		assertEquals("Quoted stale-while-revalidate should be parsed", 30, cacheControl.getStaleWindow(0));
+	}
+
+	@Test
+	public void testGetFreshnessLifetime_maxAgeOverridesExpires() {
+		// Setup
+		RestResponse response = createResponse("Cache-Control", "max-age=60");
+		response.getHeaders().put("Expires", formatDate(System.currentTimeMillis() + 3600 * 1000));
+
+		// Run
+		long actual = CacheControl.parse(response).getFreshnessLifetime();
+
+		// Verify
+		assertEquals("max-age should take precedence over Expires", 60, actual);
+	}
+
+	@Test
+	public void testGetFreshnessLifetime_maxAgeOverridesPastExpires() {
+		// Setup
+		RestResponse response = createResponse("Cache-Control", "max-age=60");
+		response.getHeaders().put("Expires", "0");
+
+		// Run
+		long actual = CacheControl.parse(response).getFreshnessLifetime();
+
+		// Verify
+		assertEquals("max-age should take precedence over an expired Expires", 60, actual);
+	}
+
+	@Test
+	public void testGetFreshnessLifetime_expires() {
+		// Setup
+		RestResponse response = createResponse("Expires", formatDate(System.currentTimeMillis() + 3600 * 1000));
+
+		// Run
+		long actual = CacheControl.parse(response).getFreshnessLifetime();
+
+		// Verify
+		assertTrue("Expires should be used without max-age", actual > 3500 && actual <= 3600);
+	}
+
+	@Test
+	public void testGetFreshnessLifetime_invalidExpires() {
+		// Setup
+		RestResponse response = createResponse("Expires", "0");
+
+		// Run
+		long actual = CacheControl.parse(response).getFreshnessLifetime();
+
+		// Verify
+		assertEquals("Invalid Expires should mean already expired", 0, actual);
+	}
+
+	@Test
+	public void testIsStorable_noStore() {
+		// Setup
+		RestResponse response = createResponse("Cache-Control", "max-age=60, no-store");
+
+		// Run
+		boolean actual = CacheControl.parse(response).isStorable();
+
+		// Verify
+		assertFalse("no-store response should not be storable", actual);
+	}
+
+	private static RestResponse createResponse(String header, String value) {
+		Map<String, String> headers = new HashMap<String, String>();
+		headers.put(header, value);
+		RestResponse response = new RestResponse();
+		response.setHeaders(headers);
+		return response;
+	}
+
+	private static String formatDate(long time) {
+		synchronized (DateFormatter.HTTP_EXPIRES_FORMAT) {
+			return DateFormatter.HTTP_EXPIRES_FORMAT.format(new Date(time));
+		}
+	}
+
+}
@@ -0,0 +1,186 @@
+package com.clarionmedia.infinitum.internal.caching;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.lang.reflect.Field;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import com.clarionmedia.infinitum.context.InfinitumContext;
+import com.clarionmedia.infinitum.context.impl.XmlContextFactory;
+import com.clarionmedia.infinitum.internal.caching.CacheStats.EvictionCause;
+import com.xtremelabs.robolectric.RobolectricTestRunner;
+
+@RunWith(RobolectricTestRunner.class)
+public class AbstractCacheTest {
+
+	private static final String VALUE = "0123456789";
+
+	private File rootDir;
+	private StringCache cache;
+
+	@Before
+	public void setup() throws Exception {
+		setContext(mock(InfinitumContext.class));
+		rootDir = File.createTempFile("abstractcache", "");
+		rootDir.delete();
+		rootDir.mkdirs();
+		cache = new StringCache();
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		setContext(null);
+		delete(rootDir);
+	}
+
+	@Test
+	public void testGetStats_memoryHitsAndMisses() {
+		// Setup
+		cache.put("foo", VALUE);
+
+		// Run
+		cache.get("foo");
+		cache.get("bar");
+		CacheStats stats = cache.getStats();
+
+		// Verify
+		assertEquals("Name should be the cache name", StringCache.NAME, stats.getName());
+		assertEquals("Memory hits should be counted", 1, stats.getMemoryHitCount());
+		assertEquals("Memory misses should be counted", 1, stats.getMemoryMissCount());
+		assertEquals("Disk should not be probed when disabled", 0, stats.getDiskMissCount());
+		assertEquals("Disk should use no space when disabled", 0, stats.getDiskBytes());
+	}
+
+	@Test
+	public void testGetStats_diskHitRecordsLoad() {
+		// Setup
+		cache.setDiskCacheEnabled(rootDir.getAbsolutePath());
+		cache.put("foo", VALUE);
+		cache.removeKey("foo");
+
+		// Run
+		Object actual = cache.get("foo");
+		CacheStats stats = cache.getStats();
+
+		// Verify
+		assertEquals("Value should be read from disk", VALUE, actual);
+		assertEquals("Memory lookup should be a miss", 1, stats.getMemoryMissCount());
+		assertEquals("Disk lookup should be a hit", 1, stats.getDiskHitCount());
+		assertEquals("Disk read should be counted as a load", 1, stats.getLoadCount());
+		assertTrue("Load time should be recorded", stats.getTotalLoadTime() >= 0);
+		assertEquals("Hit rate should count the disk hit", 1.0, stats.getHitRate(), 0.0001);
+		assertEquals("Disk bytes should be reported", VALUE.length(), stats.getDiskBytes());
+	}
+
+	@Test
+	public void testGetStats_diskMiss() {
+		// Setup
+		cache.setDiskCacheEnabled(rootDir.getAbsolutePath());
+
+		// Run
+		Object actual = cache.get("foo");
+		CacheStats stats = cache.getStats();
+
+		// Verify
+		assertNull("Missing value should not be returned", actual);
+		assertEquals("Memory lookup should be a miss", 1, stats.getMemoryMissCount());
+		assertEquals("Disk lookup should be a miss", 1, stats.getDiskMissCount());
+		assertEquals("Nothing should have been loaded", 0, stats.getLoadCount());
+	}
+
+	@Test
+	public void testGetStats_diskSizeEvictions() {
+		// Setup
+		cache.setDiskCacheEnabled(rootDir.getAbsolutePath());
+		cache.put("foo", VALUE);
+		cache.put("bar", VALUE);
+
+		// Run
+		cache.setMaxDiskCacheSize(VALUE.length());
+		CacheStats stats = cache.getStats();
+
+		// Verify
+		assertEquals("Disk entry over budget should be evicted", 1, stats.getEvictionCount(EvictionCause.SIZE));
+		assertEquals("Disk bytes should be within the budget", VALUE.length(), stats.getDiskBytes());
+	}
+
+	@Test
+	public void testGetStats_explicitEvictions() {
+		// Setup
+		cache.put("foo", VALUE);
+
+		// Run
+		cache.remove("foo");
+		cache.remove("bar");
+		CacheStats stats = cache.getStats();
+
+		// Verify
+		assertEquals("Only removals of cached entries should be counted", 1, stats.getEvictionCount(EvictionCause.EXPLICIT));
+	}
+
+	private static void setContext(InfinitumContext context) throws Exception {
+		Field field = XmlContextFactory.class.getDeclaredField("sInfinitumContext");
+		field.setAccessible(true);
+		field.set(null, context);
+	}
+
+	private static void delete(File file) {
+		File[] files = file.listFiles();
+		if (files != null) {
+			for (File child : files)
+				delete(child);
+		}
+		file.delete();
+	}
+
+	private static class StringCache extends AbstractCache<String, String> {
+
+		private static final String NAME = "AbstractCacheTest";
+
+		public StringCache() {
+			super(NAME);
+		}
+
+		@Override
+		public String getFileNameForKey(String key) {
+			return key;
+		}
+
+		@Override
+		protected String readValueFromDisk(File file) throws IOException {
+			FileInputStream in = new FileInputStream(file);
+			try {
+				byte[] bytes = new byte[(int) file.length()];
+				int read = 0;
+				while (read < bytes.length)
+					read += in.read(bytes, read, bytes.length - read);
+				return new String(bytes, "UTF-8");
+			} finally {
+				in.close();
+			}
+		}
+
+		@Override
+		protected void writeValueToDisk(File file, String value) throws IOException {
+			FileOutputStream out = new FileOutputStream(file);
+			try {
+				out.write(value.getBytes("UTF-8"));
+			} finally {
+				out.close();
+			}
+		}
+
+	}
+
+}
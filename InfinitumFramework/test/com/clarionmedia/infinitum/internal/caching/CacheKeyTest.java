@@ -0,0 +1,59 @@
+package com.clarionmedia.infinitum.internal.caching;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import org.junit.Test;
+
+public class CacheKeyTest {
+
+	// Reference MurmurHash3 x64_128 values with a seed of 0, as h1 then h2
+	private static final String[][] VECTORS = {
+		{ "", "00000000000000000000000000000000" },
+		{ "a", "85555565f6597889e6b53a48510e895a" },
+		{ "hello", "cbd8a7b341bd9b025b1e906a48ae1d19" },
+		{ "123456789", "3c84645edb66cca499f8fac73a1ea105" },
+		{ "0123456789abcdef", "4be06d94cf4ad1a787c35b5c63a708da" },
+		{ "0123456789abcdefghijklmnopqrstu", "b828780c1a6e05423922739113a7e9b2" },
+		{ "The quick brown fox jumps over the lazy dog", "e34bbc7bbc071b6c7a433ca9c49a9347" },
+		{ "GET http://example.com/api/users?page=2", "568366bc27a1a8bb1eba7b311f6f186d" },
+		{ "caf\u00e9", "a2e7c22a053364dd0acaaa4789576479" }
+	};
+
+	@Test
+	public void testForContent_referenceVectors() {
+		for (String[] vector : VECTORS) {
+			// Run
+			CacheKey actual = CacheKey.forContent(vector[0]);
+
+			// Verify
+			assertEquals("Key should match the reference hash of '" + vector[0] + "'", vector[1], actual.toString());
+		}
+	}
+
+	@Test
+	public void testGetFileName() {
+		// Setup
+		CacheKey key = CacheKey.forContent("hello");
+
+		// Run
+		String actual = key.getFileName();
+
+		// Verify
+		assertEquals("File name should be sharded by the leading hex digits", "cb/d8/cbd8a7b341bd9b025b1e906a48ae1d19", actual);
+	}
+
+	@Test
+	public void testEquals() {
+		// Setup
+		CacheKey key = CacheKey.forContent("hello");
+		CacheKey same = CacheKey.forBytes(new byte[] { 'h', 'e', 'l', 'l', 'o' });
+		CacheKey other = CacheKey.forContent("hellp");
+
+		// Verify
+		assertEquals("Keys of the same content should be equal", key, same);
+		assertEquals("Keys of the same content should have the same hash code", key.hashCode(), same.hashCode());
+		assertFalse("Keys of different content should not be equal", key.equals(other));
+	}
+
+}
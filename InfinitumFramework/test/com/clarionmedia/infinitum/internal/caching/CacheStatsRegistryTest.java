@@ -0,0 +1,67 @@
+package com.clarionmedia.infinitum.internal.caching;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.ref.WeakReference;
+
+import org.junit.Test;
+
+public class CacheStatsRegistryTest {
+
+	@Test
+	public void testGetStats_registeredCache() {
+		// Setup
+		NamedCache cache = new NamedCache("CacheStatsRegistryTest.registered");
+
+		// Run
+		CacheStatsRegistry.register(cache);
+
+		// Verify
+		assertTrue("Registered cache should be reported", isReported(cache.mName));
+	}
+
+	@Test
+	public void testGetStats_dropsCollectedCaches() throws InterruptedException {
+		// Setup
+		String name = "CacheStatsRegistryTest.collected";
+		NamedCache cache = new NamedCache(name);
+		CacheStatsRegistry.register(cache);
+		WeakReference<NamedCache> ref = new WeakReference<NamedCache>(cache);
+		cache = null;
+
+		// Run
+		for (int i = 0; i < 50 && ref.get() != null; i++) {
+			System.gc();
+			Thread.sleep(10);
+		}
+
+		// Verify
+		assertTrue("Cache should have been collected", ref.get() == null);
+		assertFalse("Collected cache should not be reported", isReported(name));
+	}
+
+	private static boolean isReported(String name) {
+		for (CacheStats stats : CacheStatsRegistry.getStats()) {
+			if (stats.getName().equals(name))
+				return true;
+		}
+		return false;
+	}
+
+	private static class NamedCache implements InstrumentedCache {
+
+		private final String mName;
+
+		public NamedCache(String name) {
+			mName = name;
+		}
+
+		@Override
+		public CacheStats getStats() {
+			return new StatsCounter().snapshot(mName, 0);
+		}
+
+	}
+
+}
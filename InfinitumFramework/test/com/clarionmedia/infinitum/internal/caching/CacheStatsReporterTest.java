@@ -0,0 +1,59 @@
+package com.clarionmedia.infinitum.internal.caching;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.mockito.Mockito.mock;
+
+import org.junit.After;
+import org.junit.Test;
+
+import com.clarionmedia.infinitum.context.InfinitumContext;
+
+public class CacheStatsReporterTest {
+
+	private static final String THREAD_NAME = "InfinitumCacheStatsReporter";
+
+	@After
+	public void tearDown() {
+		CacheStatsReporter.stop();
+	}
+
+	@Test
+	public void testStop() throws InterruptedException {
+		// Setup
+		CacheStatsReporter.start(mock(InfinitumContext.class), 60);
+		Thread reporter = findReporter();
+		assertNotNull("Reporter thread should be running", reporter);
+
+		// Run
+		CacheStatsReporter.stop();
+		reporter.join(1000);
+
+		// Verify
+		assertFalse("Reporter thread should stop", reporter.isAlive());
+	}
+
+	@Test
+	public void testStart_replacesRunningReporter() throws InterruptedException {
+		// Setup
+		CacheStatsReporter.start(mock(InfinitumContext.class), 60);
+		Thread first = findReporter();
+
+		// Run
+		CacheStatsReporter.start(mock(InfinitumContext.class), 60);
+		first.join(1000);
+
+		// Verify
+		assertFalse("Previous reporter thread should stop", first.isAlive());
+		assertNotNull("New reporter thread should be running", findReporter());
+	}
+
+	private static Thread findReporter() {
+		for (Thread thread : Thread.getAllStackTraces().keySet()) {
+			if (THREAD_NAME.equals(thread.getName()) && thread.isAlive() && !thread.isInterrupted())
+				return thread;
+		}
+		return null;
+	}
+
+}
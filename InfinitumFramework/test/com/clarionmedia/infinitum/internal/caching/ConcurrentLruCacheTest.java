@@ -0,0 +1,181 @@
+package com.clarionmedia.infinitum.internal.caching;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+public class ConcurrentLruCacheTest {
+
+	@Test
+	public void testPut_boundedBySize() {
+		// Setup
+		ConcurrentLruCache<Integer, String> cache = new ConcurrentLruCache<Integer, String>(10);
+
+		// Run
+		for (int i = 0; i < 100; i++)
+			cache.put(i, "value" + i);
+
+		// Verify
+		assertEquals("Cache should be trimmed to its max size", 10, cache.size());
+		assertEquals("Every other entry should be evicted", 90, cache.evictionCount());
+		assertEquals("Data should agree with the cache size", 10, cache.snapshot().size());
+	}
+
+	@Test
+	public void testPut_sizeOf() {
+		// Setup
+		ConcurrentLruCache<Integer, String> cache = new ConcurrentLruCache<Integer, String>(20) {
+			@Override
+			protected int sizeOf(Object key, String value) {
+				return value.length();
+			}
+		};
+
+		// Run
+		for (int i = 0; i < 10; i++)
+			cache.put(i, "12345");
+
+		// Verify
+		assertTrue("Sum of entry sizes should not exceed the max size", cache.size() <= 20);
+		assertEquals("Cache size should be the sum of entry sizes", cache.snapshot().size() * 5, cache.size());
+	}
+
+	@Test
+	public void testPut_frequentKeysAdmitted() {
+		// Setup
+		ConcurrentLruCache<Integer, String> cache = new ConcurrentLruCache<Integer, String>(20);
+		for (int i = 0; i < 10; i++)
+			cache.put(i, "hot" + i);
+		for (int j = 0; j < 10; j++) {
+			for (int i = 0; i < 10; i++)
+				cache.get(i);
+		}
+
+		// Run
+		for (int i = 100; i < 200; i++)
+			cache.put(i, "cold" + i);
+
+		// Verify
+		for (int i = 0; i < 10; i++)
+			assertEquals("Frequently read entry should not be evicted by one-off entries", "hot" + i, cache.get(i));
+		assertEquals("Cache should be trimmed to its max size", 20, cache.size());
+	}
+
+	@Test
+	public void testPut_replace() {
+		// Setup
+		final List<String> removed = new ArrayList<String>();
+		ConcurrentLruCache<String, String> cache = new ConcurrentLruCache<String, String>(10) {
+			@Override
+			protected void entryRemoved(boolean evicted, Object key, String oldValue, String newValue) {
+				removed.add(oldValue + "->" + newValue);
+			}
+		};
+		cache.put("foo", "bar");
+
+		// Run
+		String previous = cache.put("foo", "baz");
+
+		// Verify
+		assertEquals("Previous value should be returned", "bar", previous);
+		assertEquals("Value should be replaced", "baz", cache.get("foo"));
+		assertEquals("Replacement should not change the size", 1, cache.size());
+		assertEquals("Replaced value should be reported", "bar->baz", removed.get(0));
+	}
+
+	@Test
+	public void testRemove() {
+		// Setup
+		final List<String> removed = new ArrayList<String>();
+		ConcurrentLruCache<String, String> cache = new ConcurrentLruCache<String, String>(10) {
+			@Override
+			protected void entryRemoved(boolean evicted, Object key, String oldValue, String newValue) {
+				removed.add(oldValue + "->" + newValue);
+			}
+		};
+		cache.put("foo", "bar");
+
+		// Run
+		String previous = cache.remove("foo");
+
+		// Verify
+		assertEquals("Removed value should be returned", "bar", previous);
+		assertFalse("Key should no longer be cached", cache.containsKey("foo"));
+		assertNull("Removed key should not be retrievable", cache.get("foo"));
+		assertEquals("Cache should be empty", 0, cache.size());
+		assertEquals("Removed value should be reported", "bar->null", removed.get(0));
+		assertNull("Removing a missing key should return null", cache.remove("foo"));
+	}
+
+	@Test
+	public void testClear() {
+		// Setup
+		ConcurrentLruCache<Integer, String> cache = new ConcurrentLruCache<Integer, String>(100);
+		for (int i = 0; i < 50; i++)
+			cache.put(i, "value" + i);
+
+		// Run
+		cache.clear();
+
+		// Verify
+		assertEquals("Cache should be empty", 0, cache.size());
+		assertTrue("Data should be empty", cache.isEmpty());
+	}
+
+	@Test
+	public void testConcurrentPutAndGet() throws InterruptedException {
+		// Setup
+		final int maxSize = 256;
+		final ConcurrentLruCache<Integer, String> cache = new ConcurrentLruCache<Integer, String>(maxSize);
+		final AtomicInteger mismatches = new AtomicInteger();
+		final CountDownLatch start = new CountDownLatch(1);
+		int threadCount = 8;
+		final CountDownLatch done = new CountDownLatch(threadCount);
+		for (int t = 0; t < threadCount; t++) {
+			final Random random = new Random(t);
+			new Thread(new Runnable() {
+				@Override
+				public void run() {
+					try {
+						start.await();
+						for (int i = 0; i < 20000; i++) {
+							int key = random.nextInt(1000);
+							if (random.nextBoolean()) {
+								cache.put(key, "value" + key);
+							} else if (random.nextInt(10) == 0) {
+								cache.remove(key);
+							} else {
+								String value = cache.get(key);
+								if (value != null && !value.equals("value" + key))
+									mismatches.incrementAndGet();
+							}
+						}
+					} catch (InterruptedException e) {
+						Thread.currentThread().interrupt();
+					} finally {
+						done.countDown();
+					}
+				}
+			}).start();
+		}
+
+		// Run
+		start.countDown();
+		done.await();
+
+		// Verify
+		assertEquals("Every read should return the value put for its key", 0, mismatches.get());
+		assertTrue("Cache should not exceed its max size", cache.size() <= maxSize);
+		assertEquals("Data should agree with the cache size", cache.size(), cache.snapshot().size());
+	}
+
+}
@@ -0,0 +1,80 @@
+package com.clarionmedia.infinitum.internal.caching;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import org.junit.Test;
+
+import com.clarionmedia.infinitum.internal.caching.CacheStats.EvictionCause;
+
+public class ExpirableCacheTest {
+
+	@Test
+	public void testGetStats_hitsAndMisses() {
+		// Setup
+		ExpirableCache<String, String> cache = new ExpirableCache<String, String>(60, 16);
+		cache.put("foo", "bar");
+
+		// Run
+		cache.get("foo");
+		cache.get("baz");
+		CacheStats stats = cache.getStats();
+
+		// Verify
+		assertEquals("Hits should be counted", 1, stats.getMemoryHitCount());
+		assertEquals("Misses should be counted", 1, stats.getMemoryMissCount());
+		assertEquals("ExpirableCache has no disk level", 0, stats.getDiskMissCount());
+	}
+
+	@Test
+	public void testGetStats_expired() throws InterruptedException {
+		// Setup
+		ExpirableCache<String, String> cache = new ExpirableCache<String, String>(60, 16);
+		cache.put("foo", "bar", 0);
+		Thread.sleep(10);
+
+		// Run
+		Object actual = cache.get("foo");
+		CacheStats stats = cache.getStats();
+
+		// Verify
+		assertNull("Expired entry should not be returned", actual);
+		assertEquals("Lookup of an expired entry should be a miss", 1, stats.getMemoryMissCount());
+		assertEquals("Expiration should be counted once", 1, stats.getEvictionCount(EvictionCause.EXPIRED));
+	}
+
+	@Test
+	public void testGetStats_explicitEvictions() {
+		// Setup
+		ExpirableCache<String, String> cache = new ExpirableCache<String, String>(60, 16);
+		cache.put("foo", "bar");
+		cache.put("baz", "qux");
+		cache.put("quux", "corge");
+
+		// Run
+		cache.remove("foo");
+		cache.remove("missing");
+		cache.clear();
+		CacheStats stats = cache.getStats();
+
+		// Verify
+		assertEquals("Removed and cleared entries should be counted", 3, stats.getEvictionCount(EvictionCause.EXPLICIT));
+		assertEquals("Nothing should have expired", 0, stats.getEvictionCount(EvictionCause.EXPIRED));
+	}
+
+	@Test
+	public void testExpire_staleDeadlineNotCounted() {
+		// Setup
+		ExpirableCache<String, String> cache = new ExpirableCache<String, String>(60, 16);
+		cache.put("foo", "bar");
+
+		// Run
+		cache.expire("foo", 0);
+		CacheStats stats = cache.getStats();
+
+		// Verify
+		assertEquals("Entry re-cached with another deadline should be kept", "bar", cache.get("foo"));
+		assertEquals("Ignored expiration should not be counted", 0, stats.getEvictionCount(EvictionCause.EXPIRED));
+	}
+
+}
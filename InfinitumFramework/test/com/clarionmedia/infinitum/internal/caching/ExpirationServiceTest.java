@@ -0,0 +1,78 @@
+package com.clarionmedia.infinitum.internal.caching;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.clarionmedia.infinitum.internal.caching.ExpirationService.Expirable;
+
+public class ExpirationServiceTest {
+
+	private ExpirationService expirationService;
+	private RecordingExpirable owner;
+
+	@Before
+	public void setup() {
+		expirationService = ExpirationService.getInstance();
+		owner = new RecordingExpirable();
+	}
+
+	@Test
+	public void testSchedule_repeatedLaterDeadlines() {
+		// Setup
+		long deadline = System.currentTimeMillis() + 60000;
+		int pending = expirationService.getPendingCount();
+
+		// Run
+		for (int i = 0; i < 100; i++)
+			expirationService.schedule(owner, "foo", deadline + i);
+
+		// Verify
+		assertEquals("Re-scheduled entry should only be queued once", pending + 1, expirationService.getPendingCount());
+	}
+
+	@Test
+	public void testSchedule_earlierDeadline() {
+		// Setup
+		long deadline = System.currentTimeMillis() + 60000;
+		int pending = expirationService.getPendingCount();
+
+		// Run
+		expirationService.schedule(owner, "foo", deadline);
+		expirationService.schedule(owner, "foo", deadline - 1000);
+
+		// Verify
+		assertEquals("Superseded expiration should be replaced", pending + 1, expirationService.getPendingCount());
+	}
+
+	@Test
+	public void testSchedule_postponedExpiration() throws InterruptedException {
+		// Setup
+		long deadline = System.currentTimeMillis() + 50;
+
+		// Run
+		expirationService.schedule(owner, "foo", deadline);
+		expirationService.schedule(owner, "foo", deadline + 100);
+		Thread.sleep(400);
+
+		// Verify
+		assertEquals("Entry should be expired once", 1, owner.mDeadlines.size());
+		assertEquals("Entry should be expired at its latest deadline", Long.valueOf(deadline + 100), owner.mDeadlines.get(0));
+	}
+
+	private static class RecordingExpirable implements Expirable {
+
+		private final List<Long> mDeadlines = new ArrayList<Long>();
+
+		@Override
+		public synchronized void expire(Object key, long deadline) {
+			mDeadlines.add(deadline);
+		}
+
+	}
+
+}
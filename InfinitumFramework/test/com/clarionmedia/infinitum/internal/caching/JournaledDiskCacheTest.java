@@ -0,0 +1,277 @@
+package com.clarionmedia.infinitum.internal.caching;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class JournaledDiskCacheTest {
+
+	private static final long MAX_SIZE = 100;
+
+	private File directory;
+	private JournaledDiskCache diskCache;
+	private long expiresAt;
+
+	@Before
+	public void setup() throws IOException {
+		directory = File.createTempFile("diskcache", "");
+		directory.delete();
+		directory.mkdirs();
+		expiresAt = System.currentTimeMillis() + 60000;
+		diskCache = new JournaledDiskCache(directory, MAX_SIZE);
+		diskCache.open();
+	}
+
+	@After
+	public void tearDown() {
+		diskCache.close();
+		delete(directory);
+	}
+
+	@Test
+	public void testOpen_replaysJournal() throws IOException {
+		// Setup
+		writeEntry("foo", 10);
+		writeEntry("bar", 20);
+		writeEntry("baz", 30);
+		diskCache.remove("bar");
+		diskCache.close();
+
+		// Run
+		diskCache = new JournaledDiskCache(directory, MAX_SIZE);
+		diskCache.open();
+
+		// Verify
+		assertTrue("Entry should be restored", diskCache.contains("foo"));
+		assertFalse("Removed entry should not be restored", diskCache.contains("bar"));
+		assertTrue("Entry should be restored", diskCache.contains("baz"));
+		assertEquals("Expiration should be restored", expiresAt, diskCache.getExpiration("foo"));
+		assertEquals("Size should be restored", 40, diskCache.size());
+	}
+
+	@Test
+	public void testOpen_replaysAccessOrder() throws IOException {
+		// Setup
+		writeEntry("foo", 40);
+		writeEntry("bar", 40);
+		diskCache.recordAccess("foo");
+		diskCache.close();
+		diskCache = new JournaledDiskCache(directory, MAX_SIZE);
+		diskCache.open();
+
+		// Run
+		writeEntry("baz", 40);
+
+		// Verify
+		assertTrue("Recently read entry should be retained", diskCache.contains("foo"));
+		assertFalse("Least recently used entry should be evicted", diskCache.contains("bar"));
+	}
+
+	@Test
+	public void testOpen_truncatedRecord() throws IOException {
+		// Setup
+		writeEntry("foo", 10);
+		writeEntry("bar", 20);
+		diskCache.close();
+		FileOutputStream journal = new FileOutputStream(new File(directory, JournaledDiskCache.JOURNAL_FILE), true);
+		journal.write("REMOVE fo".getBytes("UTF-8"));
+		journal.close();
+
+		// Run
+		diskCache = new JournaledDiskCache(directory, MAX_SIZE);
+		diskCache.open();
+		writeEntry("baz", 30);
+		diskCache.close();
+		diskCache = new JournaledDiskCache(directory, MAX_SIZE);
+		diskCache.open();
+
+		// Verify
+		assertTrue("Entries before the truncated record should be kept", diskCache.contains("foo"));
+		assertTrue("Entries before the truncated record should be kept", diskCache.contains("bar"));
+		assertTrue("Entries written after recovering should be kept", diskCache.contains("baz"));
+		assertEquals("Size should be restored", 60, diskCache.size());
+	}
+
+	@Test
+	public void testOpen_corruptJournal() throws IOException {
+		// Setup
+		writeEntry("foo", 10);
+		diskCache.close();
+		FileOutputStream journal = new FileOutputStream(new File(directory, JournaledDiskCache.JOURNAL_FILE), true);
+		journal.write("BOGUS foo\nREAD foo\n".getBytes("UTF-8"));
+		journal.close();
+
+		// Run
+		diskCache = new JournaledDiskCache(directory, MAX_SIZE);
+		diskCache.open();
+
+		// Verify
+		assertFalse("Corrupt journal should be discarded", diskCache.contains("foo"));
+		assertFalse("Entry files should be deleted", new File(directory, "foo").exists());
+		assertEquals("Cache should be empty", 0, diskCache.size());
+	}
+
+	@Test
+	public void testOpen_deletesTempFiles() throws IOException {
+		// Setup
+		writeEntry("foo", 10);
+		File temp = diskCache.beginWrite("bar");
+		writeBytes(temp, 20);
+		diskCache.close();
+
+		// Run
+		diskCache = new JournaledDiskCache(directory, MAX_SIZE);
+		diskCache.open();
+
+		// Verify
+		assertFalse("Temp file from an interrupted write should be deleted", temp.exists());
+		assertTrue("Committed entry should be kept", diskCache.contains("foo"));
+		assertEquals("Size should only count committed entries", 10, diskCache.size());
+	}
+
+	@Test
+	public void testOpen_interruptedOverwriteKeepsEntry() throws IOException {
+		// Setup
+		writeEntry("foo", 10);
+		File temp = diskCache.beginWrite("foo");
+		writeBytes(temp, 20);
+		diskCache.close();
+
+		// Run
+		diskCache = new JournaledDiskCache(directory, MAX_SIZE);
+		diskCache.open();
+
+		// Verify
+		assertFalse("Temp file from an interrupted write should be deleted", temp.exists());
+		assertTrue("Previously committed entry should be kept", diskCache.contains("foo"));
+		assertEquals("Size should only count committed entries", 10, diskCache.size());
+	}
+
+	@Test
+	public void testOpen_deletesEntryWithoutRecord() throws IOException {
+		// Setup
+		writeEntry("foo", 10);
+		File temp = diskCache.beginWrite("foo");
+		writeBytes(temp, 20);
+		// Simulate a crash after the rename but before the record is appended
+		File file = diskCache.getFile("foo");
+		file.delete();
+		assertTrue(temp.renameTo(file));
+		diskCache.close();
+
+		// Run
+		diskCache = new JournaledDiskCache(directory, MAX_SIZE);
+		diskCache.open();
+		diskCache.close();
+		diskCache = new JournaledDiskCache(directory, MAX_SIZE);
+		diskCache.open();
+
+		// Verify
+		assertFalse("Entry with uncommitted contents should be removed", diskCache.contains("foo"));
+		assertFalse("Entry file with uncommitted contents should be deleted", file.exists());
+		assertEquals("Cache should be empty", 0, diskCache.size());
+	}
+
+	@Test
+	public void testOpen_abortedWriteNotReconciled() throws IOException {
+		// Setup
+		writeEntry("foo", 10);
+		File temp = diskCache.beginWrite("foo");
+		writeBytes(temp, 20);
+		diskCache.abort(temp);
+		diskCache.close();
+
+		// Run
+		diskCache = new JournaledDiskCache(directory, MAX_SIZE);
+		diskCache.open();
+
+		// Verify
+		assertFalse("Aborted temp file should be deleted", temp.exists());
+		assertTrue("Committed entry should be kept", diskCache.contains("foo"));
+		assertEquals("Size should only count committed entries", 10, diskCache.size());
+	}
+
+	@Test
+	public void testClear_keepsOpenWritesRecoverable() throws IOException {
+		// Setup
+		writeEntry("foo", 10);
+		File temp = diskCache.beginWrite("bar");
+		writeBytes(temp, 20);
+
+		// Run
+		diskCache.clear();
+		diskCache.close();
+		diskCache = new JournaledDiskCache(directory, MAX_SIZE);
+		diskCache.open();
+
+		// Verify
+		assertFalse("Temp file of a write begun before the journal was rebuilt should be deleted", temp.exists());
+		assertEquals("Cache should be empty", 0, diskCache.size());
+	}
+
+	@Test
+	public void testCommit_trimToSize() throws IOException {
+		// Setup
+		writeEntry("foo", 40);
+		writeEntry("bar", 40);
+		diskCache.recordAccess("foo");
+
+		// Run
+		writeEntry("baz", 40);
+
+		// Verify
+		assertTrue("Recently read entry should be retained", diskCache.contains("foo"));
+		assertFalse("Least recently used entry should be evicted", diskCache.contains("bar"));
+		assertFalse("Evicted entry's file should be deleted", new File(directory, "bar").exists());
+		assertTrue("Newest entry should be retained", diskCache.contains("baz"));
+		assertEquals("Size should be within the budget", 80, diskCache.size());
+	}
+
+	@Test
+	public void testSetMaxSize_trimToSize() throws IOException {
+		// Setup
+		writeEntry("foo", 40);
+		writeEntry("bar", 40);
+
+		// Run
+		diskCache.setMaxSize(50);
+
+		// Verify
+		assertFalse("Least recently used entry should be evicted", diskCache.contains("foo"));
+		assertTrue("Most recently used entry should be retained", diskCache.contains("bar"));
+		assertEquals("Size should be within the new budget", 40, diskCache.size());
+	}
+
+	private void writeEntry(String name, int size) throws IOException {
+		File temp = diskCache.beginWrite(name);
+		writeBytes(temp, size);
+		diskCache.commit(name, temp, expiresAt);
+	}
+
+	private static void writeBytes(File file, int size) throws IOException {
+		FileOutputStream out = new FileOutputStream(file);
+		try {
+			out.write(new byte[size]);
+		} finally {
+			out.close();
+		}
+	}
+
+	private static void delete(File file) {
+		File[] files = file.listFiles();
+		if (files != null) {
+			for (File child : files)
+				delete(child);
+		}
+		file.delete();
+	}
+
+}
@@ -0,0 +1,78 @@
+package com.clarionmedia.infinitum.internal.caching;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import com.clarionmedia.infinitum.internal.caching.CacheStats.EvictionCause;
+
+public class LruCacheTest {
+
+	@Test
+	public void testGetStats_hitsAndMisses() {
+		// Setup
+		LruCache<String, String> cache = new LruCache<String, String>(10);
+		cache.put("foo", "bar");
+
+		// Run
+		cache.get("foo");
+		cache.get("foo");
+		cache.get("baz");
+		CacheStats stats = cache.getStats();
+
+		// Verify
+		assertEquals("Hits should be counted", 2, stats.getMemoryHitCount());
+		assertEquals("Misses should be counted", 1, stats.getMemoryMissCount());
+		assertEquals("Hit rate should match the counts", 2.0 / 3, stats.getHitRate(), 0.0001);
+		assertEquals("LruCache has no disk level", 0, stats.getDiskBytes());
+	}
+
+	@Test
+	public void testGetStats_loads() {
+		// Setup
+		LruCache<String, String> cache = new LruCache<String, String>(10) {
+			@Override
+			protected String create(Object key) {
+				try {
+					Thread.sleep(5);
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+				return "created";
+			}
+		};
+
+		// Run
+		cache.get("foo");
+		cache.get("foo");
+		CacheStats stats = cache.getStats();
+
+		// Verify
+		assertEquals("Only the first lookup should load a value", 1, stats.getLoadCount());
+		assertTrue("Load time should be recorded", stats.getTotalLoadTime() >= 5000000);
+		assertEquals("Average load penalty should match the total", stats.getTotalLoadTime(), stats.getAverageLoadPenalty(), 0.0001);
+	}
+
+	@Test
+	public void testGetStats_evictions() {
+		// Setup
+		LruCache<Integer, String> cache = new LruCache<Integer, String>(2);
+
+		// Run
+		cache.put(1, "foo");
+		cache.put(2, "bar");
+		cache.put(3, "baz");
+		cache.remove(2);
+		cache.remove(4);
+		CacheStats stats = cache.getStats();
+
+		// Verify
+		assertNull("Least recently used entry should be evicted", cache.get(1));
+		assertEquals("Size evictions should be counted", 1, stats.getEvictionCount(EvictionCause.SIZE));
+		assertEquals("Only removals of present entries should be counted", 1, stats.getEvictionCount(EvictionCause.EXPLICIT));
+		assertEquals("LruCache entries do not expire", 0, stats.getEvictionCount(EvictionCause.EXPIRED));
+	}
+
+}
@@ -0,0 +1,215 @@
+package com.clarionmedia.infinitum.internal.caching;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.mock;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.lang.reflect.Field;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import com.clarionmedia.infinitum.context.InfinitumContext;
+import com.clarionmedia.infinitum.context.impl.XmlContextFactory;
+import com.clarionmedia.infinitum.http.rest.impl.RestResponse;
+import com.xtremelabs.robolectric.RobolectricTestRunner;
+
+@RunWith(RobolectricTestRunner.class)
+public class RestResponseCacheTest {
+
+	private static final int PREAMBLE_SIZE = 13;
+
+	private File cacheFile;
+	private RestResponseCache cache;
+
+	@Before
+	public void setup() throws Exception {
+		setContext(mock(InfinitumContext.class));
+		cacheFile = File.createTempFile("restresponsecache", "");
+		cache = new RestResponseCache();
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		setContext(null);
+		cacheFile.delete();
+	}
+
+	@Test
+	public void testReadValueFromDisk_smallBody() throws IOException {
+		// Setup
+		RestResponse expected = createResponse(100);
+		cache.writeValueToDisk(cacheFile, expected);
+
+		// Run
+		RestResponse actual = cache.readValueFromDisk(cacheFile);
+
+		// Verify
+		assertResponseEquals(expected, actual);
+	}
+
+	@Test
+	public void testReadValueFromDisk_mappedBody() throws IOException {
+		// Setup
+		RestResponse expected = createResponse(64 * 1024);
+		cache.writeValueToDisk(cacheFile, expected);
+
+		// Run
+		RestResponse actual = cache.readValueFromDisk(cacheFile);
+
+		// Verify
+		assertTrue("File should be large enough to be mapped", cacheFile.length() > 16 * 1024);
+		assertResponseEquals(expected, actual);
+	}
+
+	@Test
+	public void testReadValueFromDisk_emptyResponse() throws IOException {
+		// Setup
+		RestResponse expected = new RestResponse();
+		expected.setStatusCode(204);
+		expected.setResponseData(new byte[0]);
+		expected.setHeaders(new HashMap<String, String>());
+		expected.setVaryHeaders(new HashMap<String, String>());
+		cache.writeValueToDisk(cacheFile, expected);
+
+		// Run
+		RestResponse actual = cache.readValueFromDisk(cacheFile);
+
+		// Verify
+		assertResponseEquals(expected, actual);
+	}
+
+	@Test
+	public void testReadValueFromDisk_corruptMetadata() throws IOException {
+		// Setup
+		cache.writeValueToDisk(cacheFile, createResponse(100));
+		flipByte(PREAMBLE_SIZE + 1);
+
+		// Run & Verify
+		assertReadFails("Corrupt metadata should fail the checksum");
+	}
+
+	@Test
+	public void testReadValueFromDisk_truncatedPreamble() throws IOException {
+		// Setup
+		cache.writeValueToDisk(cacheFile, createResponse(100));
+		truncate(PREAMBLE_SIZE - 1);
+
+		// Run & Verify
+		assertReadFails("File shorter than the preamble should be rejected");
+	}
+
+	@Test
+	public void testReadValueFromDisk_truncatedBody() throws IOException {
+		// Setup
+		cache.writeValueToDisk(cacheFile, createResponse(100));
+		truncate(cacheFile.length() - 10);
+
+		// Run & Verify
+		assertReadFails("File missing part of its body should be rejected");
+	}
+
+	@Test
+	public void testReadValueFromDisk_truncatedMappedBody() throws IOException {
+		// Setup
+		cache.writeValueToDisk(cacheFile, createResponse(64 * 1024));
+		truncate(cacheFile.length() - 1024);
+
+		// Run & Verify
+		assertReadFails("Mapped file missing part of its body should be rejected");
+	}
+
+	@Test
+	public void testReadValueFromDisk_wrongVersion() throws IOException {
+		// Setup
+		cache.writeValueToDisk(cacheFile, createResponse(100));
+		flipByte(4);
+
+		// Run & Verify
+		assertReadFails("File with another format version should be rejected");
+	}
+
+	@Test
+	public void testReadValueFromDisk_badMagic() throws IOException {
+		// Setup
+		cache.writeValueToDisk(cacheFile, createResponse(100));
+		flipByte(0);
+
+		// Run & Verify
+		assertReadFails("File without the magic number should be rejected");
+	}
+
+	private void assertReadFails(String message) {
+		try {
+			cache.readValueFromDisk(cacheFile);
+			fail(message);
+		} catch (IOException e) {
+			// Expected
+		}
+	}
+
+	private void flipByte(long position) throws IOException {
+		RandomAccessFile file = new RandomAccessFile(cacheFile, "rw");
+		try {
+			file.seek(position);
+			int value = file.read();
+			file.seek(position);
+			file.write(value ^ 0xff);
+		} finally {
+			file.close();
+		}
+	}
+
+	private void truncate(long length) throws IOException {
+		RandomAccessFile file = new RandomAccessFile(cacheFile, "rw");
+		try {
+			file.setLength(length);
+		} finally {
+			file.close();
+		}
+	}
+
+	private static RestResponse createResponse(int bodyLength) {
+		byte[] body = new byte[bodyLength];
+		for (int i = 0; i < bodyLength; i++)
+			body[i] = (byte) (i * 31);
+		Map<String, String> headers = new HashMap<String, String>();
+		headers.put("Content-Type", "application/json; charset=utf-8");
+		headers.put("ETag", "\"caf\u00e9\"");
+		Map<String, String> varyHeaders = new HashMap<String, String>();
+		varyHeaders.put("accept-language", "en-US");
+		RestResponse response = new RestResponse();
+		response.setStatusCode(200);
+		response.setResponseData(body);
+		response.setHeaders(headers);
+		response.setVaryHeaders(varyHeaders);
+		response.setFreshUntil(1792195200000L);
+		response.setStaleUntil(1792195260000L);
+		return response;
+	}
+
+	private static void assertResponseEquals(RestResponse expected, RestResponse actual) {
+		assertEquals("Status code should round-trip", expected.getStatusCode(), actual.getStatusCode());
+		assertEquals("Fresh time should round-trip", expected.getFreshUntil(), actual.getFreshUntil());
+		assertEquals("Stale time should round-trip", expected.getStaleUntil(), actual.getStaleUntil());
+		assertEquals("Headers should round-trip", expected.getHeaders(), actual.getHeaders());
+		assertEquals("Vary headers should round-trip", expected.getVaryHeaders(), actual.getVaryHeaders());
+		assertTrue("Body should round-trip", Arrays.equals(expected.getResponseData(), actual.getResponseData()));
+	}
+
+	private static void setContext(InfinitumContext context) throws Exception {
+		Field field = XmlContextFactory.class.getDeclaredField("sInfinitumContext");
+		field.setAccessible(true);
+		field.set(null, context);
+	}
+
+}
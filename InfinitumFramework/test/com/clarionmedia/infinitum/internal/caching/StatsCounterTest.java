@@ -0,0 +1,70 @@
+package com.clarionmedia.infinitum.internal.caching;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+import com.clarionmedia.infinitum.internal.caching.CacheStats.EvictionCause;
+
+public class StatsCounterTest {
+
+	@Test
+	public void testSnapshot() {
+		// Setup
+		StatsCounter counter = new StatsCounter();
+		counter.recordMemoryHit();
+		counter.recordMemoryMiss();
+		counter.recordMemoryMiss();
+		counter.recordDiskHit();
+		counter.recordDiskMiss();
+		counter.recordLoad(100);
+		counter.recordLoad(300);
+		counter.recordEviction(EvictionCause.SIZE);
+		counter.recordEvictions(EvictionCause.EXPLICIT, 3);
+		counter.recordEvictions(EvictionCause.EXPIRED, 0);
+
+		// Run
+		CacheStats stats = counter.snapshot("foo", 42);
+
+		// Verify
+		assertEquals("Name should be kept", "foo", stats.getName());
+		assertEquals("Memory hits should be counted", 1, stats.getMemoryHitCount());
+		assertEquals("Memory misses should be counted", 2, stats.getMemoryMissCount());
+		assertEquals("Disk hits should be counted", 1, stats.getDiskHitCount());
+		assertEquals("Disk misses should be counted", 1, stats.getDiskMissCount());
+		assertEquals("Disk hits should count towards the hit rate", 2.0 / 3, stats.getHitRate(), 0.0001);
+		assertEquals("Loads should be counted", 2, stats.getLoadCount());
+		assertEquals("Load time should be summed", 400, stats.getTotalLoadTime());
+		assertEquals("Average load penalty should be the mean load time", 200.0, stats.getAverageLoadPenalty(), 0.0001);
+		assertEquals("Size evictions should be counted", 1, stats.getEvictionCount(EvictionCause.SIZE));
+		assertEquals("Explicit evictions should be counted", 3, stats.getEvictionCount(EvictionCause.EXPLICIT));
+		assertEquals("Empty eviction batches should not be counted", 0, stats.getEvictionCount(EvictionCause.EXPIRED));
+		assertEquals("Disk bytes should be kept", 42, stats.getDiskBytes());
+	}
+
+	@Test
+	public void testSnapshot_isImmutable() {
+		// Setup
+		StatsCounter counter = new StatsCounter();
+		CacheStats stats = counter.snapshot("foo", 0);
+
+		// Run
+		counter.recordMemoryHit();
+		counter.recordEviction(EvictionCause.SIZE);
+
+		// Verify
+		assertEquals("Snapshot should not see later hits", 0, stats.getMemoryHitCount());
+		assertEquals("Snapshot should not see later evictions", 0, stats.getEvictionCount(EvictionCause.SIZE));
+	}
+
+	@Test
+	public void testSnapshot_noLookups() {
+		// Run
+		CacheStats stats = new StatsCounter().snapshot("foo", 0);
+
+		// Verify
+		assertEquals("Hit rate without lookups should be 1", 1.0, stats.getHitRate(), 0.0001);
+		assertEquals("Average load penalty without loads should be 0", 0.0, stats.getAverageLoadPenalty(), 0.0001);
+	}
+
+}
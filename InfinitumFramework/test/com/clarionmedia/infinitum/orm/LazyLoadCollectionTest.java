@@ -0,0 +1,89 @@
+package com.clarionmedia.infinitum.orm;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class LazyLoadCollectionTest {
+
+	private int loadCount;
+	private LazyLoadList<String> lazyList;
+
+	@Before
+	public void setup() {
+		loadCount = 0;
+		lazyList = new LazyLoadList<String>(new ArrayList<String>()) {
+			@Override
+			protected void loadCollection(Collection<String> collection) {
+				loadCount++;
+				collection.add("foo");
+				collection.add("bar");
+			}
+		};
+	}
+
+	@Test
+	public void testIsLoaded_notAccessed() {
+		// Verify
+		assertFalse("Collection should not be loaded before it is accessed", lazyList.isLoaded());
+		assertEquals("Collection should not have been loaded", 0, loadCount);
+	}
+
+	@Test
+	public void testGet() {
+		// Run
+		String first = lazyList.get(0);
+		int size = lazyList.size();
+
+		// Verify
+		assertTrue("Collection should be loaded after it is accessed", lazyList.isLoaded());
+		assertEquals("Collection should have been loaded once", 1, loadCount);
+		assertEquals("First element should be the first loaded entity", "foo", first);
+		assertEquals("Collection should contain the loaded entities", 2, size);
+	}
+
+	@Test
+	public void testEquals() {
+		// Setup
+		List<String> expected = new ArrayList<String>();
+		expected.add("foo");
+		expected.add("bar");
+
+		// Verify
+		assertTrue("Loaded collection should be equal to a list of the same entities", lazyList.equals(expected));
+		assertEquals("Loaded collection should have the same hash code as the list", expected.hashCode(),
+				lazyList.hashCode());
+	}
+
+	@Test
+	public void testGetCollection_concurrentAccess() throws InterruptedException {
+		// Setup
+		Thread[] threads = new Thread[8];
+		for (int i = 0; i < threads.length; i++) {
+			threads[i] = new Thread() {
+				@Override
+				public void run() {
+					lazyList.size();
+				}
+			};
+		}
+
+		// Run
+		for (Thread thread : threads)
+			thread.start();
+		for (Thread thread : threads)
+			thread.join();
+
+		// Verify
+		assertEquals("Collection should have been loaded once", 1, loadCount);
+		assertEquals("Collection should contain the loaded entities once", 2, lazyList.size());
+	}
+
+}
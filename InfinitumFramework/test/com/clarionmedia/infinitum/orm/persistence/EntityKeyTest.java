@@ -0,0 +1,63 @@
+package com.clarionmedia.infinitum.orm.persistence;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class EntityKeyTest {
+
+	@Test
+	public void testEquals_integralKeys() {
+		// Setup
+		EntityKey longKey = new EntityKey(FooModel.class, 42L);
+		EntityKey integerKey = new EntityKey(FooModel.class, Integer.valueOf(42));
+
+		// Verify
+		assertTrue("Integral keys with the same value should be equal", longKey.equals(integerKey));
+		assertEquals("Equal keys should have the same hash code", longKey.hashCode(), integerKey.hashCode());
+		assertTrue("Key should be a long key", integerKey.isLongKey());
+		assertEquals("Integral key should be returned as a Long", Long.valueOf(42), integerKey.getKey());
+	}
+
+	@Test
+	public void testEquals_differentClasses() {
+		// Setup
+		EntityKey fooKey = new EntityKey(FooModel.class, 42L);
+		EntityKey barKey = new EntityKey(BarModel.class, 42L);
+
+		// Verify
+		assertFalse("Keys for different classes should not be equal", fooKey.equals(barKey));
+	}
+
+	@Test
+	public void testEquals_collidingHashCodes() {
+		// Setup
+		EntityKey key1 = new EntityKey(FooModel.class, "Aa");
+		EntityKey key2 = new EntityKey(FooModel.class, "BB");
+
+		// Verify
+		assertEquals("Keys should have the same hash code", key1.hashCode(), key2.hashCode());
+		assertFalse("Keys with colliding hash codes should not be equal", key1.equals(key2));
+		assertFalse("Key should not be a long key", key1.isLongKey());
+	}
+
+	@Test
+	public void testEquals_nullKey() {
+		// Setup
+		EntityKey nullKey = new EntityKey(FooModel.class, (String) null);
+		EntityKey zeroKey = new EntityKey(FooModel.class, 0L);
+
+		// Verify
+		assertTrue("Null keys should be equal", nullKey.equals(new EntityKey(FooModel.class, (String) null)));
+		assertFalse("Null key should not equal zero key", nullKey.equals(zeroKey));
+	}
+
+	private static class FooModel {
+	}
+
+	private static class BarModel {
+	}
+
+}
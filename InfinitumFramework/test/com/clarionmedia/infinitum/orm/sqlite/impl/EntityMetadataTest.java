@@ -0,0 +1,112 @@
+package com.clarionmedia.infinitum.orm.sqlite.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.lang.reflect.Field;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import android.database.Cursor;
+
+import com.clarionmedia.infinitum.orm.persistence.PersistencePolicy;
+import com.clarionmedia.infinitum.orm.relationship.ManyToOneRelationship;
+import com.clarionmedia.infinitum.orm.relationship.ModelRelationship.RelationType;
+import com.clarionmedia.infinitum.orm.relationship.OneToManyRelationship;
+import com.clarionmedia.infinitum.orm.sqlite.SqliteTypeAdapter;
+import com.clarionmedia.infinitum.orm.sqlite.impl.EntityMetadata.ColumnPlan;
+import com.xtremelabs.robolectric.RobolectricTestRunner;
+
+@RunWith(RobolectricTestRunner.class)
+public class EntityMetadataTest {
+
+	private PersistencePolicy mockPersistencePolicy;
+	private SqliteMapper mockSqliteMapper;
+	private SqliteTypeAdapter<?> mockTypeAdapter;
+	private ManyToOneRelationship mockManyToOne;
+	private OneToManyRelationship mockOneToMany;
+	private Cursor mockCursor;
+	private Field idField;
+	private Field nameField;
+	private Field parentField;
+	private Field childrenField;
+	private EntityMetadata entityMetadata;
+
+	@Before
+	public void setup() throws NoSuchFieldException {
+		mockPersistencePolicy = mock(PersistencePolicy.class);
+		mockSqliteMapper = mock(SqliteMapper.class);
+		mockTypeAdapter = mock(SqliteTypeAdapter.class);
+		mockManyToOne = mock(ManyToOneRelationship.class);
+		mockOneToMany = mock(OneToManyRelationship.class);
+		mockCursor = mock(Cursor.class);
+		idField = Model.class.getDeclaredField("mId");
+		nameField = Model.class.getDeclaredField("mName");
+		parentField = Model.class.getDeclaredField("mParent");
+		childrenField = Model.class.getDeclaredField("mChildren");
+		when(mockPersistencePolicy.getPersistentFields(Model.class)).thenReturn(
+				Arrays.asList(idField, parentField, nameField, childrenField));
+		when(mockPersistencePolicy.isRelationship(parentField)).thenReturn(true);
+		when(mockPersistencePolicy.isRelationship(childrenField)).thenReturn(true);
+		when(mockPersistencePolicy.getRelationship(parentField)).thenReturn(mockManyToOne);
+		when(mockPersistencePolicy.getRelationship(childrenField)).thenReturn(mockOneToMany);
+		when(mockPersistencePolicy.getFieldColumnName(idField)).thenReturn("id");
+		when(mockPersistencePolicy.getFieldColumnName(nameField)).thenReturn("name");
+		when(mockPersistencePolicy.getPrimaryKeyField(Model.class)).thenReturn(idField);
+		when(mockManyToOne.getRelationType()).thenReturn(RelationType.ManyToOne);
+		when(mockManyToOne.getColumn()).thenReturn("parent");
+		when(mockOneToMany.getRelationType()).thenReturn(RelationType.OneToMany);
+		doReturn(mockTypeAdapter).when(mockSqliteMapper).resolveType(long.class);
+		doReturn(mockTypeAdapter).when(mockSqliteMapper).resolveType(String.class);
+		entityMetadata = new EntityMetadata(Model.class, mockPersistencePolicy, mockSqliteMapper);
+	}
+
+	@Test
+	public void testColumnsAndRelationships() {
+		// Verify
+		assertEquals("There should be 2 columns", 2, entityMetadata.getColumnCount());
+		assertEquals("First column should be id", "id", entityMetadata.getColumnName(0));
+		assertEquals("Second column should be name", "name", entityMetadata.getColumnName(1));
+		assertEquals("Column type adapter should be resolved", mockTypeAdapter, entityMetadata.getTypeAdapter(0));
+		assertEquals("There should be 2 relationships", 2, entityMetadata.getRelationshipCount());
+		assertEquals("Many-to-one key should be stored in the row", "parent", entityMetadata.getForeignKeyColumn(0));
+		assertNull("One-to-many key should not be stored in the row", entityMetadata.getForeignKeyColumn(1));
+		assertEquals("Primary key column should be id", "id", entityMetadata.getPrimaryKeyColumn());
+		assertFalse("Relationships should not be lazy", entityMetadata.isLazy());
+	}
+
+	@Test
+	public void testCreateColumnPlan_prefix() {
+		// Setup
+		when(mockCursor.getColumnIndex("p_id")).thenReturn(3);
+		when(mockCursor.getColumnIndex("p_name")).thenReturn(4);
+		when(mockCursor.getColumnIndex("p_parent")).thenReturn(-1);
+
+		// Run
+		ColumnPlan actual = entityMetadata.createColumnPlan(mockCursor, "p_");
+
+		// Verify
+		assertEquals("Plan should belong to the metadata", entityMetadata, actual.getMetadata());
+		assertEquals("Id column index should match cursor", 3, actual.getColumnIndex(0));
+		assertEquals("Name column index should match cursor", 4, actual.getColumnIndex(1));
+		assertEquals("Primary key index should match cursor", 3, actual.getPrimaryKeyIndex());
+		assertEquals("Missing foreign key column should have index -1", -1, actual.getForeignKeyIndex(0));
+		assertEquals("One-to-many should have no foreign key index", -1, actual.getForeignKeyIndex(1));
+	}
+
+	private static class Model {
+		private long mId;
+		private Model mParent;
+		private String mName;
+		private List<Model> mChildren;
+	}
+
+}
@@ -0,0 +1,168 @@
+package com.clarionmedia.infinitum.orm.sqlite.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import android.content.ContentValues;
+
+import com.clarionmedia.infinitum.orm.LazyLoadList;
+import com.clarionmedia.infinitum.orm.persistence.PersistencePolicy;
+import com.clarionmedia.infinitum.orm.relationship.ManyToOneRelationship;
+import com.clarionmedia.infinitum.orm.relationship.ModelRelationship.RelationType;
+import com.clarionmedia.infinitum.orm.relationship.OneToManyRelationship;
+import com.clarionmedia.infinitum.orm.sqlite.SqliteTypeAdapter;
+import com.xtremelabs.robolectric.RobolectricTestRunner;
+
+@RunWith(RobolectricTestRunner.class)
+public class EntitySnapshotTest {
+
+	private PersistencePolicy mockPersistencePolicy;
+	private SqliteMapper mockSqliteMapper;
+	private SqliteTypeAdapter<?> mockTypeAdapter;
+	private ManyToOneRelationship mockManyToOne;
+	private OneToManyRelationship mockOneToMany;
+	private EntityMetadata entityMetadata;
+	private Model parent;
+	private Model child;
+
+	@Before
+	public void setup() throws NoSuchFieldException {
+		mockPersistencePolicy = mock(PersistencePolicy.class);
+		mockSqliteMapper = mock(SqliteMapper.class);
+		mockTypeAdapter = mock(SqliteTypeAdapter.class);
+		mockManyToOne = mock(ManyToOneRelationship.class);
+		mockOneToMany = mock(OneToManyRelationship.class);
+		Field idField = Model.class.getDeclaredField("mId");
+		Field nameField = Model.class.getDeclaredField("mName");
+		Field parentField = Model.class.getDeclaredField("mParent");
+		Field childrenField = Model.class.getDeclaredField("mChildren");
+		when(mockPersistencePolicy.getPersistentFields(Model.class)).thenReturn(
+				Arrays.asList(idField, parentField, nameField, childrenField));
+		when(mockPersistencePolicy.isRelationship(parentField)).thenReturn(true);
+		when(mockPersistencePolicy.isRelationship(childrenField)).thenReturn(true);
+		when(mockPersistencePolicy.getRelationship(parentField)).thenReturn(mockManyToOne);
+		when(mockPersistencePolicy.getRelationship(childrenField)).thenReturn(mockOneToMany);
+		when(mockPersistencePolicy.getFieldColumnName(idField)).thenReturn("id");
+		when(mockPersistencePolicy.getFieldColumnName(nameField)).thenReturn("name");
+		when(mockManyToOne.getRelationType()).thenReturn(RelationType.ManyToOne);
+		when(mockManyToOne.getName()).thenReturn("parent");
+		when(mockOneToMany.getRelationType()).thenReturn(RelationType.OneToMany);
+		when(mockOneToMany.getName()).thenReturn("children");
+		doAnswer(new Answer<Void>() {
+			@Override
+			public Void answer(InvocationOnMock invocation) {
+				Object[] args = invocation.getArguments();
+				((ContentValues) args[2]).put((String) args[1], String.valueOf(args[0]));
+				return null;
+			}
+		}).when(mockTypeAdapter).mapObjectToColumn(any(), anyString(), any(ContentValues.class));
+		doReturn(mockTypeAdapter).when(mockSqliteMapper).resolveType(long.class);
+		doReturn(mockTypeAdapter).when(mockSqliteMapper).resolveType(String.class);
+		entityMetadata = new EntityMetadata(Model.class, mockPersistencePolicy, mockSqliteMapper);
+		parent = new Model(1, "parent");
+		child = new Model(2, "child");
+		when(mockPersistencePolicy.getPrimaryKey(parent)).thenReturn(1L);
+		when(mockPersistencePolicy.getPrimaryKey(child)).thenReturn(2L);
+	}
+
+	@Test
+	public void testGetChangedValues_unchanged() {
+		// Setup
+		Model model = new Model(3, "foo");
+		EntitySnapshot snapshot = new EntitySnapshot(model, entityMetadata, mockPersistencePolicy);
+		ContentValues values = new ContentValues();
+		values.put("id", "3");
+		values.put("name", "foo");
+
+		// Run
+		ContentValues actual = snapshot.getChangedValues(values);
+
+		// Verify
+		assertEquals("No columns should have changed", 0, actual.size());
+	}
+
+	@Test
+	public void testGetChangedValues_changed() {
+		// Setup
+		Model model = new Model(3, "foo");
+		EntitySnapshot snapshot = new EntitySnapshot(model, entityMetadata, mockPersistencePolicy);
+		ContentValues values = new ContentValues();
+		values.put("id", "3");
+		values.put("name", "bar");
+
+		// Run
+		ContentValues actual = snapshot.getChangedValues(values);
+
+		// Verify
+		assertEquals("Only the changed column should be returned", 1, actual.size());
+		assertEquals("Changed column should have its new value", "bar", actual.getAsString("name"));
+	}
+
+	@Test
+	public void testRelated_loaded() {
+		// Setup
+		Model model = new Model(3, "foo");
+		model.mParent = parent;
+		model.mChildren.add(child);
+
+		// Run
+		EntitySnapshot snapshot = new EntitySnapshot(model, entityMetadata, mockPersistencePolicy);
+
+		// Verify
+		assertTrue("Same related entity should be unchanged", snapshot.isRelatedUnchanged(mockManyToOne, parent, mockPersistencePolicy));
+		assertFalse("Different related entity should be changed", snapshot.isRelatedUnchanged(mockManyToOne, child, mockPersistencePolicy));
+		assertEquals("Related keys should be recorded", new HashSet<Object>(Arrays.asList(2L)), snapshot.getRelatedKeys(mockOneToMany));
+	}
+
+	@Test
+	public void testRelated_unloaded() {
+		// Setup
+		Model model = new Model(3, "foo");
+		model.mChildren = new LazyLoadList<Model>(new ArrayList<Model>()) {
+			@Override
+			protected void loadCollection(Collection<Model> collection) {
+				collection.add(child);
+			}
+		};
+
+		// Run
+		EntitySnapshot snapshot = new EntitySnapshot(model, entityMetadata, mockPersistencePolicy);
+
+		// Verify
+		assertTrue("Unloaded collection should be untouched", snapshot.isRelatedUntouched(mockOneToMany, model.mChildren));
+		assertFalse("Unloaded collection should not be iterated", ((LazyLoadList<Model>) model.mChildren).isLoaded());
+	}
+
+	private static class Model {
+		private long mId;
+		private Model mParent;
+		private String mName;
+		private List<Model> mChildren = new ArrayList<Model>();
+
+		public Model(long id, String name) {
+			mId = id;
+			mName = name;
+		}
+	}
+
+}
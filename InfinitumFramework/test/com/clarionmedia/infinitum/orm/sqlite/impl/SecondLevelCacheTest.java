@@ -0,0 +1,128 @@
+package com.clarionmedia.infinitum.orm.sqlite.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import android.database.AbstractWindowedCursor;
+import android.database.Cursor;
+
+import com.clarionmedia.infinitum.orm.persistence.EntityKey;
+
+public class SecondLevelCacheTest {
+
+	private static final EntityKey FOO_MODEL_KEY = new EntityKey(FooModel.class, 42L);
+	private static final String FOO_MODEL_TABLE = "foo";
+	private static final String QUERY = "SELECT * FROM foo WHERE name = ?";
+	private static final String[] ARGS = new String[] { "bar" };
+
+	private SecondLevelCache cache;
+
+	@Before
+	public void setup() {
+		cache = SecondLevelCache.getInstance();
+		cache.clear();
+	}
+
+	@Test
+	public void testPutEntity_cachesRow() {
+		// Setup
+		AbstractWindowedCursor cursor = createCursor();
+		long version = cache.getTableVersions(FOO_MODEL_TABLE)[0];
+
+		// Run
+		Cursor actual = cache.putEntity(FOO_MODEL_KEY, cursor, FOO_MODEL_TABLE, version, 10, 0);
+		Cursor cached = cache.getEntity(FOO_MODEL_KEY);
+
+		// Verify
+		verify(cursor).close();
+		assertRow(actual);
+		assertNotNull("Entity should be cached", cached);
+		assertRow(cached);
+	}
+
+	@Test
+	public void testPutEntity_tableWrittenWhileLoading() {
+		// Setup
+		long version = cache.getTableVersions(FOO_MODEL_TABLE)[0];
+		cache.invalidateTable(FOO_MODEL_TABLE);
+
+		// Run
+		Cursor actual = cache.putEntity(FOO_MODEL_KEY, createCursor(), FOO_MODEL_TABLE, version, 10, 0);
+
+		// Verify
+		assertRow(actual);
+		assertNull("Rows read before a write should not be cached", cache.getEntity(FOO_MODEL_KEY));
+	}
+
+	@Test
+	public void testPutEntity_notWindowedCursor() {
+		// Setup
+		Cursor cursor = mock(Cursor.class);
+		long version = cache.getTableVersions(FOO_MODEL_TABLE)[0];
+
+		// Run
+		Cursor actual = cache.putEntity(FOO_MODEL_KEY, cursor, FOO_MODEL_TABLE, version, 10, 0);
+
+		// Verify
+		assertSame("Cursor should be returned as is", cursor, actual);
+		assertNull("Entity should not be cached", cache.getEntity(FOO_MODEL_KEY));
+	}
+
+	@Test
+	public void testInvalidate_evictsEntity() {
+		// Setup
+		long version = cache.getTableVersions(FOO_MODEL_TABLE)[0];
+		cache.putEntity(FOO_MODEL_KEY, createCursor(), FOO_MODEL_TABLE, version, 10, 0);
+
+		// Run
+		cache.invalidate(FOO_MODEL_KEY, FOO_MODEL_TABLE);
+
+		// Verify
+		assertNull("Entity should be evicted", cache.getEntity(FOO_MODEL_KEY));
+	}
+
+	@Test
+	public void testGetQuery_tableWritten() {
+		// Setup
+		String[] tables = new String[] { FOO_MODEL_TABLE, "bar" };
+		cache.putQuery(QUERY, ARGS, createCursor(), tables, cache.getTableVersions(tables));
+		assertNotNull("Query results should be cached", cache.getQuery(QUERY, new String[] { "bar" }));
+
+		// Run
+		cache.invalidateTable("bar");
+
+		// Verify
+		assertNull("Query results should be invalidated", cache.getQuery(QUERY, ARGS));
+	}
+
+	private AbstractWindowedCursor createCursor() {
+		AbstractWindowedCursor cursor = mock(AbstractWindowedCursor.class);
+		when(cursor.getColumnCount()).thenReturn(2);
+		when(cursor.getColumnNames()).thenReturn(new String[] { "id", "name" });
+		when(cursor.getCount()).thenReturn(1);
+		when(cursor.moveToNext()).thenReturn(true, false);
+		when(cursor.isLong(0)).thenReturn(true);
+		when(cursor.getLong(0)).thenReturn(42L);
+		when(cursor.getString(1)).thenReturn("bar");
+		return cursor;
+	}
+
+	private void assertRow(Cursor cursor) {
+		assertEquals("Cursor should have one row", 1, cursor.getCount());
+		cursor.moveToFirst();
+		assertEquals("Primary key should be read", 42L, cursor.getLong(0));
+		assertEquals("Name should be read", "bar", cursor.getString(1));
+	}
+
+	private static class FooModel {
+	}
+
+}
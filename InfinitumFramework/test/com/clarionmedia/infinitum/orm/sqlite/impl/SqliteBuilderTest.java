@@ -3,10 +3,13 @@ package com.clarionmedia.infinitum.orm.sqlite.impl;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyListOf;
+import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyZeroInteractions;
 import static org.mockito.Mockito.when;
 
 import java.io.Serializable;
@@ -30,12 +33,17 @@ import com.clarionmedia.infinitum.context.InfinitumContext;
 import com.clarionmedia.infinitum.context.exception.InfinitumConfigurationException;
 import com.clarionmedia.infinitum.exception.InfinitumRuntimeException;
 import com.clarionmedia.infinitum.orm.criteria.Criteria;
+import com.clarionmedia.infinitum.orm.criteria.Order;
 import com.clarionmedia.infinitum.orm.criteria.criterion.Criterion;
+import com.clarionmedia.infinitum.orm.criteria.projection.Projections;
 import com.clarionmedia.infinitum.orm.persistence.PersistencePolicy;
 import com.clarionmedia.infinitum.orm.persistence.TypeResolutionPolicy.SqliteDataType;
 import com.clarionmedia.infinitum.orm.relationship.ManyToManyRelationship;
+import com.clarionmedia.infinitum.orm.relationship.ManyToOneRelationship;
+import com.clarionmedia.infinitum.orm.relationship.ModelRelationship.RelationType;
 import com.clarionmedia.infinitum.orm.relationship.OneToManyRelationship;
 import com.clarionmedia.infinitum.orm.relationship.OneToOneRelationship;
+import com.clarionmedia.infinitum.orm.sql.SqlQuery;
 import com.clarionmedia.infinitum.reflection.PackageReflector;
 import com.xtremelabs.robolectric.RobolectricTestRunner;
 
@@ -183,7 +191,7 @@ public class SqliteBuilderTest {
 		
 		// Run
 		String expected = "SELECT * FROM " + MODEL_TABLE_1 + " WHERE " + CRITERION_A_SQL;
-		String actual = sqliteBuilder.createQuery(mockCriteria);
+		String actual = sqliteBuilder.createQuery(mockCriteria).getSql();
 		
 		// Verify
 		verify(mockCriteria).getEntityClass();
@@ -205,14 +213,14 @@ public class SqliteBuilderTest {
 		when(mockPersistencePolicy.getModelTableName(Object.class)).thenReturn(MODEL_TABLE_1);
 		
 		// Run
-		String expected = "SELECT * FROM " + MODEL_TABLE_1 + " WHERE " + CRITERION_A_SQL + " LIMIT 10 OFFSET 5";
-		String actual = sqliteBuilder.createQuery(mockCriteria);
+		String expected = "SELECT * FROM " + MODEL_TABLE_1 + " WHERE " + CRITERION_A_SQL + " LIMIT ? OFFSET ?";
+		String actual = sqliteBuilder.createQuery(mockCriteria).getSql();
 		
 		// Verify
 		verify(mockCriteria).getEntityClass();
 		verify(mockCriteria).getCriterion();
-		verify(mockCriteria, times(2)).getLimit();
-		verify(mockCriteria, times(2)).getOffset();
+		verify(mockCriteria).getLimit();
+		verify(mockCriteria).getOffset();
 		verify(mockCriterionA).toSql(mockCriteria);
 		assertEquals("Returned SQL query should match expected value", expected, actual);
 	}
@@ -231,7 +239,7 @@ public class SqliteBuilderTest {
 		
 		// Run
 		String expected = "SELECT * FROM " + MODEL_TABLE_1 + " WHERE " + CRITERION_A_SQL + " AND " + CRITERION_B_SQL;
-		String actual = sqliteBuilder.createQuery(mockCriteria);
+		String actual = sqliteBuilder.createQuery(mockCriteria).getSql();
 		
 		// Verify
 		verify(mockCriteria).getEntityClass();
@@ -256,19 +264,224 @@ public class SqliteBuilderTest {
 		when(mockPersistencePolicy.getModelTableName(Object.class)).thenReturn(MODEL_TABLE_1);
 		
 		// Run
-		String expected = "SELECT * FROM " + MODEL_TABLE_1 + " WHERE " + CRITERION_A_SQL + " AND " + CRITERION_B_SQL + " LIMIT 10 OFFSET 5";
-		String actual = sqliteBuilder.createQuery(mockCriteria);
+		String expected = "SELECT * FROM " + MODEL_TABLE_1 + " WHERE " + CRITERION_A_SQL + " AND " + CRITERION_B_SQL + " LIMIT ? OFFSET ?";
+		String actual = sqliteBuilder.createQuery(mockCriteria).getSql();
 		
 		// Verify
 		verify(mockCriteria).getEntityClass();
 		verify(mockCriteria).getCriterion();
-		verify(mockCriteria, times(2)).getLimit();
-		verify(mockCriteria, times(2)).getOffset();
+		verify(mockCriteria).getLimit();
+		verify(mockCriteria).getOffset();
 		verify(mockCriterionA).toSql(mockCriteria);
 		verify(mockCriterionB).toSql(mockCriteria);
 		assertEquals("Returned SQL query should match expected value", expected, actual);
 	}
 	
+	@Test
+	public void testCreateQuery_fetchManyToOne() {
+		// Setup
+		Field field = ArrayList.class.getDeclaredFields()[0];
+		Field fetchField = ArrayList.class.getDeclaredFields()[1];
+		ManyToOneRelationship mockRelationship = mock(ManyToOneRelationship.class);
+		doReturn(Object.class).when(mockCriteria).getEntityClass();
+		when(mockCriteria.getCriterion()).thenReturn(new ArrayList<Criterion>());
+		when(mockCriteria.getFetches()).thenReturn(Arrays.asList(fetchField));
+		when(mockPersistencePolicy.getRelationship(fetchField)).thenReturn(mockRelationship);
+		when(mockRelationship.getRelationType()).thenReturn(RelationType.ManyToOne);
+		doReturn(Object.class).when(mockRelationship).getFirstType();
+		doReturn(Long.class).when(mockRelationship).getSecondType();
+		when(mockRelationship.getColumn()).thenReturn("fk");
+		when(mockPersistencePolicy.getModelTableName(Object.class)).thenReturn(MODEL_TABLE_1);
+		when(mockPersistencePolicy.getModelTableName(Long.class)).thenReturn(MODEL_TABLE_2);
+		when(mockPersistencePolicy.getPrimaryKeyField(Object.class)).thenReturn(field);
+		when(mockPersistencePolicy.getPrimaryKeyField(Long.class)).thenReturn(field);
+		when(mockPersistencePolicy.getFieldColumnName(field)).thenReturn("id");
+
+		// Run
+		String expected = "SELECT t0.*, f0.id infinitum_f0_id FROM (SELECT * FROM " + MODEL_TABLE_1 + ") t0 LEFT JOIN " + MODEL_TABLE_2
+				+ " f0 ON f0.id = t0.fk";
+		String actual = sqliteBuilder.createQuery(mockCriteria).getSql();
+
+		// Verify
+		verify(mockPersistencePolicy).getRelationship(fetchField);
+		assertEquals("Returned SQL query should match expected value", expected, actual);
+	}
+	
+	@Test
+	public void testCreateQuery_cachedShape() {
+		// Setup
+		doReturn(Object.class).when(mockCriteria).getEntityClass();
+		List<Criterion> mockCriterionList = new ArrayList<Criterion>();
+		mockCriterionList.add(mockCriterionA);
+		when(mockCriteria.getCriterion()).thenReturn(mockCriterionList);
+		when(mockCriterionA.getShape(mockCriteria)).thenReturn("foo =");
+		when(mockCriterionA.toSql(mockCriteria)).thenReturn("foo = ?");
+		when(mockPersistencePolicy.getModelTableName(Object.class)).thenReturn(MODEL_TABLE_1);
+
+		// Run
+		String expected = "SELECT * FROM " + MODEL_TABLE_1 + " WHERE foo = ?";
+		SqlQuery first = sqliteBuilder.createQuery(mockCriteria);
+		SqlQuery second = sqliteBuilder.createQuery(mockCriteria);
+
+		// Verify
+		verify(mockCriterionA).toSql(mockCriteria);
+		verify(mockCriterionA, times(2)).appendArgs(eq(mockCriteria), anyListOf(String.class));
+		assertEquals("Returned SQL query should match expected value", expected, first.getSql());
+		assertEquals("Returned SQL query should match expected value", expected, second.getSql());
+	}
+
+	@Test
+	public void testCreateQuery_orderBy() {
+		// Setup
+		Field field = ArrayList.class.getDeclaredFields()[0];
+		doReturn(Object.class).when(mockCriteria).getEntityClass();
+		when(mockCriteria.getCriterion()).thenReturn(new ArrayList<Criterion>());
+		when(mockCriteria.getOrders()).thenReturn(Arrays.asList(new Order("name", false)));
+		when(mockCriteria.getLimit()).thenReturn(10);
+		when(mockPersistencePolicy.getModelTableName(Object.class)).thenReturn(MODEL_TABLE_1);
+		when(mockPersistencePolicy.findPersistentField(Object.class, "name")).thenReturn(field);
+		when(mockPersistencePolicy.getFieldColumnName(field)).thenReturn("name");
+		when(mockPersistencePolicy.getPersistentFields(Object.class)).thenReturn(Arrays.asList(field));
+		when(mockSqliteMapper.getSqliteDataType(field)).thenReturn(SqliteDataType.TEXT);
+
+		// Run
+		String expected = "SELECT * FROM " + MODEL_TABLE_1 + " ORDER BY name DESC LIMIT ?";
+		String actual = sqliteBuilder.createQuery(mockCriteria).getSql();
+
+		// Verify
+		verify(mockPersistencePolicy).findPersistentField(Object.class, "name");
+		assertEquals("Returned SQL query should match expected value", expected, actual);
+	}
+
+	@Test
+	public void testCreateSeekQuery_orderBy() {
+		// Setup
+		Field field = ArrayList.class.getDeclaredFields()[0];
+		Field pkField = ArrayList.class.getDeclaredFields()[1];
+		doReturn(Object.class).when(mockCriteria).getEntityClass();
+		when(mockCriteria.getCriterion()).thenReturn(new ArrayList<Criterion>());
+		when(mockCriteria.getOrders()).thenReturn(Arrays.asList(new Order("name", false)));
+		when(mockPersistencePolicy.getModelTableName(Object.class)).thenReturn(MODEL_TABLE_1);
+		when(mockPersistencePolicy.getPrimaryKeyField(Object.class)).thenReturn(pkField);
+		when(mockPersistencePolicy.findPersistentField(Object.class, "name")).thenReturn(field);
+		when(mockPersistencePolicy.findPersistentField(Object.class, pkField.getName())).thenReturn(pkField);
+		when(mockPersistencePolicy.getFieldColumnName(field)).thenReturn("name");
+		when(mockPersistencePolicy.getFieldColumnName(pkField)).thenReturn("id");
+		when(mockPersistencePolicy.getPersistentFields(Object.class)).thenReturn(Arrays.asList(field, pkField));
+		when(mockSqliteMapper.getSqliteDataType(field)).thenReturn(SqliteDataType.TEXT);
+		when(mockSqliteMapper.getSqliteDataType(pkField)).thenReturn(SqliteDataType.INTEGER);
+
+		// Run
+		String expected = "SELECT * FROM " + MODEL_TABLE_1
+				+ " WHERE ((name < ? OR name IS NULL) OR (name = ? AND id > ?)) ORDER BY name DESC, id ASC LIMIT ?";
+		SqlQuery actual = sqliteBuilder.createSeekQuery(mockCriteria, 20, new Object[] { "o'brien", 5L });
+
+		// Verify
+		assertEquals("Returned SQL query should match expected value", expected, actual.getSql());
+		assertEquals("Returned arguments should match expected values", Arrays.asList("o'brien", "o'brien", "5", "20"),
+				Arrays.asList(actual.getArgs()));
+	}
+
+	@Test
+	public void testCreateSeekQuery_nullKey() {
+		// Setup
+		Field field = ArrayList.class.getDeclaredFields()[0];
+		Field pkField = ArrayList.class.getDeclaredFields()[1];
+		doReturn(Object.class).when(mockCriteria).getEntityClass();
+		when(mockCriteria.getCriterion()).thenReturn(new ArrayList<Criterion>());
+		when(mockPersistencePolicy.getModelTableName(Object.class)).thenReturn(MODEL_TABLE_1);
+		when(mockPersistencePolicy.getPrimaryKeyField(Object.class)).thenReturn(pkField);
+		when(mockPersistencePolicy.findPersistentField(Object.class, "name")).thenReturn(field);
+		when(mockPersistencePolicy.findPersistentField(Object.class, pkField.getName())).thenReturn(pkField);
+		when(mockPersistencePolicy.getFieldColumnName(field)).thenReturn("name");
+		when(mockPersistencePolicy.getFieldColumnName(pkField)).thenReturn("id");
+		when(mockPersistencePolicy.getPersistentFields(Object.class)).thenReturn(Arrays.asList(field, pkField));
+		when(mockSqliteMapper.getSqliteDataType(field)).thenReturn(SqliteDataType.TEXT);
+		when(mockSqliteMapper.getSqliteDataType(pkField)).thenReturn(SqliteDataType.INTEGER);
+
+		// Run
+		when(mockCriteria.getOrders()).thenReturn(Arrays.asList(new Order("name", true)));
+		SqlQuery ascendingNull = sqliteBuilder.createSeekQuery(mockCriteria, 20, new Object[] { null, 5L });
+		SqlQuery ascendingValue = sqliteBuilder.createSeekQuery(mockCriteria, 20, new Object[] { "smith", 5L });
+		when(mockCriteria.getOrders()).thenReturn(Arrays.asList(new Order("name", false)));
+		SqlQuery descendingNull = sqliteBuilder.createSeekQuery(mockCriteria, 20, new Object[] { null, 5L });
+		SqlQuery descendingValue = sqliteBuilder.createSeekQuery(mockCriteria, 20, new Object[] { "smith", 5L });
+
+		// Verify
+		assertEquals("Returned SQL query should match expected value", "SELECT * FROM " + MODEL_TABLE_1
+				+ " WHERE ((name IS NOT NULL) OR (name IS NULL AND id > ?)) ORDER BY name ASC, id ASC LIMIT ?",
+				ascendingNull.getSql());
+		assertEquals("Returned arguments should match expected values", Arrays.asList("5", "20"),
+				Arrays.asList(ascendingNull.getArgs()));
+		assertEquals("Returned SQL query should match expected value", "SELECT * FROM " + MODEL_TABLE_1
+				+ " WHERE ((name > ?) OR (name = ? AND id > ?)) ORDER BY name ASC, id ASC LIMIT ?", ascendingValue.getSql());
+		assertEquals("Returned arguments should match expected values", Arrays.asList("smith", "smith", "5", "20"),
+				Arrays.asList(ascendingValue.getArgs()));
+		assertEquals("Returned SQL query should match expected value", "SELECT * FROM " + MODEL_TABLE_1
+				+ " WHERE ((name IS NULL AND id > ?)) ORDER BY name DESC, id ASC LIMIT ?", descendingNull.getSql());
+		assertEquals("Returned arguments should match expected values", Arrays.asList("5", "20"),
+				Arrays.asList(descendingNull.getArgs()));
+		assertEquals("Returned SQL query should match expected value", "SELECT * FROM " + MODEL_TABLE_1
+				+ " WHERE ((name < ? OR name IS NULL) OR (name = ? AND id > ?)) ORDER BY name DESC, id ASC LIMIT ?",
+				descendingValue.getSql());
+		assertEquals("Returned arguments should match expected values", Arrays.asList("smith", "smith", "5", "20"),
+				Arrays.asList(descendingValue.getArgs()));
+	}
+
+	@Test
+	public void testCreateSeekQuery_firstPage() {
+		// Setup
+		Field pkField = ArrayList.class.getDeclaredFields()[1];
+		doReturn(Object.class).when(mockCriteria).getEntityClass();
+		when(mockCriteria.getCriterion()).thenReturn(new ArrayList<Criterion>());
+		when(mockCriteria.getOrders()).thenReturn(new ArrayList<Order>());
+		when(mockPersistencePolicy.getModelTableName(Object.class)).thenReturn(MODEL_TABLE_1);
+		when(mockPersistencePolicy.getPrimaryKeyField(Object.class)).thenReturn(pkField);
+		when(mockPersistencePolicy.findPersistentField(Object.class, pkField.getName())).thenReturn(pkField);
+		when(mockPersistencePolicy.getFieldColumnName(pkField)).thenReturn("id");
+		when(mockPersistencePolicy.getPersistentFields(Object.class)).thenReturn(Arrays.asList(pkField));
+		when(mockSqliteMapper.getSqliteDataType(pkField)).thenReturn(SqliteDataType.INTEGER);
+
+		// Run
+		String expected = "SELECT * FROM " + MODEL_TABLE_1 + " ORDER BY id ASC LIMIT ? OFFSET ?";
+		SqlQuery actual = sqliteBuilder.createSeekQuery(mockCriteria, 20, 10, new Object[0]);
+
+		// Verify
+		assertEquals("Returned SQL query should match expected value", expected, actual.getSql());
+		assertEquals("Returned arguments should match expected values", Arrays.asList("20", "10"), Arrays.asList(actual.getArgs()));
+	}
+
+	@Test
+	public void testCreateProjectionQuery_groupBy() {
+		// Setup
+		Field groupField = ArrayList.class.getDeclaredFields()[0];
+		Field sumField = ArrayList.class.getDeclaredFields()[1];
+		doReturn(Object.class).when(mockCriteria).getEntityClass();
+		List<Criterion> mockCriterionList = new ArrayList<Criterion>();
+		mockCriterionList.add(mockCriterionA);
+		when(mockCriteria.getCriterion()).thenReturn(mockCriterionList);
+		when(mockCriterionA.toSql(mockCriteria)).thenReturn(CRITERION_A_SQL);
+		when(mockCriteria.getProjections()).thenReturn(
+				Arrays.asList(Projections.groupBy("category"), Projections.rowCount(), Projections.sum("price")));
+		when(mockPersistencePolicy.getModelTableName(Object.class)).thenReturn(MODEL_TABLE_1);
+		when(mockPersistencePolicy.findPersistentField(Object.class, "category")).thenReturn(groupField);
+		when(mockPersistencePolicy.findPersistentField(Object.class, "price")).thenReturn(sumField);
+		when(mockPersistencePolicy.getFieldColumnName(groupField)).thenReturn("category");
+		when(mockPersistencePolicy.getFieldColumnName(sumField)).thenReturn("price");
+		when(mockPersistencePolicy.getPersistentFields(Object.class)).thenReturn(Arrays.asList(groupField, sumField));
+		when(mockSqliteMapper.getSqliteDataType(groupField)).thenReturn(SqliteDataType.TEXT);
+		when(mockSqliteMapper.getSqliteDataType(sumField)).thenReturn(SqliteDataType.REAL);
+
+		// Run
+		String expected = "SELECT category, count(*), sum(price) FROM " + MODEL_TABLE_1 + " WHERE " + CRITERION_A_SQL
+				+ " GROUP BY category";
+		String actual = sqliteBuilder.createProjectionQuery(mockCriteria).getSql();
+
+		// Verify
+		verify(mockCriterionA).toSql(mockCriteria);
+		assertEquals("Returned SQL query should match expected value", expected, actual);
+	}
+	
 	@Test
 	public void testCreateCountQuery_singleCriterion_noLimitOrOffset() {
 		// Setup
@@ -282,7 +495,7 @@ public class SqliteBuilderTest {
 		
 		// Run
 		String expected = "SELECT count(*) FROM " + MODEL_TABLE_1 + " WHERE " + CRITERION_A_SQL;
-		String actual = sqliteBuilder.createCountQuery(mockCriteria);
+		String actual = sqliteBuilder.createCountQuery(mockCriteria).getSql();
 		
 		// Verify
 		verify(mockCriteria).getEntityClass();
@@ -304,14 +517,14 @@ public class SqliteBuilderTest {
 		when(mockPersistencePolicy.getModelTableName(Object.class)).thenReturn(MODEL_TABLE_1);
 		
 		// Run
-		String expected = "SELECT count(*) FROM " + MODEL_TABLE_1 + " WHERE " + CRITERION_A_SQL + " LIMIT 10 OFFSET 5";
-		String actual = sqliteBuilder.createCountQuery(mockCriteria);
+		String expected = "SELECT count(*) FROM " + MODEL_TABLE_1 + " WHERE " + CRITERION_A_SQL + " LIMIT ? OFFSET ?";
+		String actual = sqliteBuilder.createCountQuery(mockCriteria).getSql();
 		
 		// Verify
 		verify(mockCriteria).getEntityClass();
 		verify(mockCriteria).getCriterion();
-		verify(mockCriteria, times(2)).getLimit();
-		verify(mockCriteria, times(2)).getOffset();
+		verify(mockCriteria).getLimit();
+		verify(mockCriteria).getOffset();
 		verify(mockCriterionA).toSql(mockCriteria);
 		assertEquals("Returned SQL query should match expected value", expected, actual);
 	}
@@ -330,7 +543,7 @@ public class SqliteBuilderTest {
 		
 		// Run
 		String expected = "SELECT count(*) FROM " + MODEL_TABLE_1 + " WHERE " + CRITERION_A_SQL + " AND " + CRITERION_B_SQL;
-		String actual = sqliteBuilder.createCountQuery(mockCriteria);
+		String actual = sqliteBuilder.createCountQuery(mockCriteria).getSql();
 		
 		// Verify
 		verify(mockCriteria).getEntityClass();
@@ -355,14 +568,14 @@ public class SqliteBuilderTest {
 		when(mockPersistencePolicy.getModelTableName(Object.class)).thenReturn(MODEL_TABLE_1);
 		
 		// Run
-		String expected = "SELECT count(*) FROM " + MODEL_TABLE_1 + " WHERE " + CRITERION_A_SQL + " AND " + CRITERION_B_SQL + " LIMIT 10 OFFSET 5";
-		String actual = sqliteBuilder.createCountQuery(mockCriteria);
+		String expected = "SELECT count(*) FROM " + MODEL_TABLE_1 + " WHERE " + CRITERION_A_SQL + " AND " + CRITERION_B_SQL + " LIMIT ? OFFSET ?";
+		String actual = sqliteBuilder.createCountQuery(mockCriteria).getSql();
 		
 		// Verify
 		verify(mockCriteria).getEntityClass();
 		verify(mockCriteria).getCriterion();
-		verify(mockCriteria, times(2)).getLimit();
-		verify(mockCriteria, times(2)).getOffset();
+		verify(mockCriteria).getLimit();
+		verify(mockCriteria).getOffset();
 		verify(mockCriterionA).toSql(mockCriteria);
 		verify(mockCriterionB).toSql(mockCriteria);
 		assertEquals("Returned SQL query should match expected value", expected, actual);
@@ -381,14 +594,12 @@ public class SqliteBuilderTest {
 		when(mockRelationship.getTableName()).thenReturn(MTM_TABLE);
 		final String COL_NAME = "col";
 		when(mockPersistencePolicy.getFieldColumnName(field)).thenReturn(COL_NAME);
-		Serializable id = 42;
-		when(mockSqliteMapper.getSqliteDataType(id)).thenReturn(SqliteDataType.INTEGER);
 		when(mockPersistencePolicy.getModelTableName(Integer.class)).thenReturn(MODEL_TABLE_1);
 		when(mockPersistencePolicy.getModelTableName(Long.class)).thenReturn(MODEL_TABLE_2);
 		
 		// Run
-		String expected = "SELECT x.* FROM table1 x, table2 y, join_table z WHERE z.table1_col = x.col AND z.table2_col = y.col AND y.col = 42";
-		String actual = sqliteBuilder.createManyToManyJoinQuery(mockRelationship, id, Integer.class);
+		String expected = "SELECT x.* FROM table1 x, table2 y, join_table z WHERE z.table1_col = x.col AND z.table2_col = y.col AND y.col = ?";
+		String actual = sqliteBuilder.createManyToManyJoinQuery(mockRelationship, Integer.class);
 		
 		// Verify
 		verify(mockRelationship).contains(Integer.class);
@@ -400,7 +611,7 @@ public class SqliteBuilderTest {
 		verify(mockPersistencePolicy, times(2)).getModelTableName(mockRelationship.getFirstType());
 		verify(mockPersistencePolicy, times(2)).getModelTableName(mockRelationship.getSecondType());
 		verify(mockPersistencePolicy, times(5)).getFieldColumnName(field);
-		verify(mockSqliteMapper).getSqliteDataType(id);
+		verifyZeroInteractions(mockSqliteMapper);
 		assertEquals("Returned SQL query should match expected value", expected, actual);
 	}
 	
@@ -417,14 +628,12 @@ public class SqliteBuilderTest {
 		when(mockRelationship.getTableName()).thenReturn(MTM_TABLE);
 		final String COL_NAME = "col";
 		when(mockPersistencePolicy.getFieldColumnName(field)).thenReturn(COL_NAME);
-		Serializable id = 42;
-		when(mockSqliteMapper.getSqliteDataType(id)).thenReturn(SqliteDataType.INTEGER);
 		when(mockPersistencePolicy.getModelTableName(Integer.class)).thenReturn(MODEL_TABLE_1);
 		when(mockPersistencePolicy.getModelTableName(Long.class)).thenReturn(MODEL_TABLE_2);
 		
 		// Run
-		String expected = "SELECT x.* FROM table1 y, table2 x, join_table z WHERE z.table2_col = x.col AND z.table1_col = y.col AND y.col = 42";
-		String actual = sqliteBuilder.createManyToManyJoinQuery(mockRelationship, id, Long.class);
+		String expected = "SELECT x.* FROM table1 y, table2 x, join_table z WHERE z.table2_col = x.col AND z.table1_col = y.col AND y.col = ?";
+		String actual = sqliteBuilder.createManyToManyJoinQuery(mockRelationship, Long.class);
 		
 		// Verify
 		verify(mockRelationship).contains(Long.class);
@@ -436,7 +645,7 @@ public class SqliteBuilderTest {
 		verify(mockPersistencePolicy, times(2)).getModelTableName(mockRelationship.getFirstType());
 		verify(mockPersistencePolicy, times(2)).getModelTableName(mockRelationship.getSecondType());
 		verify(mockPersistencePolicy, times(5)).getFieldColumnName(field);
-		verify(mockSqliteMapper).getSqliteDataType(id);
+		verifyZeroInteractions(mockSqliteMapper);
 		assertEquals("Returned SQL query should match expected value", expected, actual);
 	}
 	
@@ -453,13 +662,11 @@ public class SqliteBuilderTest {
 		when(mockRelationship.getTableName()).thenReturn(MTM_TABLE);
 		final String COL_NAME = "col";
 		when(mockPersistencePolicy.getFieldColumnName(field)).thenReturn(COL_NAME);
-		Serializable id = 42;
-		when(mockSqliteMapper.getSqliteDataType(id)).thenReturn(SqliteDataType.INTEGER);
 		when(mockPersistencePolicy.getModelTableName(Integer.class)).thenReturn(MODEL_TABLE_1);
 		when(mockPersistencePolicy.getModelTableName(Long.class)).thenReturn(MODEL_TABLE_2);
 		
 		// Run
-		sqliteBuilder.createManyToManyJoinQuery(mockRelationship, id, Integer.class);
+		sqliteBuilder.createManyToManyJoinQuery(mockRelationship, Integer.class);
 		
 		// Verify
 		assertTrue("Exception should have been thrown", false);
@@ -797,4 +1004,123 @@ public class SqliteBuilderTest {
 		assertEquals("Returned SQL query should match expected value", expected, actual);
 	}
 
+	@Test
+	public void testCreateInsertStatement() {
+		// Setup
+		when(mockPersistencePolicy.getModelTableName(Object.class)).thenReturn(MODEL_TABLE_1);
+		
+		// Run
+		String expected = "INSERT INTO " + MODEL_TABLE_1 + " (a, b) VALUES (?, ?)";
+		String actual = sqliteBuilder.createInsertStatement(Object.class, new String[] { "a", "b" });
+		
+		// Verify
+		verify(mockPersistencePolicy).getModelTableName(Object.class);
+		assertEquals("Returned SQL statement should match expected value", expected, actual);
+	}
+	
+	@Test
+	public void testCreateUpdateStatement() {
+		// Setup
+		Field field = ArrayList.class.getDeclaredFields()[0];
+		final String COL_NAME = "col";
+		when(mockPersistencePolicy.getModelTableName(Object.class)).thenReturn(MODEL_TABLE_1);
+		when(mockPersistencePolicy.getPrimaryKeyField(Object.class)).thenReturn(field);
+		when(mockPersistencePolicy.getFieldColumnName(field)).thenReturn(COL_NAME);
+		
+		// Run
+		String expected = "UPDATE " + MODEL_TABLE_1 + " SET a = ?, b = ? WHERE " + COL_NAME + " = ?";
+		String actual = sqliteBuilder.createUpdateStatement(Object.class, new String[] { "a", "b" });
+		
+		// Verify
+		verify(mockPersistencePolicy).getModelTableName(Object.class);
+		verify(mockPersistencePolicy).getPrimaryKeyField(Object.class);
+		verify(mockPersistencePolicy).getFieldColumnName(field);
+		assertEquals("Returned SQL statement should match expected value", expected, actual);
+	}
+	
+	@Test
+	public void testCreateDeleteStaleRelationshipStatement_firstType() {
+		// Setup
+		Field field = ArrayList.class.getDeclaredFields()[0];
+		final String COL_NAME = "col";
+		when(mockPersistencePolicy.getModelTableName(Integer.class)).thenReturn(MODEL_TABLE_1);
+		when(mockPersistencePolicy.getModelTableName(Long.class)).thenReturn(MODEL_TABLE_2);
+		when(mockPersistencePolicy.getFieldColumnName(field)).thenReturn(COL_NAME);
+		
+		// Run
+		String expected = "DELETE FROM " + MTM_TABLE + " WHERE " + MODEL_TABLE_1 + "_" + COL_NAME + " = ? AND "
+				+ MODEL_TABLE_2 + "_" + COL_NAME + " NOT IN (?, ?)";
+		String actual = sqliteBuilder.createDeleteStaleRelationshipStatement(mockManyToManyRelationship, Integer.class, 2);
+		
+		// Verify
+		verify(mockManyToManyRelationship).getTableName();
+		assertEquals("Returned SQL statement should match expected value", expected, actual);
+	}
+
+	@Test
+	public void testCreateRelatedQuery() {
+		// Setup
+		final String COL_NAME = "col";
+		when(mockPersistencePolicy.getModelTableName(Integer.class)).thenReturn(MODEL_TABLE_1);
+
+		// Run
+		String expected = "SELECT * FROM " + MODEL_TABLE_1 + " WHERE " + COL_NAME + " = ?";
+		String actual = sqliteBuilder.createRelatedQuery(Integer.class, COL_NAME);
+
+		// Verify
+		verify(mockPersistencePolicy).getModelTableName(Integer.class);
+		assertEquals("Returned SQL query should match expected value", expected, actual);
+	}
+
+	@Test
+	public void testCreateBatchQuery() {
+		// Setup
+		final String COL_NAME = "col";
+		when(mockPersistencePolicy.getModelTableName(Integer.class)).thenReturn(MODEL_TABLE_1);
+
+		// Run
+		String expected = "SELECT * FROM " + MODEL_TABLE_1 + " WHERE " + COL_NAME + " IN (?, ?, ?)";
+		String actual = sqliteBuilder.createBatchQuery(Integer.class, COL_NAME, 3);
+
+		// Verify
+		verify(mockPersistencePolicy).getModelTableName(Integer.class);
+		assertEquals("Returned SQL query should match expected value", expected, actual);
+	}
+
+	@Test
+	public void testCreateBatchKeyQuery() {
+		// Setup
+		final String COL_NAME = "col";
+		when(mockPersistencePolicy.getModelTableName(Integer.class)).thenReturn(MODEL_TABLE_1);
+
+		// Run
+		String expected = "SELECT DISTINCT " + COL_NAME + " FROM " + MODEL_TABLE_1 + " WHERE " + COL_NAME + " IN (?, ?)";
+		String actual = sqliteBuilder.createBatchKeyQuery(Integer.class, COL_NAME, 2);
+
+		// Verify
+		verify(mockPersistencePolicy).getModelTableName(Integer.class);
+		assertEquals("Returned SQL query should match expected value", expected, actual);
+	}
+
+	@Test
+	public void testCreateManyToManyBatchJoinQuery_firstType() {
+		// Setup
+		Field field = ArrayList.class.getDeclaredFields()[0];
+		final String COL_NAME = "col";
+		when(mockManyToManyRelationship.contains(Integer.class)).thenReturn(true);
+		when(mockPersistencePolicy.getModelTableName(Integer.class)).thenReturn(MODEL_TABLE_1);
+		when(mockPersistencePolicy.getModelTableName(Long.class)).thenReturn(MODEL_TABLE_2);
+		when(mockPersistencePolicy.getFieldColumnName(field)).thenReturn(COL_NAME);
+
+		// Run
+		String expected = "SELECT x.*, z." + MODEL_TABLE_2 + "_" + COL_NAME + " infinitum_batch_key FROM " + MODEL_TABLE_1 + " x, "
+				+ MTM_TABLE + " z WHERE z." + MODEL_TABLE_1 + "_" + COL_NAME + " = x." + COL_NAME + " AND z." + MODEL_TABLE_2 + "_"
+				+ COL_NAME + " IN (?, ?)";
+		String actual = sqliteBuilder.createManyToManyBatchJoinQuery(mockManyToManyRelationship, Integer.class, 2);
+
+		// Verify
+		verify(mockManyToManyRelationship).getTableName();
+		assertEquals("Returned SQL query should match expected value", expected, actual);
+	}
+
 }
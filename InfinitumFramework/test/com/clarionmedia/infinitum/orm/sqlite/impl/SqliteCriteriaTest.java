@@ -1,27 +1,38 @@
 package com.clarionmedia.infinitum.orm.sqlite.impl;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.Matchers.any;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
+import org.mockito.InOrder;
+import org.mockito.Mockito;
 
 import android.database.Cursor;
 
 import com.clarionmedia.infinitum.context.InfinitumContext;
 import com.clarionmedia.infinitum.exception.InfinitumRuntimeException;
+import com.clarionmedia.infinitum.orm.criteria.ResultIterator;
+import com.clarionmedia.infinitum.orm.persistence.EntityKey;
 import com.clarionmedia.infinitum.orm.persistence.PersistencePolicy;
 import com.clarionmedia.infinitum.orm.sql.SqlBuilder;
+import com.clarionmedia.infinitum.orm.sql.SqlQuery;
+import com.clarionmedia.infinitum.orm.sqlite.impl.EntityMetadata.ColumnPlan;
 import com.xtremelabs.robolectric.RobolectricTestRunner;
 
 @RunWith(RobolectricTestRunner.class)
@@ -59,7 +70,7 @@ public class SqliteCriteriaTest {
 	public void testToSql() {
 		// Setup
 		String expected = "SQL criteria query";
-		when(mockSqlBuilder.createQuery(sqliteCriteria)).thenReturn(expected);
+		when(mockSqlBuilder.createQuery(sqliteCriteria)).thenReturn(new SqlQuery(expected, new String[0]));
 
 		// Run
 		String actual = sqliteCriteria.toSql();
@@ -70,12 +81,26 @@ public class SqliteCriteriaTest {
 				actual);
 	}
 
+	@Test
+	public void testGetArgs() {
+		// Setup
+		String[] expected = new String[] { "42", "foo" };
+		when(mockSqlBuilder.createQuery(sqliteCriteria)).thenReturn(new SqlQuery("SQL criteria query", expected));
+
+		// Run
+		String[] actual = sqliteCriteria.getArgs();
+
+		// Verify
+		verify(mockSqlBuilder).createQuery(sqliteCriteria);
+		assertEquals("Returned arguments should match expected values", Arrays.asList(expected), Arrays.asList(actual));
+	}
+
 	@Test
 	public void testList_noResults() {
 		// Setup
-		String query = "SQL criteria query";
+		SqlQuery query = new SqlQuery("SQL criteria query", new String[0]);
 		when(mockSqlBuilder.createQuery(sqliteCriteria)).thenReturn(query);
-		when(mockSqliteSession.executeForResult(query, true)).thenReturn(
+		when(mockSqliteSession.executeForResult(query.getSql(), query.getArgs(), true)).thenReturn(
 				mockCursor);
 		when(mockCursor.getCount()).thenReturn(0);
 
@@ -83,48 +108,62 @@ public class SqliteCriteriaTest {
 		List<Object> actual = sqliteCriteria.list();
 
 		// Verify
-		verify(mockSqliteSession).executeForResult(query, true);
+		verify(mockSqliteSession).executeForResult(query.getSql(), query.getArgs(), true);
 		verify(mockCursor).getCount();
 		verify(mockCursor).close();
 		assertEquals("Returned list should be empty", 0, actual.size());
 	}
 
+	@Test
+	public void testList_flushesSessionFirst() {
+		// Setup
+		SqlQuery query = new SqlQuery("SQL criteria query", new String[0]);
+		when(mockSqlBuilder.createQuery(sqliteCriteria)).thenReturn(query);
+		when(mockSqliteSession.executeForResult(query.getSql(), query.getArgs(), true)).thenReturn(
+				mockCursor);
+		when(mockCursor.getCount()).thenReturn(0);
+
+		// Run
+		sqliteCriteria.list();
+
+		// Verify
+		InOrder inOrder = Mockito.inOrder(mockSqliteSession);
+		inOrder.verify(mockSqliteSession).autoFlush();
+		inOrder.verify(mockSqliteSession).executeForResult(query.getSql(), query.getArgs(), true);
+	}
+
 	@Test
 	public void testList_results() {
 		// Setup
-		String query = "SQL criteria query";
+		SqlQuery query = new SqlQuery("SQL criteria query", new String[0]);
 		when(mockSqlBuilder.createQuery(sqliteCriteria)).thenReturn(query);
-		when(mockSqliteSession.executeForResult(query, true)).thenReturn(
+		when(mockSqliteSession.executeForResult(query.getSql(), query.getArgs(), true)).thenReturn(
 				mockCursor);
 		final int RESULT_COUNT = 3;
 		when(mockCursor.getCount()).thenReturn(RESULT_COUNT);
-		when(mockCursor.moveToNext()).thenReturn(true).thenReturn(true)
-				.thenReturn(true).thenReturn(false);
-		when(mockSqliteModelFactory.createFromCursor(mockCursor, entityClass))
-				.thenReturn(new Object());
+		List<Object> results = Arrays.asList(new Object(), new Object(), new Object());
+		when(mockSqliteModelFactory.createAllFromCursor(mockCursor, entityClass, true, sqliteCriteria.getFetches()))
+				.thenReturn(results);
 
 		// Run
 		List<Object> actual = sqliteCriteria.list();
 
 		// Verify
-		verify(mockSqliteSession).executeForResult(query, true);
+		verify(mockSqliteSession).executeForResult(query.getSql(), query.getArgs(), true);
 		verify(mockCursor).getCount();
 		verify(mockCursor).close();
-		verify(mockCursor, times(4)).moveToNext();
-		verify(mockSqliteModelFactory, times(3)).createFromCursor(mockCursor,
-				entityClass);
-		verify(mockSqliteSession, times(3)).cache(any(Integer.class),
-				any(Object.class));
-		assertEquals("Returned list should be empty", RESULT_COUNT,
+		verify(mockSqliteModelFactory).createAllFromCursor(mockCursor,
+				entityClass, true, sqliteCriteria.getFetches());
+		assertEquals("Returned list should contain every result", RESULT_COUNT,
 				actual.size());
 	}
 
 	@Test
 	public void testUnique_noResult() {
 		// Setup
-		String query = "SQL criteria query";
+		SqlQuery query = new SqlQuery("SQL criteria query", new String[0]);
 		when(mockSqlBuilder.createQuery(sqliteCriteria)).thenReturn(query);
-		when(mockSqliteSession.executeForResult(query, true)).thenReturn(
+		when(mockSqliteSession.executeForResult(query.getSql(), query.getArgs(), true)).thenReturn(
 				mockCursor);
 		when(mockCursor.getCount()).thenReturn(0);
 
@@ -132,7 +171,7 @@ public class SqliteCriteriaTest {
 		Object actual = sqliteCriteria.unique();
 
 		// Verify
-		verify(mockSqliteSession).executeForResult(query, true);
+		verify(mockSqliteSession).executeForResult(query.getSql(), query.getArgs(), true);
 		verify(mockCursor, times(2)).getCount();
 		verify(mockCursor).close();
 		assertNull("Returned result should be null", actual);
@@ -141,9 +180,9 @@ public class SqliteCriteriaTest {
 	@Test
 	public void testUnique_result() {
 		// Setup
-		String query = "SQL criteria query";
+		SqlQuery query = new SqlQuery("SQL criteria query", new String[0]);
 		when(mockSqlBuilder.createQuery(sqliteCriteria)).thenReturn(query);
-		when(mockSqliteSession.executeForResult(query, true)).thenReturn(
+		when(mockSqliteSession.executeForResult(query.getSql(), query.getArgs(), true)).thenReturn(
 				mockCursor);
 		when(mockCursor.getCount()).thenReturn(1);
 		when(mockSqliteModelFactory.createFromCursor(mockCursor, entityClass))
@@ -153,7 +192,7 @@ public class SqliteCriteriaTest {
 		Object actual = sqliteCriteria.unique();
 
 		// Verify
-		verify(mockSqliteSession).executeForResult(query, true);
+		verify(mockSqliteSession).executeForResult(query.getSql(), query.getArgs(), true);
 		verify(mockCursor, times(2)).getCount();
 		verify(mockCursor).close();
 		assertNotNull("Returned result should not be null", actual);
@@ -162,9 +201,9 @@ public class SqliteCriteriaTest {
 	@Test(expected = InfinitumRuntimeException.class)
 	public void testUnique_noUnique() {
 		// Setup
-		String query = "SQL criteria query";
+		SqlQuery query = new SqlQuery("SQL criteria query", new String[0]);
 		when(mockSqlBuilder.createQuery(sqliteCriteria)).thenReturn(query);
-		when(mockSqliteSession.executeForResult(query, true)).thenReturn(
+		when(mockSqliteSession.executeForResult(query.getSql(), query.getArgs(), true)).thenReturn(
 				mockCursor);
 		when(mockCursor.getCount()).thenReturn(3);
 		when(mockSqliteModelFactory.createFromCursor(mockCursor, entityClass))
@@ -177,6 +216,109 @@ public class SqliteCriteriaTest {
 		assertTrue("Exception should have been thrown", false);
 	}
 
+	@Test
+	public void testScroll_pages() throws NoSuchFieldException {
+		// Setup
+		SqlQuery firstQuery = new SqlQuery("SQL criteria query page 1", new String[0]);
+		SqlQuery secondQuery = new SqlQuery("SQL criteria query page 2", new String[0]);
+		Cursor secondCursor = mock(Cursor.class);
+		Field pkField = SeekEntity.class.getDeclaredField("mId");
+		when(mockPersistencePolicy.getPrimaryKeyField(entityClass)).thenReturn(pkField);
+		when(mockSqlBuilder.createSeekQuery(sqliteCriteria, 2, 0, new Object[0])).thenReturn(firstQuery);
+		when(mockSqlBuilder.createSeekQuery(sqliteCriteria, 2, 0, new Object[] { 2L })).thenReturn(secondQuery);
+		when(mockSqliteSession.executeForResult(firstQuery.getSql(), firstQuery.getArgs(), true)).thenReturn(mockCursor);
+		when(mockSqliteSession.executeForResult(secondQuery.getSql(), secondQuery.getArgs(), true)).thenReturn(secondCursor);
+		when(mockSqliteModelFactory.createAllFromCursor(mockCursor, entityClass, true, sqliteCriteria.getFetches())).thenReturn(
+				Arrays.<Object> asList(new SeekEntity(1), new SeekEntity(2)));
+		when(mockSqliteModelFactory.createAllFromCursor(secondCursor, entityClass, true, sqliteCriteria.getFetches())).thenReturn(
+				Arrays.<Object> asList(new SeekEntity(3)));
+
+		// Run
+		ResultIterator<Object> iter = sqliteCriteria.scroll(2);
+		int count = 0;
+		while (iter.hasNext()) {
+			iter.next();
+			count++;
+		}
+
+		// Verify
+		verify(mockSqliteSession).executeForResult(firstQuery.getSql(), firstQuery.getArgs(), true);
+		verify(mockSqliteSession).executeForResult(secondQuery.getSql(), secondQuery.getArgs(), true);
+		verify(mockCursor).close();
+		verify(secondCursor).close();
+		assertEquals("Iterator should return every result", 3, count);
+		assertTrue("Iterator should be closed once exhausted", iter.isClosed());
+	}
+
+	@Test
+	public void testScroll_seek() throws NoSuchFieldException {
+		// Setup
+		SqlQuery firstQuery = new SqlQuery("SQL criteria query page 1", new String[0]);
+		SqlQuery secondQuery = new SqlQuery("SQL criteria query page 2", new String[0]);
+		Cursor secondCursor = mock(Cursor.class);
+		Field pkField = SeekEntity.class.getDeclaredField("mId");
+		when(mockPersistencePolicy.getPrimaryKeyField(entityClass)).thenReturn(pkField);
+		when(mockSqlBuilder.createSeekQuery(sqliteCriteria, 2, 0, new Object[0])).thenReturn(firstQuery);
+		when(mockSqlBuilder.createSeekQuery(sqliteCriteria, 2, 0, new Object[] { 2L })).thenReturn(secondQuery);
+		when(mockSqliteSession.executeForResult(firstQuery.getSql(), firstQuery.getArgs(), true)).thenReturn(mockCursor);
+		when(mockSqliteSession.executeForResult(secondQuery.getSql(), secondQuery.getArgs(), true)).thenReturn(secondCursor);
+		when(mockSqliteModelFactory.createAllFromCursor(mockCursor, entityClass, true, sqliteCriteria.getFetches())).thenReturn(
+				Arrays.<Object> asList(new SeekEntity(1), new SeekEntity(2)));
+		when(mockSqliteModelFactory.createAllFromCursor(secondCursor, entityClass, true, sqliteCriteria.getFetches())).thenReturn(
+				Arrays.<Object> asList(new SeekEntity(3)));
+
+		// Run
+		ResultIterator<Object> iter = sqliteCriteria.seek().scroll(2);
+		int count = 0;
+		while (iter.hasNext()) {
+			iter.next();
+			count++;
+		}
+
+		// Verify
+		verify(mockSqlBuilder).createSeekQuery(sqliteCriteria, 2, 0, new Object[] { 2L });
+		verify(mockSqliteSession).executeForResult(secondQuery.getSql(), secondQuery.getArgs(), true);
+		assertEquals("Iterator should return every result", 3, count);
+	}
+
+	@Test
+	public void testIterate_bypassCache() {
+		// Setup
+		SqlQuery query = new SqlQuery("SQL criteria query", new String[0]);
+		when(mockSqlBuilder.createQuery(sqliteCriteria, 0, 0)).thenReturn(query);
+		when(mockSqliteSession.executeForResult(query.getSql(), query.getArgs(), true)).thenReturn(mockCursor);
+		when(mockCursor.moveToNext()).thenReturn(true).thenReturn(true).thenReturn(false);
+		ColumnPlan mockPlan = mock(ColumnPlan.class);
+		when(mockSqliteModelFactory.createColumnPlan(mockCursor, entityClass)).thenReturn(mockPlan);
+		when(mockSqliteModelFactory.createFromCursor(mockCursor, entityClass, mockPlan, false)).thenReturn(new Object());
+
+		// Run
+		ResultIterator<Object> iter = sqliteCriteria.bypassCache(true).iterate();
+		iter.next();
+		iter.close();
+
+		// Verify
+		verify(mockSqliteModelFactory).createColumnPlan(mockCursor, entityClass);
+		verify(mockSqliteModelFactory).createFromCursor(mockCursor, entityClass, mockPlan, false);
+		verify(mockSqliteSession, never()).cache(any(EntityKey.class), any(Object.class));
+		verify(mockCursor).close();
+		assertFalse("Closed iterator should not have more results", iter.hasNext());
+	}
+
+	@Test(expected = InfinitumRuntimeException.class)
+	public void testFetch_notRelationship() {
+		// Setup
+		Field field = ArrayList.class.getDeclaredFields()[0];
+		when(mockPersistencePolicy.getPersistentFields(entityClass)).thenReturn(Arrays.asList(field));
+		when(mockPersistencePolicy.isRelationship(field)).thenReturn(false);
+
+		// Run
+		sqliteCriteria.fetch(field.getName());
+
+		// Verify
+		assertTrue("Exception should have been thrown", false);
+	}
+
 	@Test
 	public void testGetObjectMapper() {
 		// Setup
@@ -194,9 +336,9 @@ public class SqliteCriteriaTest {
 	@Test
 	public void testCount() {
 		// Setup
-		String query = "SQL criteria query";
+		SqlQuery query = new SqlQuery("SQL criteria query", new String[0]);
 		when(mockSqlBuilder.createCountQuery(sqliteCriteria)).thenReturn(query);
-		when(mockSqliteSession.executeForResult(query, true)).thenReturn(
+		when(mockSqliteSession.executeForResult(query.getSql(), query.getArgs(), true)).thenReturn(
 				mockCursor);
 		when(mockCursor.moveToFirst()).thenReturn(true);
 		final long EXPECTED = 5;
@@ -206,7 +348,7 @@ public class SqliteCriteriaTest {
 		long actual = sqliteCriteria.count();
 		
 		// Verify
-		verify(mockSqliteSession).executeForResult(query, true);
+		verify(mockSqliteSession).executeForResult(query.getSql(), query.getArgs(), true);
 		verify(mockSqlBuilder).createCountQuery(sqliteCriteria);
 		verify(mockCursor).moveToFirst();
 		verify(mockCursor).getLong(0);
@@ -214,4 +356,14 @@ public class SqliteCriteriaTest {
 		assertEquals("Returned result should match expected value", EXPECTED, actual);
 	}
 
+	private static class SeekEntity {
+
+		private long mId;
+
+		public SeekEntity(long id) {
+			mId = id;
+		}
+
+	}
+
 }
@@ -27,6 +27,7 @@ import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.never;
 import java.lang.reflect.Field;
 import java.util.ArrayList;
 import java.util.Date;
@@ -38,9 +39,13 @@ import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
+import org.mockito.InOrder;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Mockito;
 import org.mockito.MockitoAnnotations;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
 import android.content.ContentValues;
 import android.content.Context;
 import android.database.Cursor;
@@ -52,19 +57,20 @@ import com.clarionmedia.infinitum.logging.Logger;
 import com.clarionmedia.infinitum.orm.ResultSet;
 import com.clarionmedia.infinitum.orm.Session;
 import com.clarionmedia.infinitum.orm.criteria.Criteria;
+import com.clarionmedia.infinitum.orm.persistence.EntityKey;
 import com.clarionmedia.infinitum.orm.persistence.PersistencePolicy;
 import com.clarionmedia.infinitum.orm.persistence.TypeResolutionPolicy.SqliteDataType;
 import com.clarionmedia.infinitum.orm.sqlite.SqliteTypeAdapter;
+import com.clarionmedia.infinitum.orm.sqlite.impl.UnitOfWork.WriteType;
 import com.xtremelabs.robolectric.RobolectricTestRunner;
 
 @RunWith(RobolectricTestRunner.class)
 public class SqliteSessionTest {
 	
-	private static final int FOO_MODEL_HASH = 42;
-	private static final int BAR_MODEL_HASH = 38;
-	private static final int BAZ_MODEL_HASH = 176;
+	private static final EntityKey FOO_MODEL_KEY = new EntityKey(FooModel.class, 42L);
+	private static final EntityKey BAR_MODEL_KEY = new EntityKey(BarModel.class, 38L);
+	private static final EntityKey BAZ_MODEL_KEY = new EntityKey(BazModel.class, 176L);
 	private static final long FOO_MODEL_ID = 120;
-	private static final long BAZ_MODEL_ID = 211;
 	
 	@Mock
 	private InfinitumContext mockInfinitumContext = mock(InfinitumContext.class);
@@ -81,8 +87,11 @@ public class SqliteSessionTest {
 	@Mock
 	private Context mockContext;
 	
-	@Mock
-	private Map<Integer, Object> mockSessionCache;
+	@Mock(name = "mSessionCache")
+	private Map<EntityKey, Object> mockSessionCache;
+	
+	@Mock(name = "mSnapshots")
+	private Map<EntityKey, EntitySnapshot> mockSnapshots;
 	
 	@Mock
 	private Criteria<FooModel> mockFooCriteria;
@@ -172,15 +181,15 @@ public class SqliteSessionTest {
 		// Setup
 		FooModel foo = new FooModel();
 		when(mockSqliteTemplate.save(foo)).thenReturn(FOO_MODEL_ID);
-		when(mockPersistencePolicy.computeModelHash(foo)).thenReturn(FOO_MODEL_HASH);
+		when(mockPersistencePolicy.getEntityKey(foo)).thenReturn(FOO_MODEL_KEY);
 		
 		// Run
 		long actualId = sqliteSession.save(foo);
 		
 		// Verify
 		verify(mockSqliteTemplate).save(foo);
-		verify(mockPersistencePolicy).computeModelHash(foo);
-		verify(mockSessionCache).put(FOO_MODEL_HASH, foo);
+		verify(mockPersistencePolicy).getEntityKey(foo);
+		verify(mockSessionCache).put(FOO_MODEL_KEY, foo);
 		assertEquals("Returned ID should be equal to the model ID", FOO_MODEL_ID, actualId);
 	}
 	
@@ -195,8 +204,8 @@ public class SqliteSessionTest {
 		
 		// Verify
 		verify(mockSqliteTemplate).save(foo);
-		verify(mockPersistencePolicy, times(0)).computeModelHash(foo);
-		verify(mockSessionCache, times(0)).put(FOO_MODEL_HASH, foo);
+		verify(mockPersistencePolicy, times(0)).getEntityKey(foo);
+		verify(mockSessionCache, times(0)).put(FOO_MODEL_KEY, foo);
 		assertEquals("Returned ID should be -1", -1, actualId);
 	}
 	
@@ -205,15 +214,15 @@ public class SqliteSessionTest {
 		// Setup
 		FooModel foo = new FooModel();
 		when(mockSqliteTemplate.update(foo)).thenReturn(true);
-		when(mockPersistencePolicy.computeModelHash(foo)).thenReturn(FOO_MODEL_HASH);
+		when(mockPersistencePolicy.getEntityKey(foo)).thenReturn(FOO_MODEL_KEY);
 		
 		// Run
 		boolean success = sqliteSession.update(foo);
 		
 		// Verify
 		verify(mockSqliteTemplate).update(foo);
-		verify(mockPersistencePolicy).computeModelHash(foo);
-		verify(mockSessionCache).put(FOO_MODEL_HASH, foo);
+		verify(mockPersistencePolicy).getEntityKey(foo);
+		verify(mockSessionCache).put(FOO_MODEL_KEY, foo);
 		assertEquals("Save should have returned successfully", true, success);
 	}
 	
@@ -228,8 +237,8 @@ public class SqliteSessionTest {
 		
 		// Verify
 		verify(mockSqliteTemplate).update(foo);
-		verify(mockPersistencePolicy, times(0)).computeModelHash(foo);
-		verify(mockSessionCache, times(0)).put(FOO_MODEL_HASH, foo);
+		verify(mockPersistencePolicy, times(0)).getEntityKey(foo);
+		verify(mockSessionCache, times(0)).put(FOO_MODEL_KEY, foo);
 		assertEquals("Save should have returned unsuccessfully", false, success);
 	}
 	
@@ -238,15 +247,16 @@ public class SqliteSessionTest {
 		// Setup
 		FooModel foo = new FooModel();
 		when(mockSqliteTemplate.delete(foo)).thenReturn(true);
-		when(mockPersistencePolicy.computeModelHash(foo)).thenReturn(FOO_MODEL_HASH);
+		when(mockPersistencePolicy.getEntityKey(foo)).thenReturn(FOO_MODEL_KEY);
 		
 		// Run
 		boolean success = sqliteSession.delete(foo);
 		
 		// Verify
 		verify(mockSqliteTemplate).delete(foo);
-		verify(mockPersistencePolicy).computeModelHash(foo);
-		verify(mockSessionCache).remove(FOO_MODEL_HASH);
+		verify(mockPersistencePolicy).getEntityKey(foo);
+		verify(mockSessionCache).remove(FOO_MODEL_KEY);
+		verify(mockSnapshots).remove(FOO_MODEL_KEY);
 		assertEquals("Delete should have returned successfully", true, success);
 	}
 	
@@ -261,8 +271,8 @@ public class SqliteSessionTest {
 		
 		// Verify
 		verify(mockSqliteTemplate).delete(foo);
-		verify(mockPersistencePolicy, times(0)).computeModelHash(foo);
-		verify(mockSessionCache, times(0)).remove(FOO_MODEL_HASH);
+		verify(mockPersistencePolicy, times(0)).getEntityKey(foo);
+		verify(mockSessionCache, times(0)).remove(FOO_MODEL_KEY);
 		assertEquals("Delete should have returned unsuccessfully", false, success);
 	}
 	
@@ -271,15 +281,15 @@ public class SqliteSessionTest {
 		// Setup
 		FooModel foo = new FooModel();
 		when(mockSqliteTemplate.saveOrUpdate(foo)).thenReturn(FOO_MODEL_ID);
-		when(mockPersistencePolicy.computeModelHash(foo)).thenReturn(FOO_MODEL_HASH);
+		when(mockPersistencePolicy.getEntityKey(foo)).thenReturn(FOO_MODEL_KEY);
 		
 		// Run
 		long actualId = sqliteSession.saveOrUpdate(foo);
 		
 		// Verify
 		verify(mockSqliteTemplate).saveOrUpdate(foo);
-		verify(mockPersistencePolicy).computeModelHash(foo);
-		verify(mockSessionCache).put(FOO_MODEL_HASH, foo);
+		verify(mockPersistencePolicy).getEntityKey(foo);
+		verify(mockSessionCache).put(FOO_MODEL_KEY, foo);
 		assertEquals("Returned ID should be equal to the model ID", FOO_MODEL_ID, actualId);
 	}
 	
@@ -294,8 +304,8 @@ public class SqliteSessionTest {
 		
 		// Verify
 		verify(mockSqliteTemplate).saveOrUpdate(foo);
-		verify(mockPersistencePolicy, times(0)).computeModelHash(foo);
-		verify(mockSessionCache, times(0)).put(FOO_MODEL_HASH, foo);
+		verify(mockPersistencePolicy, times(0)).getEntityKey(foo);
+		verify(mockSessionCache, times(0)).put(FOO_MODEL_KEY, foo);
 		assertEquals("Returned ID should be -1", -1, actualId);
 	}
 	
@@ -309,25 +319,24 @@ public class SqliteSessionTest {
 		models.add(foo);
 		models.add(bar);
 		models.add(baz);
-		when(mockSqliteTemplate.saveOrUpdate(foo)).thenReturn(FOO_MODEL_ID);
-		when(mockSqliteTemplate.saveOrUpdate(bar)).thenReturn((long) -1);
-		when(mockSqliteTemplate.saveOrUpdate(baz)).thenReturn((long) 0);
-		when(mockPersistencePolicy.computeModelHash(foo)).thenReturn(FOO_MODEL_HASH);
-		when(mockPersistencePolicy.computeModelHash(baz)).thenReturn(BAZ_MODEL_HASH);
+		List<Object> written = new ArrayList<Object>();
+		written.add(foo);
+		written.add(baz);
+		when(mockSqliteTemplate.saveOrUpdateAll(models)).thenReturn(written);
+		when(mockPersistencePolicy.getEntityKey(foo)).thenReturn(FOO_MODEL_KEY);
+		when(mockPersistencePolicy.getEntityKey(baz)).thenReturn(BAZ_MODEL_KEY);
 		
 		// Run
 		int actualResults = sqliteSession.saveOrUpdateAll(models);
 		
 		// Verify
-		verify(mockSqliteTemplate).saveOrUpdate(foo);
-		verify(mockSqliteTemplate).saveOrUpdate(bar);
-		verify(mockSqliteTemplate).saveOrUpdate(baz);
-		verify(mockPersistencePolicy).computeModelHash(foo);
-		verify(mockPersistencePolicy).computeModelHash(baz);
-		verify(mockPersistencePolicy, times(0)).computeModelHash(bar);
-		verify(mockSessionCache).put(FOO_MODEL_HASH, foo);
-		verify(mockSessionCache).put(BAZ_MODEL_HASH, baz);
-		verify(mockSessionCache, times(0)).put(BAR_MODEL_HASH, bar);
+		verify(mockSqliteTemplate).saveOrUpdateAll(models);
+		verify(mockPersistencePolicy).getEntityKey(foo);
+		verify(mockPersistencePolicy).getEntityKey(baz);
+		verify(mockPersistencePolicy, times(0)).getEntityKey(bar);
+		verify(mockSessionCache).put(FOO_MODEL_KEY, foo);
+		verify(mockSessionCache).put(BAZ_MODEL_KEY, baz);
+		verify(mockSessionCache, times(0)).put(BAR_MODEL_KEY, bar);
 		assertEquals("Number of items saved or updated should be 2", 2, actualResults);
 	}
 	
@@ -341,25 +350,24 @@ public class SqliteSessionTest {
 		models.add(foo);
 		models.add(bar);
 		models.add(baz);
-		when(mockSqliteTemplate.save(foo)).thenReturn(FOO_MODEL_ID);
-		when(mockSqliteTemplate.save(bar)).thenReturn((long) -1);
-		when(mockSqliteTemplate.save(baz)).thenReturn(BAZ_MODEL_ID);
-		when(mockPersistencePolicy.computeModelHash(foo)).thenReturn(FOO_MODEL_HASH);
-		when(mockPersistencePolicy.computeModelHash(baz)).thenReturn(BAZ_MODEL_HASH);
+		List<Object> written = new ArrayList<Object>();
+		written.add(foo);
+		written.add(baz);
+		when(mockSqliteTemplate.saveAll(models)).thenReturn(written);
+		when(mockPersistencePolicy.getEntityKey(foo)).thenReturn(FOO_MODEL_KEY);
+		when(mockPersistencePolicy.getEntityKey(baz)).thenReturn(BAZ_MODEL_KEY);
 		
 		// Run
 		int actualResults = sqliteSession.saveAll(models);
 		
 		// Verify
-		verify(mockSqliteTemplate).save(foo);
-		verify(mockSqliteTemplate).save(bar);
-		verify(mockSqliteTemplate).save(baz);
-		verify(mockPersistencePolicy).computeModelHash(foo);
-		verify(mockPersistencePolicy).computeModelHash(baz);
-		verify(mockPersistencePolicy, times(0)).computeModelHash(bar);
-		verify(mockSessionCache).put(FOO_MODEL_HASH, foo);
-		verify(mockSessionCache).put(BAZ_MODEL_HASH, baz);
-		verify(mockSessionCache, times(0)).put(BAR_MODEL_HASH, bar);
+		verify(mockSqliteTemplate).saveAll(models);
+		verify(mockPersistencePolicy).getEntityKey(foo);
+		verify(mockPersistencePolicy).getEntityKey(baz);
+		verify(mockPersistencePolicy, times(0)).getEntityKey(bar);
+		verify(mockSessionCache).put(FOO_MODEL_KEY, foo);
+		verify(mockSessionCache).put(BAZ_MODEL_KEY, baz);
+		verify(mockSessionCache, times(0)).put(BAR_MODEL_KEY, bar);
 		assertEquals("Number of items saved should be 2", 2, actualResults);
 	}
 	
@@ -376,8 +384,8 @@ public class SqliteSessionTest {
 		when(mockSqliteTemplate.delete(foo)).thenReturn(true);
 		when(mockSqliteTemplate.delete(bar)).thenReturn(false);
 		when(mockSqliteTemplate.delete(baz)).thenReturn(true);
-		when(mockPersistencePolicy.computeModelHash(foo)).thenReturn(FOO_MODEL_HASH);
-		when(mockPersistencePolicy.computeModelHash(baz)).thenReturn(BAZ_MODEL_HASH);
+		when(mockPersistencePolicy.getEntityKey(foo)).thenReturn(FOO_MODEL_KEY);
+		when(mockPersistencePolicy.getEntityKey(baz)).thenReturn(BAZ_MODEL_KEY);
 		
 		// Run
 		int actualResults = sqliteSession.deleteAll(models);
@@ -386,12 +394,13 @@ public class SqliteSessionTest {
 		verify(mockSqliteTemplate).delete(foo);
 		verify(mockSqliteTemplate).delete(bar);
 		verify(mockSqliteTemplate).delete(baz);
-		verify(mockPersistencePolicy).computeModelHash(foo);
-		verify(mockPersistencePolicy).computeModelHash(baz);
-		verify(mockPersistencePolicy, times(0)).computeModelHash(bar);
-		verify(mockSessionCache).remove(FOO_MODEL_HASH);
-		verify(mockSessionCache).remove(BAZ_MODEL_HASH);
-		verify(mockSessionCache, times(0)).remove(BAR_MODEL_HASH);
+		verify(mockPersistencePolicy).getEntityKey(foo);
+		verify(mockPersistencePolicy).getEntityKey(baz);
+		verify(mockPersistencePolicy, times(0)).getEntityKey(bar);
+		verify(mockSessionCache).remove(FOO_MODEL_KEY);
+		verify(mockSnapshots).remove(FOO_MODEL_KEY);
+		verify(mockSessionCache).remove(BAZ_MODEL_KEY);
+		verify(mockSessionCache, times(0)).remove(BAR_MODEL_KEY);
 		assertEquals("Number of items deleted should be 2", 2, actualResults);
 	}
 	
@@ -400,17 +409,17 @@ public class SqliteSessionTest {
 		// Setup
 		FooModel expected = new FooModel();
 		expected.id = FOO_MODEL_ID;
-		when(mockPersistencePolicy.computeModelHash(FooModel.class, FOO_MODEL_ID)).thenReturn(FOO_MODEL_HASH);
-		when(mockSessionCache.containsKey(FOO_MODEL_HASH)).thenReturn(true);
-		when(mockSessionCache.get(FOO_MODEL_HASH)).thenReturn(expected);
+		when(mockPersistencePolicy.getEntityKey(FooModel.class, FOO_MODEL_ID)).thenReturn(FOO_MODEL_KEY);
+		when(mockSessionCache.containsKey(FOO_MODEL_KEY)).thenReturn(true);
+		when(mockSessionCache.get(FOO_MODEL_KEY)).thenReturn(expected);
 		
 		// Run
 		FooModel actual = sqliteSession.load(FooModel.class, FOO_MODEL_ID);
 		
 		// Verify
-		verify(mockPersistencePolicy).computeModelHash(FooModel.class, FOO_MODEL_ID);
-		verify(mockSessionCache).containsKey(FOO_MODEL_HASH);
-		verify(mockSessionCache).get(FOO_MODEL_HASH);
+		verify(mockPersistencePolicy).getEntityKey(FooModel.class, FOO_MODEL_ID);
+		verify(mockSessionCache).containsKey(FOO_MODEL_KEY);
+		verify(mockSessionCache).get(FOO_MODEL_KEY);
 		verify(mockSqliteTemplate, times(0)).load(FooModel.class, FOO_MODEL_ID);
 		assertEquals("Loaded object ID should be equal to expected object ID", expected.id, actual.id);
 	}
@@ -420,17 +429,17 @@ public class SqliteSessionTest {
 		// Setup
 		FooModel expected = new FooModel();
 		expected.id = FOO_MODEL_ID;
-		when(mockPersistencePolicy.computeModelHash(FooModel.class, FOO_MODEL_ID)).thenReturn(FOO_MODEL_HASH);
-		when(mockSessionCache.containsKey(FOO_MODEL_HASH)).thenReturn(false);
+		when(mockPersistencePolicy.getEntityKey(FooModel.class, FOO_MODEL_ID)).thenReturn(FOO_MODEL_KEY);
+		when(mockSessionCache.containsKey(FOO_MODEL_KEY)).thenReturn(false);
 		when(mockSqliteTemplate.load(FooModel.class, FOO_MODEL_ID)).thenReturn(expected);
 		
 		// Run
 		FooModel actual = sqliteSession.load(FooModel.class, FOO_MODEL_ID);
 		
 		// Verify
-		verify(mockPersistencePolicy).computeModelHash(FooModel.class, FOO_MODEL_ID);
-		verify(mockSessionCache).containsKey(FOO_MODEL_HASH);
-		verify(mockSessionCache, times(0)).get(FOO_MODEL_HASH);
+		verify(mockPersistencePolicy).getEntityKey(FooModel.class, FOO_MODEL_ID);
+		verify(mockSessionCache).containsKey(FOO_MODEL_KEY);
+		verify(mockSessionCache, times(0)).get(FOO_MODEL_KEY);
 		verify(mockSqliteTemplate).load(FooModel.class, FOO_MODEL_ID);
 		assertEquals("Loaded object ID should be equal to expected object ID", expected.id, actual.id);
 	}
@@ -567,9 +576,140 @@ public class SqliteSessionTest {
 		
 		// Verify
 		verify(mockSqliteTemplate).rollback();
+		verify(mockSnapshots).clear();
 		assertEquals("Session returned from rollback should be the same Session instance", sqliteSession, session);
 	}
 	
+	@Test
+	public void testCommit_unitOfWork() {
+		// Setup
+		final FooModel foo = new FooModel();
+		final BarModel bar = new BarModel();
+		final List<WriteType> flushedWrites = new ArrayList<WriteType>();
+		when(mockPersistencePolicy.isPersistent(FooModel.class)).thenReturn(true);
+		when(mockPersistencePolicy.isPersistent(BarModel.class)).thenReturn(true);
+		when(mockPersistencePolicy.getEntityKey(foo)).thenReturn(FOO_MODEL_KEY);
+		when(mockPersistencePolicy.getEntityKey(bar)).thenReturn(BAR_MODEL_KEY);
+		when(mockSqliteTemplate.flush(any(UnitOfWork.class))).thenAnswer(new Answer<List<Object>>() {
+			@Override
+			public List<Object> answer(InvocationOnMock invocation) {
+				UnitOfWork work = (UnitOfWork) invocation.getArguments()[0];
+				for (Object model : work.getEntities())
+					flushedWrites.add(work.getWriteType(model));
+				List<Object> written = new ArrayList<Object>();
+				written.add(foo);
+				return written;
+			}
+		});
+		sqliteSession.setUnitOfWork(true);
+		
+		// Run
+		boolean updated = sqliteSession.update(foo);
+		sqliteSession.update(foo);
+		sqliteSession.delete(bar);
+		Session session = sqliteSession.commit();
+		
+		// Verify
+		verify(mockSqliteTemplate, never()).update(foo);
+		verify(mockSqliteTemplate, never()).delete(bar);
+		verify(mockSqliteTemplate).flush(any(UnitOfWork.class));
+		verify(mockSqliteTemplate).commit();
+		verify(mockSessionCache).put(FOO_MODEL_KEY, foo);
+		verify(mockSessionCache).remove(BAR_MODEL_KEY);
+		verify(mockSnapshots).remove(BAR_MODEL_KEY);
+		assertTrue("Queued update should have returned successfully", updated);
+		assertEquals("Repeated updates should have been flushed once", 2, flushedWrites.size());
+		assertEquals("First flushed write should be an update", WriteType.UPDATE, flushedWrites.get(0));
+		assertEquals("Second flushed write should be a delete", WriteType.DELETE, flushedWrites.get(1));
+		assertEquals("Session returned from commit should be the same Session instance", sqliteSession, session);
+	}
+	
+	@Test
+	public void testRollback_unitOfWork() {
+		// Setup
+		FooModel foo = new FooModel();
+		when(mockPersistencePolicy.isPersistent(FooModel.class)).thenReturn(true);
+		sqliteSession.setUnitOfWork(true);
+		sqliteSession.save(foo);
+		
+		// Run
+		sqliteSession.rollback();
+		sqliteSession.flush();
+		
+		// Verify
+		verify(mockSqliteTemplate, never()).save(foo);
+		verify(mockSqliteTemplate, never()).flush(any(UnitOfWork.class));
+		verify(mockSqliteTemplate).rollback();
+	}
+	
+	@Test
+	public void testUpdate_unitOfWork_afterDelete() {
+		// Setup
+		FooModel foo = new FooModel();
+		final List<List<WriteType>> flushes = new ArrayList<List<WriteType>>();
+		when(mockPersistencePolicy.isPersistent(FooModel.class)).thenReturn(true);
+		when(mockPersistencePolicy.getEntityKey(foo)).thenReturn(FOO_MODEL_KEY);
+		when(mockSqliteTemplate.flush(any(UnitOfWork.class))).thenAnswer(new Answer<List<Object>>() {
+			@Override
+			public List<Object> answer(InvocationOnMock invocation) {
+				UnitOfWork work = (UnitOfWork) invocation.getArguments()[0];
+				List<WriteType> writes = new ArrayList<WriteType>();
+				for (Object model : work.getEntities())
+					writes.add(work.getWriteType(model));
+				flushes.add(writes);
+				return new ArrayList<Object>();
+			}
+		});
+		sqliteSession.setUnitOfWork(true);
+		
+		// Run
+		sqliteSession.delete(foo);
+		sqliteSession.update(foo);
+		sqliteSession.flush();
+		
+		// Verify
+		assertEquals("Delete and update should have been flushed separately", 2, flushes.size());
+		assertEquals("Delete should have been flushed first", WriteType.DELETE, flushes.get(0).get(0));
+		assertEquals("Update should have been flushed after the delete", WriteType.UPDATE, flushes.get(1).get(0));
+	}
+	
+	@Test
+	public void testLoad_unitOfWork_flushesQueuedWrites() {
+		// Setup
+		FooModel foo = new FooModel();
+		when(mockPersistencePolicy.isPersistent(FooModel.class)).thenReturn(true);
+		when(mockPersistencePolicy.getEntityKey(FooModel.class, FOO_MODEL_ID)).thenReturn(FOO_MODEL_KEY);
+		when(mockSqliteTemplate.isAutocommit()).thenReturn(true);
+		when(mockSqliteTemplate.flush(any(UnitOfWork.class))).thenReturn(new ArrayList<Object>());
+		sqliteSession.setUnitOfWork(true);
+		sqliteSession.save(foo);
+		
+		// Run
+		sqliteSession.load(FooModel.class, FOO_MODEL_ID);
+		
+		// Verify
+		InOrder inOrder = Mockito.inOrder(mockSqliteTemplate);
+		inOrder.verify(mockSqliteTemplate).flush(any(UnitOfWork.class));
+		inOrder.verify(mockSqliteTemplate).load(FooModel.class, FOO_MODEL_ID);
+	}
+	
+	@Test
+	public void testAutoFlush_noTransaction() {
+		// Setup
+		FooModel foo = new FooModel();
+		when(mockPersistencePolicy.isPersistent(FooModel.class)).thenReturn(true);
+		when(mockSqliteTemplate.isAutocommit()).thenReturn(false);
+		when(mockSqliteTemplate.isTransactionOpen()).thenReturn(false);
+		sqliteSession.setUnitOfWork(true);
+		sqliteSession.save(foo);
+		
+		// Run
+		sqliteSession.autoFlush();
+		
+		// Verify
+		verify(mockSqliteTemplate, never()).flush(any(UnitOfWork.class));
+	}
+	
 	@Test
 	public void testIsTransactionOpen() {
 		// Setup
@@ -627,11 +767,11 @@ public class SqliteSessionTest {
 		when(mockSessionCache.size()).thenReturn(0);
 		
 		// Run
-		boolean success = sqliteSession.cache(FOO_MODEL_HASH, foo);
+		boolean success = sqliteSession.cache(FOO_MODEL_KEY, foo);
 		
 		// Verify
 		verify(mockSessionCache).size();
-		verify(mockSessionCache).put(FOO_MODEL_HASH, foo);
+		verify(mockSessionCache).put(FOO_MODEL_KEY, foo);
 		assertTrue("Cache should have been successful", success);
 	}
 	
@@ -642,24 +782,24 @@ public class SqliteSessionTest {
 		when(mockSessionCache.size()).thenReturn(Session.DEFAULT_CACHE_SIZE);
 		
 		// Run
-		boolean success = sqliteSession.cache(FOO_MODEL_HASH, foo);
+		boolean success = sqliteSession.cache(FOO_MODEL_KEY, foo);
 		
 		// Verify
 		verify(mockSessionCache).size();
-		verify(mockSessionCache, times(0)).put(FOO_MODEL_HASH, foo);
+		verify(mockSessionCache, times(0)).put(FOO_MODEL_KEY, foo);
 		assertFalse("Cache should have been unsuccessful", success);
 	}
 	
 	@Test
 	public void testCheckCache() {
 		// Setup
-		when(mockSessionCache.containsKey(FOO_MODEL_HASH)).thenReturn(true);
+		when(mockSessionCache.containsKey(FOO_MODEL_KEY)).thenReturn(true);
 		
 		// Run
-		boolean cached = sqliteSession.checkCache(FOO_MODEL_HASH);
+		boolean cached = sqliteSession.checkCache(FOO_MODEL_KEY);
 		
 		// Verify
-		verify(mockSessionCache).containsKey(FOO_MODEL_HASH);
+		verify(mockSessionCache).containsKey(FOO_MODEL_KEY);
 		assertTrue("Cache should contain key", cached);
 	}
 	
@@ -668,13 +808,13 @@ public class SqliteSessionTest {
 		// Setup
 		FooModel foo = new FooModel();
 		foo.id = FOO_MODEL_ID;
-		when(mockSessionCache.get(FOO_MODEL_HASH)).thenReturn(foo);
+		when(mockSessionCache.get(FOO_MODEL_KEY)).thenReturn(foo);
 		
 		// Run
-		FooModel actual = (FooModel) sqliteSession.searchCache(FOO_MODEL_HASH);
+		FooModel actual = (FooModel) sqliteSession.searchCache(FOO_MODEL_KEY);
 		
 		// Verify
-		verify(mockSessionCache).get(FOO_MODEL_HASH);
+		verify(mockSessionCache).get(FOO_MODEL_KEY);
 		assertEquals("Cached object ID should be the same as the expected object ID", foo.id, actual.id);
 	}
 	
@@ -21,14 +21,22 @@ package com.clarionmedia.infinitum.orm.sqlite.impl;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import java.lang.reflect.Field;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Stack;
@@ -37,14 +45,22 @@ import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
+import org.mockito.InOrder;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Mockito;
 import org.mockito.MockitoAnnotations;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
 
 import android.content.ContentValues;
 import android.content.Context;
+import android.database.AbstractWindowedCursor;
 import android.database.Cursor;
+import android.database.SQLException;
+import android.database.sqlite.SQLiteConstraintException;
 import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteStatement;
 
 import com.clarionmedia.infinitum.context.InfinitumContext;
 import com.clarionmedia.infinitum.exception.InfinitumRuntimeException;
@@ -52,7 +68,9 @@ import com.clarionmedia.infinitum.internal.Pair;
 import com.clarionmedia.infinitum.logging.Logger;
 import com.clarionmedia.infinitum.orm.ModelFactory;
 import com.clarionmedia.infinitum.orm.criteria.Criteria;
+import com.clarionmedia.infinitum.orm.persistence.EntityKey;
 import com.clarionmedia.infinitum.orm.persistence.PersistencePolicy;
+import com.clarionmedia.infinitum.orm.persistence.PersistencePolicy.CacheStrategy;
 import com.clarionmedia.infinitum.orm.persistence.PersistencePolicy.Cascade;
 import com.clarionmedia.infinitum.orm.relationship.ManyToManyRelationship;
 import com.clarionmedia.infinitum.orm.relationship.ManyToOneRelationship;
@@ -60,14 +78,15 @@ import com.clarionmedia.infinitum.orm.relationship.OneToManyRelationship;
 import com.clarionmedia.infinitum.orm.relationship.OneToOneRelationship;
 import com.clarionmedia.infinitum.orm.sql.SqlBuilder;
 import com.clarionmedia.infinitum.orm.sqlite.SqliteUtil;
+import com.clarionmedia.infinitum.orm.sqlite.impl.UnitOfWork.WriteType;
 import com.clarionmedia.infinitum.reflection.ClassReflector;
 import com.xtremelabs.robolectric.RobolectricTestRunner;
 
 @RunWith(RobolectricTestRunner.class)
 public class SqliteTemplateTest {
 	
-	private static final int FOO_MODEL_HASH = 42;
-	private static final int BAR_MODEL_HASH = 38;
+	private static final EntityKey FOO_MODEL_KEY = new EntityKey(FooModel.class, 42L);
+	private static final EntityKey BAR_MODEL_KEY = new EntityKey(BarModel.class, 38L);
 	private static final long FOO_MODEL_ID = 120;
 	private static final String FOO_MODEL_TABLE = "foo";
 	private static final String BAR_MODEL_TABLE = "bar";
@@ -88,7 +107,7 @@ public class SqliteTemplateTest {
 	private Context mockContext;
 	
 	@Mock
-	private Map<Integer, Object> mockSessionCache;
+	private Map<EntityKey, Object> mockSessionCache;
 	
 	@Mock
 	private Criteria<FooModel> mockFooCriteria;
@@ -105,6 +124,9 @@ public class SqliteTemplateTest {
 	@Mock
 	private SQLiteDatabase mockSqliteDb;
 	
+	@Mock
+	private SQLiteStatement mockSqliteStatement;
+	
 	@Mock
 	private Stack<Boolean> mockTransactionStack;
 	
@@ -132,6 +154,9 @@ public class SqliteTemplateTest {
 	@Mock
 	private SqlBuilder mockSqlBuilder;
 	
+	@Mock
+	private SecondLevelCache mockSecondLevelCache;
+	
 	private Field mockFooPkField;
 	private Field mockBarPkField;
 	private FooModel foo;
@@ -152,16 +177,24 @@ public class SqliteTemplateTest {
 		when(mockFooModelMap.getContentValues()).thenReturn(mockContentValues);
 		when(mockBarModelMap.getContentValues()).thenReturn(mockContentValues);
 		when(mockContentValues.size()).thenReturn(3);
+		Map<String, Object> values = new HashMap<String, Object>();
+		values.put("a", 1L);
+		values.put("b", "b");
+		values.put("c", null);
+		when(mockContentValues.valueSet()).thenReturn(values.entrySet());
+		when(mockSqliteDb.compileStatement(any(String.class))).thenReturn(mockSqliteStatement);
+		when(mockSqlBuilder.createInsertStatement(eq(FooModel.class), any(String[].class))).thenReturn("INSERT");
 		when(mockPersistencePolicy.getModelTableName(FooModel.class)).thenReturn(FOO_MODEL_TABLE);
 		when(mockPersistencePolicy.getModelTableName(BarModel.class)).thenReturn(BAR_MODEL_TABLE);
 		when(mockPersistencePolicy.getPrimaryKeyField(FooModel.class)).thenReturn(mockFooPkField);
 		when(mockPersistencePolicy.getPrimaryKeyField(BarModel.class)).thenReturn(mockBarPkField);
 		when(mockSqliteMapper.mapModel(foo)).thenReturn(mockFooModelMap);
 		when(mockSqliteMapper.mapModel(bar)).thenReturn(mockBarModelMap);
-		when(mockPersistencePolicy.computeModelHash(foo)).thenReturn(FOO_MODEL_HASH);
-		when(mockPersistencePolicy.computeModelHash(bar)).thenReturn(BAR_MODEL_HASH);
+		when(mockPersistencePolicy.getEntityKey(foo)).thenReturn(FOO_MODEL_KEY);
+		when(mockPersistencePolicy.getEntityKey(bar)).thenReturn(BAR_MODEL_KEY);
 		when(mockPersistencePolicy.getPrimaryKey(foo)).thenReturn(FOO_MODEL_ID);
 		when(mockPersistencePolicy.getFieldColumnName(mockFooPkField)).thenReturn("id");
+		when(mockPersistencePolicy.getCacheStrategy(any(Class.class))).thenReturn(CacheStrategy.NONE);
 		sqliteTemplate.open();
 		sqliteTemplate.setAutocommit(true);
 	}
@@ -325,10 +358,10 @@ public class SqliteTemplateTest {
 	public void testSave_cascadeOff_success() {
 		// Setup
 		when(mockPersistencePolicy.isPersistent(FooModel.class)).thenReturn(true);
-		when(mockPersistencePolicy.computeModelHash(foo)).thenReturn(FOO_MODEL_HASH);
+		when(mockPersistencePolicy.getEntityKey(foo)).thenReturn(FOO_MODEL_KEY);
 		when(mockSqliteMapper.mapModel(foo)).thenReturn(mockFooModelMap);
 		when(mockPersistencePolicy.getModelTableName(FooModel.class)).thenReturn(FOO_MODEL_TABLE);
-		when(mockSqliteDb.insert(FOO_MODEL_TABLE, null, mockContentValues)).thenReturn(FOO_MODEL_ID);
+		when(mockSqliteStatement.executeInsert()).thenReturn(FOO_MODEL_ID);
 		when(mockPersistencePolicy.getCascadeMode(FooModel.class)).thenReturn(Cascade.NONE);
 		
 		// Run
@@ -336,10 +369,13 @@ public class SqliteTemplateTest {
 		
 		// Verify
 		verify(mockPersistencePolicy).isPersistent(FooModel.class);
-		verify(mockPersistencePolicy, times(2)).computeModelHash(foo);
+		verify(mockPersistencePolicy, times(2)).getEntityKey(foo);
 		verify(mockSqliteMapper).mapModel(foo);
-		verify(mockPersistencePolicy).getModelTableName(FooModel.class);
-		verify(mockSqliteDb).insert(FOO_MODEL_TABLE, null, mockContentValues);
+		verify(mockSqlBuilder).createInsertStatement(eq(FooModel.class), any(String[].class));
+		verify(mockSqliteStatement).bindLong(anyInt(), eq(1L));
+		verify(mockSqliteStatement).bindString(anyInt(), eq("b"));
+		verify(mockSqliteStatement).bindNull(anyInt());
+		verify(mockSqliteStatement).executeInsert();
 		verify(mockPersistencePolicy).getCascadeMode(FooModel.class);
 		assertEquals("ID returned by save should be equal to the expected ID", FOO_MODEL_ID, actualId);
 	}
@@ -353,10 +389,10 @@ public class SqliteTemplateTest {
 		List<Pair<OneToManyRelationship, Iterable<Object>>> otmRels = new ArrayList<Pair<OneToManyRelationship, Iterable<Object>>>();
 		List<Pair<OneToOneRelationship, Object>> otoRels = new ArrayList<Pair<OneToOneRelationship, Object>>();
 		when(mockPersistencePolicy.isPersistent(FooModel.class)).thenReturn(true);
-		when(mockPersistencePolicy.computeModelHash(foo)).thenReturn(FOO_MODEL_HASH);
+		when(mockPersistencePolicy.getEntityKey(foo)).thenReturn(FOO_MODEL_KEY);
 		when(mockSqliteMapper.mapModel(foo)).thenReturn(mockFooModelMap);
 		when(mockPersistencePolicy.getModelTableName(FooModel.class)).thenReturn(FOO_MODEL_TABLE);
-		when(mockSqliteDb.insert(FOO_MODEL_TABLE, null, mockContentValues)).thenReturn(FOO_MODEL_ID);
+		when(mockSqliteStatement.executeInsert()).thenReturn(FOO_MODEL_ID);
 		when(mockPersistencePolicy.getCascadeMode(FooModel.class)).thenReturn(Cascade.ALL);
 		when(mockFooModelMap.getManyToManyRelationships()).thenReturn(mtmRels);
 		when(mockFooModelMap.getManyToOneRelationships()).thenReturn(mtoRels);
@@ -368,10 +404,13 @@ public class SqliteTemplateTest {
 		
 		// Verify
 		verify(mockPersistencePolicy).isPersistent(FooModel.class);
-		verify(mockPersistencePolicy, times(2)).computeModelHash(foo);
+		verify(mockPersistencePolicy, times(2)).getEntityKey(foo);
 		verify(mockSqliteMapper).mapModel(foo);
-		verify(mockPersistencePolicy).getModelTableName(FooModel.class);
-		verify(mockSqliteDb).insert(FOO_MODEL_TABLE, null, mockContentValues);
+		verify(mockSqlBuilder).createInsertStatement(eq(FooModel.class), any(String[].class));
+		verify(mockSqliteStatement).bindLong(anyInt(), eq(1L));
+		verify(mockSqliteStatement).bindString(anyInt(), eq("b"));
+		verify(mockSqliteStatement).bindNull(anyInt());
+		verify(mockSqliteStatement).executeInsert();
 		verify(mockPersistencePolicy).getCascadeMode(FooModel.class);
 		verify(mockFooModelMap).getManyToManyRelationships();
 		verify(mockFooModelMap).getOneToManyRelationships();
@@ -395,10 +434,10 @@ public class SqliteTemplateTest {
 		List<Pair<OneToManyRelationship, Iterable<Object>>> otmRels = new ArrayList<Pair<OneToManyRelationship, Iterable<Object>>>();
 		List<Pair<OneToOneRelationship, Object>> otoRels = new ArrayList<Pair<OneToOneRelationship, Object>>();
 		when(mockPersistencePolicy.isPersistent(FooModel.class)).thenReturn(true);
-		when(mockPersistencePolicy.computeModelHash(foo)).thenReturn(FOO_MODEL_HASH);
+		when(mockPersistencePolicy.getEntityKey(foo)).thenReturn(FOO_MODEL_KEY);
 		when(mockSqliteMapper.mapModel(foo)).thenReturn(mockFooModelMap);
 		when(mockPersistencePolicy.getModelTableName(FooModel.class)).thenReturn(FOO_MODEL_TABLE);
-		when(mockSqliteDb.insert(FOO_MODEL_TABLE, null, mockContentValues)).thenReturn((long) -1);
+		when(mockSqliteStatement.executeInsert()).thenReturn((long) -1);
 		when(mockPersistencePolicy.getCascadeMode(FooModel.class)).thenReturn(Cascade.ALL);
 		when(mockFooModelMap.getManyToManyRelationships()).thenReturn(mtmRels);
 		when(mockFooModelMap.getManyToOneRelationships()).thenReturn(mtoRels);
@@ -410,10 +449,13 @@ public class SqliteTemplateTest {
 		
 		// Verify
 		verify(mockPersistencePolicy).isPersistent(FooModel.class);
-		verify(mockPersistencePolicy).computeModelHash(foo);
+		verify(mockPersistencePolicy).getEntityKey(foo);
 		verify(mockSqliteMapper).mapModel(foo);
-		verify(mockPersistencePolicy).getModelTableName(FooModel.class);
-		verify(mockSqliteDb).insert(FOO_MODEL_TABLE, null, mockContentValues);
+		verify(mockSqlBuilder).createInsertStatement(eq(FooModel.class), any(String[].class));
+		verify(mockSqliteStatement).bindLong(anyInt(), eq(1L));
+		verify(mockSqliteStatement).bindString(anyInt(), eq("b"));
+		verify(mockSqliteStatement).bindNull(anyInt());
+		verify(mockSqliteStatement).executeInsert();
 		verify(mockPersistencePolicy, times(0)).getCascadeMode(FooModel.class);
 		verify(mockFooModelMap, times(0)).getManyToManyRelationships();
 		verify(mockFooModelMap, times(0)).getOneToManyRelationships();
@@ -428,6 +470,227 @@ public class SqliteTemplateTest {
 		assertEquals("ID returned by save should be -1", -1, actualId);
 	}
 	
+	@Test
+	public void testSave_constraintViolation() {
+		// Setup
+		SQLiteConstraintException violation = new SQLiteConstraintException("UNIQUE constraint failed");
+		when(mockPersistencePolicy.isPersistent(FooModel.class)).thenReturn(true);
+		when(mockSqliteStatement.executeInsert()).thenThrow(violation);
+		
+		// Run
+		long actualId = sqliteTemplate.save(foo);
+		
+		// Verify
+		verify(mockLogger).error(any(String.class), eq(violation));
+		verify(mockSecondLevelCache, times(0)).invalidateTable(FOO_MODEL_TABLE);
+		verify(mockSqliteSession, times(0)).snapshot(eq(foo), any(SqliteModelMap.class));
+		assertEquals("ID returned by save should be -1", -1, actualId);
+	}
+	
+	@Test
+	public void testSaveAll_constraintViolation_writesRemainingModels() {
+		// Setup
+		List<Object> models = new ArrayList<Object>();
+		models.add(foo);
+		models.add(bar);
+		when(mockPersistencePolicy.isPersistent(FooModel.class)).thenReturn(true);
+		when(mockPersistencePolicy.isPersistent(BarModel.class)).thenReturn(true);
+		when(mockSqlBuilder.createInsertStatement(eq(BarModel.class), any(String[].class))).thenReturn("INSERT");
+		when(mockSqliteStatement.executeInsert()).thenThrow(new SQLiteConstraintException()).thenReturn(FOO_MODEL_ID);
+		when(mockPersistencePolicy.getCascadeMode(BarModel.class)).thenReturn(Cascade.NONE);
+		
+		// Run
+		List<Object> actual = sqliteTemplate.saveAll(models);
+		
+		// Verify
+		verify(mockSqliteDb).setTransactionSuccessful();
+		verify(mockSqliteDb).endTransaction();
+		assertEquals("saveAll should return only the saved model", 1, actual.size());
+		assertEquals("saveAll should return only the saved model", bar, actual.get(0));
+	}
+	
+	@Test
+	public void testSaveAll_autocommitEnabled_singleTransaction() {
+		// Setup
+		List<Object> models = new ArrayList<Object>();
+		models.add(foo);
+		models.add(bar);
+		when(mockPersistencePolicy.isPersistent(FooModel.class)).thenReturn(true);
+		when(mockPersistencePolicy.isPersistent(BarModel.class)).thenReturn(true);
+		when(mockSqlBuilder.createInsertStatement(eq(BarModel.class), any(String[].class))).thenReturn("INSERT");
+		when(mockSqliteStatement.executeInsert()).thenReturn(FOO_MODEL_ID);
+		when(mockPersistencePolicy.getCascadeMode(FooModel.class)).thenReturn(Cascade.NONE);
+		when(mockPersistencePolicy.getCascadeMode(BarModel.class)).thenReturn(Cascade.NONE);
+		
+		// Run
+		List<Object> actual = sqliteTemplate.saveAll(models);
+		
+		// Verify
+		verify(mockSqliteDb).beginTransaction();
+		verify(mockSqliteStatement, times(2)).executeInsert();
+		verify(mockSqliteDb).setTransactionSuccessful();
+		verify(mockSqliteDb).endTransaction();
+		assertEquals("saveAll should return both saved models", models, actual);
+	}
+	
+	@Test
+	public void testFlush_referencedClassWrittenFirst() {
+		// Setup
+		EntityMetadata fooMetadata = mock(EntityMetadata.class);
+		EntityMetadata barMetadata = mock(EntityMetadata.class);
+		ManyToOneRelationship rel = mock(ManyToOneRelationship.class);
+		doReturn(FooModel.class).when(rel).getOwner();
+		doReturn(FooModel.class).when(rel).getFirstType();
+		doReturn(BarModel.class).when(rel).getSecondType();
+		when(fooMetadata.getRelationshipCount()).thenReturn(1);
+		when(fooMetadata.getRelationship(0)).thenReturn(rel);
+		when(mockSqliteMapper.getEntityMetadata(FooModel.class)).thenReturn(fooMetadata);
+		when(mockSqliteMapper.getEntityMetadata(BarModel.class)).thenReturn(barMetadata);
+		when(mockPersistencePolicy.isPersistent(FooModel.class)).thenReturn(true);
+		when(mockPersistencePolicy.isPersistent(BarModel.class)).thenReturn(true);
+		when(mockSqlBuilder.createInsertStatement(eq(BarModel.class), any(String[].class))).thenReturn("INSERT");
+		when(mockSqliteStatement.executeInsert()).thenReturn(FOO_MODEL_ID);
+		when(mockPersistencePolicy.getCascadeMode(FooModel.class)).thenReturn(Cascade.NONE);
+		when(mockPersistencePolicy.getCascadeMode(BarModel.class)).thenReturn(Cascade.NONE);
+		UnitOfWork work = new UnitOfWork();
+		work.queue(foo, WriteType.SAVE);
+		work.queue(bar, WriteType.SAVE);
+
+		// Run
+		List<Object> actual = sqliteTemplate.flush(work);
+
+		// Verify
+		InOrder inOrder = Mockito.inOrder(mockSqliteMapper);
+		inOrder.verify(mockSqliteMapper).mapModel(bar);
+		inOrder.verify(mockSqliteMapper).mapModel(foo);
+		assertEquals("flush should return both saved models", 2, actual.size());
+		assertEquals("Referenced model should be written first", bar, actual.get(0));
+	}
+
+	@Test
+	public void testSaveAll_failureDiscardsSnapshots() {
+		// Setup
+		List<Object> models = new ArrayList<Object>();
+		models.add(foo);
+		models.add(bar);
+		when(mockPersistencePolicy.isPersistent(FooModel.class)).thenReturn(true);
+		when(mockPersistencePolicy.isPersistent(BarModel.class)).thenReturn(true);
+		when(mockSqlBuilder.createInsertStatement(eq(BarModel.class), any(String[].class))).thenThrow(new SQLException());
+		when(mockSqliteStatement.executeInsert()).thenReturn(FOO_MODEL_ID);
+		when(mockPersistencePolicy.getCascadeMode(FooModel.class)).thenReturn(Cascade.NONE);
+		when(mockPersistencePolicy.getCascadeMode(BarModel.class)).thenReturn(Cascade.NONE);
+
+		// Run
+		try {
+			sqliteTemplate.saveAll(models);
+			fail("saveAll should have thrown the statement's exception");
+		} catch (SQLException e) {
+		}
+
+		// Verify
+		verify(mockSqliteDb, times(0)).setTransactionSuccessful();
+		verify(mockSqliteDb).endTransaction();
+		verify(mockSqliteSession).discardSnapshots();
+	}
+
+	@Test
+	public void testUpdate_unchangedSinceSnapshot() {
+		// Setup
+		SqliteModelMap map = createFooModelMap("foo");
+		when(mockPersistencePolicy.isPersistent(FooModel.class)).thenReturn(true);
+		when(mockSqliteMapper.mapModel(foo)).thenReturn(map);
+		when(mockPersistencePolicy.getCascadeMode(FooModel.class)).thenReturn(Cascade.ALL);
+		when(mockSqliteSession.getSnapshot(foo)).thenReturn(new EntitySnapshot(foo, createFooModelMap("foo"), mockPersistencePolicy));
+		
+		// Run
+		boolean success = sqliteTemplate.update(foo);
+		
+		// Verify
+		verify(mockSqlBuilder, times(0)).createUpdateStatement(eq(FooModel.class), any(String[].class));
+		verify(mockSqliteStatement, times(0)).execute();
+		verify(mockSqliteSession).snapshot(foo, map);
+		assertTrue("update should succeed without writing", success);
+	}
+	
+	@Test
+	public void testUpdate_changedSinceSnapshot() {
+		// Setup
+		SqliteModelMap map = createFooModelMap("bar");
+		when(mockPersistencePolicy.isPersistent(FooModel.class)).thenReturn(true);
+		when(mockSqliteMapper.mapModel(foo)).thenReturn(map);
+		when(mockPersistencePolicy.getCascadeMode(FooModel.class)).thenReturn(Cascade.ALL);
+		when(mockSqliteSession.getSnapshot(foo)).thenReturn(new EntitySnapshot(foo, createFooModelMap("foo"), mockPersistencePolicy));
+		when(mockSqlBuilder.createUpdateStatement(eq(FooModel.class), any(String[].class))).thenReturn("UPDATE");
+		when(mockSqliteStatement.simpleQueryForLong()).thenReturn(1L);
+		
+		// Run
+		boolean success = sqliteTemplate.update(foo);
+		
+		// Verify
+		verify(mockSqlBuilder).createUpdateStatement(FooModel.class, new String[] { "name" });
+		verify(mockSqliteStatement).bindString(1, "bar");
+		verify(mockSqliteStatement).bindLong(2, FOO_MODEL_ID);
+		verify(mockSqliteSession).snapshot(foo, map);
+		verify(mockSecondLevelCache).invalidate(new EntityKey(FooModel.class, FOO_MODEL_ID), FOO_MODEL_TABLE);
+		assertTrue("update should succeed", success);
+	}
+	
+	@Test
+	public void testCommit_invalidatesRowsCachedDuringTransaction() {
+		// Setup
+		final boolean[] inTransaction = new boolean[] { true };
+		when(mockSqliteDb.inTransaction()).thenAnswer(new Answer<Boolean>() {
+			@Override
+			public Boolean answer(InvocationOnMock invocation) {
+				return inTransaction[0];
+			}
+		});
+		doAnswer(new Answer<Void>() {
+			@Override
+			public Void answer(InvocationOnMock invocation) {
+				inTransaction[0] = false;
+				return null;
+			}
+		}).when(mockSqliteDb).endTransaction();
+		SecondLevelCache cache = SecondLevelCache.getInstance();
+		cache.clear();
+		sqliteTemplate.mSecondLevelCache = cache;
+		EntityKey key = new EntityKey(FooModel.class, FOO_MODEL_ID);
+		when(mockTransactionStack.size()).thenReturn(1);
+		when(mockPersistencePolicy.isPersistent(FooModel.class)).thenReturn(true);
+		when(mockSqliteMapper.mapModel(foo)).thenReturn(createFooModelMap("bar"));
+		when(mockPersistencePolicy.getCascadeMode(FooModel.class)).thenReturn(Cascade.ALL);
+		when(mockSqlBuilder.createUpdateStatement(eq(FooModel.class), any(String[].class))).thenReturn("UPDATE");
+		when(mockSqliteStatement.simpleQueryForLong()).thenReturn(1L);
+		sqliteTemplate.setAutocommit(false);
+		sqliteTemplate.update(foo);
+		// Another connection reads the committed row after the update invalidated it
+		long version = cache.getTableVersions(FOO_MODEL_TABLE)[0];
+		cache.putEntity(key, createCursor(), FOO_MODEL_TABLE, version, 10, 0);
+		assertNotNull("Row read during the transaction should be cached", cache.getEntity(key));
+
+		// Run
+		sqliteTemplate.commit();
+
+		// Verify
+		assertNull("Row read during the transaction should be evicted on commit", cache.getEntity(key));
+		cache.clear();
+	}
+
+	@Test(expected = InfinitumRuntimeException.class)
+	public void testUpdate_readOnlyCacheStrategyThrowsException() {
+		// Setup
+		when(mockPersistencePolicy.isPersistent(FooModel.class)).thenReturn(true);
+		when(mockSqliteMapper.mapModel(foo)).thenReturn(createFooModelMap("bar"));
+		when(mockPersistencePolicy.getCacheStrategy(FooModel.class)).thenReturn(CacheStrategy.READ_ONLY);
+		
+		// Run
+		sqliteTemplate.update(foo);
+		
+		// Verify
+		assertTrue("Updating a read-only cached model should have thrown an exception", false);
+	}
+	
 	@Test
 	public void testSave_oneToOneRelationship_updateRelated_success() {
 		// TODO
@@ -443,6 +706,27 @@ public class SqliteTemplateTest {
 		// TODO
 	}
 	
+	private SqliteModelMap createFooModelMap(String name) {
+		SqliteModelMap map = new SqliteModelMap(foo);
+		ContentValues values = new ContentValues();
+		values.put("name", name);
+		values.put("count", 3L);
+		map.setContentValues(values);
+		return map;
+	}
+	
+	private AbstractWindowedCursor createCursor() {
+		AbstractWindowedCursor cursor = mock(AbstractWindowedCursor.class);
+		when(cursor.getColumnCount()).thenReturn(2);
+		when(cursor.getColumnNames()).thenReturn(new String[] { "id", "name" });
+		when(cursor.getCount()).thenReturn(1);
+		when(cursor.moveToNext()).thenReturn(true, false);
+		when(cursor.isLong(0)).thenReturn(true);
+		when(cursor.getLong(0)).thenReturn(FOO_MODEL_ID);
+		when(cursor.getString(1)).thenReturn("foo");
+		return cursor;
+	}
+
 	private static class FooModel {
 		@SuppressWarnings("unused")
 		public long id;
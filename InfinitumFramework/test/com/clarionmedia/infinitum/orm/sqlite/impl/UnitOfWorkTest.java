@@ -0,0 +1,121 @@
+package com.clarionmedia.infinitum.orm.sqlite.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.clarionmedia.infinitum.orm.sqlite.impl.UnitOfWork.WriteType;
+
+public class UnitOfWorkTest {
+
+	private UnitOfWork unitOfWork;
+
+	@Before
+	public void setup() {
+		unitOfWork = new UnitOfWork();
+	}
+
+	@Test
+	public void testQueue_repeatedUpdates() {
+		// Setup
+		Object model = new Object();
+
+		// Run
+		unitOfWork.queue(model, WriteType.UPDATE);
+		unitOfWork.queue(model, WriteType.UPDATE);
+
+		// Verify
+		assertEquals("Repeated updates should be queued once", 1, unitOfWork.getEntities().size());
+		assertEquals("Entity should be queued for update", WriteType.UPDATE, unitOfWork.getWriteType(model));
+	}
+
+	@Test
+	public void testQueue_saveThenUpdate() {
+		// Setup
+		Object model = new Object();
+
+		// Run
+		unitOfWork.queue(model, WriteType.SAVE);
+		unitOfWork.queue(model, WriteType.UPDATE);
+
+		// Verify
+		assertEquals("Entity should still be queued for save", WriteType.SAVE, unitOfWork.getWriteType(model));
+	}
+
+	@Test
+	public void testQueue_saveThenDelete() {
+		// Setup
+		Object model = new Object();
+		Object other = new Object();
+
+		// Run
+		unitOfWork.queue(model, WriteType.SAVE);
+		unitOfWork.queue(other, WriteType.UPDATE);
+		unitOfWork.queue(model, WriteType.DELETE);
+
+		// Verify
+		assertNull("Entity should no longer be queued", unitOfWork.getWriteType(model));
+		assertEquals("Only the other entity should be queued", 1, unitOfWork.getEntities().size());
+		assertEquals("Only the other entity should be queued", other, unitOfWork.getEntities().get(0));
+	}
+
+	@Test
+	public void testQueue_updateThenDelete() {
+		// Setup
+		Object model = new Object();
+
+		// Run
+		unitOfWork.queue(model, WriteType.UPDATE);
+		unitOfWork.queue(model, WriteType.DELETE);
+
+		// Verify
+		assertEquals("Entity should be queued for delete", WriteType.DELETE, unitOfWork.getWriteType(model));
+		assertEquals("Entity should be queued for delete", 1, unitOfWork.getEntities(WriteType.DELETE).size());
+		assertTrue("No entities should be queued for update", unitOfWork.getEntities(WriteType.UPDATE).isEmpty());
+	}
+
+	@Test
+	public void testQueue_saveAfterDelete() {
+		// Setup
+		Object model = new Object();
+		unitOfWork.queue(model, WriteType.DELETE);
+
+		// Run
+		boolean queued = unitOfWork.queue(model, WriteType.SAVE);
+
+		// Verify
+		assertFalse("Save of a deleted entity should not be queued", queued);
+		assertEquals("Entity should still be queued for delete", WriteType.DELETE, unitOfWork.getWriteType(model));
+	}
+
+	@Test
+	public void testQueue_updateAfterDelete() {
+		// Setup
+		Object model = new Object();
+		unitOfWork.queue(model, WriteType.DELETE);
+
+		// Run
+		boolean queued = unitOfWork.queue(model, WriteType.UPDATE);
+
+		// Verify
+		assertFalse("Update of a deleted entity should not be queued", queued);
+		assertEquals("Entity should still be queued for delete", WriteType.DELETE, unitOfWork.getWriteType(model));
+	}
+
+	@Test
+	public void testClear() {
+		// Setup
+		unitOfWork.queue(new Object(), WriteType.SAVE);
+
+		// Run
+		unitOfWork.clear();
+
+		// Verify
+		assertTrue("Unit of work should be empty", unitOfWork.isEmpty());
+	}
+
+}
@@ -0,0 +1,212 @@
+package com.clarionmedia.infinitum.reflection;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class FieldAccessorTest {
+
+	private Model model;
+
+	@Before
+	public void setup() {
+		model = new Model();
+	}
+
+	@Test
+	public void testForField_cached() throws NoSuchFieldException {
+		// Run
+		FieldAccessor first = FieldAccessor.forField(Model.class.getDeclaredField("mInt"));
+		FieldAccessor second = FieldAccessor.forField(Model.class.getDeclaredField("mInt"));
+
+		// Verify
+		assertSame("Accessor should be cached per field", first, second);
+	}
+
+	@Test
+	public void testSetInt() throws Exception {
+		// Run
+		accessor("mInt").setInt(model, 42);
+		accessor("mIntWrapper").setInt(model, 43);
+
+		// Verify
+		assertEquals("Primitive field should be set", 42, model.mInt);
+		assertEquals("Wrapper field should be set", Integer.valueOf(43), model.mIntWrapper);
+	}
+
+	@Test
+	public void testSetLong() throws Exception {
+		// Run
+		accessor("mLong").setLong(model, 42L);
+		accessor("mLongWrapper").setLong(model, 43L);
+
+		// Verify
+		assertEquals("Primitive field should be set", 42L, model.mLong);
+		assertEquals("Wrapper field should be set", Long.valueOf(43L), model.mLongWrapper);
+	}
+
+	@Test
+	public void testSetFloat() throws Exception {
+		// Run
+		accessor("mFloat").setFloat(model, 4.2f);
+		accessor("mFloatWrapper").setFloat(model, 4.3f);
+
+		// Verify
+		assertEquals("Primitive field should be set", 4.2f, model.mFloat, 0);
+		assertEquals("Wrapper field should be set", Float.valueOf(4.3f), model.mFloatWrapper);
+	}
+
+	@Test
+	public void testSetDouble() throws Exception {
+		// Run
+		accessor("mDouble").setDouble(model, 4.2);
+		accessor("mDoubleWrapper").setDouble(model, 4.3);
+
+		// Verify
+		assertEquals("Primitive field should be set", 4.2, model.mDouble, 0);
+		assertEquals("Wrapper field should be set", Double.valueOf(4.3), model.mDoubleWrapper);
+	}
+
+	@Test
+	public void testSetShort() throws Exception {
+		// Run
+		accessor("mShort").setShort(model, (short) 42);
+		accessor("mShortWrapper").setShort(model, (short) 43);
+
+		// Verify
+		assertEquals("Primitive field should be set", 42, model.mShort);
+		assertEquals("Wrapper field should be set", Short.valueOf((short) 43), model.mShortWrapper);
+	}
+
+	@Test
+	public void testSetByte() throws Exception {
+		// Run
+		accessor("mByte").setByte(model, (byte) 42);
+		accessor("mByteWrapper").setByte(model, (byte) 43);
+
+		// Verify
+		assertEquals("Primitive field should be set", 42, model.mByte);
+		assertEquals("Wrapper field should be set", Byte.valueOf((byte) 43), model.mByteWrapper);
+	}
+
+	@Test
+	public void testSetBoolean() throws Exception {
+		// Run
+		accessor("mBoolean").setBoolean(model, true);
+		accessor("mBooleanWrapper").setBoolean(model, true);
+
+		// Verify
+		assertTrue("Primitive field should be set", model.mBoolean);
+		assertEquals("Wrapper field should be set", Boolean.TRUE, model.mBooleanWrapper);
+	}
+
+	@Test
+	public void testSetChar() throws Exception {
+		// Run
+		accessor("mChar").setChar(model, 'a');
+		accessor("mCharWrapper").setChar(model, 'b');
+
+		// Verify
+		assertEquals("Primitive field should be set", 'a', model.mChar);
+		assertEquals("Wrapper field should be set", Character.valueOf('b'), model.mCharWrapper);
+	}
+
+	@Test
+	public void testSetInt_widensPrimitive() throws Exception {
+		// Run
+		accessor("mLong").setInt(model, 42);
+
+		// Verify
+		assertEquals("int should be widened for a long field", 42L, model.mLong);
+	}
+
+	@Test
+	public void testSetInt_mismatchedWrapper() throws Exception {
+		try {
+			// Run
+			accessor("mLongWrapper").setInt(model, 42);
+			fail("Integer should not be assignable to a Long field");
+		} catch (IllegalArgumentException e) {
+			// Verify
+			assertNull("Wrapper field should be unchanged", model.mLongWrapper);
+		}
+	}
+
+	@Test
+	public void testGetLong() throws Exception {
+		// Setup
+		model.mLong = Long.MAX_VALUE;
+		model.mInt = -42;
+		model.mShort = 7;
+		model.mByte = -1;
+		model.mChar = 'a';
+
+		// Verify
+		assertEquals("long field should be read", Long.MAX_VALUE, accessor("mLong").getLong(model));
+		assertEquals("int field should be widened", -42L, accessor("mInt").getLong(model));
+		assertEquals("short field should be widened", 7L, accessor("mShort").getLong(model));
+		assertEquals("byte field should be widened", -1L, accessor("mByte").getLong(model));
+		assertEquals("char field should be widened", 97L, accessor("mChar").getLong(model));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testGetLong_wrapper() throws Exception {
+		// Setup
+		model.mLongWrapper = 42L;
+
+		// Run
+		accessor("mLongWrapper").getLong(model);
+	}
+
+	@Test
+	public void testGet() throws Exception {
+		// Setup
+		model.mInt = 42;
+		model.mString = "foo";
+
+		// Verify
+		assertEquals("Primitive field should be boxed", Integer.valueOf(42), accessor("mInt").get(model));
+		assertEquals("Object field should be read", "foo", accessor("mString").get(model));
+	}
+
+	@Test
+	public void testSet() throws Exception {
+		// Run
+		accessor("mString").set(model, "foo");
+		accessor("mInt").set(model, 42);
+
+		// Verify
+		assertEquals("Object field should be set", "foo", model.mString);
+		assertEquals("Primitive field should be unboxed", 42, model.mInt);
+	}
+
+	private static FieldAccessor accessor(String name) throws NoSuchFieldException {
+		return FieldAccessor.forField(Model.class.getDeclaredField(name));
+	}
+
+	private static class Model {
+		private int mInt;
+		private Integer mIntWrapper;
+		private long mLong;
+		private Long mLongWrapper;
+		private float mFloat;
+		private Float mFloatWrapper;
+		private double mDouble;
+		private Double mDoubleWrapper;
+		private short mShort;
+		private Short mShortWrapper;
+		private byte mByte;
+		private Byte mByteWrapper;
+		private boolean mBoolean;
+		private Boolean mBooleanWrapper;
+		private char mChar;
+		private Character mCharWrapper;
+		private String mString;
+	}
+
+}